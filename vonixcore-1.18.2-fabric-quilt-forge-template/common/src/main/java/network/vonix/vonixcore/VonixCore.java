@@ -1,26 +1,24 @@
 package network.vonix.vonixcore;
 
 import dev.architectury.event.events.common.LifecycleEvent;
-import network.vonix.vonixcore.admin.AdminManager;
 import network.vonix.vonixcore.auth.AuthenticationManager;
 import network.vonix.vonixcore.auth.api.VonixNetworkAPI;
 import network.vonix.vonixcore.config.*;
 import network.vonix.vonixcore.config.simple.SimpleConfigManager;
 import network.vonix.vonixcore.consumer.Consumer;
 import network.vonix.vonixcore.database.Database;
+import network.vonix.vonixcore.database.DataPurger;
+import network.vonix.vonixcore.database.DatabaseBackup;
 import network.vonix.vonixcore.discord.DiscordManager;
-import network.vonix.vonixcore.homes.HomeManager;
 import network.vonix.vonixcore.kits.KitManager;
 import network.vonix.vonixcore.permissions.PermissionManager;
 import network.vonix.vonixcore.platform.Platform;
 import network.vonix.vonixcore.teleport.TeleportManager;
-import network.vonix.vonixcore.warps.WarpManager;
 import network.vonix.vonixcore.statssync.StatsSyncManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.file.Path;
-import java.sql.Connection;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
@@ -117,6 +115,14 @@ public class VonixCore {
         // Register Essentials events
         network.vonix.vonixcore.listener.EssentialsEventHandler.init();
         
+        // Register block logging events
+        network.vonix.vonixcore.listener.BlockLogEventHandler.init();
+        network.vonix.vonixcore.listener.ContainerLogEventHandler.init();
+        network.vonix.vonixcore.listener.ChatLogEventHandler.init();
+        network.vonix.vonixcore.listener.EntityLogEventHandler.init();
+        network.vonix.vonixcore.rollback.RollbackManager.init();
+        network.vonix.vonixcore.lookup.LookupManager.init();
+
         // Register Auth events and initialize freeze cache
         network.vonix.vonixcore.auth.events.AuthEventHandler.init();
         network.vonix.vonixcore.auth.AuthenticationManager.updateFreezeCache();
@@ -140,8 +146,21 @@ public class VonixCore {
             }, ASYNC_EXECUTOR);
             
             // Wait for database initialization with timeout
-            dbInitFuture.get(15, TimeUnit.SECONDS);
+            try {
+                dbInitFuture.get(15, TimeUnit.SECONDS);
+            } catch (java.util.concurrent.TimeoutException e) {
+                // A long schema migration is progress, not a hung connection
+                if (!database.isMigrating()) {
+                    throw e;
+                }
+                LOGGER.info("[{}] Waiting for database schema migration to finish...", MOD_NAME);
+                dbInitFuture.get();
+            }
             LOGGER.info("[{}] Database initialized", MOD_NAME);
+
+            // Start the log writer now that the vp_* tables exist
+            Consumer.getInstance().start();
+            DataPurger.getInstance().start();
         } catch (java.util.concurrent.TimeoutException e) {
             LOGGER.error("[{}] Database initialization timed out after 15 seconds!", MOD_NAME);
             LOGGER.error("[{}] The server will continue without database functionality.", MOD_NAME);
@@ -165,20 +184,17 @@ public class VonixCore {
 
         // Initialize Essentials module
         if (EssentialsConfig.CONFIG.enabled.get() && database != null) {
-            try (Connection conn = database.getConnection()) {
-                if (EssentialsConfig.CONFIG.homesEnabled.get()) {
-                    HomeManager.getInstance().initializeTable(conn);
-                }
-                if (EssentialsConfig.CONFIG.warpsEnabled.get()) {
-                    WarpManager.getInstance().initializeTable(conn);
-                }
+            // Tables were created by the schema migration in Database.initialize
+            try {
                 if (EssentialsConfig.CONFIG.kitsEnabled.get()) {
-                    KitManager.getInstance().initializeTable(conn);
                     KitManager.getInstance().loadDefaultKits();
                 }
-                AdminManager.getInstance().initializeTable(conn);
 
-                PermissionManager.getInstance().initialize(conn);
+                // May create the default group
+                database.write(conn -> {
+                    PermissionManager.getInstance().initialize(conn);
+                    return null;
+                });
                 LOGGER.info("[{}] Permission system initialized", MOD_NAME);
 
                 // Jobs excluded
@@ -220,6 +236,10 @@ public class VonixCore {
     }
 
     private void onServerStarted(net.minecraft.server.MinecraftServer server) {
+        if (database != null) {
+            database.watchServerThread(true);
+        }
+
         // Initialize Discord module (requires server to be fully started)
         if (DiscordConfig.CONFIG.enabled.get()) {
             try {
@@ -243,6 +263,9 @@ public class VonixCore {
 
     private void onServerStopping(net.minecraft.server.MinecraftServer server) {
         LOGGER.info("[{}] Shutting down...", MOD_NAME);
+        if (database != null) {
+            database.watchServerThread(false);
+        }
 
         // Shutdown Discord with timeout
         if (discordEnabled) {
@@ -298,6 +321,16 @@ public class VonixCore {
             }
         }
 
+        // Flush pending log entries while the database is still open
+        try {
+            DataPurger.getInstance().stop();
+            DatabaseBackup.stop();
+            network.vonix.vonixcore.rollback.RollbackManager.stop();
+            Consumer.getInstance().stop();
+        } catch (Throwable e) {
+            LOGGER.error("[{}] Error stopping consumer", MOD_NAME, e);
+        }
+
         // Close database last
         if (database != null) {
             try {
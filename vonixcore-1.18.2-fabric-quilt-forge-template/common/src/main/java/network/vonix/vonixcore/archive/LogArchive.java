@@ -0,0 +1,268 @@
+package network.vonix.vonixcore.archive;
+
+import network.vonix.vonixcore.VonixCore;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Old log rows moved out of the database, in compressed files under
+ * {@code <world>/vonixcore/archive/<table>/<world id>/<yyyy-mm-dd>.vca},
+ * one file per table, world and (UTC) day.
+ *
+ * Rows keep their SQL ids. A file only takes rows with a higher id than it
+ * already holds, so archiving a range again after a crash, before its rows
+ * were deleted from the database, does not store them twice.
+ *
+ * Appends come from the purge thread only; scans may run on any thread.
+ */
+public final class LogArchive {
+
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final String EXTENSION = ".vca";
+
+    private final Path root;
+    // Writer only: highest id in each file touched so far
+    private final Map<Path, Long> lastIds = new HashMap<>();
+    // Per table, the end of the newest archived day
+    private final long[] newestTime = new long[ArchiveTable.values().length];
+
+    public LogArchive(Path root) {
+        this.root = root;
+        for (ArchiveTable table : ArchiveTable.values()) {
+            for (Path file : listFiles(table, 0)) {
+                long day = dayOf(file);
+                newestTime[table.ordinal()] = Math.max(newestTime[table.ordinal()], (day + 1) * DAY_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * @return true if the archive may hold rows of this table at or after the time
+     */
+    public boolean covers(ArchiveTable table, long since) {
+        synchronized (newestTime) {
+            return newestTime[table.ordinal()] > since;
+        }
+    }
+
+    /**
+     * Purge thread: add rows of one world, sorted by id. Rows already in
+     * their day's file are skipped.
+     */
+    public void append(ArchiveTable table, int world, List<ArchivedRow> rows) throws IOException {
+        Map<Long, List<ArchivedRow>> days = new LinkedHashMap<>();
+        for (ArchivedRow row : rows) {
+            days.computeIfAbsent(Math.floorDiv(row.time(), DAY_MILLIS), d -> new ArrayList<>()).add(row);
+        }
+        for (Map.Entry<Long, List<ArchivedRow>> day : days.entrySet()) {
+            Path file = root.resolve(table.getTable()).resolve(Integer.toString(world))
+                    .resolve(LocalDate.ofEpochDay(day.getKey()) + EXTENSION);
+            Long lastId = lastIds.get(file);
+            if (lastId == null) {
+                lastId = 0L;
+                for (ArchiveFile.Block block : ArchiveFile.readBlocks(file, table.getColumnCount(), true)) {
+                    lastId = Math.max(lastId, block.maxId());
+                }
+            }
+            List<ArchivedRow> fresh = new ArrayList<>(day.getValue().size());
+            for (ArchivedRow row : day.getValue()) {
+                if (row.id() > lastId) {
+                    fresh.add(row);
+                }
+            }
+            if (!fresh.isEmpty()) {
+                ArchiveFile.append(file, table.getColumnCount(), fresh);
+                lastId = fresh.get(fresh.size() - 1).id();
+            }
+            lastIds.put(file, lastId);
+            synchronized (newestTime) {
+                newestTime[table.ordinal()] = Math.max(newestTime[table.ordinal()], (day.getKey() + 1) * DAY_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Forget cached file state; call when the archive job finishes.
+     */
+    public void flush() {
+        lastIds.clear();
+    }
+
+    /**
+     * Read archived rows block by block, as the caller pulls them.
+     *
+     * @param world       world id, or 0 for every world
+     * @param newestFirst walk days and blocks from the newest, and sort each
+     *                    block's rows by time, then id, in that direction
+     */
+    public Scan scan(ArchiveTable table, int world, Filter filter, boolean newestFirst) {
+        List<Path> files = new ArrayList<>();
+        long firstDay = Math.floorDiv(filter.since(), DAY_MILLIS);
+        for (Path file : listFiles(table, world)) {
+            if (dayOf(file) >= firstDay) {
+                files.add(file);
+            }
+        }
+        Comparator<Path> byDay = Comparator.comparingLong(LogArchive::dayOf);
+        files.sort(newestFirst ? byDay.reversed() : byDay);
+        return new Scan(table, files, filter, newestFirst);
+    }
+
+    private List<Path> listFiles(ArchiveTable table, int world) {
+        List<Path> files = new ArrayList<>();
+        Path tableDir = root.resolve(table.getTable());
+        if (!Files.isDirectory(tableDir)) {
+            return files;
+        }
+        try (DirectoryStream<Path> worlds = Files.newDirectoryStream(tableDir, Files::isDirectory)) {
+            for (Path worldDir : worlds) {
+                if (worldId(worldDir) == 0 || (world != 0 && worldId(worldDir) != world)) {
+                    continue;
+                }
+                try (DirectoryStream<Path> days = Files.newDirectoryStream(worldDir, "*" + EXTENSION)) {
+                    for (Path file : days) {
+                        if (dayOf(file) != Long.MIN_VALUE) {
+                            files.add(file);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            VonixCore.LOGGER.warn("[VonixCore] Failed to list archive files in {}: {}", tableDir, e.getMessage());
+        }
+        return files;
+    }
+
+    private static int worldId(Path worldDir) {
+        try {
+            return Integer.parseInt(worldDir.getFileName().toString());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return the file's day since the epoch, or Long.MIN_VALUE if it is not an archive file
+     */
+    private static long dayOf(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return LocalDate.parse(name.substring(0, name.length() - EXTENSION.length())).toEpochDay();
+        } catch (DateTimeParseException | IndexOutOfBoundsException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Which rows a scan returns. Bounds are inclusive.
+     *
+     * @param users      vp_user ids; empty = everyone
+     * @param actions    action ids; empty = all actions
+     * @param rolledBack 0 or 1 to match that flag, -1 for either
+     */
+    public record Filter(long since, Set<Integer> users, Set<Integer> actions, int rolledBack,
+            int minX, int maxX, int minY, int maxY, int minZ, int maxZ) {
+
+        public static Filter everywhere(long since, Set<Integer> users, Set<Integer> actions, int rolledBack) {
+            return new Filter(since, users, actions, rolledBack, Integer.MIN_VALUE, Integer.MAX_VALUE,
+                    Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+
+        public Filter within(int minX, int maxX, int minY, int maxY, int minZ, int maxZ) {
+            return new Filter(since, users, actions, rolledBack, minX, maxX, minY, maxY, minZ, maxZ);
+        }
+
+        boolean mayMatch(ArchiveFile.Block block) {
+            return block.maxTime() >= since && block.minX() <= maxX && block.maxX() >= minX
+                    && block.minZ() <= maxZ && block.maxZ() >= minZ;
+        }
+
+        boolean matches(ArchivedRow row) {
+            int x = row.get(ArchiveTable.X);
+            int y = row.get(ArchiveTable.Y);
+            int z = row.get(ArchiveTable.Z);
+            return row.time() >= since
+                    && x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ
+                    && (rolledBack < 0 || (row.get(ArchiveTable.ROLLED_BACK) != 0) == (rolledBack == 1))
+                    && (users.isEmpty() || users.contains(row.get(ArchiveTable.USER)))
+                    && (actions.isEmpty() || actions.contains(row.get(ArchiveTable.ACTION)));
+        }
+    }
+
+    /**
+     * Walks the matching rows of a list of files, one block at a time.
+     */
+    public static final class Scan {
+        private static final Comparator<ArchivedRow> OLDEST_FIRST = Comparator.comparingLong(ArchivedRow::time)
+                .thenComparingLong(ArchivedRow::id);
+
+        private final ArchiveTable table;
+        private final List<Path> files;
+        private final Filter filter;
+        private final boolean newestFirst;
+        private int fileIndex;
+        private Path file;
+        private int world;
+        private List<ArchiveFile.Block> blocks = List.of();
+        private int blockIndex;
+
+        private Scan(ArchiveTable table, List<Path> files, Filter filter, boolean newestFirst) {
+            this.table = table;
+            this.files = files;
+            this.filter = filter;
+            this.newestFirst = newestFirst;
+        }
+
+        /**
+         * @return the matching rows of the next block that has any, or null
+         *         once there are none
+         */
+        public List<ArchivedRow> next() throws IOException {
+            while (true) {
+                if (blockIndex == blocks.size()) {
+                    if (fileIndex == files.size()) {
+                        return null;
+                    }
+                    file = files.get(fileIndex++);
+                    world = worldId(file.getParent());
+                    blocks = ArchiveFile.readBlocks(file, table.getColumnCount(), false);
+                    blockIndex = 0;
+                    continue;
+                }
+                ArchiveFile.Block block = blocks.get(newestFirst ? blocks.size() - 1 - blockIndex : blockIndex);
+                blockIndex++;
+                if (!filter.mayMatch(block)) {
+                    continue;
+                }
+                List<ArchivedRow> rows = new ArrayList<>();
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    for (ArchivedRow row : ArchiveFile.readRows(channel, block, world, table.getColumnCount())) {
+                        if (filter.matches(row)) {
+                            rows.add(row);
+                        }
+                    }
+                }
+                if (!rows.isEmpty()) {
+                    rows.sort(newestFirst ? OLDEST_FIRST.reversed() : OLDEST_FIRST);
+                    return rows;
+                }
+            }
+        }
+    }
+}
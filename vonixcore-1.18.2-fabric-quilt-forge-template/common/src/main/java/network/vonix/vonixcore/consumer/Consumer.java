@@ -2,11 +2,30 @@ package network.vonix.vonixcore.consumer;
 
 import network.vonix.vonixcore.VonixCore;
 import network.vonix.vonixcore.config.DatabaseConfig;
+import network.vonix.vonixcore.database.Database;
+import network.vonix.vonixcore.database.SqlDialect;
+import network.vonix.vonixcore.history.BlockHistory;
+import network.vonix.vonixcore.history.BlockRecord;
+import network.vonix.vonixcore.history.SegmentBlockHistory;
+import network.vonix.vonixcore.platform.Platform;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -15,9 +34,34 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class Consumer {
 
     private static Consumer instance;
+    // Picks the log statements, which quote the user column per database
+    private static volatile SqlDialect dialect = SqlDialect.SQLITE;
 
-    private final ConcurrentLinkedQueue<QueueEntry> queue = new ConcurrentLinkedQueue<>();
-    private final ScheduledExecutorService executor;
+    // Rounds a writer may have waiting before the Consumer thread stops handing it more
+    private static final int MAX_WRITER_BACKLOG = 8;
+
+    private final EntryQueue queue;
+    // Recycled block entries so the event hooks don't allocate per block change
+    private final ArrayBlockingQueue<BlockLogEntry> blockEntryPool;
+    private final Dictionary dictionary = new Dictionary();
+    // One per connection writing log rows; a single one unless writer_threads is raised
+    private ShardWriter[] writers;
+    // Entries of the current round per writer; only touched by the Consumer thread
+    private List<QueueEntry>[] outgoing;
+    // Highest journal sequence number taken off the queue, and the lowest ceiling handed to the writers
+    private long dispatchedSequence;
+    private volatile long dispatchedCeiling;
+    private Iterator<LogEntry> replay;
+    // Merges repeated block changes before they are batched; null when disabled
+    private volatile Coalescer coalescer;
+    // Block changes go here instead of vp_block when block_store is 'segments'
+    private volatile BlockHistory blockHistory;
+    private volatile LoggedPositions loggedPositions;
+    // Set while stopping so held entries are written out regardless of their window
+    private boolean draining;
+    private volatile EntryJournal journal;
+    private boolean forceJournalPerBatch;
+    private ScheduledExecutorService executor;
     private final AtomicBoolean running = new AtomicBoolean(false);
     private final AtomicBoolean paused = new AtomicBoolean(false);
 
@@ -29,26 +73,79 @@ public class Consumer {
     }
 
     private Consumer() {
-        executor = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread thread = new Thread(r, "vonixcore-Consumer");
-            thread.setDaemon(true);
-            return thread;
-        });
+        int poolSize = DatabaseConfig.CONFIG.consumerBatchSize.get() * 4;
+        blockEntryPool = new ArrayBlockingQueue<>(poolSize);
+        for (int i = 0; i < DatabaseConfig.CONFIG.consumerBatchSize.get(); i++) {
+            blockEntryPool.offer(new BlockLogEntry());
+        }
+        queue = new EntryQueue(
+                DatabaseConfig.CONFIG.consumerQueueCapacity.get(),
+                EntryQueue.OverflowPolicy.fromConfig(DatabaseConfig.CONFIG.consumerOverflowPolicy.get()),
+                DatabaseConfig.CONFIG.consumerBlockMs.get(),
+                Platform.getConfigDirectory().resolve("vonixcore").resolve("spill"),
+                this::release);
     }
 
     public void start() {
         if (running.compareAndSet(false, true)) {
+            // A fresh executor per start so the consumer survives an integrated server restart
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "vonixcore-Consumer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // Ids may differ if the database changed since the last start
+            dictionary.clear();
+            dialect = VonixCore.getInstance().getDatabase().getDialect();
+            int writerCount = getWriterCount();
+            long[][] committed = loadCommittedSequences(writerCount);
+            writers = new ShardWriter[writerCount];
+            outgoing = newOutgoing(writerCount);
+            boolean copy = VonixCore.getInstance().getDatabase().isPostgreSQL()
+                    && DatabaseConfig.CONFIG.consumerCopy.get();
+            blockHistory = openBlockHistory();
+            int filterRegions = DatabaseConfig.CONFIG.lookupFilterRegions.get();
+            loggedPositions = filterRegions > 0
+                    ? new LoggedPositions(filterRegions, VonixCore.getInstance().getDatabase(), dictionary, blockHistory)
+                    : null;
+            long floor = Long.MAX_VALUE;
+            for (int i = 0; i < writerCount; i++) {
+                writers[i] = new ShardWriter(i, committed[i], dictionary, copy, blockHistory, loggedPositions,
+                        this::release);
+                for (long mark : committed[i]) {
+                    floor = Math.min(floor, mark);
+                }
+            }
+            dispatchedSequence = floor;
+            dispatchedCeiling = floor;
+            if (DatabaseConfig.CONFIG.consumerJournal.get()) {
+                openJournal(floor);
+            }
+            int fsyncMs = DatabaseConfig.CONFIG.consumerJournalFsyncMs.get();
+            forceJournalPerBatch = fsyncMs == 0;
+            int coalesceMs = DatabaseConfig.CONFIG.consumerCoalesceMs.get();
+            coalescer = coalesceMs > 0
+                    ? new Coalescer(coalesceMs, DatabaseConfig.CONFIG.consumerBatchSize.get() * 4, this::release)
+                    : null;
+            draining = false;
             int delayMs = DatabaseConfig.CONFIG.consumerDelayMs.get();
             executor.scheduleAtFixedRate(this::processQueue, delayMs, delayMs, TimeUnit.MILLISECONDS);
-            VonixCore.LOGGER.info("[vonixcore] Consumer started with {}ms delay", delayMs);
+            if (journal != null && fsyncMs > 0) {
+                executor.scheduleAtFixedRate(journal::force, fsyncMs, fsyncMs, TimeUnit.MILLISECONDS);
+            }
+            if (writerCount > 1) {
+                for (ShardWriter writer : writers) {
+                    writer.start(delayMs, () -> dispatchedCeiling, this::commitJournal);
+                }
+            }
+            VonixCore.LOGGER.info("[vonixcore] Consumer started with {}ms delay and {} writer(s)", delayMs,
+                    writerCount);
         }
     }
 
     public void stop() {
         if (running.compareAndSet(true, false)) {
-            while (!queue.isEmpty()) {
-                processQueue();
-            }
+            // Stop the scheduled flush first so the final drain doesn't race it
             executor.shutdown();
             try {
                 if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
@@ -58,10 +155,57 @@ public class Consumer {
                 executor.shutdownNow();
                 Thread.currentThread().interrupt();
             }
+            paused.set(false);
+            draining = true;
+            // Bail out if the database is gone rather than spinning on an undrainable queue
+            while (!queue.isEmpty() || replay != null || hasCoalescedEntries()
+                    || (writers.length == 1 && !writers[0].isEmpty())) {
+                if (processQueue() == 0) {
+                    break;
+                }
+            }
+            if (coalescer != null) {
+                coalescer.drain(true, Integer.MAX_VALUE, this::dispatch);
+                handOut();
+            }
+            for (ShardWriter writer : writers) {
+                if (writers.length > 1) {
+                    writer.stop();
+                }
+                for (QueueEntry entry : writer.takeUnwritten()) {
+                    if (journal == null) {
+                        // Hand unwritten entries back so the spill policy can keep them
+                        queue.offer(entry);
+                    } else {
+                        // Still in the journal; they are replayed on the next start
+                        release(entry);
+                    }
+                }
+            }
+            commitJournal();
+            replay = null;
+            if (coalescer != null && coalescer.getEntriesIn() > 0) {
+                VonixCore.LOGGER.info("[vonixcore] Coalesced {} block changes into {} rows ({} fewer)",
+                        coalescer.getEntriesIn(), coalescer.getRowsOut(), formatReduction());
+            }
+            queue.close();
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+            loggedPositions = null;
+            if (blockHistory != null) {
+                blockHistory.close();
+                blockHistory = null;
+            }
             VonixCore.LOGGER.info("[vonixcore] Consumer stopped");
         }
     }
 
+    public boolean isRunning() {
+        return running.get();
+    }
+
     public void pause() {
         paused.set(true);
     }
@@ -71,64 +215,484 @@ public class Consumer {
     }
 
     public void queueEntry(QueueEntry entry) {
-        queue.offer(entry);
+        offer(entry);
+    }
+
+    /**
+     * Queue a block change. Called from the server thread by the block event
+     * hooks, so it only copies references into a pooled entry.
+     *
+     * @param uuid the player's UUID, or null when {@code user} is a source tag
+     */
+    public void queueBlockLog(long time, String user, String uuid, String world, int x, int y, int z,
+            String type, String oldType, String oldData, String newType, String newData, int action) {
+        BlockLogEntry entry = blockEntryPool.poll();
+        if (entry == null) {
+            entry = new BlockLogEntry();
+        }
+        entry.set(time, user, uuid, world, x, y, z, type, oldType, oldData, newType, newData, action);
+        offer(entry);
+    }
+
+    private void offer(QueueEntry entry) {
+        EntryJournal journal = this.journal;
+        if (journal == null || !(entry instanceof LogEntry logEntry)) {
+            queue.offer(entry);
+            return;
+        }
+        // Held across both steps so sequence numbers reach the writer in order. The
+        // offer must not park under the lock, or a full queue under the BLOCK policy
+        // would stall every producer, the server thread included; it spills instead
+        synchronized (journal) {
+            try {
+                journal.append(logEntry);
+            } catch (IOException e) {
+                VonixCore.LOGGER.error("[vonixcore] Failed to journal queue entry: {}", e.getMessage());
+            }
+            queue.offer(entry, false);
+        }
+    }
+
+    /**
+     * @return the block history store, or null if block changes go to vp_block
+     */
+    public BlockHistory getBlockHistory() {
+        return blockHistory;
+    }
+
+    /**
+     * @return the lookup filter, or null if it is off
+     */
+    public LoggedPositions getLoggedPositions() {
+        return loggedPositions;
+    }
+
+    /**
+     * Interned user, world and type names used by the log tables.
+     */
+    public Dictionary getDictionary() {
+        return dictionary;
     }
 
     public int getQueueSize() {
         return queue.size();
     }
 
-    private void processQueue() {
-        if (paused.get() || queue.isEmpty()) {
-            return;
+    public int getQueueCapacity() {
+        return queue.capacity();
+    }
+
+    public long getEnqueuedCount() {
+        return queue.getEnqueuedCount();
+    }
+
+    public long getDroppedCount() {
+        return queue.getDroppedCount();
+    }
+
+    public long getSpilledCount() {
+        return queue.getSpilledCount();
+    }
+
+    /**
+     * @return block changes fed to the coalescing stage since start, 0 if disabled
+     */
+    public long getCoalescedIn() {
+        Coalescer coalescer = this.coalescer;
+        return coalescer != null ? coalescer.getEntriesIn() : 0;
+    }
+
+    /**
+     * @return rows the coalescing stage has passed on to be written
+     */
+    public long getCoalescedOut() {
+        Coalescer coalescer = this.coalescer;
+        return coalescer != null ? coalescer.getRowsOut() : 0;
+    }
+
+    /**
+     * @return share of coalesced block changes that didn't need a row of their own, e.g. "42.0%"
+     */
+    public String formatReduction() {
+        long in = getCoalescedIn();
+        return in == 0 ? "0%" : String.format("%.1f%%", 100.0 * (in - getCoalescedOut()) / in);
+    }
+
+    public long getHighWaterMark() {
+        return queue.getHighWaterMark();
+    }
+
+    /**
+     * Writer threads for this start. SQLite allows one writer at a time, so
+     * it always gets a single one.
+     */
+    private static int getWriterCount() {
+        Database database = VonixCore.getInstance().getDatabase();
+        return database.isSQLite() ? 1 : DatabaseConfig.CONFIG.consumerWriters.get();
+    }
+
+    /**
+     * Read each writer's journal marks, one vp_consumer_state row per writer
+     * and lane. Marks only match the routing they were written under; if the
+     * writer count changed, every writer starts from the lowest one, so a
+     * pending replay may insert a few rows twice rather than lose any. Rows
+     * missing from older versions start from the lowest mark too.
+     */
+    private long[][] loadCommittedSequences(int writerCount) {
+        long[][] committed = new long[writerCount][ShardWriter.LANES];
+        try {
+            VonixCore.getInstance().getDatabase().write(conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    Map<Integer, Long> stored = new LinkedHashMap<>();
+                    try (ResultSet rs = stmt.executeQuery("SELECT id, last_seq FROM vp_consumer_state")) {
+                        while (rs.next()) {
+                            stored.put(rs.getInt(1), rs.getLong(2));
+                        }
+                    }
+                    long floor = stored.values().stream().mapToLong(Long::longValue).min().orElse(0);
+                    long storedWriters = stored.keySet().stream()
+                            .filter(id -> id < ShardWriter.LANE_STATE_OFFSET).count();
+                    boolean rerouted = storedWriters > 0 && storedWriters != writerCount;
+                    if (rerouted) {
+                        VonixCore.LOGGER.warn(
+                                "[vonixcore] Writer count changed from {} to {}, journal marks reset to {}",
+                                storedWriters, writerCount, floor);
+                        stmt.executeUpdate("DELETE FROM vp_consumer_state");
+                        stored.clear();
+                    }
+                    for (int i = 0; i < writerCount; i++) {
+                        for (int lane = 0; lane < ShardWriter.LANES; lane++) {
+                            int id = ShardWriter.stateId(i, lane);
+                            Long mark = stored.get(id);
+                            if (mark == null) {
+                                stmt.executeUpdate("INSERT INTO vp_consumer_state (id, last_seq) VALUES (" + id + ", "
+                                        + floor + ")");
+                            }
+                            committed[i][lane] = mark != null ? mark : floor;
+                        }
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            VonixCore.LOGGER.error("[vonixcore] Failed to read consumer state: {}", e.getMessage());
+        }
+        return committed;
+    }
+
+    private static BlockHistory openBlockHistory() {
+        if (!"segments".equalsIgnoreCase(DatabaseConfig.CONFIG.blockStore.get())) {
+            return null;
+        }
+        Path dir = VonixCore.getInstance().getDatabase().getDataDirectory().resolve("blocks");
+        try {
+            return SegmentBlockHistory.open(dir);
+        } catch (IOException e) {
+            VonixCore.LOGGER.error("[vonixcore] Failed to open block history at {}, using vp_block: {}", dir,
+                    e.getMessage());
+            return null;
+        }
+    }
+
+    private void openJournal(long committed) {
+        try {
+            journal = EntryJournal.open(Platform.getConfigDirectory().resolve("vonixcore").resolve("journal"),
+                    committed);
+            long pending = journal.recoveredCount(committed);
+            if (pending > 0) {
+                VonixCore.LOGGER.info("[vonixcore] Replaying {} journaled queue entries", pending);
+                replay = journal.replay(committed);
+            }
+        } catch (IOException e) {
+            VonixCore.LOGGER.error("[vonixcore] Failed to open queue journal, continuing without it: {}",
+                    e.getMessage());
+            journal = null;
+        }
+    }
+
+    /**
+     * Return an entry the queue or writer no longer needs to its pool.
+     */
+    private void release(QueueEntry entry) {
+        if (entry instanceof BlockLogEntry blockEntry) {
+            blockEntry.release();
+            blockEntryPool.offer(blockEntry);
+        }
+    }
+
+    /**
+     * Take up to one batch per writer off the queue and write it.
+     *
+     * Journal replay is drained before the live queue. Block changes pass
+     * through the coalescer; everything else goes straight to the writer
+     * for its table, or for its chunk in the case of vp_block. With one
+     * writer the batch is written right here; with more, each writer gets
+     * its share as a chunk and writes it on its own thread.
+     *
+     * @return number of entries handed on or skipped, 0 if nothing was done
+     */
+    private int processQueue() {
+        boolean single = writers.length == 1;
+        if (paused.get() || (replay == null && queue.isEmpty() && !hasCoalescedEntries()
+                && (!single || writers[0].isEmpty()))) {
+            return 0;
+        }
+        if (!single && !draining) {
+            for (ShardWriter writer : writers) {
+                if (writer.getBacklog() >= MAX_WRITER_BACKLOG) {
+                    // Leave entries in the queue, where the overflow policy applies
+                    return 0;
+                }
+            }
+        }
+        if (journal != null && forceJournalPerBatch) {
+            journal.force();
         }
 
         int batchSize = DatabaseConfig.CONFIG.consumerBatchSize.get();
-        int processed = 0;
-
-        try (Connection conn = VonixCore.getInstance().getDatabase().getConnection()) {
-            conn.setAutoCommit(false);
-
-            QueueEntry entry;
-            while (processed < batchSize && (entry = queue.poll()) != null) {
-                try {
-                    entry.execute(conn);
-                    processed++;
-                } catch (SQLException e) {
-                    VonixCore.LOGGER.error("[vonixcore] Failed to process queue entry: {}", e.getMessage());
+        int limit = single ? batchSize - writers[0].size() : batchSize * writers.length;
+        int dispatched = 0;
+        int skipped = 0;
+        int coalesced = 0;
+
+        QueueEntry entry;
+        // Coalesced entries don't fill the batch right away, so bound the polls as well
+        int polled = 0;
+        while (dispatched < limit && polled++ < limit && (entry = nextEntry()) != null) {
+            if (entry instanceof LogEntry logEntry && logEntry.sequence != 0) {
+                // Already written, e.g. a spilled copy of an entry that was also replayed from the journal
+                if (logEntry.sequence <= writers[route(entry)].getCommittedSequence(lane(entry))) {
+                    release(entry);
+                    skipped++;
+                    continue;
                 }
+                dispatchedSequence = Math.max(dispatchedSequence, logEntry.sequence);
             }
+            if (coalescer != null && entry instanceof BlockLogEntry blockEntry) {
+                coalescer.add(blockEntry);
+                coalesced++;
+            } else {
+                dispatch(entry);
+                dispatched++;
+            }
+        }
 
-            conn.commit();
+        if (coalescer != null) {
+            coalescer.drain(draining, Math.max(0, limit - dispatched), this::dispatch);
+        }
+
+        handOut();
+        if (!single) {
+            return dispatched + skipped + coalesced;
+        }
 
+        ShardWriter writer = writers[0];
+        int batched = writer.size();
+        try {
+            int processed = VonixCore.getInstance().getDatabase().write(conn -> {
+                conn.setAutoCommit(false);
+                return writer.write(conn);
+            });
+            commitJournal();
             if (processed > 0) {
                 VonixCore.LOGGER.debug("[vonixcore] Processed {} queue entries", processed);
             }
+            return batched + skipped + coalesced;
         } catch (SQLException e) {
             VonixCore.LOGGER.error("[vonixcore] Database error during queue processing: {}", e.getMessage());
+            return skipped + coalesced;
         }
     }
 
+    private void dispatch(QueueEntry entry) {
+        outgoing[route(entry)].add(entry);
+    }
+
+    /**
+     * Give each writer its share of this round.
+     */
+    private void handOut() {
+        long[] ceiling = ceiling();
+        if (writers.length == 1) {
+            writers[0].accept(outgoing[0], ceiling);
+            outgoing[0].clear();
+            return;
+        }
+        for (int i = 0; i < writers.length; i++) {
+            if (!outgoing[i].isEmpty()) {
+                writers[i].submit(outgoing[i], ceiling);
+                outgoing[i] = new ArrayList<>();
+            }
+        }
+        // Published after the chunks so a writer that reads it has seen them
+        dispatchedCeiling = ceiling[ShardWriter.LANE_BLOCK];
+    }
+
+    /**
+     * @return per lane, highest journal sequence number below which every
+     *         entry has been handed to a writer, is already written, or was
+     *         merged away. Only block changes are held back by the coalescer.
+     */
+    private long[] ceiling() {
+        long[] ceiling = new long[ShardWriter.LANES];
+        long held = coalescer != null ? coalescer.lowestHeldSequence() : 0;
+        ceiling[ShardWriter.LANE_BLOCK] = held > 0 ? Math.min(dispatchedSequence, held - 1) : dispatchedSequence;
+        ceiling[ShardWriter.LANE_OTHER] = dispatchedSequence;
+        return ceiling;
+    }
+
+    private static int lane(QueueEntry entry) {
+        return entry instanceof BlockLogEntry ? ShardWriter.LANE_BLOCK : ShardWriter.LANE_OTHER;
+    }
+
+    /**
+     * The writer for an entry: by table, and for block changes by chunk, so
+     * tables and areas are spread over the writers but a given one always
+     * lands on the same writer.
+     */
+    private int route(QueueEntry entry) {
+        if (writers.length == 1) {
+            return 0;
+        }
+        if (entry instanceof BlockLogEntry blockEntry) {
+            return Math.floorMod(blockEntry.chunkHash(), writers.length);
+        }
+        if (entry instanceof LogEntry logEntry) {
+            return logEntry.getTypeId() % writers.length;
+        }
+        return 0;
+    }
+
+    /**
+     * Let the journal drop segments every writer is done with.
+     */
+    private void commitJournal() {
+        EntryJournal journal = this.journal;
+        if (journal == null) {
+            return;
+        }
+        long safe = Long.MAX_VALUE;
+        for (ShardWriter writer : writers) {
+            safe = Math.min(safe, writer.getSafeSequence());
+        }
+        journal.commit(safe);
+    }
+
+    private boolean hasCoalescedEntries() {
+        return coalescer != null && !coalescer.isEmpty();
+    }
+
+    private QueueEntry nextEntry() {
+        if (replay != null) {
+            if (replay.hasNext()) {
+                return replay.next();
+            }
+            replay = null;
+        }
+        return queue.poll();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static List<QueueEntry>[] newOutgoing(int writerCount) {
+        List<QueueEntry>[] lists = new List[writerCount];
+        for (int i = 0; i < writerCount; i++) {
+            lists[i] = new ArrayList<>();
+        }
+        return lists;
+    }
+
     public interface QueueEntry {
         void execute(Connection conn) throws SQLException;
     }
 
-    public static class BlockLogEntry implements QueueEntry {
-        private final long time;
-        private final String user;
-        private final String world;
-        private final int x, y, z;
-        private final String type;
-        private final String oldType;
-        private final String oldData;
-        private final String newType;
-        private final String newData;
-        private final int action;
+    /**
+     * A queue entry that is a single-row insert, so the Consumer can group it
+     * with other entries of the same statement into one JDBC batch.
+     */
+    public interface BatchableEntry extends QueueEntry {
+        String getSql();
+
+        void bind(PreparedStatement stmt) throws SQLException;
+
+        @Override
+        default void execute(Connection conn) throws SQLException {
+            try (PreparedStatement stmt = conn.prepareStatement(getSql())) {
+                bind(stmt);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * A row for one of the vp_* log tables. Log entries have a binary form
+     * (see {@link EntryCodec}) so they can be spilled or journaled, and carry
+     * the journal sequence number they were given, 0 if none.
+     */
+    public abstract static class LogEntry implements BatchableEntry {
+        long sequence;
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * Look up the ids of the entry's names before it is bound.
+         */
+        abstract void resolve(Dictionary dictionary, Connection conn) throws SQLException;
+
+        abstract byte getTypeId();
+
+        abstract void write(DataOutput out) throws IOException;
+
+        /**
+         * Append the row in the same column order as {@link #bind}, for PostgreSQL COPY.
+         */
+        abstract void copy(CopyWriter.CopyRow row);
+
+        static void setId(PreparedStatement stmt, int index, int id) throws SQLException {
+            if (id != 0) {
+                stmt.setInt(index, id);
+            } else {
+                stmt.setNull(index, Types.INTEGER);
+            }
+        }
+    }
+
+    public static class BlockLogEntry extends LogEntry {
+        private static final String[] SQL = SqlDialect.quoteAll("INSERT INTO vp_block (time, %s, world, x, y, z, type, old_type, old_data, new_type, new_data, action) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", "user");
+
+        public static final int ACTION_BREAK = 0;
+        public static final int ACTION_PLACE = 1;
+        public static final int ACTION_EXPLODE = 2;
+
+        private long time;
+        private String user;
+        private String uuid;
+        private String world;
+        private int x, y, z;
+        private String type;
+        private String oldType;
+        private String oldData;
+        private String newType;
+        private String newData;
+        private int action;
+
+        // Dictionary ids, filled in by the writer
+        private int userId, worldId, typeId, oldTypeId, oldDataId, newTypeId, newDataId;
+
+        private BlockLogEntry() {
+        }
 
-        public BlockLogEntry(long time, String user, String world, int x, int y, int z,
+        public BlockLogEntry(long time, String user, String uuid, String world, int x, int y, int z,
+                String type, String oldType, String oldData, String newType, String newData, int action) {
+            set(time, user, uuid, world, x, y, z, type, oldType, oldData, newType, newData, action);
+        }
+
+        void set(long time, String user, String uuid, String world, int x, int y, int z,
                 String type, String oldType, String oldData, String newType, String newData, int action) {
             this.time = time;
             this.user = user;
+            this.uuid = uuid;
             this.world = world;
             this.x = x;
             this.y = y;
@@ -141,30 +705,148 @@ public class Consumer {
             this.action = action;
         }
 
+        long getTime() {
+            return time;
+        }
+
+        void markLogged(LoggedPositions positions) {
+            positions.mark(world, x, y, z);
+        }
+
+        int chunkHash() {
+            return 31 * (31 * world.hashCode() + (x >> 4)) + (z >> 4);
+        }
+
+        Coalescer.Key coalesceKey() {
+            return new Coalescer.Key(world, x, y, z);
+        }
+
+        /**
+         * @return true if both changes were made by the same player or source
+         */
+        boolean sameUser(BlockLogEntry other) {
+            return Objects.equals(uuid != null ? uuid : user, other.uuid != null ? other.uuid : other.user);
+        }
+
+        /**
+         * Fold a later change to the same block into this one: the old state
+         * stays, the new state, time and action are taken from the later entry.
+         */
+        void absorb(BlockLogEntry later) {
+            time = later.time;
+            type = later.type;
+            newType = later.newType;
+            newData = later.newData;
+            action = later.action;
+        }
+
+        /**
+         * @return true if the block ends up in the state it started in
+         */
+        boolean isNoOp() {
+            return Objects.equals(oldData, newData);
+        }
+
+        /**
+         * Drop string references before the entry goes back to the pool.
+         */
+        void release() {
+            user = uuid = world = type = oldType = oldData = newType = newData = null;
+            sequence = 0;
+        }
+
         @Override
-        public void execute(Connection conn) throws SQLException {
-            String sql = "INSERT INTO vp_block (time, user, world, x, y, z, type, old_type, old_data, new_type, new_data, action) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setLong(1, time);
-                stmt.setString(2, user);
-                stmt.setString(3, world);
-                stmt.setInt(4, x);
-                stmt.setInt(5, y);
-                stmt.setInt(6, z);
-                stmt.setString(7, type);
-                stmt.setString(8, oldType);
-                stmt.setString(9, oldData);
-                stmt.setString(10, newType);
-                stmt.setString(11, newData);
-                stmt.setInt(12, action);
-                stmt.executeUpdate();
-            }
+        void resolve(Dictionary dictionary, Connection conn) throws SQLException {
+            userId = dictionary.getUserId(conn, uuid, user);
+            worldId = dictionary.getWorldId(conn, world);
+            typeId = dictionary.getMaterialId(conn, type);
+            oldTypeId = dictionary.getMaterialId(conn, oldType);
+            oldDataId = dictionary.getBlockDataId(conn, oldData);
+            newTypeId = dictionary.getMaterialId(conn, newType);
+            newDataId = dictionary.getBlockDataId(conn, newData);
+        }
+
+        @Override
+        public String getSql() {
+            return SQL[dialect.ordinal()];
+        }
+
+        @Override
+        public void bind(PreparedStatement stmt) throws SQLException {
+            stmt.setLong(1, time);
+            stmt.setInt(2, userId);
+            stmt.setInt(3, worldId);
+            stmt.setInt(4, x);
+            stmt.setInt(5, y);
+            stmt.setInt(6, z);
+            stmt.setInt(7, typeId);
+            setId(stmt, 8, oldTypeId);
+            setId(stmt, 9, oldDataId);
+            setId(stmt, 10, newTypeId);
+            setId(stmt, 11, newDataId);
+            stmt.setInt(12, action);
+        }
+
+        @Override
+        void copy(CopyWriter.CopyRow row) {
+            row.add(time);
+            row.add(userId);
+            row.add(worldId);
+            row.add(x);
+            row.add(y);
+            row.add(z);
+            row.add(typeId);
+            row.addId(oldTypeId);
+            row.addId(oldDataId);
+            row.addId(newTypeId);
+            row.addId(newDataId);
+            row.add(action);
+        }
+
+        BlockRecord toRecord() {
+            return new BlockRecord(0, time, userId, worldId, x, y, z, typeId, oldTypeId, oldDataId, newTypeId,
+                    newDataId, action, false);
+        }
+
+        @Override
+        byte getTypeId() {
+            return EntryCodec.TYPE_BLOCK;
+        }
+
+        @Override
+        void write(DataOutput out) throws IOException {
+            out.writeLong(time);
+            EntryCodec.writeString(out, user);
+            EntryCodec.writeString(out, uuid);
+            EntryCodec.writeString(out, world);
+            out.writeInt(x);
+            out.writeInt(y);
+            out.writeInt(z);
+            EntryCodec.writeString(out, type);
+            EntryCodec.writeString(out, oldType);
+            EntryCodec.writeString(out, oldData);
+            EntryCodec.writeString(out, newType);
+            EntryCodec.writeString(out, newData);
+            out.writeInt(action);
+        }
+
+        static BlockLogEntry read(DataInput in) throws IOException {
+            return new BlockLogEntry(in.readLong(), EntryCodec.readString(in), EntryCodec.readString(in),
+                    EntryCodec.readString(in), in.readInt(), in.readInt(), in.readInt(), EntryCodec.readString(in),
+                    EntryCodec.readString(in), EntryCodec.readString(in), EntryCodec.readString(in),
+                    EntryCodec.readString(in), in.readInt());
         }
     }
 
-    public static class ContainerLogEntry implements QueueEntry {
+    public static class ContainerLogEntry extends LogEntry {
+        private static final String[] SQL = SqlDialect.quoteAll("INSERT INTO vp_container (time, %s, world, x, y, z, type, item, amount, action) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", "user");
+
+        public static final int ACTION_REMOVE = 0;
+        public static final int ACTION_ADD = 1;
+
         private final long time;
         private final String user;
+        private final String uuid;
         private final String world;
         private final int x, y, z;
         private final String containerType;
@@ -172,10 +854,13 @@ public class Consumer {
         private final int amount;
         private final int action;
 
-        public ContainerLogEntry(long time, String user, String world, int x, int y, int z,
+        private int userId, worldId, containerTypeId, itemId;
+
+        public ContainerLogEntry(long time, String user, String uuid, String world, int x, int y, int z,
                 String containerType, String item, int amount, int action) {
             this.time = time;
             this.user = user;
+            this.uuid = uuid;
             this.world = world;
             this.x = x;
             this.y = y;
@@ -187,21 +872,350 @@ public class Consumer {
         }
 
         @Override
-        public void execute(Connection conn) throws SQLException {
-            String sql = "INSERT INTO vp_container (time, user, world, x, y, z, type, item, amount, action) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setLong(1, time);
-                stmt.setString(2, user);
-                stmt.setString(3, world);
-                stmt.setInt(4, x);
-                stmt.setInt(5, y);
-                stmt.setInt(6, z);
-                stmt.setString(7, containerType);
-                stmt.setString(8, item);
-                stmt.setInt(9, amount);
-                stmt.setInt(10, action);
-                stmt.executeUpdate();
+        public String getSql() {
+            return SQL[dialect.ordinal()];
+        }
+
+        @Override
+        public void bind(PreparedStatement stmt) throws SQLException {
+            stmt.setLong(1, time);
+            stmt.setInt(2, userId);
+            stmt.setInt(3, worldId);
+            stmt.setInt(4, x);
+            stmt.setInt(5, y);
+            stmt.setInt(6, z);
+            stmt.setInt(7, containerTypeId);
+            stmt.setInt(8, itemId);
+            stmt.setInt(9, amount);
+            stmt.setInt(10, action);
+        }
+
+        @Override
+        void copy(CopyWriter.CopyRow row) {
+            row.add(time);
+            row.add(userId);
+            row.add(worldId);
+            row.add(x);
+            row.add(y);
+            row.add(z);
+            row.add(containerTypeId);
+            row.add(itemId);
+            row.add(amount);
+            row.add(action);
+        }
+
+        @Override
+        void resolve(Dictionary dictionary, Connection conn) throws SQLException {
+            userId = dictionary.getUserId(conn, uuid, user);
+            worldId = dictionary.getWorldId(conn, world);
+            containerTypeId = dictionary.getMaterialId(conn, containerType);
+            itemId = dictionary.getMaterialId(conn, item);
+        }
+
+        @Override
+        byte getTypeId() {
+            return EntryCodec.TYPE_CONTAINER;
+        }
+
+        @Override
+        void write(DataOutput out) throws IOException {
+            out.writeLong(time);
+            EntryCodec.writeString(out, user);
+            EntryCodec.writeString(out, uuid);
+            EntryCodec.writeString(out, world);
+            out.writeInt(x);
+            out.writeInt(y);
+            out.writeInt(z);
+            EntryCodec.writeString(out, containerType);
+            EntryCodec.writeString(out, item);
+            out.writeInt(amount);
+            out.writeInt(action);
+        }
+
+        static ContainerLogEntry read(DataInput in) throws IOException {
+            return new ContainerLogEntry(in.readLong(), EntryCodec.readString(in), EntryCodec.readString(in),
+                    EntryCodec.readString(in), in.readInt(), in.readInt(), in.readInt(), EntryCodec.readString(in),
+                    EntryCodec.readString(in), in.readInt(), in.readInt());
+        }
+    }
+
+    public static class EntityLogEntry extends LogEntry {
+        private static final String[] SQL = SqlDialect.quoteAll("INSERT INTO vp_entity (time, %s, world, x, y, z, entity_type, entity_data, action) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", "user");
+
+        public static final int ACTION_KILL = 0;
+        public static final int ACTION_INTERACT = 1;
+
+        private final long time;
+        private final String user;
+        private final String uuid;
+        private final String world;
+        private final int x, y, z;
+        private final String entityType;
+        private final String entityData;
+        private final int action;
+
+        private int userId, worldId, entityTypeId;
+
+        /**
+         * @param entityData the entity's custom or player name, null if it has none
+         */
+        public EntityLogEntry(long time, String user, String uuid, String world, int x, int y, int z,
+                String entityType, String entityData, int action) {
+            this.time = time;
+            this.user = user;
+            this.uuid = uuid;
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.entityType = entityType;
+            this.entityData = entityData;
+            this.action = action;
+        }
+
+        @Override
+        public String getSql() {
+            return SQL[dialect.ordinal()];
+        }
+
+        @Override
+        public void bind(PreparedStatement stmt) throws SQLException {
+            stmt.setLong(1, time);
+            stmt.setInt(2, userId);
+            stmt.setInt(3, worldId);
+            stmt.setInt(4, x);
+            stmt.setInt(5, y);
+            stmt.setInt(6, z);
+            stmt.setInt(7, entityTypeId);
+            stmt.setString(8, entityData);
+            stmt.setInt(9, action);
+        }
+
+        @Override
+        void copy(CopyWriter.CopyRow row) {
+            row.add(time);
+            row.add(userId);
+            row.add(worldId);
+            row.add(x);
+            row.add(y);
+            row.add(z);
+            row.add(entityTypeId);
+            row.add(entityData);
+            row.add(action);
+        }
+
+        @Override
+        void resolve(Dictionary dictionary, Connection conn) throws SQLException {
+            userId = dictionary.getUserId(conn, uuid, user);
+            worldId = dictionary.getWorldId(conn, world);
+            entityTypeId = dictionary.getMaterialId(conn, entityType);
+        }
+
+        @Override
+        byte getTypeId() {
+            return EntryCodec.TYPE_ENTITY;
+        }
+
+        @Override
+        void write(DataOutput out) throws IOException {
+            out.writeLong(time);
+            EntryCodec.writeString(out, user);
+            EntryCodec.writeString(out, uuid);
+            EntryCodec.writeString(out, world);
+            out.writeInt(x);
+            out.writeInt(y);
+            out.writeInt(z);
+            EntryCodec.writeString(out, entityType);
+            EntryCodec.writeString(out, entityData);
+            out.writeInt(action);
+        }
+
+        static EntityLogEntry read(DataInput in) throws IOException {
+            return new EntityLogEntry(in.readLong(), EntryCodec.readString(in), EntryCodec.readString(in),
+                    EntryCodec.readString(in), in.readInt(), in.readInt(), in.readInt(), EntryCodec.readString(in),
+                    EntryCodec.readString(in), in.readInt());
+        }
+    }
+
+    /**
+     * A chat message or command as the player typed it.
+     */
+    abstract static class MessageLogEntry extends LogEntry {
+        final long time;
+        final String user;
+        final String uuid;
+        final String message;
+
+        private int userId;
+
+        MessageLogEntry(long time, String user, String uuid, String message) {
+            this.time = time;
+            this.user = user;
+            this.uuid = uuid;
+            this.message = message;
+        }
+
+        @Override
+        void resolve(Dictionary dictionary, Connection conn) throws SQLException {
+            userId = dictionary.getUserId(conn, uuid, user);
+        }
+
+        @Override
+        public void bind(PreparedStatement stmt) throws SQLException {
+            stmt.setLong(1, time);
+            stmt.setInt(2, userId);
+            stmt.setString(3, message);
+        }
+
+        @Override
+        void copy(CopyWriter.CopyRow row) {
+            row.add(time);
+            row.add(userId);
+            row.add(message);
+        }
+
+        @Override
+        void write(DataOutput out) throws IOException {
+            out.writeLong(time);
+            EntryCodec.writeString(out, user);
+            EntryCodec.writeString(out, uuid);
+            EntryCodec.writeLongString(out, message);
+        }
+    }
+
+    public static class ChatLogEntry extends MessageLogEntry {
+        private static final String[] SQL = SqlDialect.quoteAll("INSERT INTO vp_chat (time, %s, message) VALUES (?, ?, ?)", "user");
+
+        public ChatLogEntry(long time, String user, String uuid, String message) {
+            super(time, user, uuid, message);
+        }
+
+        @Override
+        public String getSql() {
+            return SQL[dialect.ordinal()];
+        }
+
+        @Override
+        byte getTypeId() {
+            return EntryCodec.TYPE_CHAT;
+        }
+
+        static ChatLogEntry read(DataInput in) throws IOException {
+            return new ChatLogEntry(in.readLong(), EntryCodec.readString(in), EntryCodec.readString(in),
+                    EntryCodec.readLongString(in));
+        }
+    }
+
+    public static class CommandLogEntry extends MessageLogEntry {
+        private static final String[] SQL = SqlDialect.quoteAll("INSERT INTO vp_command (time, %s, command) VALUES (?, ?, ?)", "user");
+
+        public CommandLogEntry(long time, String user, String uuid, String command) {
+            super(time, user, uuid, command);
+        }
+
+        @Override
+        public String getSql() {
+            return SQL[dialect.ordinal()];
+        }
+
+        @Override
+        byte getTypeId() {
+            return EntryCodec.TYPE_COMMAND;
+        }
+
+        static CommandLogEntry read(DataInput in) throws IOException {
+            return new CommandLogEntry(in.readLong(), EntryCodec.readString(in), EntryCodec.readString(in),
+                    EntryCodec.readLongString(in));
+        }
+    }
+
+    public static class SignLogEntry extends LogEntry {
+        private static final String[] SQL = SqlDialect.quoteAll("INSERT INTO vp_sign (time, %s, world, x, y, z, line1, line2, line3, line4) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", "user");
+
+        private final long time;
+        private final String user;
+        private final String uuid;
+        private final String world;
+        private final int x, y, z;
+        private final String[] lines;
+
+        private int userId, worldId;
+
+        /**
+         * @param lines the four lines as sent by the client; the array is kept, not copied
+         */
+        public SignLogEntry(long time, String user, String uuid, String world, int x, int y, int z, String[] lines) {
+            this.time = time;
+            this.user = user;
+            this.uuid = uuid;
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.lines = lines;
+        }
+
+        @Override
+        public String getSql() {
+            return SQL[dialect.ordinal()];
+        }
+
+        @Override
+        public void bind(PreparedStatement stmt) throws SQLException {
+            stmt.setLong(1, time);
+            stmt.setInt(2, userId);
+            stmt.setInt(3, worldId);
+            stmt.setInt(4, x);
+            stmt.setInt(5, y);
+            stmt.setInt(6, z);
+            for (int i = 0; i < 4; i++) {
+                stmt.setString(7 + i, i < lines.length ? lines[i] : null);
+            }
+        }
+
+        @Override
+        void copy(CopyWriter.CopyRow row) {
+            row.add(time);
+            row.add(userId);
+            row.add(worldId);
+            row.add(x);
+            row.add(y);
+            row.add(z);
+            for (int i = 0; i < 4; i++) {
+                row.add(i < lines.length ? lines[i] : null);
+            }
+        }
+
+        @Override
+        void resolve(Dictionary dictionary, Connection conn) throws SQLException {
+            userId = dictionary.getUserId(conn, uuid, user);
+            worldId = dictionary.getWorldId(conn, world);
+        }
+
+        @Override
+        byte getTypeId() {
+            return EntryCodec.TYPE_SIGN;
+        }
+
+        @Override
+        void write(DataOutput out) throws IOException {
+            out.writeLong(time);
+            EntryCodec.writeString(out, user);
+            EntryCodec.writeString(out, uuid);
+            EntryCodec.writeString(out, world);
+            out.writeInt(x);
+            out.writeInt(y);
+            out.writeInt(z);
+            for (int i = 0; i < 4; i++) {
+                EntryCodec.writeString(out, i < lines.length ? lines[i] : null);
             }
         }
+
+        static SignLogEntry read(DataInput in) throws IOException {
+            return new SignLogEntry(in.readLong(), EntryCodec.readString(in), EntryCodec.readString(in),
+                    EntryCodec.readString(in), in.readInt(), in.readInt(), in.readInt(), new String[] {
+                            EntryCodec.readString(in), EntryCodec.readString(in), EntryCodec.readString(in),
+                            EntryCodec.readString(in) });
+        }
     }
 }
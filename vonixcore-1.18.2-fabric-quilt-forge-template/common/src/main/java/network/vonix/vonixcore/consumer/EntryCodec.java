@@ -0,0 +1,80 @@
+package network.vonix.vonixcore.consumer;
+
+import network.vonix.vonixcore.consumer.Consumer.BlockLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.ChatLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.CommandLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.ContainerLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.EntityLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.LogEntry;
+import network.vonix.vonixcore.consumer.Consumer.SignLogEntry;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary form of the Consumer's log entries, used whenever queued entries have
+ * to leave the heap. Every record starts with the entry type and its journal
+ * sequence number (0 when the journal is off).
+ */
+final class EntryCodec {
+
+    static final byte TYPE_BLOCK = 1;
+    static final byte TYPE_CONTAINER = 2;
+    static final byte TYPE_CHAT = 3;
+    static final byte TYPE_COMMAND = 4;
+    static final byte TYPE_SIGN = 5;
+    static final byte TYPE_ENTITY = 6;
+
+    private EntryCodec() {
+    }
+
+    static void write(DataOutput out, LogEntry entry) throws IOException {
+        out.writeByte(entry.getTypeId());
+        out.writeLong(entry.sequence);
+        entry.write(out);
+    }
+
+    static LogEntry read(DataInput in) throws IOException {
+        byte type = in.readByte();
+        long sequence = in.readLong();
+        LogEntry entry = switch (type) {
+            case TYPE_BLOCK -> BlockLogEntry.read(in);
+            case TYPE_CONTAINER -> ContainerLogEntry.read(in);
+            case TYPE_CHAT -> ChatLogEntry.read(in);
+            case TYPE_COMMAND -> CommandLogEntry.read(in);
+            case TYPE_SIGN -> SignLogEntry.read(in);
+            case TYPE_ENTITY -> EntityLogEntry.read(in);
+            default -> throw new IOException("Unknown queue entry type " + type);
+        };
+        entry.sequence = sequence;
+        return entry;
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * For values that may exceed writeUTF's 64KB limit, such as commands.
+     */
+    static void writeLongString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readLongString(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
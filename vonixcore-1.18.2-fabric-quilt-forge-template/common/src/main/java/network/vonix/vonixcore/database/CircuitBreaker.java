@@ -0,0 +1,147 @@
+package network.vonix.vonixcore.database;
+
+import com.zaxxer.hikari.HikariDataSource;
+import network.vonix.vonixcore.VonixCore;
+import network.vonix.vonixcore.config.DatabaseConfig;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stands between callers and the pool of a remote database. When the
+ * network drops, every connection request would wait out the pool's
+ * timeout, so after {@code breaker_failures} requests in a row fail the
+ * breaker opens: requests are refused at once with a
+ * {@link SQLTransientConnectionException}, and a background thread tries
+ * for a connection every {@code breaker_retry_seconds}. When one succeeds
+ * it is handed to the recovery action, which writes what was held back
+ * and then calls {@link #close()}. Callers keep being refused until then.
+ * Failed recovery is retried on the same schedule.
+ */
+final class CircuitBreaker {
+
+    private final HikariDataSource dataSource;
+    private final Database.SqlAction recovery;
+    private final AtomicInteger failures = new AtomicInteger();
+    private final ScheduledExecutorService prober;
+    private final AtomicBoolean probeScheduled = new AtomicBoolean();
+    private volatile boolean open;
+    private volatile long openedAt;
+
+    CircuitBreaker(HikariDataSource dataSource, Database.SqlAction recovery) {
+        this.dataSource = dataSource;
+        this.recovery = recovery;
+        this.prober = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "VonixCore-DB-Breaker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    Connection getConnection() throws SQLException {
+        if (open) {
+            throw new SQLTransientConnectionException("Database unreachable for "
+                    + (System.currentTimeMillis() - openedAt) / 1000 + "s, not waiting for a connection");
+        }
+        try {
+            Connection conn = dataSource.getConnection();
+            failures.set(0);
+            return conn;
+        } catch (SQLException e) {
+            if (failures.incrementAndGet() >= DatabaseConfig.CONFIG.breakerFailures.get()) {
+                open(e);
+            }
+            throw e;
+        }
+    }
+
+    boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * @return true if the failure means the connection to the database, not
+     *         the statement, is at fault
+     */
+    static boolean isConnectionFailure(SQLException e) {
+        String state = e.getSQLState();
+        return e instanceof SQLTransientConnectionException || e instanceof SQLNonTransientConnectionException
+                || (state != null && state.startsWith("08"));
+    }
+
+    /**
+     * Refuse connections from now on, e.g. because a request that had to
+     * wait already timed out.
+     */
+    synchronized void open(SQLException cause) {
+        if (open || prober.isShutdown()) {
+            return;
+        }
+        open = true;
+        openedAt = System.currentTimeMillis();
+        VonixCore.LOGGER.warn("[VonixCore] Database unreachable, failing database work at once until it is back: {}",
+                cause.getMessage());
+        schedule(DatabaseConfig.CONFIG.breakerRetrySeconds.get());
+    }
+
+    /**
+     * Run the recovery action soon without refusing connections, e.g. for
+     * saves kept after a single dropped connection.
+     */
+    void recoverSoon() {
+        schedule(0);
+    }
+
+    /**
+     * Let connections through again. Called by the recovery action.
+     */
+    synchronized void close() {
+        if (!open) {
+            return;
+        }
+        open = false;
+        failures.set(0);
+        VonixCore.LOGGER.info("[VonixCore] Database reachable again after {}s",
+                (System.currentTimeMillis() - openedAt) / 1000);
+    }
+
+    private void schedule(long seconds) {
+        if (!probeScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            prober.schedule(this::probe, seconds, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            probeScheduled.set(false);
+        }
+    }
+
+    private void probe() {
+        probeScheduled.set(false);
+        try (Connection conn = dataSource.getConnection()) {
+            recovery.run(conn);
+            return;
+        } catch (SQLException | RuntimeException e) {
+            VonixCore.LOGGER.debug("[VonixCore] Database still unreachable: {}", e.getMessage());
+        }
+        schedule(DatabaseConfig.CONFIG.breakerRetrySeconds.get());
+    }
+
+    void stop() {
+        prober.shutdownNow();
+        try {
+            prober.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
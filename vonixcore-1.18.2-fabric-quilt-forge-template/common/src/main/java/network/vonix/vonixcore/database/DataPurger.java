@@ -0,0 +1,316 @@
+package network.vonix.vonixcore.database;
+
+import network.vonix.vonixcore.VonixCore;
+import network.vonix.vonixcore.archive.ArchiveTable;
+import network.vonix.vonixcore.archive.ArchivedRow;
+import network.vonix.vonixcore.archive.LogArchive;
+import network.vonix.vonixcore.config.DatabaseConfig;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes log rows older than {@code purge_days}, and first moves block and
+ * container rows older than {@code archive_days} into the {@link LogArchive}.
+ *
+ * Each statement removes at most {@link #CHUNK_SIZE} consecutive ids, so
+ * locks are held only briefly, and the purger sleeps between statements so
+ * the Consumer's writes go through in the gaps. Ids grow with time, so a
+ * table is only walked up to the highest expired id. On SQLite freed pages
+ * are handed back with {@code PRAGMA incremental_vacuum} afterwards.
+ *
+ * Archiving walks the same way: a chunk of rows is read, appended to the
+ * archive and forced to disk, and only then deleted. The archive cutoff is
+ * a UTC midnight, so each run archives whole days.
+ */
+public class DataPurger {
+
+    private static DataPurger instance;
+
+    private static final int CHUNK_SIZE = 5000;
+    private static final long VACUUM_STEP = 1000;
+    private static final long INITIAL_DELAY_MINUTES = 5;
+    private static final long INTERVAL_HOURS = 6;
+    private static final String[] TABLES = { "vp_block", "vp_container", "vp_entity", "vp_chat", "vp_command", "vp_sign" };
+
+    private ScheduledExecutorService executor;
+    private boolean running;
+    // Checked between chunks, so a running purge stops after its current statement
+    private volatile boolean stopping;
+
+    public static DataPurger getInstance() {
+        if (instance == null) {
+            instance = new DataPurger();
+        }
+        return instance;
+    }
+
+    DataPurger() {
+    }
+
+    public void start() {
+        if (running || (DatabaseConfig.CONFIG.dataPurgeDays.get() == 0
+                && DatabaseConfig.CONFIG.archiveDays.get() == 0)) {
+            return;
+        }
+        running = true;
+        stopping = false;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "VonixCore-Purge");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::purge, INITIAL_DELAY_MINUTES * 60, INTERVAL_HOURS * 3600,
+                TimeUnit.SECONDS);
+    }
+
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        stopping = true;
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+    }
+
+    private void purge() {
+        int days = DatabaseConfig.CONFIG.dataPurgeDays.get();
+        int archiveDays = DatabaseConfig.CONFIG.archiveDays.get();
+        long pauseMs = DatabaseConfig.CONFIG.purgePauseMs.get();
+        Database database = VonixCore.getInstance().getDatabase();
+        long archived = 0;
+        long total = 0;
+        long started = System.currentTimeMillis();
+
+        try {
+            if (archiveDays > 0) {
+                archived = archive(database, archiveDays, pauseMs);
+                if (stopping) {
+                    return;
+                }
+            }
+            if (days > 0) {
+                long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(days);
+                for (String table : TABLES) {
+                    if (archiveDays > 0 && isArchived(table)) {
+                        continue;
+                    }
+                    total += purgeTable(database, table, cutoff, pauseMs);
+                    if (stopping) {
+                        return;
+                    }
+                }
+            }
+            if (archived + total > 0 && database.isSQLite()) {
+                vacuum(database);
+            }
+        } catch (SQLException e) {
+            VonixCore.LOGGER.error("[VonixCore] Data purge failed: {}", e.getMessage());
+        } catch (IOException e) {
+            VonixCore.LOGGER.error("[VonixCore] Log archiving failed: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        if (archived > 0) {
+            VonixCore.LOGGER.info("[VonixCore] Archived {} log rows older than {} days", archived, archiveDays);
+        }
+        if (total > 0) {
+            VonixCore.LOGGER.info("[VonixCore] Purged {} log rows older than {} days in {}s", total, days,
+                    (System.currentTimeMillis() - started) / 1000);
+        }
+    }
+
+    private static boolean isArchived(String table) {
+        for (ArchiveTable archiveTable : ArchiveTable.values()) {
+            if (archiveTable.getTable().equals(table)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the lowest id and the highest id older than the cutoff, or null if nothing is
+     */
+    private static long[] expiredRange(Database database, String table, long cutoff) throws SQLException {
+        try (Connection conn = database.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT MIN(id), (SELECT MAX(id) FROM " + table + " WHERE time < ?) FROM " + table)) {
+            stmt.setLong(1, cutoff);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                long low = rs.getLong(1);
+                long high = rs.getLong(2);
+                return rs.wasNull() ? null : new long[] { low, high };
+            }
+        }
+    }
+
+    private long archive(Database database, int days, long pauseMs)
+            throws SQLException, IOException, InterruptedException {
+        long cutoff = LocalDate.now(ZoneOffset.UTC).minusDays(days).atStartOfDay(ZoneOffset.UTC).toInstant()
+                .toEpochMilli();
+        LogArchive archive = database.getArchive();
+        long total = 0;
+        try {
+            for (ArchiveTable table : ArchiveTable.values()) {
+                long[] range = expiredRange(database, table.getTable(), cutoff);
+                if (range == null) {
+                    continue;
+                }
+                for (long low = range[0]; low <= range[1] && !stopping; low += CHUNK_SIZE) {
+                    total += archiveChunk(database, archive, table, low, cutoff);
+                    if (pauseMs > 0) {
+                        Thread.sleep(pauseMs);
+                    }
+                }
+                if (stopping) {
+                    break;
+                }
+            }
+        } finally {
+            archive.flush();
+        }
+        return total;
+    }
+
+    /**
+     * Move the rows of one id chunk older than the cutoff into the archive.
+     *
+     * @return number of rows moved
+     */
+    private static long archiveChunk(Database database, LogArchive archive, ArchiveTable table, long low,
+            long cutoff) throws SQLException, IOException {
+        Map<Integer, List<ArchivedRow>> worlds = new LinkedHashMap<>();
+        long lastId = 0;
+        try (Connection conn = database.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(table.getSelectSql(database.getDialect()))) {
+            stmt.setLong(1, low);
+            stmt.setLong(2, low + CHUNK_SIZE);
+            stmt.setLong(3, cutoff);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int[] values = new int[table.getColumnCount()];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = rs.getInt(4 + i);
+                    }
+                    lastId = rs.getLong(1);
+                    worlds.computeIfAbsent(rs.getInt(3), w -> new ArrayList<>())
+                            .add(new ArchivedRow(lastId, rs.getLong(2), rs.getInt(3), values));
+                }
+            }
+        }
+        if (worlds.isEmpty()) {
+            return 0;
+        }
+        long moved = 0;
+        for (Map.Entry<Integer, List<ArchivedRow>> world : worlds.entrySet()) {
+            archive.append(table, world.getKey(), world.getValue());
+            moved += world.getValue().size();
+        }
+        // Only rows the archive now holds; later ids may have arrived since the select
+        long highest = lastId;
+        database.write(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "DELETE FROM " + table.getTable() + " WHERE id >= ? AND id <= ? AND time < ?")) {
+                stmt.setLong(1, low);
+                stmt.setLong(2, highest);
+                stmt.setLong(3, cutoff);
+                return stmt.executeUpdate();
+            }
+        });
+        return moved;
+    }
+
+    /**
+     * Delete a table's rows older than the cutoff, one id chunk per statement.
+     *
+     * @return number of rows deleted
+     */
+    long purgeTable(Database database, String table, long cutoff, long pauseMs)
+            throws SQLException, InterruptedException {
+        long[] range = expiredRange(database, table, cutoff);
+        if (range == null) {
+            return 0;
+        }
+        long low = range[0];
+        long high = range[1];
+
+        long deleted = 0;
+        String sql = "DELETE FROM " + table + " WHERE id >= ? AND id < ? AND time < ?";
+        while (low <= high && !stopping) {
+            // A write per chunk so the connection isn't held across the pause
+            long from = low;
+            deleted += database.write(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setLong(1, from);
+                    stmt.setLong(2, from + CHUNK_SIZE);
+                    stmt.setLong(3, cutoff);
+                    return stmt.executeUpdate();
+                }
+            });
+            low += CHUNK_SIZE;
+            if (pauseMs > 0) {
+                Thread.sleep(pauseMs);
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Return free pages to the file system. Only effective on databases
+     * created with auto_vacuum=INCREMENTAL; older files just reuse the pages.
+     * The driver steps the pragma once per execute, which frees one page.
+     */
+    void vacuum(Database database) throws SQLException {
+        long pages = database.write(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                try (ResultSet rs = stmt.executeQuery("PRAGMA auto_vacuum")) {
+                    if (!rs.next() || rs.getInt(1) != 2) {
+                        VonixCore.LOGGER.debug("[VonixCore] SQLite auto_vacuum is not incremental, skipping vacuum");
+                        return 0L;
+                    }
+                }
+                try (ResultSet rs = stmt.executeQuery("PRAGMA freelist_count")) {
+                    return rs.next() ? rs.getLong(1) : 0L;
+                }
+            }
+        });
+        // In steps, so other writes get the writer in between
+        for (long done = 0; done < pages && !stopping; done += VACUUM_STEP) {
+            long step = Math.min(VACUUM_STEP, pages - done);
+            database.write(conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    for (long i = 0; i < step && !stopping; i++) {
+                        stmt.execute("PRAGMA incremental_vacuum(1)");
+                    }
+                }
+                return null;
+            });
+        }
+    }
+}
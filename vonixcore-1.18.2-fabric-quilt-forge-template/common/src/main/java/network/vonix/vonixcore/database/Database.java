@@ -4,16 +4,59 @@ import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import net.minecraft.server.MinecraftServer;
 import network.vonix.vonixcore.VonixCore;
+import network.vonix.vonixcore.archive.LogArchive;
 import network.vonix.vonixcore.config.DatabaseConfig;
 import network.vonix.vonixcore.platform.Platform;
 
 import java.io.File;
+import java.nio.file.Path;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Database manager using HikariCP for connection pooling.
+ *
+ * Game code should reach the database through {@link #supplyAsync},
+ * {@link #runAsync} and {@link #queryAsync}, which run on a small pool of
+ * I/O threads and hand results back on the server thread. Once the server
+ * has started, direct {@link #getConnection()} calls from the server thread
+ * are counted and logged with their call site.
+ *
+ * A local SQLite file gets one writer connection on its own thread, and the
+ * pool's connections are read-only. Anything that changes data goes through
+ * {@link #write}, which runs it there; other databases run it on a pooled
+ * connection.
+ *
+ * MySQL and PostgreSQL can be given a read replica with its own pool, which
+ * {@link #getReadConnection} and {@link #queryAsync} use. A player whose own
+ * data was just changed through the player-keyed methods reads from the
+ * primary for {@code sticky_ms}, so they see the change before the replica
+ * has it.
+ *
+ * A remote primary is reached through a {@link CircuitBreaker}: once it stops
+ * answering, work fails at once instead of waiting on the pool. Saves made
+ * through {@link #saveAsync} meanwhile go into an {@link OutageJournal} and
+ * are written in order before the breaker lets work through again.
  */
 public class Database {
 
@@ -21,9 +64,33 @@ public class Database {
         SQLITE, MYSQL, POSTGRESQL, TURSO, SUPABASE
     }
 
+    private static final long REPLICA_RETRY_MS = 30000;
+
     private final MinecraftServer server;
     private HikariDataSource dataSource;
+    private HikariDataSource replicaSource;
+    private CircuitBreaker breaker;
+    private OutageJournal journal;
+    // Completed once the saves waiting in the journal are written; guarded by the journal
+    private CompletableFuture<Void> journalWritten;
     private DatabaseType databaseType = DatabaseType.SQLITE;
+    private SqlDialect dialect = SqlDialect.SQLITE;
+    private LogArchive archive;
+    private ThreadPoolExecutor ioExecutor;
+    // Local SQLite only
+    private SqliteWriter writer;
+    private SqliteMaintenance maintenance;
+    private volatile boolean migrating;
+
+    // Until when each player's reads stay on the primary
+    private final Map<UUID, Long> stickyUntil = new ConcurrentHashMap<>();
+    // While set, reads skip the replica until this time
+    private volatile long replicaRetryAt;
+
+    // Server-thread connection checks, on from server start
+    private volatile boolean watchServerThread;
+    private final AtomicLong serverThreadQueries = new AtomicLong();
+    private final Set<String> flaggedCallers = ConcurrentHashMap.newKeySet();
 
     public Database(MinecraftServer server) {
         this.server = server;
@@ -39,6 +106,7 @@ public class Database {
             case "supabase" -> DatabaseType.SUPABASE;
             default -> DatabaseType.SQLITE;
         };
+        dialect = SqlDialect.of(databaseType);
 
         HikariConfig config = new HikariConfig();
         config.setPoolName("VonixCore-DB-Pool");
@@ -57,35 +125,136 @@ public class Database {
         }
 
         dataSource = new HikariDataSource(config);
+        if (databaseType != DatabaseType.SQLITE) {
+            breaker = new CircuitBreaker(dataSource, this::recover);
+        }
+        String replicaUrl = DatabaseConfig.CONFIG.replicaUrl.get().trim();
+        if (!replicaUrl.isEmpty() && !isSQLite()) {
+            replicaSource = createReplicaPool(config, replicaUrl);
+        }
+        int replicaThreads = replicaSource != null ? replicaSource.getMaximumPoolSize() : 0;
+        ioExecutor = createIoExecutor(config.getMaximumPoolSize() + replicaThreads);
 
-        // Create tables
-        createTables();
+        // Bring the schema up to date before any module touches it
+        migrating = true;
+        try {
+            write(conn -> {
+                new SchemaMigrator(this).migrate(conn);
+                return null;
+            });
+        } finally {
+            migrating = false;
+        }
+        if (maintenance != null) {
+            maintenance.start();
+        }
+        if (breaker != null && DatabaseConfig.CONFIG.outageJournal.get()) {
+            openOutageJournal();
+        }
     }
 
-    private void configureSqlite(HikariConfig config) {
-        // Use server root for world data or config dir?
-        // Source used world folder.
-        // We can access world folder via server.
-        File worldFolder = server.getWorldPath(net.minecraft.world.level.storage.LevelResource.ROOT).toFile();
-        File dataFolder = new File(worldFolder, "vonixcore");
-        if (!dataFolder.exists()) {
-            dataFolder.mkdirs();
+    /**
+     * Start on a remote database's pools opened elsewhere, without the schema
+     * migrations, so tests can stand in for the primary and the replica.
+     *
+     * @param replica the read replica's pool, or null
+     */
+    void initialize(DatabaseType type, HikariDataSource primary, HikariDataSource replica) {
+        databaseType = type;
+        dialect = SqlDialect.of(type);
+        dataSource = primary;
+        breaker = new CircuitBreaker(primary, this::recover);
+        replicaSource = replica;
+        int replicaThreads = replica != null ? replica.getMaximumPoolSize() : 0;
+        ioExecutor = createIoExecutor(primary.getMaximumPoolSize() + replicaThreads);
+        if (DatabaseConfig.CONFIG.outageJournal.get()) {
+            openOutageJournal();
         }
+    }
+
+    /**
+     * Open the outage journal and write what a previous run left in it.
+     */
+    private void openOutageJournal() {
+        try {
+            journal = OutageJournal.open(getDataDirectory().resolve("outage-journal.db"));
+        } catch (SQLException e) {
+            VonixCore.LOGGER.error("[VonixCore] Failed to open outage journal, saves will fail during outages: {}",
+                    e.getMessage());
+            return;
+        }
+        if (journal.isEmpty()) {
+            return;
+        }
+        VonixCore.LOGGER.info("[VonixCore] Writing {} saves kept from a database outage", journal.size());
+        try (Connection conn = getConnection()) {
+            journal.replay(conn);
+        } catch (SQLException e) {
+            // Saves now queue behind the rest, which the breaker writes once it gets through
+            breaker.open(e);
+        }
+    }
+
+    /**
+     * @return true while startup schema migrations run, which may take a
+     *         while on large tables
+     */
+    public boolean isMigrating() {
+        return migrating;
+    }
+
+    private void configureSqlite(HikariConfig config) throws SQLException {
+        File dataFolder = getDataDirectory().toFile();
 
         String fileName = DatabaseConfig.CONFIG.sqliteFile.get();
         File dbFile = new File(dataFolder, fileName);
+        if (!dbFile.exists()) {
+            createSqliteFile(dbFile);
+        }
 
-        config.setDriverClassName("org.sqlite.JDBC");
-        config.setJdbcUrl("jdbc:sqlite:" + dbFile.getAbsolutePath());
+        String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        Properties pragmas = new Properties();
+        pragmas.setProperty("journal_mode", "WAL");
+        pragmas.setProperty("synchronous", "NORMAL");
+        pragmas.setProperty("cache_size", "10000");
+        pragmas.setProperty("temp_store", "MEMORY");
+        // A checkpointed log is cut back to this size rather than kept at its peak
+        pragmas.setProperty("journal_size_limit",
+                String.valueOf(DatabaseConfig.CONFIG.sqliteCheckpointMb.get() * 1024L * 1024L));
+        int mmapMb = DatabaseConfig.CONFIG.sqliteMmapMb.get();
+        if (mmapMb > 0) {
+            pragmas.setProperty("mmap_size", String.valueOf(mmapMb * 1024L * 1024L));
+        }
+        writer = new SqliteWriter(url, pragmas);
+        maintenance = new SqliteMaintenance(server, writer, dbFile);
 
-        config.addDataSourceProperty("journal_mode", "WAL");
-        config.addDataSourceProperty("synchronous", "NORMAL");
-        config.addDataSourceProperty("cache_size", "10000");
-        config.addDataSourceProperty("temp_store", "MEMORY");
+        config.setDriverClassName("org.sqlite.JDBC");
+        config.setJdbcUrl(url);
+        config.setDataSourceProperties(pragmas);
+        // Pooled connections only read; the driver wants that set when opening
+        config.addDataSourceProperty("open_mode", "1");
+        config.setReadOnly(true);
 
         VonixCore.LOGGER.info("[VonixCore] Using SQLite database: {}", dbFile.getAbsolutePath());
     }
 
+    /**
+     * auto_vacuum and page_size can only be chosen before the first table
+     * exists and not once WAL is on, so new files are set up here before the
+     * pool opens them. Incremental mode lets the data purge hand freed pages
+     * back.
+     */
+    private void createSqliteFile(File dbFile) {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getAbsolutePath());
+                Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA page_size = " + DatabaseConfig.CONFIG.sqlitePageSize.get());
+            stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
+            stmt.execute("PRAGMA journal_mode = WAL");
+        } catch (SQLException e) {
+            VonixCore.LOGGER.warn("[VonixCore] Could not prepare SQLite file: {}", e.getMessage());
+        }
+    }
+
     private void configureMySql(HikariConfig config) {
         String host = DatabaseConfig.CONFIG.mysqlHost.get();
         int port = DatabaseConfig.CONFIG.mysqlPort.get();
@@ -101,6 +270,11 @@ public class Database {
         config.setUsername(username);
         config.setPassword(password);
 
+        // Let the driver collapse the Consumer's JDBC batches into multi-row INSERTs
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+
         VonixCore.LOGGER.info("[VonixCore] Using MySQL database at {}:{}/{}", host, port, database);
     }
 
@@ -119,6 +293,8 @@ public class Database {
         config.setUsername(username);
         config.setPassword(password);
 
+        config.addDataSourceProperty("reWriteBatchedInserts", "true");
+
         VonixCore.LOGGER.info("[VonixCore] Using PostgreSQL database at {}:{}/{}", host, port, database);
     }
 
@@ -153,99 +329,127 @@ public class Database {
 
         config.setMaximumPoolSize(Math.min(5, DatabaseConfig.CONFIG.connectionPoolSize.get()));
         config.addDataSourceProperty("socketTimeout", "30");
+        config.addDataSourceProperty("reWriteBatchedInserts", "true");
 
         VonixCore.LOGGER.info("[VonixCore] Using Supabase database at {}:{}", host, port);
     }
 
-    private void createTables() throws SQLException {
-        String autoIncrement = getAutoIncrementSyntax();
-        String textType = getTextTypeSyntax();
+    /**
+     * A read-only pool on the replica, with the primary's driver, login and
+     * driver settings. It may start while the replica is down; reads then
+     * fall back to the primary.
+     */
+    private static HikariDataSource createReplicaPool(HikariConfig primary, String url) {
+        HikariConfig config = new HikariConfig();
+        primary.copyStateTo(config);
+        config.setPoolName("VonixCore-DB-Replica");
+        config.setJdbcUrl(url);
+        config.setMaximumPoolSize(DatabaseConfig.CONFIG.replicaPoolSize.get());
+        config.setMinimumIdle(1);
+        // Fall back to the primary quickly rather than stall reads
+        config.setConnectionTimeout(Math.min(primary.getConnectionTimeout(), 2000));
+        config.setReadOnly(true);
+        config.setInitializationFailTimeout(-1);
+        VonixCore.LOGGER.info("[VonixCore] Reading from replica at {}", url.replaceAll("\\?.*", ""));
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * Log and core tables with their indexes; the first schema migration.
+     */
+    void createTables(Connection conn) throws SQLException {
+        String autoIncrement = dialect.autoIncrement();
+        String textType = dialect.text();
+        String longTextType = dialect.longText();
+        // Column names reserved by PostgreSQL and MySQL 8
+        String user = dialect.quote("user");
+        String groups = dialect.quote("groups");
+
+        try (Statement stmt = conn.createStatement()) {
+            Map<String, String> legacyTables = moveLegacyLogTables(conn, stmt);
 
-        try (Connection conn = getConnection(); Statement stmt = conn.createStatement()) {
-            // ... (Same table creation logic, omitted for brevity but should be included)
-            // I'll assume the original SQL is fine, just copying it.
-            
-            // Block log table
+            // Block log table. user, world, type and data columns hold ids from the
+            // vp_user, vp_world, vp_material and vp_blockdata tables below
             stmt.execute(String.format("""
                     CREATE TABLE IF NOT EXISTS vp_block (
                         id INTEGER PRIMARY KEY %s,
                         time BIGINT NOT NULL,
-                        user %s NOT NULL,
-                        world %s NOT NULL,
+                        %s INTEGER NOT NULL,
+                        world INTEGER NOT NULL,
                         x INTEGER NOT NULL,
                         y INTEGER NOT NULL,
                         z INTEGER NOT NULL,
-                        type %s NOT NULL,
-                        old_type %s,
-                        old_data %s,
-                        new_type %s,
-                        new_data %s,
+                        type INTEGER NOT NULL,
+                        old_type INTEGER,
+                        old_data INTEGER,
+                        new_type INTEGER,
+                        new_data INTEGER,
                         action INTEGER NOT NULL,
                         rolled_back INTEGER DEFAULT 0
                     )
-                    """, autoIncrement, textType, textType, textType, textType, textType, textType, textType));
+                    """, autoIncrement, user));
 
             // Container log table
             stmt.execute(String.format("""
                     CREATE TABLE IF NOT EXISTS vp_container (
                         id INTEGER PRIMARY KEY %s,
                         time BIGINT NOT NULL,
-                        user %s NOT NULL,
-                        world %s NOT NULL,
+                        %s INTEGER NOT NULL,
+                        world INTEGER NOT NULL,
                         x INTEGER NOT NULL,
                         y INTEGER NOT NULL,
                         z INTEGER NOT NULL,
-                        type %s NOT NULL,
-                        item %s NOT NULL,
+                        type INTEGER NOT NULL,
+                        item INTEGER NOT NULL,
                         amount INTEGER NOT NULL,
                         action INTEGER NOT NULL,
                         rolled_back INTEGER DEFAULT 0
                     )
-                    """, autoIncrement, textType, textType, textType, textType));
+                    """, autoIncrement, user));
 
             // Entity log table
             stmt.execute(String.format("""
                     CREATE TABLE IF NOT EXISTS vp_entity (
                         id INTEGER PRIMARY KEY %s,
                         time BIGINT NOT NULL,
-                        user %s NOT NULL,
-                        world %s NOT NULL,
+                        %s INTEGER NOT NULL,
+                        world INTEGER NOT NULL,
                         x INTEGER NOT NULL,
                         y INTEGER NOT NULL,
                         z INTEGER NOT NULL,
-                        entity_type %s NOT NULL,
+                        entity_type INTEGER NOT NULL,
                         entity_data %s,
                         action INTEGER NOT NULL
                     )
-                    """, autoIncrement, textType, textType, textType, textType));
+                    """, autoIncrement, user, longTextType));
 
             // Chat log table
             stmt.execute(String.format("""
                     CREATE TABLE IF NOT EXISTS vp_chat (
                         id INTEGER PRIMARY KEY %s,
                         time BIGINT NOT NULL,
-                        user %s NOT NULL,
+                        %s INTEGER NOT NULL,
                         message %s NOT NULL
                     )
-                    """, autoIncrement, textType, textType));
+                    """, autoIncrement, user, longTextType));
 
             // Command log table
             stmt.execute(String.format("""
                     CREATE TABLE IF NOT EXISTS vp_command (
                         id INTEGER PRIMARY KEY %s,
                         time BIGINT NOT NULL,
-                        user %s NOT NULL,
+                        %s INTEGER NOT NULL,
                         command %s NOT NULL
                     )
-                    """, autoIncrement, textType, textType));
+                    """, autoIncrement, user, longTextType));
 
             // Sign log table
             stmt.execute(String.format("""
                     CREATE TABLE IF NOT EXISTS vp_sign (
                         id INTEGER PRIMARY KEY %s,
                         time BIGINT NOT NULL,
-                        user %s NOT NULL,
-                        world %s NOT NULL,
+                        %s INTEGER NOT NULL,
+                        world INTEGER NOT NULL,
                         x INTEGER NOT NULL,
                         y INTEGER NOT NULL,
                         z INTEGER NOT NULL,
@@ -254,7 +458,7 @@ public class Database {
                         line3 %s,
                         line4 %s
                     )
-                    """, autoIncrement, textType, textType, textType, textType, textType, textType));
+                    """, autoIncrement, user, longTextType, longTextType, longTextType, longTextType));
 
             // User cache table
             stmt.execute(String.format("""
@@ -265,6 +469,38 @@ public class Database {
                     )
                     """, autoIncrement, textType, textType));
 
+            // Interned names for the log tables
+            stmt.execute(String.format("""
+                    CREATE TABLE IF NOT EXISTS vp_world (
+                        id INTEGER PRIMARY KEY %s,
+                        name %s UNIQUE NOT NULL
+                    )
+                    """, autoIncrement, textType));
+
+            // Namespaced block, item and entity type ids
+            stmt.execute(String.format("""
+                    CREATE TABLE IF NOT EXISTS vp_material (
+                        id INTEGER PRIMARY KEY %s,
+                        name %s UNIQUE NOT NULL
+                    )
+                    """, autoIncrement, textType));
+
+            // Full block states, e.g. minecraft:oak_stairs[facing=north,...]
+            stmt.execute(String.format("""
+                    CREATE TABLE IF NOT EXISTS vp_blockdata (
+                        id INTEGER PRIMARY KEY %s,
+                        name %s UNIQUE NOT NULL
+                    )
+                    """, autoIncrement, textType));
+
+            // Consumer journal checkpoint, advanced in the same transaction as each batch
+            stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS vp_consumer_state (
+                        id INTEGER PRIMARY KEY,
+                        last_seq BIGINT NOT NULL
+                    )
+                    """);
+
             // Economy table
             stmt.execute(String.format("""
                     CREATE TABLE IF NOT EXISTS vonixcore_economy (
@@ -322,12 +558,12 @@ public class Database {
                         uuid %s PRIMARY KEY,
                         username %s,
                         primary_group %s DEFAULT 'default',
-                        groups %s,
+                        %s %s,
                         prefix %s,
                         suffix %s,
                         permissions %s
                     )
-                    """, textType, textType, textType, textType, textType, textType, textType));
+                    """, textType, textType, textType, groups, textType, textType, textType, textType));
 
             // Discord linked accounts table
             stmt.execute(String.format("""
@@ -338,66 +574,613 @@ public class Database {
                     )
                     """, textType, textType));
 
-            createIndexes(stmt);
+            for (Map.Entry<String, String> legacy : legacyTables.entrySet()) {
+                copyLegacyLogTable(conn, legacy.getKey(), legacy.getValue());
+            }
+
+            createIndexes(conn);
 
             VonixCore.LOGGER.info("[VonixCore] Database tables created/verified");
         }
     }
 
-    private String getAutoIncrementSyntax() {
-        return switch (databaseType) {
-            case MYSQL -> "AUTO_INCREMENT";
-            case POSTGRESQL, SUPABASE -> "GENERATED ALWAYS AS IDENTITY";
-            default -> "AUTOINCREMENT";
-        };
+    /**
+     * The log tables used to store user, world and type names as text on every
+     * row. Drop empty tables with that layout so they are recreated with id
+     * columns, and rename the others to {@code <table>_legacy} so their rows
+     * can be copied into the new table once it exists.
+     *
+     * @return the tables moved aside, mapped to their new names
+     */
+    private Map<String, String> moveLegacyLogTables(Connection conn, Statement stmt) throws SQLException {
+        Map<String, String> moved = new LinkedHashMap<>();
+        DatabaseMetaData meta = conn.getMetaData();
+        for (String table : new String[] { "vp_block", "vp_container", "vp_entity", "vp_chat", "vp_command", "vp_sign" }) {
+            boolean legacy = false;
+            try (ResultSet columns = meta.getColumns(conn.getCatalog(), null, table, "user")) {
+                if (columns.next()) {
+                    String typeName = columns.getString("TYPE_NAME").toUpperCase();
+                    legacy = typeName.contains("CHAR") || typeName.contains("TEXT");
+                }
+            }
+            if (!legacy) {
+                continue;
+            }
+            boolean empty;
+            try (ResultSet rs = stmt.executeQuery("SELECT 1 FROM " + table + " LIMIT 1")) {
+                empty = !rs.next();
+            }
+            if (empty) {
+                stmt.execute("DROP TABLE " + table);
+                VonixCore.LOGGER.info("[VonixCore] Recreating {} with interned id columns", table);
+                continue;
+            }
+
+            String legacyTable = table + "_legacy";
+            for (int n = 2; tableExists(meta, conn, legacyTable); n++) {
+                legacyTable = table + "_legacy" + n;
+            }
+            // Index names are per schema on SQLite and PostgreSQL and the new table reuses them
+            List<String> indexes = new ArrayList<>();
+            try (ResultSet rs = meta.getIndexInfo(conn.getCatalog(), null, table, false, false)) {
+                while (rs.next()) {
+                    String index = rs.getString("INDEX_NAME");
+                    if (index != null && index.startsWith("idx_") && !indexes.contains(index)) {
+                        indexes.add(index);
+                    }
+                }
+            }
+            for (String index : indexes) {
+                dialect.dropIndex(conn, index, table);
+            }
+            stmt.execute("ALTER TABLE " + table + " RENAME TO " + legacyTable);
+            moved.put(table, legacyTable);
+            VonixCore.LOGGER.info("[VonixCore] Moved {} aside as {} to recreate it with interned id columns", table,
+                    legacyTable);
+        }
+        return moved;
+    }
+
+    /**
+     * Copy the rows of a log table moved aside by {@link #moveLegacyLogTables}
+     * into the new table, adding their names to the name tables, then drop
+     * it. If that fails the old rows are left where they are and logging
+     * carries on into the new table.
+     */
+    private void copyLegacyLogTable(Connection conn, String table, String legacyTable) {
+        String user = dialect.quote("user");
+        Map<String, String> interned = internedColumns(table);
+        try {
+            List<String> columns = new ArrayList<>();
+            try (ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, legacyTable, null)) {
+                while (rs.next()) {
+                    String column = rs.getString("COLUMN_NAME").toLowerCase();
+                    if (!column.equals("id")) {
+                        columns.add(column);
+                    }
+                }
+            }
+            // Matching old rows to players by name below would scan vp_user for each
+            createIndex(conn, "idx_user_name", "vp_user", "username");
+
+            StringBuilder insert = new StringBuilder();
+            StringBuilder select = new StringBuilder();
+            for (String column : columns) {
+                String name = column.equals("user") ? user : column;
+                if (insert.length() > 0) {
+                    insert.append(", ");
+                    select.append(", ");
+                }
+                insert.append(name);
+                if (column.equals("user")) {
+                    select.append("(SELECT MIN(u.id) FROM vp_user u WHERE u.username = l.").append(user).append(')');
+                } else if (interned.containsKey(column)) {
+                    select.append("(SELECT n.id FROM ").append(interned.get(column)).append(" n WHERE n.name = l.")
+                            .append(column).append(')');
+                } else {
+                    select.append("l.").append(column);
+                }
+            }
+
+            inTransaction(conn, c -> {
+                try (Statement stmt = c.createStatement()) {
+                    // Old rows carry no UUID; names no player has yet are added the way source tags are
+                    stmt.executeUpdate("INSERT INTO vp_user (uuid, username) SELECT DISTINCT l." + user + ", l." + user
+                            + " FROM " + legacyTable + " l WHERE NOT EXISTS (SELECT 1 FROM vp_user u"
+                            + " WHERE u.username = l." + user + ")");
+                    for (Map.Entry<String, String> column : interned.entrySet()) {
+                        String name = column.getKey();
+                        String nameTable = column.getValue();
+                        stmt.executeUpdate("INSERT INTO " + nameTable + " (name) SELECT DISTINCT l." + name + " FROM "
+                                + legacyTable + " l WHERE l." + name + " IS NOT NULL AND NOT EXISTS (SELECT 1 FROM "
+                                + nameTable + " n WHERE n.name = l." + name + ")");
+                    }
+                    int copied = stmt.executeUpdate("INSERT INTO " + table + " (" + insert + ") SELECT " + select
+                            + " FROM " + legacyTable + " l ORDER BY l.id");
+                    stmt.execute("DROP TABLE " + legacyTable);
+                    VonixCore.LOGGER.info("[VonixCore] Copied {} rows from {} into {}", copied, legacyTable, table);
+                }
+            });
+        } catch (SQLException e) {
+            VonixCore.LOGGER.error("[VonixCore] Failed to copy {} into {}, its rows are left there: {}", legacyTable,
+                    table, e.getMessage());
+        }
     }
 
-    private String getTextTypeSyntax() {
-        return switch (databaseType) {
-            case MYSQL -> "VARCHAR(255)";
-            case POSTGRESQL, SUPABASE -> "TEXT";
-            default -> "TEXT";
+    /**
+     * Columns of a log table holding ids from a name table, other than the user.
+     */
+    private static Map<String, String> internedColumns(String table) {
+        return switch (table) {
+            case "vp_block" -> Map.of("world", "vp_world", "type", "vp_material", "old_type", "vp_material",
+                    "old_data", "vp_blockdata", "new_type", "vp_material", "new_data", "vp_blockdata");
+            case "vp_container" -> Map.of("world", "vp_world", "type", "vp_material", "item", "vp_material");
+            case "vp_entity" -> Map.of("world", "vp_world", "entity_type", "vp_material");
+            case "vp_sign" -> Map.of("world", "vp_world");
+            default -> Map.of();
         };
     }
 
-    private void createIndexes(Statement stmt) throws SQLException {
-        executeIgnoreError(stmt, "CREATE INDEX IF NOT EXISTS idx_block_time ON vp_block (time)");
-        executeIgnoreError(stmt, "CREATE INDEX IF NOT EXISTS idx_block_user ON vp_block (user)");
-        executeIgnoreError(stmt, "CREATE INDEX IF NOT EXISTS idx_block_location ON vp_block (world, x, y, z)");
-        executeIgnoreError(stmt, "CREATE INDEX IF NOT EXISTS idx_block_coords ON vp_block (x, z)");
+    private static boolean tableExists(DatabaseMetaData meta, Connection conn, String table) throws SQLException {
+        try (ResultSet rs = meta.getTables(conn.getCatalog(), null, table, null)) {
+            return rs.next();
+        }
+    }
+
+    private void createIndexes(Connection conn) {
+        createIndex(conn, "idx_block_time", "vp_block", "time");
+        createIndex(conn, "idx_block_user", "vp_block", dialect.quote("user"));
+        // Point and column lookups: equality on world/x/z/y, newest first
+        createIndex(conn, "idx_block_lookup", "vp_block", "world, x, z, y, time");
+        createIndex(conn, "idx_block_coords", "vp_block", "x, z");
 
-        executeIgnoreError(stmt, "CREATE INDEX IF NOT EXISTS idx_container_time ON vp_container (time)");
-        executeIgnoreError(stmt, "CREATE INDEX IF NOT EXISTS idx_container_location ON vp_container (world, x, y, z)");
+        createIndex(conn, "idx_container_time", "vp_container", "time");
+        createIndex(conn, "idx_container_lookup", "vp_container", "world, x, z, y, time");
+        // Superseded by the lookup indexes above
+        try {
+            dialect.dropIndex(conn, "idx_block_location", "vp_block");
+            dialect.dropIndex(conn, "idx_container_location", "vp_container");
+        } catch (SQLException e) {
+            VonixCore.LOGGER.warn("[VonixCore] Failed to drop superseded location indexes: {}", e.getMessage());
+        }
 
-        executeIgnoreError(stmt, "CREATE INDEX IF NOT EXISTS idx_entity_time ON vp_entity (time)");
-        executeIgnoreError(stmt, "CREATE INDEX IF NOT EXISTS idx_entity_location ON vp_entity (world, x, y, z)");
+        createIndex(conn, "idx_entity_time", "vp_entity", "time");
+        createIndex(conn, "idx_entity_location", "vp_entity", "world, x, y, z");
 
-        executeIgnoreError(stmt, "CREATE INDEX IF NOT EXISTS idx_user_uuid ON vp_user (uuid)");
-        executeIgnoreError(stmt, "CREATE INDEX IF NOT EXISTS idx_user_name ON vp_user (username)");
+        createIndex(conn, "idx_user_uuid", "vp_user", "uuid");
+        createIndex(conn, "idx_user_name", "vp_user", "username");
 
-        executeIgnoreError(stmt, "CREATE INDEX IF NOT EXISTS idx_homes_uuid ON vonixcore_homes (uuid)");
+        createIndex(conn, "idx_homes_uuid", "vonixcore_homes", "uuid");
 
-        executeIgnoreError(stmt, "CREATE INDEX IF NOT EXISTS idx_economy_balance ON vonixcore_economy (balance DESC)");
+        createIndex(conn, "idx_economy_balance", "vonixcore_economy", "balance DESC");
     }
 
-    private void executeIgnoreError(Statement stmt, String sql) {
+    private void createIndex(Connection conn, String name, String table, String columns) {
         try {
-            stmt.execute(sql);
-        } catch (SQLException ignored) {
+            dialect.createIndex(conn, name, table, columns);
+        } catch (SQLException e) {
+            VonixCore.LOGGER.warn("[VonixCore] Failed to create index {}: {}", name, e.getMessage());
         }
     }
 
+    /**
+     * A pooled connection. On a local SQLite file it is read-only; use
+     * {@link #write} for changes. While a remote database is unreachable this
+     * fails at once with a {@link SQLTransientConnectionException}.
+     */
     public Connection getConnection() throws SQLException {
         if (dataSource == null || dataSource.isClosed()) {
             throw new SQLException("Database not initialized");
         }
-        return dataSource.getConnection();
+        if (watchServerThread && isServerThread()) {
+            flagServerThreadQuery();
+        }
+        CircuitBreaker breaker = this.breaker;
+        return breaker != null ? breaker.getConnection() : dataSource.getConnection();
+    }
+
+    /**
+     * A connection for reads that may lag slightly behind the latest writes:
+     * from the replica if one is configured and reachable, otherwise as
+     * {@link #getConnection()}. Don't write through it.
+     */
+    public Connection getReadConnection() throws SQLException {
+        return getReadConnection(null);
+    }
+
+    /**
+     * {@link #getReadConnection()} for a player's data. Within
+     * {@code sticky_ms} of a change to it, this is a primary connection.
+     */
+    public Connection getReadConnection(UUID player) throws SQLException {
+        HikariDataSource replica = replicaSource;
+        if (replica == null || replica.isClosed() || (player != null && isSticky(player))
+                || System.currentTimeMillis() < replicaRetryAt) {
+            return getConnection();
+        }
+        if (watchServerThread && isServerThread()) {
+            flagServerThreadQuery();
+        }
+        try {
+            Connection conn = replica.getConnection();
+            if (replicaRetryAt != 0) {
+                replicaRetryAt = 0;
+                VonixCore.LOGGER.info("[VonixCore] Read replica is reachable again");
+            }
+            return conn;
+        } catch (SQLException e) {
+            if (replicaRetryAt == 0) {
+                VonixCore.LOGGER.warn("[VonixCore] Read replica unavailable, reading from the primary: {}",
+                        e.getMessage());
+            }
+            replicaRetryAt = System.currentTimeMillis() + REPLICA_RETRY_MS;
+            return getConnection();
+        }
+    }
+
+    private void markWritten(UUID player) {
+        if (replicaSource == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        stickyUntil.put(player, now + DatabaseConfig.CONFIG.replicaStickyMs.get());
+        if (stickyUntil.size() > 1024) {
+            stickyUntil.values().removeIf(until -> until < now);
+        }
+    }
+
+    private boolean isSticky(UUID player) {
+        Long until = stickyUntil.get(player);
+        if (until == null) {
+            return false;
+        }
+        if (until < System.currentTimeMillis()) {
+            stickyUntil.remove(player, until);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Work done with a pooled connection on the I/O threads.
+     */
+    @FunctionalInterface
+    public interface SqlFunction<T> {
+        T apply(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Work done with a pooled connection on the I/O threads, with no result.
+     */
+    @FunctionalInterface
+    public interface SqlAction {
+        void run(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Run work that may change data and wait for its result: on the SQLite
+     * writer thread, or on a pooled connection for other databases.
+     */
+    public <T> T write(SqlFunction<T> work) throws SQLException {
+        if (writer == null) {
+            try (Connection conn = getConnection()) {
+                return work.apply(conn);
+            }
+        }
+        if (watchServerThread && isServerThread()) {
+            flagServerThreadQuery();
+        }
+        return writer.call(work);
+    }
+
+    /**
+     * Run work on the I/O threads with a connection of its own. The future
+     * is completed on the server thread, so callbacks attached to it can
+     * touch players and the world. It fails with the SQLException itself,
+     * or a RejectedExecutionException if the I/O queue is full or closed.
+     */
+    public <T> CompletableFuture<T> supplyAsync(SqlFunction<T> work) {
+        return submit(work, true, null, null);
+    }
+
+    /**
+     * {@link #supplyAsync} for work that changes a player's own data; their
+     * reads stay on the primary until the replica has caught up.
+     */
+    public <T> CompletableFuture<T> supplyAsync(UUID player, SqlFunction<T> work) {
+        return submit(work, true, player, null);
+    }
+
+    /**
+     * {@link #supplyAsync} for work that only reads, which can use the
+     * read-only SQLite pool or the replica instead of the primary.
+     */
+    public <T> CompletableFuture<T> queryAsync(SqlFunction<T> work) {
+        return submit(work, false, null, null);
+    }
+
+    /**
+     * {@link #queryAsync} for a player's data, which reads from the primary
+     * shortly after they changed it.
+     */
+    public <T> CompletableFuture<T> queryAsync(UUID player, SqlFunction<T> work) {
+        return submit(work, false, player, null);
+    }
+
+    private <T> CompletableFuture<T> submit(SqlFunction<T> work, boolean writes, UUID player,
+            JournaledWrite deferrable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        ThreadPoolExecutor executor = ioExecutor;
+        if (executor == null) {
+            future.completeExceptionally(new SQLException("Database not initialized"));
+            return future;
+        }
+        if (writes && player != null) {
+            // Reads queued behind this write must not overtake it on the replica
+            markWritten(player);
+        }
+        try {
+            executor.execute(() -> {
+                T result;
+                try {
+                    if (writes) {
+                        result = write(work);
+                        if (player != null) {
+                            // The window counts from the commit
+                            markWritten(player);
+                        }
+                    } else {
+                        try (Connection conn = getReadConnection(player)) {
+                            result = work.apply(conn);
+                        }
+                    }
+                } catch (Throwable e) {
+                    if (deferrable != null && e instanceof SQLException failure
+                            && CircuitBreaker.isConnectionFailure(failure) && defer(deferrable, failure)) {
+                        executeOnServer(() -> future.complete(null));
+                        return;
+                    }
+                    executeOnServer(() -> future.completeExceptionally(e));
+                    return;
+                }
+                executeOnServer(() -> future.complete(result));
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * {@link #supplyAsync} for work with no result.
+     */
+    public CompletableFuture<Void> runAsync(SqlAction work) {
+        return runAsync(null, work);
+    }
+
+    /**
+     * {@link #supplyAsync(UUID, SqlFunction)} for work with no result.
+     */
+    public CompletableFuture<Void> runAsync(UUID player, SqlAction work) {
+        return submit(conn -> {
+            work.run(conn);
+            return null;
+        }, true, player, null);
+    }
+
+    /**
+     * {@link #runAsync(UUID, SqlAction)} for a save given as statements.
+     * While a remote database is unreachable the save is kept in the outage
+     * journal and the future completes at once; it is written when the
+     * database is back, in order with the other saves kept there.
+     */
+    public CompletableFuture<Void> saveAsync(UUID player, JournaledWrite write) {
+        if (defer(write, null)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return submit(conn -> {
+            write.run(conn);
+            return null;
+        }, true, player, write);
+    }
+
+    /**
+     * Put a save in the outage journal if the breaker is open or saves are
+     * already waiting there, or if it just failed for want of a connection.
+     * Saves are upserts and deletes, so one that got through before its
+     * connection dropped may safely run again. A timed-out wait for a
+     * connection opens the breaker; other failures only get the journal
+     * written soon.
+     *
+     * @param failure the failed attempt, or null before trying
+     * @return false if the save should run (or fail) as usual
+     */
+    private boolean defer(JournaledWrite write, SQLException failure) {
+        OutageJournal journal = this.journal;
+        if (journal == null) {
+            return false;
+        }
+        synchronized (journal) {
+            if (failure == null && !breaker.isOpen() && journal.isEmpty()) {
+                return false;
+            }
+            try {
+                journal.append(write);
+            } catch (SQLException e) {
+                VonixCore.LOGGER.error("[VonixCore] Failed to keep a save in the outage journal: {}", e.getMessage());
+                return false;
+            }
+            if (failure instanceof SQLTransientConnectionException) {
+                breaker.open(failure);
+            } else if (failure != null) {
+                breaker.recoverSoon();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The breaker's recovery action, on the connection that got through:
+     * write the journaled saves, then let work through again. Saves made
+     * meanwhile join the journal, so the breaker only closes once that is
+     * empty.
+     */
+    private void recover(Connection conn) throws SQLException {
+        OutageJournal journal = this.journal;
+        if (journal == null) {
+            breaker.close();
+            return;
+        }
+        while (true) {
+            int written = journal.replay(conn);
+            if (written > 0) {
+                VonixCore.LOGGER.info("[VonixCore] Wrote {} saves kept during the database outage", written);
+            }
+            synchronized (journal) {
+                if (journal.isEmpty()) {
+                    breaker.close();
+                    CompletableFuture<Void> waiting = journalWritten;
+                    journalWritten = null;
+                    if (waiting != null) {
+                        executeOnServer(() -> waiting.complete(null));
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Completes on the server thread once no save is waiting in the outage
+     * journal, so a save that {@link #saveAsync} kept there has reached the
+     * database. Without an outage that is at once.
+     */
+    public CompletableFuture<Void> whenJournalWritten() {
+        OutageJournal journal = this.journal;
+        if (journal == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        synchronized (journal) {
+            if (journal.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (journalWritten == null) {
+                journalWritten = new CompletableFuture<>();
+            }
+            return journalWritten;
+        }
+    }
+
+    /**
+     * Run statements as one transaction on a connection, committing them all
+     * or rolling all back. A connection already in a transaction just runs
+     * them as part of it.
+     */
+    public static void inTransaction(Connection conn, SqlAction work) throws SQLException {
+        if (!conn.getAutoCommit()) {
+            work.run(conn);
+            return;
+        }
+        conn.setAutoCommit(false);
+        try {
+            work.run(conn);
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * One I/O thread per pooled connection, so queued work waits here
+     * rather than inside Hikari's connection timeout.
+     */
+    private static ThreadPoolExecutor createIoExecutor(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(1024),
+                r -> {
+                    Thread t = new Thread(r, "VonixCore-DB-IO-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Flag connections taken on the server thread while the server is up;
+     * startup and shutdown work is not reported.
+     */
+    public void watchServerThread(boolean watch) {
+        watchServerThread = watch && DatabaseConfig.CONFIG.warnServerThreadQueries.get();
+    }
+
+    /**
+     * @return connections taken on the server thread since it started
+     */
+    public long getServerThreadQueries() {
+        return serverThreadQueries.get();
+    }
+
+    private void flagServerThreadQuery() {
+        serverThreadQueries.incrementAndGet();
+        String caller = StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> !frame.getClassName().equals(Database.class.getName()))
+                .findFirst()
+                .map(frame -> frame.getClassName() + "." + frame.getMethodName() + ":" + frame.getLineNumber())
+                .orElse("unknown"));
+        if (flaggedCallers.add(caller)) {
+            VonixCore.LOGGER.warn("[VonixCore] Database used on the server thread by {}; this stalls the tick",
+                    caller, new Throwable("Called from"));
+        }
+    }
+
+    /**
+     * Overridden by tests, which have no server.
+     */
+    boolean isServerThread() {
+        return server.isSameThread();
+    }
+
+    void executeOnServer(Runnable task) {
+        server.execute(task);
+    }
+
+    /**
+     * The world's vonixcore folder, for the SQLite file and other per-world data.
+     */
+    public Path getDataDirectory() {
+        File dataFolder = server.getWorldPath(net.minecraft.world.level.storage.LevelResource.ROOT)
+                .resolve("vonixcore").toFile();
+        if (!dataFolder.exists()) {
+            dataFolder.mkdirs();
+        }
+        return dataFolder.toPath();
+    }
+
+    /**
+     * The log archive in {@code <world>/vonixcore/archive}, opened on first use.
+     */
+    public synchronized LogArchive getArchive() {
+        if (archive == null) {
+            archive = new LogArchive(getDataDirectory().resolve("archive"));
+        }
+        return archive;
     }
 
     public DatabaseType getDatabaseType() {
         return databaseType;
     }
 
+    /**
+     * The SQL flavour of the configured database, for statements that differ.
+     */
+    public SqlDialect getDialect() {
+        return dialect;
+    }
+
     public boolean isMySQL() {
         return databaseType == DatabaseType.MYSQL;
     }
@@ -411,6 +1194,41 @@ public class Database {
     }
 
     public void close() {
+        if (ioExecutor != null) {
+            // Let queued saves finish; their results are no longer delivered
+            ioExecutor.shutdown();
+            try {
+                if (!ioExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    ioExecutor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                ioExecutor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (maintenance != null) {
+            maintenance.stop();
+            maintenance = null;
+        }
+        if (breaker != null) {
+            breaker.stop();
+        }
+        if (journal != null) {
+            if (!journal.isEmpty()) {
+                VonixCore.LOGGER.warn("[VonixCore] {} saves stay in the outage journal until the next start",
+                        journal.size());
+            }
+            journal.close();
+            journal = null;
+        }
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+        if (replicaSource != null) {
+            replicaSource.close();
+            replicaSource = null;
+        }
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
             VonixCore.LOGGER.info("[VonixCore] Database connection pool closed");
@@ -0,0 +1,174 @@
+package network.vonix.vonixcore.database;
+
+import network.vonix.vonixcore.VonixCore;
+import network.vonix.vonixcore.admin.AdminManager;
+import network.vonix.vonixcore.homes.HomeManager;
+import network.vonix.vonixcore.kits.KitManager;
+import network.vonix.vonixcore.permissions.PermissionManager;
+import network.vonix.vonixcore.warps.WarpManager;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Brings the schema up to date at startup. Migrations are numbered; the
+ * ones applied are recorded in vonixcore_schema_version and the rest run
+ * in order, each writing the SQL of the configured dialect.
+ *
+ * DDL cannot be rolled back on every database and a crash may come between
+ * a step and its record, so every step is safe to run again. Databases from
+ * before versioning count as version 0: the first steps find their tables
+ * in place and only later ones change anything.
+ */
+final class SchemaMigrator {
+
+    private final Database database;
+    private final List<Migration> migrations;
+
+    SchemaMigrator(Database database) {
+        this.database = database;
+        this.migrations = List.of(
+                new Migration(1, "log and core tables", (conn, dialect) -> database.createTables(conn)),
+                new Migration(2, "essentials tables", SchemaMigrator::createEssentialsTables),
+                new Migration(3, "kit cooldown and user group lookup indexes", (conn, dialect) -> {
+                    ensureIndex(conn, dialect, "idx_kit_cooldowns_lookup", "vc_kit_cooldowns", "uuid", "kit_name");
+                    ensureIndex(conn, dialect, "idx_user_groups_uuid", "vc_user_groups", "uuid");
+                }),
+                new Migration(4, "long text for logged chat, commands, signs and entity data",
+                        SchemaMigrator::widenLogText));
+    }
+
+    /**
+     * Apply every migration the database has not seen yet.
+     */
+    void migrate(Connection conn) throws SQLException {
+        SqlDialect dialect = database.getDialect();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS vonixcore_schema_version (
+                        version INTEGER PRIMARY KEY,
+                        description TEXT NOT NULL,
+                        applied_at BIGINT NOT NULL
+                    )
+                    """);
+        }
+
+        Set<Integer> applied = new HashSet<>();
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT version FROM vonixcore_schema_version")) {
+            while (rs.next()) {
+                applied.add(rs.getInt(1));
+            }
+        }
+        int latest = migrations.get(migrations.size() - 1).version();
+        int current = applied.stream().mapToInt(Integer::intValue).max().orElse(0);
+        if (current > latest) {
+            VonixCore.LOGGER.warn("[VonixCore] Database schema is at version {}, newer than this build knows ({})",
+                    current, latest);
+        }
+
+        for (Migration migration : migrations) {
+            if (applied.contains(migration.version())) {
+                continue;
+            }
+            VonixCore.LOGGER.info("[VonixCore] Applying schema migration {}: {}", migration.version(),
+                    migration.description());
+            long start = System.currentTimeMillis();
+            migration.step().apply(conn, dialect);
+            try (PreparedStatement ps = conn.prepareStatement(dialect.upsert("vonixcore_schema_version", "version",
+                    "version", "description", "applied_at"))) {
+                ps.setInt(1, migration.version());
+                ps.setString(2, migration.description());
+                ps.setLong(3, System.currentTimeMillis());
+                ps.executeUpdate();
+            }
+            VonixCore.LOGGER.info("[VonixCore] Schema migration {} done in {}ms", migration.version(),
+                    System.currentTimeMillis() - start);
+        }
+        VonixCore.LOGGER.info("[VonixCore] Database schema at version {}", Math.max(current, latest));
+    }
+
+    /**
+     * Tables of every essentials feature, whether or not it is enabled, so
+     * turning one on later needs no schema change.
+     */
+    private static void createEssentialsTables(Connection conn, SqlDialect dialect) throws SQLException {
+        HomeManager.getInstance().initializeTable(conn, dialect);
+        WarpManager.getInstance().initializeTable(conn, dialect);
+        KitManager.getInstance().initializeTable(conn, dialect);
+        AdminManager.getInstance().initializeTable(conn, dialect);
+        PermissionManager.getInstance().createTables(conn, dialect);
+    }
+
+    /**
+     * Log columns holding free text were VARCHAR(255) on MySQL, which cut off
+     * or rejected longer commands and messages. Elsewhere they are TEXT
+     * already.
+     */
+    private static void widenLogText(Connection conn, SqlDialect dialect) throws SQLException {
+        if (dialect != SqlDialect.MYSQL) {
+            return;
+        }
+        String type = dialect.longText();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE vp_chat MODIFY message " + type + " NOT NULL");
+            stmt.execute("ALTER TABLE vp_command MODIFY command " + type + " NOT NULL");
+            stmt.execute("ALTER TABLE vp_entity MODIFY entity_data " + type);
+            stmt.execute("ALTER TABLE vp_sign MODIFY line1 " + type + ", MODIFY line2 " + type
+                    + ", MODIFY line3 " + type + ", MODIFY line4 " + type);
+        }
+    }
+
+    /**
+     * Build an index without blocking writes, unless an existing index
+     * (such as the primary key) already starts with the same columns.
+     */
+    private static void ensureIndex(Connection conn, SqlDialect dialect, String name, String table,
+            String... columns) throws SQLException {
+        Map<String, List<String>> indexes = new HashMap<>();
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getIndexInfo(conn.getCatalog(), null, table, false, false)) {
+            while (rs.next()) {
+                String index = rs.getString("INDEX_NAME");
+                String column = rs.getString("COLUMN_NAME");
+                int position = rs.getShort("ORDINAL_POSITION");
+                if (index == null || column == null || position < 1) {
+                    continue;
+                }
+                List<String> indexColumns = indexes.computeIfAbsent(index, k -> new ArrayList<>());
+                while (indexColumns.size() < position) {
+                    indexColumns.add(null);
+                }
+                indexColumns.set(position - 1, column.toLowerCase());
+            }
+        }
+        List<String> wanted = Arrays.asList(columns);
+        for (Map.Entry<String, List<String>> index : indexes.entrySet()) {
+            List<String> indexColumns = index.getValue();
+            if (indexColumns.size() >= wanted.size() && indexColumns.subList(0, wanted.size()).equals(wanted)) {
+                VonixCore.LOGGER.info("[VonixCore] {} ({}) is already covered by index {}", table,
+                        String.join(", ", wanted), index.getKey());
+                return;
+            }
+        }
+        dialect.createIndexOnline(conn, name, table, String.join(", ", columns));
+    }
+
+    private interface Step {
+        void apply(Connection conn, SqlDialect dialect) throws SQLException;
+    }
+
+    private record Migration(int version, String description, Step step) {
+    }
+}
@@ -0,0 +1,184 @@
+package network.vonix.vonixcore.listener;
+
+import dev.architectury.event.EventResult;
+import dev.architectury.event.events.common.BlockEvent;
+import dev.architectury.event.events.common.ExplosionEvent;
+import net.minecraft.commands.arguments.blocks.BlockStateParser;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.entity.Mob;
+import net.minecraft.world.level.Explosion;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.state.BlockState;
+import network.vonix.vonixcore.config.DatabaseConfig;
+import network.vonix.vonixcore.consumer.Consumer;
+import network.vonix.vonixcore.consumer.Consumer.BlockLogEntry;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Feeds block breaks, placements and explosions into the Consumer's vp_block
+ * queue.
+ *
+ * Explosions are charged to the player behind them where there is one, else
+ * to the mob that set it off as "#creeper", "#ghast" and so on; "#explosion"
+ * is left for explosions with no known source, such as beds in the nether.
+ *
+ * All hooks run on the server thread. Block states and dimensions are resolved
+ * to their string form once and cached by identity, so a logged event only
+ * copies references and coordinates into a pooled entry.
+ */
+public class BlockLogEventHandler {
+
+    private static final String AIR = "minecraft:air";
+    private static final String USER_EXPLOSION = "#explosion";
+    private static final String USER_ENTITY = "#entity";
+    private static final String USER_UNKNOWN = "#unknown";
+
+    // Server-thread only caches; all key sets are small and fixed for the server's lifetime
+    private static final Map<BlockState, StateNames> STATE_NAMES = new IdentityHashMap<>();
+    private static final Map<ResourceKey<Level>, String> WORLD_NAMES = new IdentityHashMap<>();
+    private static final Map<EntityType<?>, String> ENTITY_USERS = new IdentityHashMap<>();
+
+    public static void init() {
+        BlockEvent.BREAK.register((level, pos, state, player, xp) -> {
+            onBreak(level, pos, state, player);
+            return EventResult.pass();
+        });
+
+        BlockEvent.PLACE.register((level, pos, state, placer) -> {
+            onPlace(level, pos, state, placer);
+            return EventResult.pass();
+        });
+
+        ExplosionEvent.DETONATE.register((level, explosion, affectedEntities) -> onDetonate(level, explosion));
+    }
+
+    static void onBreak(Level level, BlockPos pos, BlockState state, ServerPlayer player) {
+        if (DatabaseConfig.CONFIG.blockLogging.get() && level instanceof ServerLevel) {
+            log(level, pos, player.getGameProfile().getName(), player.getStringUUID(), state, null,
+                    BlockLogEntry.ACTION_BREAK);
+        }
+    }
+
+    static void onPlace(Level level, BlockPos pos, BlockState state, Entity placer) {
+        if (DatabaseConfig.CONFIG.blockLogging.get() && level instanceof ServerLevel) {
+            // Fired before the block is set, so this is what gets replaced: water, snow, grass...
+            BlockState replaced = level.getBlockState(pos);
+            if (replaced == state) {
+                // Already set on this platform; the replaced block is unknown
+                replaced = null;
+            }
+            if (placer instanceof ServerPlayer player) {
+                log(level, pos, player.getGameProfile().getName(), player.getStringUUID(), replaced, state,
+                        BlockLogEntry.ACTION_PLACE);
+            } else {
+                log(level, pos, placer != null ? USER_ENTITY : USER_UNKNOWN, null, replaced, state,
+                        BlockLogEntry.ACTION_PLACE);
+            }
+        }
+    }
+
+    static void onDetonate(Level level, Explosion explosion) {
+        if (!DatabaseConfig.CONFIG.explosionLogging.get() || !(level instanceof ServerLevel)) {
+            return;
+        }
+        String user = USER_EXPLOSION;
+        String uuid = null;
+        ServerPlayer player = responsiblePlayer(explosion);
+        if (player != null) {
+            user = player.getGameProfile().getName();
+            uuid = player.getStringUUID();
+        } else {
+            Entity source = explosionSource(explosion);
+            if (source != null) {
+                user = entityUser(source);
+            }
+        }
+        for (BlockPos pos : explosion.getToBlow()) {
+            BlockState state = level.getBlockState(pos);
+            if (!state.isAir()) {
+                log(level, pos, user, uuid, state, null, BlockLogEntry.ACTION_EXPLODE);
+            }
+        }
+    }
+
+    /**
+     * The player an explosion is charged to: whoever lit the TNT or fired the
+     * projectile, or the player a creeper was chasing.
+     */
+    private static ServerPlayer responsiblePlayer(Explosion explosion) {
+        LivingEntity cause = explosion.getSourceMob();
+        if (cause instanceof ServerPlayer player) {
+            return player;
+        }
+        if (cause instanceof Mob mob && mob.getTarget() instanceof ServerPlayer target) {
+            return target;
+        }
+        return null;
+    }
+
+    /**
+     * The mob behind an explosion no player is charged to. This version only
+     * exposes the mob, so TNT nobody lit stays "#explosion".
+     */
+    private static Entity explosionSource(Explosion explosion) {
+        return explosion.getSourceMob();
+    }
+
+    private static String entityUser(Entity entity) {
+        String user = ENTITY_USERS.get(entity.getType());
+        if (user == null) {
+            user = "#" + EntityType.getKey(entity.getType()).getPath();
+            ENTITY_USERS.put(entity.getType(), user);
+        }
+        return user;
+    }
+
+    private static void log(Level level, BlockPos pos, String user, String uuid, BlockState oldState,
+            BlockState newState, int action) {
+        Consumer consumer = Consumer.getInstance();
+        if (!consumer.isRunning()) {
+            return;
+        }
+
+        StateNames oldNames = oldState != null ? names(oldState) : null;
+        StateNames newNames = newState != null ? names(newState) : null;
+        String type = newNames != null ? newNames.type() : oldNames.type();
+
+        consumer.queueBlockLog(System.currentTimeMillis(), user, uuid, worldName(level),
+                pos.getX(), pos.getY(), pos.getZ(), type,
+                oldNames != null ? oldNames.type() : AIR, oldNames != null ? oldNames.data() : AIR,
+                newNames != null ? newNames.type() : AIR, newNames != null ? newNames.data() : AIR,
+                action);
+    }
+
+    private static StateNames names(BlockState state) {
+        StateNames names = STATE_NAMES.get(state);
+        if (names == null) {
+            String data = BlockStateParser.serialize(state);
+            int bracket = data.indexOf('[');
+            names = new StateNames(bracket < 0 ? data : data.substring(0, bracket), data);
+            STATE_NAMES.put(state, names);
+        }
+        return names;
+    }
+
+    private static String worldName(Level level) {
+        String name = WORLD_NAMES.get(level.dimension());
+        if (name == null) {
+            name = level.dimension().location().toString();
+            WORLD_NAMES.put(level.dimension(), name);
+        }
+        return name;
+    }
+
+    private record StateNames(String type, String data) {
+    }
+}
@@ -0,0 +1,43 @@
+package network.vonix.vonixcore.listener;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Net change per item between two snapshots of the same container slots.
+ * Counts are summed per item over all slots, so moving, splitting or
+ * merging stacks inside the container cancels out.
+ */
+final class ContainerDiff {
+
+    private ContainerDiff() {
+    }
+
+    /**
+     * @param oldIds item id per slot when the menu opened, 0 for an empty slot
+     * @return item id to change in its total count; items whose total is
+     *         unchanged are left out. Allocates nothing if no slot changed.
+     */
+    static Map<Integer, Integer> between(int[] oldIds, int[] oldCounts, int[] newIds, int[] newCounts) {
+        Map<Integer, Integer> deltas = null;
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIds[i] == newIds[i] && oldCounts[i] == newCounts[i]) {
+                continue;
+            }
+            if (deltas == null) {
+                deltas = new HashMap<>();
+            }
+            if (oldCounts[i] > 0) {
+                deltas.merge(oldIds[i], -oldCounts[i], Integer::sum);
+            }
+            if (newCounts[i] > 0) {
+                deltas.merge(newIds[i], newCounts[i], Integer::sum);
+            }
+        }
+        if (deltas == null) {
+            return Map.of();
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+        return deltas;
+    }
+}
@@ -4,7 +4,6 @@ import dev.architectury.event.EventResult;
 import dev.architectury.event.events.common.ChatEvent;
 import dev.architectury.event.events.common.CommandRegistrationEvent;
 import dev.architectury.event.events.common.EntityEvent;
-import dev.architectury.event.events.common.LifecycleEvent;
 import dev.architectury.event.events.common.PlayerEvent;
 import net.minecraft.network.chat.Component;
 import net.minecraft.server.level.ServerPlayer;
@@ -18,8 +17,6 @@ import network.vonix.vonixcore.permissions.PermissionCommands;
 import network.vonix.vonixcore.permissions.PermissionManager;
 import network.vonix.vonixcore.auth.integrations.RankSyncHandler;
 
-import java.sql.Connection;
-
 /**
  * Event handler for essentials features: commands, permissions, chat
  * formatting.
@@ -51,20 +48,6 @@ public class EssentialsEventHandler {
             VonixCore.LOGGER.info("[VonixCore] Essentials commands registered");
         });
 
-        // Initialize permission system on server start
-        LifecycleEvent.SERVER_STARTING.register(server -> {
-            if (!EssentialsConfig.CONFIG.enabled.get()) {
-                return;
-            }
-
-            try (Connection conn = VonixCore.getInstance().getDatabase().getConnection()) {
-                PermissionManager.getInstance().initialize(conn);
-                VonixCore.LOGGER.info("[VonixCore] Permission system initialized");
-            } catch (Exception e) {
-                VonixCore.LOGGER.error("[VonixCore] Failed to initialize permission system", e);
-            }
-        });
-
         // Chat Formatting - Architectury 4.x uses ChatEvent.SERVER
         // On Fabric: Handled by Fabric mixin (ServerGamePacketListenerMixin) to prevent duplicates
         // On Forge: Handled by Forge mixin (ServerGamePacketListenerMixin) to prevent duplicates
@@ -119,8 +102,8 @@ public class EssentialsEventHandler {
                 // Track for /seen command
                 UtilityCommands.onPlayerJoin(serverPlayer.getUUID());
 
-                // Pre-load permission data
-                PermissionManager.getInstance().getUser(serverPlayer.getUUID());
+                // Pre-load permission data off the server thread
+                PermissionManager.getInstance().preloadUser(serverPlayer.getUUID());
 
                 // Auto-sync donation rank from website (works without login)
                 RankSyncHandler.syncOnJoin(serverPlayer.getUUID());
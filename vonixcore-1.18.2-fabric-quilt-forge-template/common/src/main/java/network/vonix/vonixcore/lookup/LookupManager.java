@@ -0,0 +1,522 @@
+package network.vonix.vonixcore.lookup;
+
+import dev.architectury.event.EventResult;
+import dev.architectury.event.events.common.InteractionEvent;
+import dev.architectury.event.events.common.LifecycleEvent;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.chat.TextComponent;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.Container;
+import net.minecraft.world.InteractionHand;
+import net.minecraft.world.level.Level;
+import network.vonix.vonixcore.VonixCore;
+import network.vonix.vonixcore.archive.ArchiveTable;
+import network.vonix.vonixcore.archive.ArchivedRow;
+import network.vonix.vonixcore.archive.LogArchive;
+import network.vonix.vonixcore.config.DatabaseConfig;
+import network.vonix.vonixcore.consumer.Consumer;
+import network.vonix.vonixcore.consumer.Consumer.BlockLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.ContainerLogEntry;
+import network.vonix.vonixcore.consumer.Dictionary;
+import network.vonix.vonixcore.consumer.LoggedPositions;
+import network.vonix.vonixcore.database.Database;
+import network.vonix.vonixcore.history.BlockHistory;
+import network.vonix.vonixcore.history.BlockRecord;
+import network.vonix.vonixcore.rollback.RollbackParams;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Block and container history lookups, from /vonixcore lookup and the
+ * inspector.
+ *
+ * Queries run on a small dedicated read pool and their output is handed back
+ * to the server thread with {@code server.execute}. Pages are fetched with a
+ * (time, id) keyset cursor rather than OFFSET, so paging deep into a busy
+ * position costs the same as the first page. Position queries are served by
+ * the (world, x, z, y, time) indexes. With a block history store, block
+ * queries read the store's chunks instead and keep the newest rows past the
+ * cursor; a lookup without a radius then scans the whole store. Lookups
+ * reaching back into archived days merge in rows from the
+ * {@link LogArchive} the same way. Block lookups where
+ * {@link LoggedPositions} knows nothing was logged answer without a query.
+ */
+public class LookupManager {
+
+    private static final int PAGE_SIZE = 10;
+    private static final int MAX_PENDING = 64;
+    // Holding left click fires the event every tick
+    private static final long INSPECT_COOLDOWN_MS = 250;
+    private static final Comparator<Row> NEWEST_FIRST = Comparator.comparingLong(Row::time)
+            .thenComparingLong(Row::id).reversed();
+
+    private static final Set<UUID> INSPECTING = ConcurrentHashMap.newKeySet();
+    private static final Map<UUID, Long> LAST_INSPECT = new ConcurrentHashMap<>();
+    // Last query per command source name, for /vonixcore lookup next
+    private static final Map<String, Query> LAST_QUERIES = new ConcurrentHashMap<>();
+
+    private static ThreadPoolExecutor readPool;
+
+    public static void init() {
+        InteractionEvent.LEFT_CLICK_BLOCK.register((player, hand, pos, face) -> {
+            if (!(player instanceof ServerPlayer serverPlayer) || !INSPECTING.contains(player.getUUID())) {
+                return EventResult.pass();
+            }
+            inspect(serverPlayer, pos.immutable(), false);
+            return EventResult.interruptFalse();
+        });
+
+        InteractionEvent.RIGHT_CLICK_BLOCK.register((player, hand, pos, face) -> {
+            if (!(player instanceof ServerPlayer serverPlayer) || !INSPECTING.contains(player.getUUID())) {
+                return EventResult.pass();
+            }
+            if (hand == InteractionHand.MAIN_HAND) {
+                // Containers show their transactions, anything else the block placed against that face
+                boolean container = player.level.getBlockEntity(pos) instanceof Container;
+                inspect(serverPlayer, container ? pos.immutable() : pos.relative(face), container);
+            }
+            return EventResult.interruptFalse();
+        });
+
+        LifecycleEvent.SERVER_STOPPING.register(server -> {
+            shutdown();
+            INSPECTING.clear();
+            LAST_INSPECT.clear();
+            LAST_QUERIES.clear();
+        });
+    }
+
+    /**
+     * @return true if inspect mode is now on for the player
+     */
+    public static boolean toggleInspect(ServerPlayer player) {
+        if (INSPECTING.remove(player.getUUID())) {
+            return false;
+        }
+        INSPECTING.add(player.getUUID());
+        return true;
+    }
+
+    /**
+     * Search vp_block around the sender (or everywhere without a radius).
+     */
+    public static void search(CommandSourceStack source, RollbackParams params) {
+        StringBuilder where = new StringBuilder("time >= ?");
+        List<Object> args = new ArrayList<>();
+        args.add(params.sinceMillis());
+        Scope scope = new Scope(null, params.users(), params.sinceMillis(), params.actions(),
+                Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE,
+                Integer.MAX_VALUE);
+        if (!params.users().isEmpty()) {
+            where.append(" AND ").append(VonixCore.getInstance().getDatabase().getDialect().quote("user"))
+                    .append(" IN (SELECT id FROM vp_user WHERE username IN (")
+                    .append("?, ".repeat(params.users().size() - 1)).append("?))");
+            args.addAll(params.users());
+        }
+        if (params.radius() >= 0) {
+            int x = (int) Math.floor(source.getPosition().x);
+            int z = (int) Math.floor(source.getPosition().z);
+            where.append(" AND world = (SELECT id FROM vp_world WHERE name = ?) AND x BETWEEN ? AND ? AND z BETWEEN ? AND ?");
+            args.add(source.getLevel().dimension().location().toString());
+            args.add(x - params.radius());
+            args.add(x + params.radius());
+            args.add(z - params.radius());
+            args.add(z + params.radius());
+            scope = new Scope(source.getLevel().dimension().location().toString(), params.users(),
+                    params.sinceMillis(), params.actions(), x - params.radius(), x + params.radius(),
+                    Integer.MIN_VALUE, Integer.MAX_VALUE, z - params.radius(), z + params.radius());
+        }
+        if (!params.actions().isEmpty()) {
+            where.append(" AND action IN (").append("?, ".repeat(params.actions().size() - 1)).append("?)");
+            args.addAll(params.actions());
+        }
+        submit(source, new Query(false, where.toString(), args.toArray(), scope, "Lookup results", true));
+    }
+
+    /**
+     * Fetch the next page of the sender's last lookup or inspection.
+     *
+     * @return false if there is nothing to page through
+     */
+    public static boolean next(CommandSourceStack source) {
+        Query query = LAST_QUERIES.get(source.getTextName());
+        if (query == null || !query.hasMore) {
+            return false;
+        }
+        submit(source, query);
+        return true;
+    }
+
+    static void inspect(ServerPlayer player, BlockPos pos, boolean container) {
+        long now = System.currentTimeMillis();
+        Long last = LAST_INSPECT.get(player.getUUID());
+        if (last != null && now - last < INSPECT_COOLDOWN_MS) {
+            return;
+        }
+        LAST_INSPECT.put(player.getUUID(), now);
+
+        Level level = player.level;
+        Object[] args = { level.dimension().location().toString(), pos.getX(), pos.getZ(), pos.getY() };
+        String header = (container ? "Container" : "Block") + " history at " + pos.getX() + " " + pos.getY() + " "
+                + pos.getZ();
+        Scope scope = new Scope(level.dimension().location().toString(), List.of(), 0, List.of(), pos.getX(),
+                pos.getX(), pos.getY(), pos.getY(), pos.getZ(), pos.getZ());
+        submit(player.createCommandSourceStack(), new Query(container,
+                "world = (SELECT id FROM vp_world WHERE name = ?) AND x = ? AND z = ? AND y = ?", args, scope, header,
+                false));
+    }
+
+    private static void submit(CommandSourceStack source, Query query) {
+        // Taken on the calling thread and handed to the read pool with the query
+        Database database = VonixCore.getInstance().getDatabase();
+        Consumer consumer = Consumer.getInstance();
+        try {
+            getReadPool().execute(() -> run(source, query, database, consumer));
+        } catch (RejectedExecutionException e) {
+            source.sendFailure(new TextComponent("§c[VonixCore] Too many lookups running, try again shortly"));
+        }
+    }
+
+    private static synchronized ThreadPoolExecutor getReadPool() {
+        if (readPool == null) {
+            int threads = DatabaseConfig.CONFIG.lookupThreads.get();
+            AtomicInteger counter = new AtomicInteger();
+            readPool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(MAX_PENDING), r -> {
+                        Thread thread = new Thread(r, "VonixCore-Lookup-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+        return readPool;
+    }
+
+    private static synchronized void shutdown() {
+        if (readPool != null) {
+            readPool.shutdownNow();
+            readPool = null;
+        }
+    }
+
+    /**
+     * Read pool: fetch one page and hand the formatted lines to the server thread.
+     */
+    private static void run(CommandSourceStack source, Query query, Database database, Consumer consumer) {
+        List<String> lines = new ArrayList<>();
+        // Two quick "next" calls would otherwise both read from the same cursor
+        synchronized (query) {
+            if (query.neverLogged(consumer)) {
+                query.addPage(List.of(), false, lines);
+            } else {
+                try (Connection conn = database.getReadConnection()) {
+                    query.fetch(conn, database, consumer, lines);
+                } catch (SQLException e) {
+                    VonixCore.LOGGER.error("[VonixCore] Lookup failed: {}", e.getMessage());
+                    source.getServer().execute(() -> source.sendFailure(
+                            new TextComponent("§c[VonixCore] Lookup failed: " + e.getMessage())));
+                    return;
+                }
+            }
+        }
+        LAST_QUERIES.put(source.getTextName(), query);
+        source.getServer().execute(() -> {
+            for (String line : lines) {
+                source.sendSuccess(new TextComponent(line), false);
+            }
+        });
+    }
+
+    static String formatAge(long millis) {
+        double seconds = Math.max(0, millis) / 1000.0;
+        if (seconds < 60) {
+            return String.format("%.0fs", seconds);
+        } else if (seconds < 3600) {
+            return String.format("%.1fm", seconds / 60);
+        } else if (seconds < 86400) {
+            return String.format("%.1fh", seconds / 3600);
+        }
+        return String.format("%.1fd", seconds / 86400);
+    }
+
+    /**
+     * The same filters as a query's SQL, for a block history store. A null
+     * world means every world.
+     */
+    private record Scope(String world, List<String> users, long since, List<Integer> actions,
+            int minX, int maxX, int minY, int maxY, int minZ, int maxZ) {
+    }
+
+    /**
+     * One result from any source. The id is a block history handle for rows
+     * read from the store.
+     */
+    private record Row(long id, long time, int user, int type, int action, boolean rolledBack, int x, int y, int z,
+            int item, int amount) {
+    }
+
+    private record IdScope(int world, Set<Integer> users) {
+    }
+
+    /**
+     * A lookup and its keyset cursor.
+     */
+    private static final class Query {
+        final boolean container;
+        final String where;
+        final Object[] args;
+        final Scope scope;
+        final String header;
+        final boolean showPosition;
+
+        int page;
+        long cursorTime;
+        long cursorId;
+        boolean hasMore;
+
+        Query(boolean container, String where, Object[] args, Scope scope, String header, boolean showPosition) {
+            this.container = container;
+            this.where = where;
+            this.args = args;
+            this.scope = scope;
+            this.header = header;
+            this.showPosition = showPosition;
+        }
+
+        void fetch(Connection conn, Database database, Consumer consumer, List<String> lines) throws SQLException {
+            Dictionary dictionary = consumer.getDictionary();
+            BlockHistory history = consumer.getBlockHistory();
+            LogArchive archive = database.getArchive();
+            ArchiveTable table = container ? ArchiveTable.CONTAINER : ArchiveTable.BLOCK;
+            // Head is the oldest row kept
+            PriorityQueue<Row> newest = new PriorityQueue<>(NEWEST_FIRST.reversed());
+            boolean store = !container && history != null;
+            if (store) {
+                fetchHistory(conn, history, dictionary, newest);
+            } else {
+                fetchSql(conn, database, newest);
+            }
+            // A block history store replaces vp_block, archived rows included
+            if (!store && archive.covers(table, scope.since())) {
+                fetchArchive(conn, archive, table, dictionary, newest);
+            }
+
+            List<Row> found = new ArrayList<>(newest);
+            found.sort(NEWEST_FIRST);
+            long now = System.currentTimeMillis();
+            List<String> rows = new ArrayList<>(PAGE_SIZE);
+            for (int i = 0; i < Math.min(PAGE_SIZE, found.size()); i++) {
+                Row row = found.get(i);
+                cursorId = row.id();
+                cursorTime = row.time();
+                rows.add(format(conn, dictionary, now, row));
+            }
+            addPage(rows, found.size() > PAGE_SIZE, lines);
+        }
+
+        /**
+         * @return true if the lookup filter rules out every row, so no query is needed
+         */
+        boolean neverLogged(Consumer consumer) {
+            LoggedPositions positions = consumer.getLoggedPositions();
+            return !container && positions != null && scope.world() != null
+                    && !positions.mightContain(scope.world(), scope.minX(), scope.maxX(), scope.minY(),
+                            scope.maxY(), scope.minZ(), scope.maxZ());
+        }
+
+        void addPage(List<String> rows, boolean more, List<String> lines) {
+            page++;
+            hasMore = more;
+            lines.add("§6[VonixCore] §f" + header + " §7(page " + page + ")");
+            if (rows.isEmpty()) {
+                lines.add("§7No " + (page > 1 ? "more " : "") + "results.");
+            }
+            lines.addAll(rows);
+            if (more) {
+                lines.add("§7Use §e/vonixcore lookup next §7for more");
+            }
+        }
+
+        private boolean afterCursor(long time, long id) {
+            return page == 0 || time < cursorTime || (time == cursorTime && id < cursorId);
+        }
+
+        /**
+         * Keep the row if it is among the newest page + 1 seen so far.
+         *
+         * @return false if the row is older than a full page, so nothing
+         *         older from the same sorted source can be kept either
+         */
+        private static boolean offer(PriorityQueue<Row> newest, Row row) {
+            if (newest.size() > PAGE_SIZE && NEWEST_FIRST.compare(row, newest.peek()) > 0) {
+                return false;
+            }
+            newest.add(row);
+            if (newest.size() > PAGE_SIZE + 1) {
+                newest.poll();
+            }
+            return true;
+        }
+
+        private void fetchSql(Connection conn, Database database, PriorityQueue<Row> newest) throws SQLException {
+            String user = database.getDialect().quote("user");
+            StringBuilder sql = new StringBuilder("SELECT id, time, ").append(user)
+                    .append(", type, action, rolled_back, x, y, z")
+                    .append(container ? ", item, amount FROM vp_container" : " FROM vp_block")
+                    .append(" WHERE ").append(where);
+            if (page > 0) {
+                sql.append(" AND (time < ? OR (time = ? AND id < ?))");
+            }
+            sql.append(" ORDER BY time DESC, id DESC LIMIT ").append(PAGE_SIZE + 1);
+
+            try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                int i = 1;
+                for (Object arg : args) {
+                    stmt.setObject(i++, arg);
+                }
+                if (page > 0) {
+                    stmt.setLong(i++, cursorTime);
+                    stmt.setLong(i++, cursorTime);
+                    stmt.setLong(i, cursorId);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        offer(newest, new Row(rs.getLong(1), rs.getLong(2), rs.getInt(3), rs.getInt(4), rs.getInt(5),
+                                rs.getInt(6) != 0, rs.getInt(7), rs.getInt(8), rs.getInt(9),
+                                container ? rs.getInt(10) : 0, container ? rs.getInt(11) : 0));
+                    }
+                }
+            }
+        }
+
+        /**
+         * The scope's world and users as ids, for the block history store
+         * and the archive.
+         *
+         * @return null if no row can match
+         */
+        private IdScope resolve(Connection conn, Dictionary dictionary) throws SQLException {
+            int world = 0;
+            if (scope.world() != null) {
+                world = dictionary.findWorldId(conn, scope.world());
+                if (world == 0) {
+                    return null;
+                }
+            }
+            Set<Integer> users = dictionary.findUserIds(conn, scope.users());
+            if (!scope.users().isEmpty() && users.isEmpty()) {
+                return null;
+            }
+            return new IdScope(world, users);
+        }
+
+        /**
+         * Read the block history store and keep the newest rows past the cursor.
+         */
+        private void fetchHistory(Connection conn, BlockHistory history, Dictionary dictionary,
+                PriorityQueue<Row> newest) throws SQLException {
+            IdScope ids = resolve(conn, dictionary);
+            if (ids == null) {
+                return;
+            }
+            BlockHistory.Filter filter = new BlockHistory.Filter(scope.since(), ids.users(),
+                    Set.copyOf(scope.actions()), -1, scope.minX(), scope.maxX(), scope.minY(), scope.maxY(),
+                    scope.minZ(), scope.maxZ());
+            try {
+                BlockHistory.ChunkScan scan = history.scan(ids.world(), filter, true);
+                BlockHistory.ChunkRecords chunk;
+                while ((chunk = scan.next()) != null) {
+                    for (BlockRecord record : chunk.records()) {
+                        if (!afterCursor(record.time(), record.handle())) {
+                            continue;
+                        }
+                        // The chunk is newest first, so nothing later in it makes the page either
+                        if (!offer(newest, new Row(record.handle(), record.time(), record.user(), record.type(),
+                                record.action(), record.rolledBack(), record.x(), record.y(), record.z(), 0, 0))) {
+                            break;
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new SQLException("Block history read failed: " + e.getMessage(), e);
+            }
+        }
+
+        /**
+         * Read archived rows and keep the newest past the cursor.
+         */
+        private void fetchArchive(Connection conn, LogArchive archive, ArchiveTable table, Dictionary dictionary,
+                PriorityQueue<Row> newest) throws SQLException {
+            IdScope ids = resolve(conn, dictionary);
+            if (ids == null) {
+                return;
+            }
+            LogArchive.Filter filter = new LogArchive.Filter(scope.since(), ids.users(),
+                    Set.copyOf(scope.actions()), -1, scope.minX(), scope.maxX(), scope.minY(), scope.maxY(),
+                    scope.minZ(), scope.maxZ());
+            try {
+                LogArchive.Scan scan = archive.scan(table, ids.world(), filter, true);
+                List<ArchivedRow> block;
+                while ((block = scan.next()) != null) {
+                    for (ArchivedRow row : block) {
+                        if (!afterCursor(row.time(), row.id())) {
+                            continue;
+                        }
+                        if (!offer(newest, new Row(row.id(), row.time(), row.get(ArchiveTable.USER),
+                                row.get(ArchiveTable.TYPE), row.get(ArchiveTable.ACTION),
+                                row.get(ArchiveTable.ROLLED_BACK) != 0, row.get(ArchiveTable.X),
+                                row.get(ArchiveTable.Y), row.get(ArchiveTable.Z),
+                                container ? row.get(ArchiveTable.ITEM) : 0,
+                                container ? row.get(ArchiveTable.AMOUNT) : 0))) {
+                            break;
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new SQLException("Log archive read failed: " + e.getMessage(), e);
+            }
+        }
+
+        private String format(Connection conn, Dictionary dictionary, long now, Row row) throws SQLException {
+            String user = dictionary.getUserName(conn, row.user());
+            // Struck through once rolled back; colour codes reset formatting, so repeat it after each
+            String strike = row.rolledBack() ? "§m" : "";
+            String action;
+            if (container) {
+                String item = dictionary.getMaterialName(conn, row.item());
+                boolean added = row.action() == ContainerLogEntry.ACTION_ADD;
+                action = (added ? "§a" + strike + "added " : "§c" + strike + "removed ") + row.amount()
+                        + " §f" + strike + item;
+            } else {
+                String type = dictionary.getMaterialName(conn, row.type());
+                action = switch (row.action()) {
+                    case BlockLogEntry.ACTION_PLACE -> "§a" + strike + "placed";
+                    case BlockLogEntry.ACTION_EXPLODE -> "§c" + strike + "blew up";
+                    default -> "§c" + strike + "broke";
+                } + " §f" + strike + type;
+            }
+            String line = "§7" + formatAge(now - row.time()) + " ago §f" + user + " " + action;
+            if (showPosition) {
+                line += " §7(" + row.x() + " " + row.y() + " " + row.z() + ")";
+            }
+            return line;
+        }
+    }
+}
@@ -195,10 +195,10 @@ public class PermissionCommands {
             return 0;
         }
 
-        PermissionUser user = pm.getUser(target.getUUID());
-        user.setUsername(target.getName().getString());
-        user.setPrimaryGroup(groupName);
-        pm.saveUser(user);
+        pm.editUser(target.getUUID(), user -> {
+            user.setUsername(target.getName().getString());
+            user.setPrimaryGroup(groupName);
+        });
 
         ctx.getSource().sendSuccess(new TextComponent(
                 "§aSet §e" + target.getName().getString() + "§a's primary group to §e" + groupName),
@@ -216,10 +216,10 @@ public class PermissionCommands {
             return 0;
         }
 
-        PermissionUser user = pm.getUser(target.getUUID());
-        user.setUsername(target.getName().getString());
-        user.addGroup(groupName);
-        pm.saveUser(user);
+        pm.editUser(target.getUUID(), user -> {
+            user.setUsername(target.getName().getString());
+            user.addGroup(groupName);
+        });
 
         ctx.getSource().sendSuccess(new TextComponent("§aAdded §e" + target.getName().getString() + "§a to group §e" + groupName),
                 true);
@@ -231,9 +231,9 @@ public class PermissionCommands {
         String groupName = StringArgumentType.getString(ctx, "group");
         PermissionManager pm = PermissionManager.getInstance();
 
-        PermissionUser user = pm.getUser(target.getUUID());
-        user.removeGroup(groupName);
-        pm.saveUser(user);
+        pm.editUser(target.getUUID(), user -> {
+            user.removeGroup(groupName);
+        });
 
         ctx.getSource().sendSuccess(new TextComponent(
                 "§aRemoved §e" + target.getName().getString() + "§a from group §e" + groupName), true);
@@ -246,10 +246,10 @@ public class PermissionCommands {
         boolean value = BoolArgumentType.getBool(ctx, "value");
         PermissionManager pm = PermissionManager.getInstance();
 
-        PermissionUser user = pm.getUser(target.getUUID());
-        user.setUsername(target.getName().getString());
-        user.setPermission(permission, value);
-        pm.saveUser(user);
+        pm.editUser(target.getUUID(), user -> {
+            user.setUsername(target.getName().getString());
+            user.setPermission(permission, value);
+        });
 
         String valStr = value ? "§atrue" : "§cfalse";
         ctx.getSource().sendSuccess(new TextComponent("§aSet §e" + permission + "§a = " + valStr
@@ -262,9 +262,9 @@ public class PermissionCommands {
         String permission = StringArgumentType.getString(ctx, "permission");
         PermissionManager pm = PermissionManager.getInstance();
 
-        PermissionUser user = pm.getUser(target.getUUID());
-        user.unsetPermission(permission);
-        pm.saveUser(user);
+        pm.editUser(target.getUUID(), user -> {
+            user.unsetPermission(permission);
+        });
 
         ctx.getSource().sendSuccess(
                 new TextComponent(
@@ -295,10 +295,10 @@ public class PermissionCommands {
             return 0;
         }
 
-        PermissionUser user = pm.getUser(target.getUUID());
-        user.setUsername(target.getName().getString());
-        user.setPrefix(prefix);
-        pm.saveUser(user);
+        pm.editUser(target.getUUID(), user -> {
+            user.setUsername(target.getName().getString());
+            user.setPrefix(prefix);
+        });
 
         ctx.getSource().sendSuccess(
                 new TextComponent(
@@ -316,10 +316,10 @@ public class PermissionCommands {
             return 0;
         }
 
-        PermissionUser user = pm.getUser(target.getUUID());
-        user.setUsername(target.getName().getString());
-        user.setSuffix(suffix);
-        pm.saveUser(user);
+        pm.editUser(target.getUUID(), user -> {
+            user.setUsername(target.getName().getString());
+            user.setSuffix(suffix);
+        });
 
         ctx.getSource().sendSuccess(
                 new TextComponent(
@@ -335,9 +335,9 @@ public class PermissionCommands {
             ctx.getSource().sendFailure(new TextComponent("§cLuckPerms is active - use /lp user <user> meta clear ..."));
             return 0;
         }
-        PermissionUser user = pm.getUser(target.getUUID());
-        user.setPrefix("");
-        pm.saveUser(user);
+        pm.editUser(target.getUUID(), user -> {
+            user.setPrefix("");
+        });
         ctx.getSource().sendSuccess(
                 new TextComponent("§aCleared prefix for §e" + target.getName().getString()),
                 true);
@@ -351,9 +351,9 @@ public class PermissionCommands {
             ctx.getSource().sendFailure(new TextComponent("§cLuckPerms is active - use /lp user <user> meta clear ..."));
             return 0;
         }
-        PermissionUser user = pm.getUser(target.getUUID());
-        user.setSuffix("");
-        pm.saveUser(user);
+        pm.editUser(target.getUUID(), user -> {
+            user.setSuffix("");
+        });
         ctx.getSource().sendSuccess(
                 new TextComponent("§aCleared suffix for §e" + target.getName().getString()),
                 true);
@@ -589,12 +589,10 @@ public class PermissionCommands {
     }
 
     private static void saveGroupAsync(PermissionGroup group) {
-        new Thread(() -> {
-            try (var conn = VonixCore.getInstance().getDatabase().getConnection()) {
-                PermissionManager.getInstance().saveGroup(conn, group);
-            } catch (Exception e) {
-                VonixCore.LOGGER.error("[Permissions] Error saving group", e);
-            }
-        }).start();
+        PermissionManager.getInstance().saveGroupAsync(group)
+                .exceptionally(e -> {
+                    VonixCore.LOGGER.error("[Permissions] Error saving group", e);
+                    return null;
+                });
     }
 }
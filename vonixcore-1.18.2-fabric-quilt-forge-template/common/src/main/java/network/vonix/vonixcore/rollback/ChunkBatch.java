@@ -0,0 +1,50 @@
+package network.vonix.vonixcore.rollback;
+
+/**
+ * Up to {@link #LIMIT} changes inside one chunk, handed from the reader
+ * thread to the server thread.
+ */
+final class ChunkBatch {
+
+    static final int LIMIT = 1024;
+
+    final String world;
+    final int chunkX;
+    final int chunkZ;
+    // Row ids; 0 once a change could not be applied, so it isn't flagged
+    final long[] ids = new long[LIMIT];
+    final int[] xs = new int[LIMIT];
+    final int[] ys = new int[LIMIT];
+    final int[] zs = new int[LIMIT];
+    final int[] dataIds = new int[LIMIT];
+    final String[] dataNames = new String[LIMIT];
+    int size;
+
+    ChunkBatch(String world, int chunkX, int chunkZ) {
+        this.world = world;
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+    }
+
+    boolean accepts(String world, int chunkX, int chunkZ) {
+        return size < LIMIT && this.chunkX == chunkX && this.chunkZ == chunkZ && this.world.equals(world);
+    }
+
+    boolean isFull() {
+        return size == LIMIT;
+    }
+
+    boolean sameChunk(ChunkBatch other) {
+        return other != null && other.chunkX == chunkX && other.chunkZ == chunkZ && other.world.equals(world);
+    }
+
+    void add(long id, int x, int y, int z, int dataId, String dataName) {
+        int i = size++;
+        ids[i] = id;
+        xs[i] = x;
+        ys[i] = y;
+        zs[i] = z;
+        dataIds[i] = dataId;
+        dataNames[i] = dataName;
+    }
+}
@@ -0,0 +1,574 @@
+package network.vonix.vonixcore.rollback;
+
+import dev.architectury.event.events.common.LifecycleEvent;
+import dev.architectury.event.events.common.TickEvent;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Registry;
+import net.minecraft.network.chat.TextComponent;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerChunkCache;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.TicketType;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.block.state.properties.Property;
+import network.vonix.vonixcore.VonixCore;
+import network.vonix.vonixcore.archive.ArchiveTable;
+import network.vonix.vonixcore.archive.ArchivedRow;
+import network.vonix.vonixcore.archive.LogArchive;
+import network.vonix.vonixcore.config.DatabaseConfig;
+import network.vonix.vonixcore.consumer.Consumer;
+import network.vonix.vonixcore.consumer.Dictionary;
+import network.vonix.vonixcore.database.Database;
+import network.vonix.vonixcore.history.BlockHistory;
+import network.vonix.vonixcore.history.BlockRecord;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rolls back or restores logged block changes from vp_block.
+ *
+ * A reader thread streams matching rows ordered by chunk and hands them over
+ * in per-chunk batches through a small bounded queue. The server thread
+ * applies them at the end of each tick within a configurable time budget
+ * (see {@link BatchApplier}).
+ * Only the chunks of the current and next batch hold a load ticket, and a
+ * batch waits for its chunk to finish loading instead of loading it
+ * synchronously. Only one job runs at a time. With a block history store the
+ * reader pulls the same per-chunk rows from the store instead; otherwise it
+ * goes on into the {@link LogArchive} when the time range reaches archived
+ * days.
+ *
+ * Applied rows are flagged rolled_back by the reader thread, written
+ * directly rather than through the Consumer's queue, which may drop or delay
+ * entries. It writes them while waiting to hand over batches and, once
+ * reading is done, until the job has finished. A failed write is retried;
+ * rows still unflagged are reported, since a repeated rollback would apply
+ * them again.
+ */
+public class RollbackManager {
+
+    private static final int FETCH_SIZE = 1000;
+    private static final int QUEUED_BATCHES = 16;
+    private static final int MARK_ATTEMPTS = 5;
+
+    private static final TicketType<ChunkPos> ROLLBACK_TICKET = TicketType.create("vonixcore_rollback",
+            Comparator.comparingLong(ChunkPos::toLong));
+
+    private static volatile Job active;
+    // The job whose reader may still be flagging rows
+    private static volatile Job last;
+
+    public static void init() {
+        TickEvent.SERVER_POST.register(server -> {
+            Job job = active;
+            if (job != null) {
+                job.tick();
+            }
+        });
+        LifecycleEvent.SERVER_STOPPING.register(server -> {
+            Job job = active;
+            if (job != null) {
+                job.finish(false);
+            }
+        });
+    }
+
+    /**
+     * Start a rollback (or restore) for the sender. Called on the server thread.
+     *
+     * @return false if another job is still running
+     */
+    public static boolean start(CommandSourceStack source, RollbackParams params, boolean restore) {
+        if (active != null) {
+            return false;
+        }
+        Job job = new Job(source, params, restore);
+        active = job;
+        last = job;
+        Thread reader = new Thread(job::run, "VonixCore-Rollback");
+        reader.setDaemon(true);
+        job.reader = reader;
+        reader.start();
+        return true;
+    }
+
+    /**
+     * At shutdown, after SERVER_STOPPING ended the job and before the
+     * database closes: wait for the rows it applied to be flagged.
+     */
+    public static void stop() {
+        Job job = last;
+        Thread reader = job != null ? job.reader : null;
+        if (reader == null) {
+            return;
+        }
+        try {
+            reader.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return false if no job was running
+     */
+    public static boolean cancel() {
+        Job job = active;
+        if (job == null) {
+            return false;
+        }
+        job.cancelled = true;
+        return true;
+    }
+
+    private static BlockState parseState(String data) {
+        if (data == null) {
+            return Blocks.AIR.defaultBlockState();
+        }
+        int bracket = data.indexOf('[');
+        ResourceLocation id = ResourceLocation.tryParse(bracket < 0 ? data : data.substring(0, bracket));
+        if (id == null || !Registry.BLOCK.containsKey(id)) {
+            return null;
+        }
+        Block block = Registry.BLOCK.get(id);
+        BlockState state = block.defaultBlockState();
+        if (bracket >= 0 && data.endsWith("]")) {
+            for (String pair : data.substring(bracket + 1, data.length() - 1).split(",")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    Property<?> property = block.getStateDefinition().getProperty(pair.substring(0, eq));
+                    if (property != null) {
+                        state = withValue(state, property, pair.substring(eq + 1));
+                    }
+                }
+            }
+        }
+        return state;
+    }
+
+    private static <T extends Comparable<T>> BlockState withValue(BlockState state, Property<T> property, String value) {
+        return property.getValue(value).map(v -> state.setValue(property, v)).orElse(state);
+    }
+
+    private static ServerLevel findLevel(MinecraftServer server, String name) {
+        for (ServerLevel level : server.getAllLevels()) {
+            if (level.dimension().location().toString().equals(name)) {
+                return level;
+            }
+        }
+        return null;
+    }
+
+    private record Ticket(ServerLevel level, ChunkPos pos) {
+    }
+
+    /**
+     * Applies changes to the server's levels, holding a region ticket on the
+     * chunks being worked on.
+     */
+    private static final class LevelTarget implements BatchApplier.Target {
+        private final MinecraftServer server;
+        private final Map<String, ServerLevel> levels = new HashMap<>();
+        private final Map<Integer, BlockState> states = new HashMap<>();
+        private final Set<Ticket> tickets = new HashSet<>();
+        private final BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+
+        LevelTarget(MinecraftServer server) {
+            this.server = server;
+        }
+
+        @Override
+        public boolean hold(ChunkBatch batch) {
+            ServerLevel level = level(batch);
+            if (level == null) {
+                return false;
+            }
+            Ticket ticket = new Ticket(level, new ChunkPos(batch.chunkX, batch.chunkZ));
+            if (tickets.add(ticket)) {
+                level.getChunkSource().addRegionTicket(ROLLBACK_TICKET, ticket.pos(), 0, ticket.pos());
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isLoaded(ChunkBatch batch) {
+            return level(batch).getChunkSource().getChunkNow(batch.chunkX, batch.chunkZ) != null;
+        }
+
+        @Override
+        public boolean apply(ChunkBatch batch, int index) {
+            BlockState state = states.get(batch.dataIds[index]);
+            if (state == null) {
+                state = parseState(batch.dataNames[index]);
+                if (state == null) {
+                    // Block no longer exists, e.g. a removed mod
+                    return false;
+                }
+                states.put(batch.dataIds[index], state);
+            }
+            pos.set(batch.xs[index], batch.ys[index], batch.zs[index]);
+            level(batch).setBlock(pos, state, Block.UPDATE_CLIENTS);
+            return true;
+        }
+
+        @Override
+        public void release(ChunkBatch batch) {
+            ServerLevel level = level(batch);
+            Ticket ticket = level != null ? new Ticket(level, new ChunkPos(batch.chunkX, batch.chunkZ)) : null;
+            if (ticket != null && tickets.remove(ticket)) {
+                ServerChunkCache chunkSource = ticket.level.getChunkSource();
+                chunkSource.removeRegionTicket(ROLLBACK_TICKET, ticket.pos(), 0, ticket.pos());
+            }
+        }
+
+        private ServerLevel level(ChunkBatch batch) {
+            return levels.computeIfAbsent(batch.world, name -> findLevel(server, name));
+        }
+    }
+
+    private static final class Job {
+        final CommandSourceStack source;
+        final RollbackParams params;
+        final boolean restore;
+        final String world;
+        final int centerX;
+        final int centerZ;
+        final long budgetNanos;
+        final long startedAt = System.currentTimeMillis();
+
+        final BatchApplier applier;
+        volatile boolean readerDone;
+        volatile boolean cancelled;
+        volatile boolean finished;
+        volatile String error;
+        volatile Thread reader;
+
+        // Reader thread only
+        long unmarked;
+        String markError;
+
+        Job(CommandSourceStack source, RollbackParams params, boolean restore) {
+            this.source = source;
+            this.params = params;
+            this.restore = restore;
+            this.world = source.getLevel().dimension().location().toString();
+            this.centerX = (int) Math.floor(source.getPosition().x);
+            this.centerZ = (int) Math.floor(source.getPosition().z);
+            this.budgetNanos = DatabaseConfig.CONFIG.rollbackTickBudgetMs.get() * 1_000_000L;
+            this.applier = new BatchApplier(new LevelTarget(source.getServer()), QUEUED_BATCHES, System::nanoTime);
+        }
+
+        /**
+         * Reader thread: read, then flag applied rows until the job is over.
+         */
+        void run() {
+            read();
+            try {
+                while (true) {
+                    // Checked first, so marks queued before the job finished are written
+                    boolean done = finished;
+                    writeMarks();
+                    if (done) {
+                        break;
+                    }
+                    Thread.sleep(50);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                writeMarks();
+            }
+            if (unmarked > 0) {
+                String verb = restore ? "restored" : "rolled back";
+                long count = unmarked;
+                String reason = markError;
+                source.getServer().execute(() -> source.sendFailure(new TextComponent("§c[VonixCore] " + count
+                        + " blocks were " + verb + " but could not be flagged (" + reason
+                        + "); running the same command again would apply them twice")));
+            }
+        }
+
+        /**
+         * Stream matching rows into per-chunk batches.
+         */
+        private void read() {
+            BlockHistory history = Consumer.getInstance().getBlockHistory();
+            try {
+                if (history != null) {
+                    readHistory(history);
+                } else {
+                    readSql();
+                    LogArchive archive = VonixCore.getInstance().getDatabase().getArchive();
+                    if (!cancelled && archive.covers(ArchiveTable.BLOCK, params.sinceMillis())) {
+                        readArchive(archive);
+                    }
+                }
+            } catch (SQLException | IOException e) {
+                VonixCore.LOGGER.error("[VonixCore] Rollback query failed: {}", e.getMessage());
+                error = e.getMessage();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                readerDone = true;
+            }
+        }
+
+        private void readSql() throws SQLException, InterruptedException {
+            Database database = VonixCore.getInstance().getDatabase();
+            try (Connection conn = database.getConnection()) {
+                // PostgreSQL only honours the fetch size inside a transaction
+                conn.setAutoCommit(false);
+                try (PreparedStatement stmt = conn.prepareStatement(params.blockQuery(restore, database.getDialect()),
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    // MySQL streams row by row only with this marker value
+                    stmt.setFetchSize(database.isMySQL() ? Integer.MIN_VALUE : FETCH_SIZE);
+                    params.bind(stmt, restore, world, centerX, centerZ);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        ChunkBatch batch = null;
+                        while (!cancelled && rs.next()) {
+                            String worldName = rs.getString(2);
+                            int x = rs.getInt(3);
+                            int z = rs.getInt(5);
+                            if (batch == null || !batch.accepts(worldName, x >> 4, z >> 4)) {
+                                if (batch != null && !handOver(batch)) {
+                                    break;
+                                }
+                                batch = new ChunkBatch(worldName, x >> 4, z >> 4);
+                            }
+                            batch.add(rs.getLong(1), x, rs.getInt(4), z, rs.getInt(6), rs.getString(7));
+                        }
+                        if (batch != null && !cancelled) {
+                            handOver(batch);
+                        }
+                    }
+                } finally {
+                    conn.rollback();
+                }
+            }
+        }
+
+        private void readHistory(BlockHistory history) throws SQLException, IOException, InterruptedException {
+            Dictionary dictionary = Consumer.getInstance().getDictionary();
+            try (Connection conn = VonixCore.getInstance().getDatabase().getConnection()) {
+                Set<Integer> users = dictionary.findUserIds(conn, params.users());
+                if (!params.users().isEmpty() && users.isEmpty()) {
+                    return;
+                }
+                BlockHistory.Filter filter = BlockHistory.Filter.everywhere(params.sinceMillis(), users,
+                        Set.copyOf(params.actions()), restore ? 1 : 0);
+                int worldId = 0;
+                if (params.radius() >= 0) {
+                    worldId = dictionary.findWorldId(conn, world);
+                    if (worldId == 0) {
+                        return;
+                    }
+                    filter = filter.within(centerX - params.radius(), centerX + params.radius(), Integer.MIN_VALUE,
+                            Integer.MAX_VALUE, centerZ - params.radius(), centerZ + params.radius());
+                }
+
+                // Newest first for a rollback, as in the SQL query
+                BlockHistory.ChunkScan scan = history.scan(worldId, filter, !restore);
+                BlockHistory.ChunkRecords chunk;
+                while (!cancelled && (chunk = scan.next()) != null) {
+                    String worldName = dictionary.getWorldName(conn, chunk.world());
+                    ChunkBatch batch = null;
+                    for (BlockRecord record : chunk.records()) {
+                        if (batch == null || batch.isFull()) {
+                            if (batch != null && !handOver(batch)) {
+                                return;
+                            }
+                            batch = new ChunkBatch(worldName, chunk.chunkX(), chunk.chunkZ());
+                        }
+                        int dataId = restore ? record.newData() : record.oldData();
+                        batch.add(record.handle(), record.x(), record.y(), record.z(), dataId,
+                                dataId != 0 ? dictionary.getBlockDataName(conn, dataId) : null);
+                    }
+                    if (!handOver(batch)) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Archived rows are older than what is left in vp_block, so they
+         * follow the SQL rows. Their rolled_back flag stays as it was when
+         * they were archived.
+         */
+        private void readArchive(LogArchive archive) throws SQLException, IOException, InterruptedException {
+            Dictionary dictionary = Consumer.getInstance().getDictionary();
+            try (Connection conn = VonixCore.getInstance().getDatabase().getConnection()) {
+                Set<Integer> users = dictionary.findUserIds(conn, params.users());
+                if (!params.users().isEmpty() && users.isEmpty()) {
+                    return;
+                }
+                LogArchive.Filter filter = LogArchive.Filter.everywhere(params.sinceMillis(), users,
+                        Set.copyOf(params.actions()), restore ? 1 : 0);
+                int worldId = 0;
+                if (params.radius() >= 0) {
+                    worldId = dictionary.findWorldId(conn, world);
+                    if (worldId == 0) {
+                        return;
+                    }
+                    filter = filter.within(centerX - params.radius(), centerX + params.radius(), Integer.MIN_VALUE,
+                            Integer.MAX_VALUE, centerZ - params.radius(), centerZ + params.radius());
+                }
+
+                LogArchive.Scan scan = archive.scan(ArchiveTable.BLOCK, worldId, filter, !restore);
+                List<ArchivedRow> rows;
+                while (!cancelled && (rows = scan.next()) != null) {
+                    // One world per block, but its rows spread over many chunks
+                    String worldName = dictionary.getWorldName(conn, rows.get(0).world());
+                    Map<Long, ChunkBatch> open = new LinkedHashMap<>();
+                    for (ArchivedRow row : rows) {
+                        int x = row.get(ArchiveTable.X);
+                        int z = row.get(ArchiveTable.Z);
+                        long chunk = ChunkPos.asLong(x >> 4, z >> 4);
+                        ChunkBatch batch = open.get(chunk);
+                        if (batch == null || batch.isFull()) {
+                            if (batch != null && !handOver(batch)) {
+                                return;
+                            }
+                            batch = new ChunkBatch(worldName, x >> 4, z >> 4);
+                            open.put(chunk, batch);
+                        }
+                        int dataId = row.get(restore ? ArchiveTable.NEW_DATA : ArchiveTable.OLD_DATA);
+                        batch.add(row.id(), x, row.get(ArchiveTable.Y), z, dataId,
+                                dataId != 0 ? dictionary.getBlockDataName(conn, dataId) : null);
+                    }
+                    for (ChunkBatch batch : open.values()) {
+                        if (!handOver(batch)) {
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return false if the job was cancelled while waiting for space
+         */
+        private boolean handOver(ChunkBatch batch) throws InterruptedException {
+            while (!cancelled) {
+                writeMarks();
+                if (applier.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Reader thread: flag the rows applied so far, retrying a failed
+         * write a few times before counting them as unflagged.
+         */
+        private void writeMarks() {
+            List<long[]> pending = new ArrayList<>();
+            applier.drainApplied(pending);
+            if (pending.isEmpty()) {
+                return;
+            }
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    markRows(pending);
+                    return;
+                } catch (SQLException | IOException e) {
+                    if (attempt == MARK_ATTEMPTS || Thread.currentThread().isInterrupted()) {
+                        for (long[] ids : pending) {
+                            unmarked += ids.length;
+                        }
+                        markError = e.getMessage();
+                        VonixCore.LOGGER.error("[VonixCore] Failed to flag rolled back rows: {}", e.getMessage());
+                        return;
+                    }
+                    VonixCore.LOGGER.warn("[VonixCore] Failed to flag rolled back rows, retrying: {}",
+                            e.getMessage());
+                }
+                try {
+                    Thread.sleep(attempt * 1000L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void markRows(List<long[]> pending) throws SQLException, IOException {
+            BlockHistory history = Consumer.getInstance().getBlockHistory();
+            if (history != null) {
+                for (long[] ids : pending) {
+                    history.setRolledBack(ids, ids.length, !restore);
+                }
+                return;
+            }
+            VonixCore.getInstance().getDatabase().write(conn -> {
+                Database.inTransaction(conn, tx -> {
+                    try (PreparedStatement stmt = tx.prepareStatement(
+                            "UPDATE vp_block SET rolled_back = ? WHERE id = ?")) {
+                        for (long[] ids : pending) {
+                            for (long id : ids) {
+                                stmt.setInt(1, restore ? 0 : 1);
+                                stmt.setLong(2, id);
+                                stmt.addBatch();
+                            }
+                        }
+                        stmt.executeBatch();
+                    }
+                });
+                return null;
+            });
+        }
+
+        /**
+         * Server thread: apply changes until this tick's budget is used up.
+         */
+        void tick() {
+            if (cancelled || error != null) {
+                finish(false);
+                return;
+            }
+            if (applier.tick(budgetNanos, readerDone)) {
+                finish(true);
+            }
+        }
+
+        void finish(boolean completed) {
+            if (active != this) {
+                return;
+            }
+            active = null;
+            cancelled = true;
+            finished = true;
+            applier.clear();
+
+            String verb = restore ? "Restore" : "Rollback";
+            if (error != null) {
+                source.sendFailure(new TextComponent("§c[VonixCore] " + verb + " failed: " + error));
+                return;
+            }
+            double seconds = (System.currentTimeMillis() - startedAt) / 1000.0;
+            String summary = String.format("%s %s: §f%d §7blocks in §f%d §7chunks (%.1fs, peak tick %.1fms)",
+                    verb, completed ? "finished" : "cancelled", applier.getChanged(), applier.getChunks(), seconds,
+                    applier.getPeakTickNanos() / 1_000_000.0);
+            long unapplied = applier.getSkipped();
+            source.sendSuccess(new TextComponent("§6[VonixCore] §a" + summary
+                    + (unapplied > 0 ? " §7- " + unapplied + " skipped" : "")), true);
+        }
+    }
+}
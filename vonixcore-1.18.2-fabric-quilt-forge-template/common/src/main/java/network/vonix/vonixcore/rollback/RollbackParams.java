@@ -0,0 +1,152 @@
+package network.vonix.vonixcore.rollback;
+
+import network.vonix.vonixcore.consumer.Consumer.BlockLogEntry;
+import network.vonix.vonixcore.database.SqlDialect;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Filters for a rollback or restore, parsed from command arguments such as
+ * {@code u:Steve,Alex t:2h30m r:20 a:break}.
+ *
+ * @param users       player names or source tags (e.g. #explosion); empty = everyone
+ * @param sinceMillis only changes at or after this time
+ * @param radius      half-width of the square around the sender, or -1 for everywhere
+ * @param actions     BlockLogEntry action ids; empty = all actions
+ */
+public record RollbackParams(List<String> users, long sinceMillis, int radius, List<Integer> actions) {
+
+    private static final Pattern DURATION = Pattern.compile("(\\d+)([smhdw])");
+
+    /**
+     * @throws IllegalArgumentException with a message for the command sender
+     */
+    public static RollbackParams parse(String input, long now) {
+        List<String> users = new ArrayList<>();
+        List<Integer> actions = new ArrayList<>();
+        long since = -1;
+        int radius = -1;
+
+        for (String token : input.trim().split("\\s+")) {
+            int colon = token.indexOf(':');
+            if (colon <= 0 || colon == token.length() - 1) {
+                throw new IllegalArgumentException("Expected key:value, got '" + token + "'");
+            }
+            String value = token.substring(colon + 1);
+            switch (token.substring(0, colon).toLowerCase()) {
+                case "u", "user", "users" -> {
+                    for (String user : value.split(",")) {
+                        if (!user.isEmpty()) {
+                            users.add(user);
+                        }
+                    }
+                }
+                case "t", "time" -> since = now - parseDuration(value);
+                case "r", "radius" -> {
+                    try {
+                        radius = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid radius '" + value + "'");
+                    }
+                    if (radius < 0) {
+                        throw new IllegalArgumentException("Radius must be positive");
+                    }
+                }
+                case "a", "action" -> {
+                    for (String action : value.split(",")) {
+                        actions.add(switch (action.toLowerCase()) {
+                            case "break", "-block" -> BlockLogEntry.ACTION_BREAK;
+                            case "place", "+block" -> BlockLogEntry.ACTION_PLACE;
+                            case "explode", "explosion" -> BlockLogEntry.ACTION_EXPLODE;
+                            default -> throw new IllegalArgumentException("Unknown action '" + action + "'");
+                        });
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown parameter '" + token + "'");
+            }
+        }
+
+        if (since < 0) {
+            throw new IllegalArgumentException("A time is required, e.g. t:2h");
+        }
+        return new RollbackParams(List.copyOf(users), since, radius, List.copyOf(actions));
+    }
+
+    /**
+     * The vp_block rows matching these filters, in chunk order: newest first
+     * for a rollback, oldest first for a restore. Bound by {@link #bind}.
+     */
+    String blockQuery(boolean restore, SqlDialect dialect) {
+        StringBuilder sql = new StringBuilder("""
+                SELECT b.id, w.name, b.x, b.y, b.z, d.id, d.name FROM vp_block b
+                JOIN vp_world w ON w.id = b.world
+                LEFT JOIN vp_blockdata d ON d.id = b.""").append(restore ? "new_data" : "old_data")
+                .append(" WHERE b.rolled_back = ? AND b.time >= ?");
+        if (!users.isEmpty()) {
+            sql.append(" AND b.").append(dialect.quote("user"))
+                    .append(" IN (SELECT id FROM vp_user WHERE username IN (")
+                    .append("?, ".repeat(users.size() - 1)).append("?))");
+        }
+        if (radius >= 0) {
+            sql.append(" AND w.name = ? AND b.x BETWEEN ? AND ? AND b.z BETWEEN ? AND ?");
+        }
+        if (!actions.isEmpty()) {
+            sql.append(" AND b.action IN (").append("?, ".repeat(actions.size() - 1)).append("?)");
+        }
+        // Rows for one position stay together within their chunk, newest first for a rollback
+        String order = restore ? "ASC" : "DESC";
+        sql.append(" ORDER BY b.world, (b.x >> 4), (b.z >> 4), b.time ").append(order).append(", b.id ").append(order);
+        return sql.toString();
+    }
+
+    /**
+     * @param world the sender's world, centre of the radius along with centerX and centerZ
+     */
+    void bind(PreparedStatement stmt, boolean restore, String world, int centerX, int centerZ) throws SQLException {
+        int i = 1;
+        stmt.setInt(i++, restore ? 1 : 0);
+        stmt.setLong(i++, sinceMillis);
+        for (String user : users) {
+            stmt.setString(i++, user);
+        }
+        if (radius >= 0) {
+            stmt.setString(i++, world);
+            stmt.setInt(i++, centerX - radius);
+            stmt.setInt(i++, centerX + radius);
+            stmt.setInt(i++, centerZ - radius);
+            stmt.setInt(i++, centerZ + radius);
+        }
+        for (int action : actions) {
+            stmt.setInt(i++, action);
+        }
+    }
+
+    /**
+     * Parse durations like {@code 30m} or {@code 1d12h} into milliseconds.
+     */
+    static long parseDuration(String value) {
+        Matcher matcher = DURATION.matcher(value.toLowerCase());
+        long millis = 0;
+        int end = 0;
+        while (matcher.find() && matcher.start() == end) {
+            long amount = Long.parseLong(matcher.group(1));
+            millis += amount * switch (matcher.group(2).charAt(0)) {
+                case 's' -> 1000L;
+                case 'm' -> 60_000L;
+                case 'h' -> 3_600_000L;
+                case 'd' -> 86_400_000L;
+                default -> 604_800_000L;
+            };
+            end = matcher.end();
+        }
+        if (end == 0 || end != value.length()) {
+            throw new IllegalArgumentException("Invalid time '" + value + "', use e.g. 30m, 2h or 1d12h");
+        }
+        return millis;
+    }
+}
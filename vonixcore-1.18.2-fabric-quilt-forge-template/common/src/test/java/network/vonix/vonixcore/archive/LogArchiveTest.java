@@ -0,0 +1,292 @@
+package network.vonix.vonixcore.archive;
+
+import network.vonix.vonixcore.database.TestSchema;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rows archived in id chunks, as the purge thread moves them, then read
+ * back through a scan.
+ */
+class LogArchiveTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    // Midnight UTC
+    private static final long START = 1_700_006_400_000L;
+    // id, time and world, then the value columns, as they would be held uncompressed
+    private static final int RAW_BLOCK_ROW_BYTES = 8 + 8 + 4 + 4 * ArchiveTable.BLOCK.getColumnCount();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void everyValueSurvivesTheRoundTrip() throws IOException {
+        Random random = new Random(1);
+        List<ArchivedRow> rows = new ArrayList<>();
+        long time = START - DAY / 2;
+        for (int id = 1; rows.size() < 3 * ArchiveFile.BLOCK_ROWS + 17; id += 1 + random.nextInt(3)) {
+            time += random.nextInt(20_000);
+            int[] values = new int[ArchiveTable.BLOCK.getColumnCount()];
+            for (int column = 0; column < values.length; column++) {
+                // Noise across the whole int range, so deltas overflow
+                values[column] = random.nextInt();
+            }
+            values[ArchiveTable.X] = -30_000_000 + random.nextInt(60_000_001);
+            values[ArchiveTable.Y] = -64 + random.nextInt(384);
+            values[ArchiveTable.ROLLED_BACK] = random.nextInt(2);
+            rows.add(new ArchivedRow(id, time, 1 + random.nextInt(3), values));
+        }
+        rows.get(0).values()[ArchiveTable.OLD_DATA] = Integer.MIN_VALUE;
+        rows.get(1).values()[ArchiveTable.OLD_DATA] = Integer.MAX_VALUE;
+        rows.get(2).values()[ArchiveTable.NEW_DATA] = 0;
+
+        LogArchive archive = new LogArchive(dir);
+        appendInChunks(archive, ArchiveTable.BLOCK, rows);
+
+        for (int world = 1; world <= 3; world++) {
+            List<String> expected = new ArrayList<>();
+            for (ArchivedRow row : rows) {
+                if (row.world() == world) {
+                    expected.add(describe(row));
+                }
+            }
+            LogArchive.Filter everything = LogArchive.Filter.everywhere(0, Set.of(), Set.of(), -1);
+            assertEquals(expected, scan(archive, ArchiveTable.BLOCK, world, everything, false), "world " + world);
+            Collections.reverse(expected);
+            assertEquals(expected, scan(archive, ArchiveTable.BLOCK, world, everything, true), "world " + world);
+        }
+        // Spread over two days
+        assertEquals(6, archiveFiles().size());
+    }
+
+    @Test
+    void archivingAChunkAgainStoresNothingTwice() throws IOException {
+        List<ArchivedRow> rows = play(new Random(2), 10_000);
+        LogArchive archive = new LogArchive(dir);
+        appendInChunks(archive, ArchiveTable.BLOCK, rows.subList(0, 6000));
+        archive.flush();
+        long size = archiveBytes();
+
+        // A crash after the append, before the delete: the next run selects the same rows again
+        LogArchive restarted = new LogArchive(dir);
+        appendInChunks(restarted, ArchiveTable.BLOCK, rows.subList(0, 6000));
+        assertEquals(size, archiveBytes());
+        appendInChunks(restarted, ArchiveTable.BLOCK, rows.subList(4000, rows.size()));
+
+        List<String> expected = rows.stream().map(LogArchiveTest::describe).toList();
+        assertEquals(expected, scan(restarted, ArchiveTable.BLOCK, 1,
+                LogArchive.Filter.everywhere(0, Set.of(), Set.of(), -1), false));
+    }
+
+    @Test
+    void scanFiltersLikeTheLookupQuery() throws IOException {
+        List<ArchivedRow> rows = play(new Random(3), 20_000);
+        LogArchive archive = new LogArchive(dir);
+        appendInChunks(archive, ArchiveTable.BLOCK, rows);
+
+        long since = rows.get(rows.size() / 3).time();
+        LogArchive.Filter filter = LogArchive.Filter.everywhere(since, Set.of(2, 3), Set.of(0), 0)
+                .within(-20, 20, 60, 80, -20, 20);
+        List<String> expected = new ArrayList<>();
+        for (ArchivedRow row : rows) {
+            if (filter.matches(row)) {
+                expected.add(describe(row));
+            }
+        }
+        Collections.reverse(expected);
+
+        assertTrue(expected.size() > 100, expected.size() + " rows match");
+        assertEquals(expected, scan(archive, ArchiveTable.BLOCK, 1, filter, true));
+        assertNull(archive.scan(ArchiveTable.BLOCK, 2, filter, true).next());
+        assertNull(archive.scan(ArchiveTable.CONTAINER, 1, filter, true).next());
+    }
+
+    @Test
+    void containerRowsRoundTrip() throws IOException {
+        Random random = new Random(4);
+        List<ArchivedRow> rows = new ArrayList<>();
+        for (int id = 1; id <= 5000; id++) {
+            rows.add(new ArchivedRow(id, START + id * 1000L, 1, new int[] { 1 + random.nextInt(4),
+                    random.nextInt(8), 64, random.nextInt(8), 54, random.nextInt(2), 0, 1 + random.nextInt(30),
+                    -64 + random.nextInt(129) }));
+        }
+        LogArchive archive = new LogArchive(dir);
+        appendInChunks(archive, ArchiveTable.CONTAINER, rows);
+
+        assertEquals(rows.stream().map(LogArchiveTest::describe).toList(), scan(archive, ArchiveTable.CONTAINER, 1,
+                LogArchive.Filter.everywhere(0, Set.of(), Set.of(), -1), false));
+        assertTrue(archive.covers(ArchiveTable.CONTAINER, START));
+        assertFalse(archive.covers(ArchiveTable.BLOCK, 0));
+    }
+
+    /**
+     * Synthetic play: the archive against the same rows uncompressed, and
+     * against the space vp_block takes for them in SQLite.
+     */
+    @Test
+    void playCompressesWell() throws IOException, SQLException {
+        int count = 200_000;
+        List<ArchivedRow> rows = play(new Random(5), count);
+        LogArchive archive = new LogArchive(dir.resolve("archive"));
+        appendInChunks(archive, ArchiveTable.BLOCK, rows);
+        long archived = archiveBytes();
+        long raw = (long) count * RAW_BLOCK_ROW_BYTES;
+        long sqlite = sqliteBytes(rows);
+
+        System.out.printf("%d block rows: %d bytes raw, %d in SQLite, %d archived (%.1f bytes a row,"
+                + " %.1fx smaller than raw, %.1fx smaller than SQLite)%n", count, raw, sqlite, archived,
+                (double) archived / count, (double) raw / archived, (double) sqlite / archived);
+        // Around 5.5x and 8.5x here; the random walk is noisier than most real building
+        assertTrue((double) raw / archived >= 4, "only " + (double) raw / archived + "x smaller than raw");
+        assertTrue((double) sqlite / archived >= 6, "only " + (double) sqlite / archived + "x smaller than SQLite");
+    }
+
+    /**
+     * Four players building and mining around spawn in world 1, a row every
+     * second or so, with ids in time order.
+     */
+    private static List<ArchivedRow> play(Random random, int count) {
+        int[][] at = new int[4][];
+        for (int player = 0; player < at.length; player++) {
+            at[player] = new int[] { random.nextInt(40) - 20, 64, random.nextInt(40) - 20 };
+        }
+        int[] palette = new int[24];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = 1 + random.nextInt(900);
+        }
+        List<ArchivedRow> rows = new ArrayList<>(count);
+        long time = START;
+        for (int id = 1; id <= count; id++) {
+            time += random.nextInt(2000);
+            int player = random.nextInt(at.length);
+            int[] position = at[player];
+            // Mostly the next block over; now and then somewhere else in the base
+            if (random.nextInt(50) == 0) {
+                position[0] = random.nextInt(40) - 20;
+                position[1] = 60 + random.nextInt(20);
+                position[2] = random.nextInt(40) - 20;
+            } else {
+                position[random.nextInt(3)] += random.nextInt(3) - 1;
+            }
+            int type = palette[random.nextInt(random.nextInt(palette.length) + 1)];
+            boolean placed = random.nextBoolean();
+            rows.add(new ArchivedRow(id, time, 1, new int[] { player + 1, position[0], position[1], position[2],
+                    type, placed ? 1 : 0, 0, placed ? 1 : type, 0, placed ? type : 1, 0 }));
+        }
+        return rows;
+    }
+
+    /**
+     * In id chunks, as DataPurger.archiveChunk selects them.
+     */
+    private static void appendInChunks(LogArchive archive, ArchiveTable table, List<ArchivedRow> rows)
+            throws IOException {
+        for (int from = 0; from < rows.size(); from += 1000) {
+            List<ArchivedRow> chunk = rows.subList(from, Math.min(rows.size(), from + 1000));
+            for (int world = 1; world <= 3; world++) {
+                List<ArchivedRow> ofWorld = new ArrayList<>();
+                for (ArchivedRow row : chunk) {
+                    if (row.world() == world) {
+                        ofWorld.add(row);
+                    }
+                }
+                if (!ofWorld.isEmpty()) {
+                    archive.append(table, world, ofWorld);
+                }
+            }
+        }
+    }
+
+    private static List<String> scan(LogArchive archive, ArchiveTable table, int world, LogArchive.Filter filter,
+            boolean newestFirst) throws IOException {
+        List<String> found = new ArrayList<>();
+        LogArchive.Scan scan = archive.scan(table, world, filter, newestFirst);
+        List<ArchivedRow> rows;
+        while ((rows = scan.next()) != null) {
+            for (ArchivedRow row : rows) {
+                found.add(describe(row));
+            }
+        }
+        return found;
+    }
+
+    private static String describe(ArchivedRow row) {
+        return row.id() + "@" + row.time() + " in " + row.world() + ": " + Arrays.toString(row.values());
+    }
+
+    private List<Path> archiveFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(file -> file.toString().endsWith(".vca")).toList();
+        }
+    }
+
+    private long archiveBytes() throws IOException {
+        long bytes = 0;
+        for (Path file : archiveFiles()) {
+            bytes += Files.size(file);
+        }
+        return bytes;
+    }
+
+    /**
+     * Pages vp_block and its indexes take up holding the rows.
+     */
+    private long sqliteBytes(List<ArchivedRow> rows) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dir.resolve("sqlite.db"))) {
+            TestSchema.createTables(conn);
+            long before = pageBytes(conn);
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO vp_block (id, time, world, \"user\","
+                    + " x, y, z, type, action, rolled_back, old_type, old_data, new_type, new_data)"
+                    + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+                for (ArchivedRow row : rows) {
+                    stmt.setLong(1, row.id());
+                    stmt.setLong(2, row.time());
+                    stmt.setInt(3, row.world());
+                    for (int column = 0; column < row.values().length; column++) {
+                        stmt.setInt(4 + column, row.values()[column]);
+                    }
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+            conn.commit();
+            return pageBytes(conn) - before;
+        }
+    }
+
+    private static long pageBytes(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            long pages;
+            try (ResultSet rs = stmt.executeQuery("PRAGMA page_count")) {
+                pages = rs.getLong(1);
+            }
+            try (ResultSet rs = stmt.executeQuery("PRAGMA page_size")) {
+                return pages * rs.getLong(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package network.vonix.vonixcore.consumer;
+
+import network.vonix.vonixcore.consumer.Consumer.ChatLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.QueueEntry;
+import network.vonix.vonixcore.database.TestSchema;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Log batches written with COPY through a mocked PostgreSQL CopyIn, which
+ * parses the CSV it is sent into SQLite. The same entries written with
+ * batched INSERTs must end up as the same rows.
+ */
+class CopyWriterTest {
+
+    private static final int BLOCKS = 5000;
+    // Values CSV has to quote or escape
+    private static final String[] MESSAGES = { "hello", "", "a, b", "say \"hi\"", "two\nlines", "\"", "ünïcödé ✓",
+            "trailing comma,", "  spaced  " };
+
+    @TempDir
+    Path dir;
+
+    private Connection copied;
+    private Connection inserted;
+    private CopyManager copyManager;
+    private CopyIn copyIn;
+    private final List<Integer> chunks = new ArrayList<>();
+    private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+    private String copySql;
+
+    @BeforeEach
+    void openDatabases() throws SQLException {
+        copied = open("copied.db");
+        inserted = open("inserted.db");
+
+        copyIn = mock(CopyIn.class);
+        doAnswer(invocation -> {
+            byte[] bytes = invocation.getArgument(0);
+            int length = invocation.getArgument(2);
+            received.write(bytes, invocation.getArgument(1), length);
+            chunks.add(length);
+            return null;
+        }).when(copyIn).writeToCopy(any(byte[].class), anyInt(), anyInt());
+        when(copyIn.endCopy()).thenAnswer(invocation -> load(copied, copySql, received));
+
+        copyManager = mock(CopyManager.class);
+        when(copyManager.copyIn(anyString())).thenAnswer(invocation -> {
+            copySql = invocation.getArgument(0);
+            received.reset();
+            return copyIn;
+        });
+    }
+
+    @AfterEach
+    void closeDatabases() throws SQLException {
+        copied.close();
+        inserted.close();
+    }
+
+    @Test
+    void copiedRowsMatchInsertedRows() throws SQLException {
+        assertEquals(entries().size(), write(pgConnection(copied), true));
+        assertEquals(entries().size(), write(inserted, false));
+
+        // vp_block and vp_chat each went as one COPY
+        verify(copyManager, times(2)).copyIn(anyString());
+        verify(copyIn, times(2)).endCopy();
+        verify(copyIn, never()).cancelCopy();
+        // Streamed in chunks, not built up as one buffer
+        assertTrue(chunks.size() > 2, chunks.size() + " chunks");
+        for (int chunk : chunks) {
+            assertTrue(chunk <= 65 * 1024, chunk + " bytes in one chunk");
+        }
+
+        assertEquals(BLOCKS, count(copied, "vp_block"));
+        assertEquals(rows(inserted, "vp_block"), rows(copied, "vp_block"));
+        assertEquals(rows(inserted, "vp_chat"), rows(copied, "vp_chat"));
+        assertEquals(messages(), storedMessages(copied));
+    }
+
+    @Test
+    void failedCopyIsRolledBackAndInserted() throws SQLException {
+        // Like a constraint violation found at the end: some rows went in before the failure
+        doAnswer(invocation -> {
+            load(copied, copySql, received);
+            throw new SQLException("duplicate key value violates unique constraint");
+        }).when(copyIn).endCopy();
+
+        assertEquals(entries().size(), write(pgConnection(copied), true));
+
+        verify(copyIn, times(2)).cancelCopy();
+        assertEquals(BLOCKS, count(copied, "vp_block"));
+        assertEquals(CopyWriter.MIN_ROWS, count(copied, "vp_chat"));
+        assertEquals(messages(), storedMessages(copied));
+    }
+
+    @Test
+    void copySqlQuotesEveryColumn() {
+        assertEquals("COPY vp_chat (\"time\", \"user\", \"message\") FROM STDIN WITH (FORMAT csv)",
+                CopyWriter.toCopySql("INSERT INTO vp_chat (time, \"user\", message) VALUES (?, ?, ?)"));
+    }
+
+    private static List<QueueEntry> entries() {
+        List<QueueEntry> entries = new ArrayList<>();
+        for (int i = 0; i < BLOCKS; i++) {
+            entries.add(ShardWriterTest.block(i));
+        }
+        List<String> messages = messages();
+        for (int i = 0; i < messages.size(); i++) {
+            entries.add(new ChatLogEntry(i, "Steve", "uuid-steve", messages.get(i)));
+        }
+        return entries;
+    }
+
+    /**
+     * The awkward ones, then plain ones up to the size that goes as a COPY.
+     */
+    private static List<String> messages() {
+        List<String> messages = new ArrayList<>(List.of(MESSAGES));
+        while (messages.size() < CopyWriter.MIN_ROWS) {
+            messages.add("message " + messages.size());
+        }
+        return messages;
+    }
+
+    private int write(Connection conn, boolean copy) throws SQLException {
+        ShardWriter writer = new ShardWriter(0, new long[ShardWriter.LANES], new Dictionary(), copy, null, null,
+                entry -> {
+                });
+        writer.accept(entries(), new long[ShardWriter.LANES]);
+        return writer.write(conn);
+    }
+
+    /**
+     * A SQLite connection that also answers {@link PGConnection#getCopyAPI()}.
+     */
+    private Connection pgConnection(Connection sqlite) {
+        return (Connection) Proxy.newProxyInstance(CopyWriterTest.class.getClassLoader(),
+                new Class<?>[] { Connection.class, PGConnection.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getCopyAPI":
+                            return copyManager;
+                        case "unwrap":
+                            return proxy;
+                        case "isWrapperFor":
+                            return true;
+                        default:
+                            if (method.getDeclaringClass() == PGConnection.class) {
+                                throw new UnsupportedOperationException(method.getName());
+                            }
+                            try {
+                                return method.invoke(sqlite, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                    }
+                });
+    }
+
+    /**
+     * What PostgreSQL would do with the COPY: parse the CSV and insert each
+     * row. An unquoted empty field is NULL, a quoted one an empty string.
+     *
+     * @return rows loaded, as endCopy reports them
+     */
+    private static long load(Connection conn, String sql, ByteArrayOutputStream data) throws SQLException {
+        String table = sql.substring("COPY ".length(), sql.indexOf(" ("));
+        String columns = sql.substring(sql.indexOf('(') + 1, sql.indexOf(')'));
+        int columnCount = columns.split(",").length;
+        String insert = "INSERT INTO " + table + " (" + columns + ") VALUES ("
+                + "?, ".repeat(columnCount - 1) + "?)";
+
+        String csv = data.toString(StandardCharsets.UTF_8);
+        long rows = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(insert)) {
+            int i = 0;
+            while (i < csv.length()) {
+                for (int column = 1; column <= columnCount; column++) {
+                    String value = null;
+                    if (csv.charAt(i) == '"') {
+                        StringBuilder quoted = new StringBuilder();
+                        i++;
+                        while (true) {
+                            char c = csv.charAt(i++);
+                            if (c == '"') {
+                                if (i < csv.length() && csv.charAt(i) == '"') {
+                                    quoted.append('"');
+                                    i++;
+                                    continue;
+                                }
+                                break;
+                            }
+                            quoted.append(c);
+                        }
+                        value = quoted.toString();
+                    } else {
+                        int end = i;
+                        while (csv.charAt(end) != ',' && csv.charAt(end) != '\n') {
+                            end++;
+                        }
+                        if (end > i) {
+                            value = csv.substring(i, end);
+                        }
+                        i = end;
+                    }
+                    char separator = csv.charAt(i++);
+                    assertEquals(column == columnCount ? '\n' : ',', separator, "after column " + column);
+                    stmt.setString(column, value);
+                }
+                stmt.executeUpdate();
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private Connection open(String name) throws SQLException {
+        Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dir.resolve(name));
+        TestSchema.createTables(conn);
+        conn.setAutoCommit(false);
+        return conn;
+    }
+
+    private static List<String> rows(Connection conn, String table) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT * FROM " + table
+                + " ORDER BY time, id")) {
+            int columns = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                StringBuilder row = new StringBuilder();
+                // Without the id, which depends on how many rows were rolled back
+                for (int i = 2; i <= columns; i++) {
+                    row.append(rs.getString(i)).append('|');
+                }
+                rows.add(row.toString());
+            }
+        }
+        return rows;
+    }
+
+    private static List<String> storedMessages(Connection conn) throws SQLException {
+        List<String> messages = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT message FROM vp_chat ORDER BY time")) {
+            while (rs.next()) {
+                messages.add(rs.getString(1));
+            }
+        }
+        return messages;
+    }
+
+    private static int count(Connection conn, String table) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            return rs.getInt(1);
+        }
+    }
+}
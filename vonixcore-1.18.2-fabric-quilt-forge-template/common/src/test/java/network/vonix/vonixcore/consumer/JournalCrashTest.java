@@ -0,0 +1,249 @@
+package network.vonix.vonixcore.consumer;
+
+import network.vonix.vonixcore.consumer.Consumer.BlockLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.ChatLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.LogEntry;
+import network.vonix.vonixcore.consumer.Consumer.QueueEntry;
+import network.vonix.vonixcore.database.TestSchema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The writer is killed part way through a write, the journal is reopened
+ * the way {@link Consumer#start()} does it, and whatever it replays is
+ * written again. Every entry must end up in the database exactly once.
+ */
+class JournalCrashTest {
+
+    private static final int BLOCKS = 1000;
+    private static final int CHATS = 200;
+
+    @TempDir
+    Path dir;
+
+    private String url;
+    // Per lane, the sequence number of the last entry journaled
+    private final long[] lastSequence = new long[ShardWriter.LANES];
+
+    @BeforeEach
+    void createDatabase() throws SQLException {
+        url = "jdbc:sqlite:" + dir.resolve("test.db");
+        try (Connection conn = DriverManager.getConnection(url); Statement stmt = conn.createStatement()) {
+            TestSchema.createTables(conn);
+            // As Consumer.loadCommittedSequences leaves them for a single writer
+            for (int lane = 0; lane < ShardWriter.LANES; lane++) {
+                stmt.executeUpdate("INSERT INTO vp_consumer_state (id, last_seq) VALUES ("
+                        + ShardWriter.stateId(0, lane) + ", 0)");
+            }
+        }
+    }
+
+    @Test
+    void writerKilledMidBatchWritesEachEntryOnce() throws Exception {
+        List<LogEntry> entries = journalEntries();
+
+        // The block rows go in, then the writer dies on the chat batch
+        try (Connection conn = open()) {
+            Connection dying = killOn(conn, "executeBatch", 2);
+            assertThrows(Killed.class, () -> write(dying, entries, new long[ShardWriter.LANES]));
+        }
+        try (Connection conn = open()) {
+            // Rolled back along with the rows
+            assertArrayEquals(new long[] { 0, 0 }, marks(conn));
+            assertEquals(0, count(conn, "vp_block"));
+        }
+
+        restart();
+        assertWrittenOnce();
+
+        // A second restart finds nothing left to replay
+        restart();
+        assertWrittenOnce();
+    }
+
+    @Test
+    void crashAfterCommitReplaysNothing() throws Exception {
+        List<LogEntry> entries = journalEntries();
+
+        // Dies right after the commit holding the rows and marks, before they are marked logged
+        try (Connection conn = open()) {
+            Connection dying = killAfter(conn, "commit", 2);
+            assertThrows(Killed.class, () -> write(dying, entries, new long[ShardWriter.LANES]));
+        }
+        try (Connection conn = open()) {
+            assertArrayEquals(lastSequence, marks(conn));
+        }
+
+        assertEquals(0, restart());
+        assertWrittenOnce();
+    }
+
+    /**
+     * Block changes and chat messages interleaved, journaled and flushed so
+     * they carry sequence numbers.
+     */
+    private List<LogEntry> journalEntries() throws IOException {
+        List<LogEntry> entries = new ArrayList<>();
+        EntryJournal journal = EntryJournal.open(dir.resolve("journal"), 0);
+        for (int i = 0; i < BLOCKS; i++) {
+            entries.add(ShardWriterTest.block(i));
+            if (i % (BLOCKS / CHATS) == 0) {
+                entries.add(new ChatLogEntry(i, "Steve", "uuid-steve", "message " + i));
+            }
+        }
+        for (LogEntry entry : entries) {
+            journal.append(entry);
+            lastSequence[lane(entry)] = entry.getSequence();
+        }
+        journal.force();
+        return entries;
+    }
+
+    /**
+     * Reopen the journal against the stored marks and write what it replays.
+     *
+     * @return number of entries replayed
+     */
+    private int restart() throws IOException, SQLException {
+        try (Connection conn = open()) {
+            long[] committed = marks(conn);
+            long floor = Math.min(committed[ShardWriter.LANE_BLOCK], committed[ShardWriter.LANE_OTHER]);
+            EntryJournal journal = EntryJournal.open(dir.resolve("journal"), floor);
+            List<LogEntry> pending = new ArrayList<>();
+            Iterator<LogEntry> replay = journal.replay(floor);
+            while (replay.hasNext()) {
+                LogEntry entry = replay.next();
+                // Consumer.processQueue skips what a writer has already committed
+                if (entry.getSequence() > committed[lane(entry)]) {
+                    pending.add(entry);
+                }
+            }
+            write(conn, pending, committed);
+            journal.close();
+            return pending.size();
+        }
+    }
+
+    private static void write(Connection conn, List<LogEntry> entries, long[] committed) throws SQLException {
+        long[] ceiling = committed.clone();
+        for (LogEntry entry : entries) {
+            ceiling[lane(entry)] = Math.max(ceiling[lane(entry)], entry.getSequence());
+        }
+        ShardWriter writer = new ShardWriter(0, committed, new Dictionary(), false, null, null, entry -> {
+        });
+        writer.accept(new ArrayList<QueueEntry>(entries), ceiling);
+        writer.write(conn);
+    }
+
+    private void assertWrittenOnce() throws SQLException {
+        try (Connection conn = open()) {
+            assertEquals(BLOCKS, count(conn, "vp_block"));
+            assertEquals(CHATS, count(conn, "vp_chat"));
+            assertEquals(BLOCKS, query(conn, "SELECT COUNT(DISTINCT x) FROM vp_block"));
+            assertEquals(CHATS, query(conn, "SELECT COUNT(DISTINCT message) FROM vp_chat"));
+            assertArrayEquals(lastSequence, marks(conn));
+        }
+    }
+
+    private static int lane(QueueEntry entry) {
+        return entry instanceof BlockLogEntry ? ShardWriter.LANE_BLOCK : ShardWriter.LANE_OTHER;
+    }
+
+    private Connection open() throws SQLException {
+        Connection conn = DriverManager.getConnection(url);
+        conn.setAutoCommit(false);
+        return conn;
+    }
+
+    private static long[] marks(Connection conn) throws SQLException {
+        long[] marks = new long[ShardWriter.LANES];
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT last_seq FROM vp_consumer_state WHERE id = ?")) {
+            for (int lane = 0; lane < ShardWriter.LANES; lane++) {
+                stmt.setInt(1, ShardWriter.stateId(0, lane));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    marks[lane] = rs.getLong(1);
+                }
+            }
+        }
+        return marks;
+    }
+
+    private static int count(Connection conn, String table) throws SQLException {
+        return query(conn, "SELECT COUNT(*) FROM " + table);
+    }
+
+    private static int query(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.getInt(1);
+        }
+    }
+
+    /**
+     * A connection that dies on the nth call of a method on it or its statements.
+     */
+    private static Connection killOn(Connection target, String method, int nth) {
+        return dying(target, method, nth, false);
+    }
+
+    /**
+     * A connection that dies right after the nth call of a method has gone through.
+     */
+    private static Connection killAfter(Connection target, String method, int nth) {
+        return dying(target, method, nth, true);
+    }
+
+    private static Connection dying(Connection target, String name, int nth, boolean after) {
+        AtomicInteger calls = new AtomicInteger();
+        return wrap(Connection.class, target, name, nth, after, calls);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T wrap(Class<T> type, T target, String name, int nth, boolean after, AtomicInteger calls) {
+        return (T) Proxy.newProxyInstance(JournalCrashTest.class.getClassLoader(), new Class<?>[] { type },
+                (proxy, method, args) -> {
+                    boolean dies = method.getName().equals(name) && calls.incrementAndGet() == nth;
+                    if (dies && !after) {
+                        throw new Killed();
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (dies) {
+                        throw new Killed();
+                    }
+                    if (result instanceof PreparedStatement stmt) {
+                        return wrap(PreparedStatement.class, stmt, name, nth, after, calls);
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * Stands in for the process dying; nothing in the writer catches it.
+     */
+    private static final class Killed extends RuntimeException {
+    }
+}
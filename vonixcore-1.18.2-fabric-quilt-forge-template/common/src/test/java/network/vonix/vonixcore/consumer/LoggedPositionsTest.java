@@ -0,0 +1,320 @@
+package network.vonix.vonixcore.consumer;
+
+import network.vonix.vonixcore.consumer.Consumer.BlockLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.QueueEntry;
+import network.vonix.vonixcore.database.Database;
+import network.vonix.vonixcore.database.TestSchema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lookups against a region with a few builds in it. Half of the rows are
+ * read from vp_block when the region first loads, the other half marked by
+ * the writer afterwards.
+ */
+class LoggedPositionsTest {
+
+    private static final String WORLD = "minecraft:overworld";
+    private static final int MIN_Y = -64;
+    private static final int MAX_Y = 319;
+
+    @TempDir
+    Path dir;
+
+    private Database database;
+    private Dictionary dictionary;
+    private LoggedPositions positions;
+    // Packed positions of every logged block
+    private final Set<Long> logged = new HashSet<>();
+
+    @BeforeEach
+    void build() throws SQLException {
+        String url = "jdbc:sqlite:" + dir.resolve("test.db");
+        try (Connection conn = DriverManager.getConnection(url)) {
+            TestSchema.createTables(conn);
+        }
+        database = new FileDatabase(url, dir);
+        dictionary = new Dictionary();
+        positions = new LoggedPositions(16, database, dictionary, null);
+
+        List<BlockLogEntry> entries = world(new Random(42));
+        Collections.shuffle(entries, new Random(7));
+        write(entries.subList(0, entries.size() / 2));
+        // Loads the region, so the writer marks the rest itself
+        positions.mightContain(WORLD, 0, 0, 0, 0, 0, 0);
+        write(entries.subList(entries.size() / 2, entries.size()));
+    }
+
+    @Test
+    void inspectorClicksAnywhereAreAlmostNeverFalsePositives() {
+        Random random = new Random(1);
+        Rate rate = new Rate();
+        for (int i = 0; i < 200_000; i++) {
+            int x = random.nextInt(512);
+            int y = MIN_Y + random.nextInt(MAX_Y - MIN_Y + 1);
+            int z = random.nextInt(512);
+            rate.add(logged.contains(pack(x, y, z)), positions.mightContain(WORLD, x, x, y, y, z, z));
+        }
+        rate.print("Clicks anywhere");
+
+        assertEquals(0, rate.falseNegatives);
+        assertTrue(rate.falsePositiveRate() < 0.01, rate.falsePositiveRate() + " false positives");
+    }
+
+    @Test
+    void inspectorClicksNextToBuildsAreMostlySkipped() {
+        Random random = new Random(2);
+        List<Long> blocks = new ArrayList<>(logged);
+        Rate rate = new Rate();
+        for (int i = 0; i < 100_000; i++) {
+            long block = blocks.get(random.nextInt(blocks.size()));
+            int x = clamp(x(block) + random.nextInt(9) - 4, 0, 511);
+            int y = y(block) + random.nextInt(9) - 4;
+            int z = clamp(z(block) + random.nextInt(9) - 4, 0, 511);
+            rate.add(logged.contains(pack(x, y, z)), positions.mightContain(WORLD, x, x, y, y, z, z));
+        }
+        rate.print("Clicks next to builds");
+
+        assertEquals(0, rate.falseNegatives);
+        // Inside a house both the column and its section are set: around 27% here
+        assertTrue(rate.falsePositiveRate() < 0.35, rate.falsePositiveRate() + " false positives");
+    }
+
+    @Test
+    void radiusLookupsNearBuildsAreNeverMissed() {
+        Random random = new Random(3);
+        List<Long> blocks = new ArrayList<>(logged);
+        Rate rate = new Rate();
+        int radius = 5;
+        for (int i = 0; i < 5_000; i++) {
+            long block = blocks.get(random.nextInt(blocks.size()));
+            int x = clamp(x(block) + random.nextInt(41) - 20, radius, 511 - radius);
+            int y = y(block) + random.nextInt(41) - 20;
+            int z = clamp(z(block) + random.nextInt(41) - 20, radius, 511 - radius);
+            boolean inBox = false;
+            for (int bx = x - radius; bx <= x + radius && !inBox; bx++) {
+                for (int by = y - radius; by <= y + radius && !inBox; by++) {
+                    for (int bz = z - radius; bz <= z + radius && !inBox; bz++) {
+                        inBox = logged.contains(pack(bx, by, bz));
+                    }
+                }
+            }
+            rate.add(inBox, positions.mightContain(WORLD, x - radius, x + radius, y - radius, y + radius,
+                    z - radius, z + radius));
+        }
+        rate.print("Radius " + radius + " near builds");
+
+        assertEquals(0, rate.falseNegatives);
+        // A box spans many columns, so a near miss is often a hit: around 45% here
+        assertTrue(rate.falsePositiveRate() < 0.6, rate.falsePositiveRate() + " false positives");
+    }
+
+    /**
+     * Not a rigorous benchmark, but the filter must save more than it costs
+     * on the clicks it exists for.
+     */
+    @Test
+    void filterRaisesLookupThroughput() throws SQLException {
+        Random random = new Random(4);
+        int clicks = 20_000;
+        int[][] at = new int[clicks][];
+        for (int i = 0; i < clicks; i++) {
+            at[i] = new int[] { random.nextInt(512), MIN_Y + random.nextInt(MAX_Y - MIN_Y + 1), random.nextInt(512) };
+        }
+
+        try (Connection conn = database.getConnection();
+                PreparedStatement stmt = conn.prepareStatement("SELECT id FROM vp_block"
+                        + " WHERE world = ? AND x = ? AND z = ? AND y = ? ORDER BY time DESC LIMIT 1")) {
+            int world = dictionary.findWorldId(conn, WORLD);
+            // Warm up both paths
+            lookUp(stmt, world, at, false);
+            lookUp(stmt, world, at, true);
+
+            long start = System.nanoTime();
+            int unfilteredHits = lookUp(stmt, world, at, false);
+            double unfiltered = clicks / ((System.nanoTime() - start) / 1e9);
+            start = System.nanoTime();
+            int filteredHits = lookUp(stmt, world, at, true);
+            double filtered = clicks / ((System.nanoTime() - start) / 1e9);
+            System.out.printf("Lookups: %.0f/s without the filter, %.0f/s with it%n", unfiltered, filtered);
+
+            assertEquals(unfilteredHits, filteredHits);
+            assertTrue(filtered > 2 * unfiltered, filtered + "/s filtered, " + unfiltered + "/s unfiltered");
+        }
+    }
+
+    /**
+     * @return clicks that found a row
+     */
+    private int lookUp(PreparedStatement stmt, int world, int[][] at, boolean filter) throws SQLException {
+        int hits = 0;
+        for (int[] p : at) {
+            if (filter && !positions.mightContain(WORLD, p[0], p[0], p[1], p[1], p[2], p[2])) {
+                continue;
+            }
+            stmt.setInt(1, world);
+            stmt.setInt(2, p[0]);
+            stmt.setInt(3, p[2]);
+            stmt.setInt(4, p[1]);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    hits++;
+                }
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Houses, a strip mine, a farm and scattered single blocks, all in
+     * region 0,0.
+     */
+    private List<BlockLogEntry> world(Random random) {
+        List<BlockLogEntry> entries = new ArrayList<>();
+        for (int house = 0; house < 12; house++) {
+            int ox = 16 + random.nextInt(470);
+            int oz = 16 + random.nextInt(470);
+            for (int x = 0; x < 9; x++) {
+                for (int z = 0; z < 9; z++) {
+                    place(entries, ox + x, 63, oz + z);
+                    place(entries, ox + x, 69, oz + z);
+                    if (x == 0 || x == 8 || z == 0 || z == 8) {
+                        for (int y = 64; y < 69; y++) {
+                            place(entries, ox + x, y, oz + z);
+                        }
+                    }
+                }
+            }
+        }
+        for (int x = 50; x < 450; x++) {
+            place(entries, x, -50, 300);
+            place(entries, x, -49, 300);
+            if (x % 4 == 0) {
+                for (int z = 301; z < 321; z++) {
+                    place(entries, x, -50, z);
+                    place(entries, x, -49, z);
+                }
+            }
+        }
+        for (int x = 100; x < 140; x++) {
+            for (int z = 40; z < 80; z++) {
+                place(entries, x, 64, z);
+            }
+        }
+        for (int i = 0; i < 2000; i++) {
+            place(entries, random.nextInt(512), 60 + random.nextInt(16), random.nextInt(512));
+        }
+        return entries;
+    }
+
+    private void place(List<BlockLogEntry> entries, int x, int y, int z) {
+        if (logged.add(pack(x, y, z))) {
+            entries.add(new BlockLogEntry(1_700_000_000_000L + entries.size(), "Steve", "uuid-steve", WORLD, x, y, z,
+                    "minecraft:stone", "minecraft:air", "minecraft:air", "minecraft:stone", "minecraft:stone",
+                    BlockLogEntry.ACTION_PLACE));
+        }
+    }
+
+    private void write(List<BlockLogEntry> entries) throws SQLException {
+        ShardWriter writer = new ShardWriter(0, new long[ShardWriter.LANES], dictionary, false, null, positions,
+                entry -> {
+                });
+        writer.accept(new ArrayList<QueueEntry>(entries), new long[ShardWriter.LANES]);
+        try (Connection conn = database.getConnection()) {
+            conn.setAutoCommit(false);
+            writer.write(conn);
+        }
+    }
+
+    private static long pack(int x, int y, int z) {
+        return ((long) x << 40) | ((long) z << 20) | (y - MIN_Y);
+    }
+
+    private static int x(long packed) {
+        return (int) (packed >>> 40);
+    }
+
+    private static int y(long packed) {
+        return (int) (packed & 0xFFFFF) + MIN_Y;
+    }
+
+    private static int z(long packed) {
+        return (int) ((packed >>> 20) & 0xFFFFF);
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static final class Rate {
+        int logged;
+        int falseNegatives;
+        int falsePositives;
+        int total;
+
+        void add(boolean actuallyLogged, boolean mightContain) {
+            total++;
+            if (actuallyLogged) {
+                logged++;
+                if (!mightContain) {
+                    falseNegatives++;
+                }
+            } else if (mightContain) {
+                falsePositives++;
+            }
+        }
+
+        /**
+         * @return share of lookups with nothing logged that still went to SQL
+         */
+        double falsePositiveRate() {
+            return (double) falsePositives / (total - logged);
+        }
+
+        void print(String name) {
+            System.out.printf("%s: %d of %d logged, %.2f%% false positives%n", name, logged, total,
+                    100 * falsePositiveRate());
+        }
+    }
+
+    /**
+     * A SQLite file opened fresh for each connection, as the read pool does.
+     */
+    private static final class FileDatabase extends Database {
+        private final String url;
+        private final Path dataDirectory;
+
+        FileDatabase(String url, Path dataDirectory) {
+            super(null);
+            this.url = url;
+            this.dataDirectory = dataDirectory;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return DriverManager.getConnection(url);
+        }
+
+        @Override
+        public Path getDataDirectory() {
+            return dataDirectory;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package network.vonix.vonixcore.database;
+
+import network.vonix.vonixcore.config.DatabaseConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The breaker in front of a pool whose database drops out: a failing
+ * request waits out the pool timeout, as Hikari's does when the network is
+ * gone, until the breaker opens and refuses at once.
+ */
+class CircuitBreakerTest {
+
+    @TempDir
+    Path dir;
+
+    private FaultyDataSource dataSource;
+    private CircuitBreaker breaker;
+    private final AtomicInteger recoveries = new AtomicInteger();
+    private volatile int failRecoveries;
+    private volatile CountDownLatch recoveryGate = new CountDownLatch(0);
+    private int failures;
+    private int retrySeconds;
+
+    @BeforeEach
+    void open() {
+        failures = DatabaseConfig.CONFIG.breakerFailures.get();
+        retrySeconds = DatabaseConfig.CONFIG.breakerRetrySeconds.get();
+        DatabaseConfig.CONFIG.breakerFailures.set(2);
+        DatabaseConfig.CONFIG.breakerRetrySeconds.set(1);
+        dataSource = new FaultyDataSource("jdbc:sqlite:" + dir.resolve("remote.db"));
+        breaker = new CircuitBreaker(dataSource, this::recover);
+    }
+
+    @AfterEach
+    void close() {
+        breaker.stop();
+        DatabaseConfig.CONFIG.breakerFailures.set(failures);
+        DatabaseConfig.CONFIG.breakerRetrySeconds.set(retrySeconds);
+    }
+
+    @Test
+    void opensAfterFailuresInARowAndRefusesAtOnce() throws SQLException {
+        dataSource.down = true;
+        for (int i = 0; i < 2; i++) {
+            long start = System.nanoTime();
+            assertThrows(SQLTransientConnectionException.class, breaker::getConnection);
+            assertTrue(millisSince(start) >= FaultyDataSource.TIMEOUT_MS);
+        }
+        assertTrue(breaker.isOpen());
+
+        int attempts = dataSource.attempts.get();
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            assertThrows(SQLTransientConnectionException.class, breaker::getConnection);
+        }
+        assertTrue(millisSince(start) < FaultyDataSource.TIMEOUT_MS, millisSince(start) + " ms for 1000 refusals");
+        // Only the prober may have asked the pool meanwhile
+        assertTrue(dataSource.attempts.get() - attempts <= 1);
+    }
+
+    @Test
+    void aSuccessResetsTheCount() throws SQLException {
+        dataSource.down = true;
+        assertThrows(SQLTransientConnectionException.class, breaker::getConnection);
+        dataSource.down = false;
+        breaker.getConnection().close();
+        dataSource.down = true;
+        assertThrows(SQLTransientConnectionException.class, breaker::getConnection);
+
+        assertFalse(breaker.isOpen());
+        assertEquals(0, recoveries.get());
+    }
+
+    @Test
+    void closesOnceRecoveryHasRun() throws Exception {
+        openBreaker();
+        // Still down at the first probes
+        Thread.sleep(1500);
+        assertTrue(breaker.isOpen());
+        assertEquals(0, recoveries.get());
+
+        dataSource.down = false;
+        awaitClosed();
+        assertEquals(1, recoveries.get());
+        breaker.getConnection().close();
+    }
+
+    @Test
+    void refusesUntilRecoveryFinishes() throws Exception {
+        recoveryGate = new CountDownLatch(1);
+        openBreaker();
+        dataSource.down = false;
+
+        Thread.sleep(1500);
+        // The database answers, but what was held back isn't written yet
+        assertThrows(SQLTransientConnectionException.class, breaker::getConnection);
+        recoveryGate.countDown();
+        awaitClosed();
+        breaker.getConnection().close();
+    }
+
+    @Test
+    void failedRecoveryIsRetried() throws Exception {
+        failRecoveries = 2;
+        openBreaker();
+        dataSource.down = false;
+
+        long start = System.nanoTime();
+        awaitClosed();
+        assertEquals(3, recoveries.get());
+        // Two more rounds of the retry interval
+        assertTrue(millisSince(start) >= 1900, millisSince(start) + " ms");
+    }
+
+    @Test
+    void recoverSoonRunsRecoveryWithoutRefusing() throws Exception {
+        recoveryGate = new CountDownLatch(1);
+        breaker.recoverSoon();
+        // Connections go through while the held-back saves are written
+        Thread.sleep(200);
+        assertFalse(breaker.isOpen());
+        breaker.getConnection().close();
+
+        recoveryGate.countDown();
+        waitFor(() -> recoveries.get() == 1);
+        assertFalse(breaker.isOpen());
+    }
+
+    @Test
+    void staysClosedOnceStopped() {
+        breaker.stop();
+        breaker.open(new SQLTransientConnectionException("timed out"));
+        assertFalse(breaker.isOpen());
+    }
+
+    @Test
+    void connectionFailuresAreToldFromStatementFailures() {
+        assertTrue(CircuitBreaker.isConnectionFailure(new SQLTransientConnectionException("timed out")));
+        assertTrue(CircuitBreaker.isConnectionFailure(new SQLNonTransientConnectionException("closed")));
+        assertTrue(CircuitBreaker.isConnectionFailure(new SQLException("Communications link failure", "08S01")));
+        assertFalse(CircuitBreaker.isConnectionFailure(new SQLIntegrityConstraintViolationException("dup", "23000")));
+        assertFalse(CircuitBreaker.isConnectionFailure(new SQLException("syntax error", "42000")));
+        assertFalse(CircuitBreaker.isConnectionFailure(new SQLException("no state")));
+    }
+
+    /**
+     * Stands in for the journal replay, failing the first
+     * {@link #failRecoveries} times.
+     */
+    private void recover(Connection conn) throws SQLException {
+        try {
+            recoveryGate.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("interrupted", e);
+        }
+        if (recoveries.incrementAndGet() <= failRecoveries) {
+            throw new SQLException("replay failed");
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SELECT 1");
+        }
+        breaker.close();
+    }
+
+    private void openBreaker() {
+        dataSource.down = true;
+        for (int i = 0; i < 2; i++) {
+            assertThrows(SQLTransientConnectionException.class, breaker::getConnection);
+        }
+        assertTrue(breaker.isOpen());
+    }
+
+    private void awaitClosed() throws InterruptedException {
+        waitFor(() -> !breaker.isOpen());
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < end, "timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    private static long millisSince(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
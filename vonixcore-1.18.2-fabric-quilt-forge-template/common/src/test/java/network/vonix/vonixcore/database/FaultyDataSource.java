@@ -0,0 +1,42 @@
+package network.vonix.vonixcore.database;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool that, while down, fails every request after its timeout, as
+ * Hikari's does when the network is gone.
+ */
+final class FaultyDataSource extends HikariDataSource {
+
+    static final long TIMEOUT_MS = 200;
+
+    private final String url;
+    final AtomicInteger attempts = new AtomicInteger();
+    volatile boolean down;
+
+    FaultyDataSource(String url) {
+        this.url = url;
+        setMaximumPoolSize(4);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        attempts.incrementAndGet();
+        if (down) {
+            try {
+                Thread.sleep(TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new SQLTransientConnectionException("Connection is not available, request timed out after "
+                    + TIMEOUT_MS + "ms");
+        }
+        return DriverManager.getConnection(url);
+    }
+}
@@ -0,0 +1,20 @@
+package network.vonix.vonixcore.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Creates the tables of a fresh database for tests outside this package.
+ */
+public final class TestSchema {
+
+    private TestSchema() {
+    }
+
+    /**
+     * The log and core tables with their indexes, as on SQLite.
+     */
+    public static void createTables(Connection conn) throws SQLException {
+        new Database(null).createTables(conn);
+    }
+}
@@ -0,0 +1,121 @@
+package network.vonix.vonixcore.listener;
+
+import com.mojang.authlib.GameProfile;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.entity.SignBlockEntity;
+import network.vonix.vonixcore.config.DatabaseConfig;
+import network.vonix.vonixcore.consumer.Consumer;
+import network.vonix.vonixcore.consumer.Consumer.ChatLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.SignLogEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.refEq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The chat and sign hooks against a mocked Consumer, and the command
+ * redaction. Queued entries are compared field by field, leaving out the
+ * time.
+ */
+class ChatLogEventHandlerTest {
+
+    private static final UUID STEVE = UUID.fromString("8667ba71-b85a-4004-af54-457a9734eed7");
+    private static final BlockPos POS = new BlockPos(10, 64, -5);
+
+    private MockedStatic<Consumer> consumers;
+    private Consumer consumer;
+    private ServerLevel level;
+    private ServerPlayer player;
+    private boolean chatLogging;
+
+    @BeforeEach
+    void mockServer() {
+        chatLogging = DatabaseConfig.CONFIG.chatLogging.get();
+        consumer = mock(Consumer.class);
+        when(consumer.isRunning()).thenReturn(true);
+        consumers = mockStatic(Consumer.class);
+        consumers.when(Consumer::getInstance).thenReturn(consumer);
+
+        level = mock(ServerLevel.class);
+        when(level.dimension()).thenReturn(Level.OVERWORLD);
+
+        player = mock(ServerPlayer.class);
+        when(player.getGameProfile()).thenReturn(new GameProfile(STEVE, "Steve"));
+        when(player.getUUID()).thenReturn(STEVE);
+        when(player.getStringUUID()).thenReturn(STEVE.toString());
+        player.level = level;
+    }
+
+    @AfterEach
+    void close() {
+        consumers.close();
+        DatabaseConfig.CONFIG.chatLogging.set(chatLogging);
+    }
+
+    @Test
+    void chatIsQueuedAsSent() {
+        ChatLogEventHandler.logChat(player, "hello §aworld");
+
+        verify(consumer).queueEntry(refEq(new ChatLogEntry(0, "Steve", STEVE.toString(), "hello §aworld"), "time"));
+    }
+
+    @Test
+    void nothingIsQueuedWithChatLoggingOff() {
+        DatabaseConfig.CONFIG.chatLogging.set(false);
+
+        ChatLogEventHandler.logChat(player, "hello");
+
+        verify(consumer, never()).queueEntry(any());
+    }
+
+    @Test
+    void signFromItsEditorIsQueued() {
+        SignBlockEntity sign = mock(SignBlockEntity.class);
+        when(sign.getPlayerWhoMayEdit()).thenReturn(STEVE);
+        when(level.getBlockEntity(POS)).thenReturn(sign);
+        String[] lines = { "Welcome", "", "to", "spawn" };
+
+        ChatLogEventHandler.logSign(player, POS, lines);
+
+        verify(consumer).queueEntry(refEq(new SignLogEntry(0, "Steve", STEVE.toString(), "minecraft:overworld",
+                10, 64, -5, lines), "time"));
+    }
+
+    @Test
+    void signFromAnyoneElseIsSkipped() {
+        SignBlockEntity sign = mock(SignBlockEntity.class);
+        when(sign.getPlayerWhoMayEdit()).thenReturn(UUID.randomUUID());
+        when(level.getBlockEntity(POS)).thenReturn(sign);
+
+        ChatLogEventHandler.logSign(player, POS, new String[] { "", "", "", "" });
+        // Nothing to edit there
+        when(level.getBlockEntity(POS)).thenReturn(null);
+        ChatLogEventHandler.logSign(player, POS, new String[] { "", "", "", "" });
+
+        verify(consumer, never()).queueEntry(any());
+    }
+
+    @Test
+    void authCommandsLoseTheirArguments() {
+        assertEquals("/login", ChatLogEventHandler.redact("/login hunter2"));
+        assertEquals("/REGISTER", ChatLogEventHandler.redact("/REGISTER hunter2 hunter2"));
+        assertEquals("link", ChatLogEventHandler.redact("link 123456"));
+        assertEquals("/login", ChatLogEventHandler.redact("/login"));
+        assertEquals("/logins hunter2", ChatLogEventHandler.redact("/logins hunter2"));
+        assertEquals("/tp @s ~ ~10 ~", ChatLogEventHandler.redact("/tp @s ~ ~10 ~"));
+    }
+}
@@ -0,0 +1,184 @@
+package network.vonix.vonixcore.listener;
+
+import com.mojang.authlib.GameProfile;
+import net.minecraft.SharedConstants;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.chat.TextComponent;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.LivingEntity;
+import net.minecraft.world.level.Level;
+import network.vonix.vonixcore.config.DatabaseConfig;
+import network.vonix.vonixcore.consumer.Consumer;
+import network.vonix.vonixcore.consumer.Consumer.EntityLogEntry;
+import network.vonix.vonixcore.listener.EntityLogEventHandler.TypeCount;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.refEq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The entity hook against a mocked level and Consumer: what a kill or an
+ * interaction queues, and the type lists and sampling that hold some back.
+ */
+class EntityLogEventHandlerTest {
+
+    private static final UUID STEVE = UUID.fromString("8667ba71-b85a-4004-af54-457a9734eed7");
+    private static final String WORLD = "minecraft:overworld";
+
+    private MockedStatic<Consumer> consumers;
+    private Consumer consumer;
+    private ServerLevel level;
+    private ServerPlayer player;
+    private String include;
+    private String exclude;
+    private int threshold;
+    private int percent;
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+    }
+
+    @BeforeEach
+    void mockServer() {
+        include = DatabaseConfig.CONFIG.entityInclude.get();
+        exclude = DatabaseConfig.CONFIG.entityExclude.get();
+        threshold = DatabaseConfig.CONFIG.entitySampleThreshold.get();
+        percent = DatabaseConfig.CONFIG.entitySamplePercent.get();
+        DatabaseConfig.CONFIG.entityInclude.set("");
+        DatabaseConfig.CONFIG.entityExclude.set("");
+        EntityLogEventHandler.clear();
+
+        consumer = mock(Consumer.class);
+        when(consumer.isRunning()).thenReturn(true);
+        consumers = mockStatic(Consumer.class);
+        consumers.when(Consumer::getInstance).thenReturn(consumer);
+
+        level = mock(ServerLevel.class);
+        when(level.dimension()).thenReturn(Level.OVERWORLD);
+        player = mock(ServerPlayer.class);
+        when(player.getGameProfile()).thenReturn(new GameProfile(STEVE, "Steve"));
+        when(player.getStringUUID()).thenReturn(STEVE.toString());
+    }
+
+    @AfterEach
+    void close() {
+        consumers.close();
+        EntityLogEventHandler.clear();
+        DatabaseConfig.CONFIG.entityInclude.set(include);
+        DatabaseConfig.CONFIG.entityExclude.set(exclude);
+        DatabaseConfig.CONFIG.entitySampleThreshold.set(threshold);
+        DatabaseConfig.CONFIG.entitySamplePercent.set(percent);
+    }
+
+    @Test
+    void killIsQueuedWithTheEntityAndItsName() {
+        LivingEntity zombie = entity(EntityType.ZOMBIE);
+        when(zombie.hasCustomName()).thenReturn(true);
+        when(zombie.getCustomName()).thenReturn(new TextComponent("Bob"));
+
+        EntityLogEventHandler.log(player, zombie, EntityLogEntry.ACTION_KILL);
+
+        verify(consumer).queueEntry(refEq(new EntityLogEntry(0, "Steve", STEVE.toString(), WORLD, 10, 64, -5,
+                "minecraft:zombie", "Bob", EntityLogEntry.ACTION_KILL), "time"));
+    }
+
+    @Test
+    void killedPlayerIsNamed() {
+        ServerPlayer victim = mock(ServerPlayer.class);
+        when(victim.getType()).thenAnswer(invocation -> EntityType.PLAYER);
+        when(victim.getGameProfile()).thenReturn(new GameProfile(UUID.randomUUID(), "Alex"));
+        when(victim.blockPosition()).thenReturn(new BlockPos(10, 64, -5));
+        victim.level = level;
+
+        EntityLogEventHandler.log(player, victim, EntityLogEntry.ACTION_KILL);
+
+        verify(consumer).queueEntry(refEq(new EntityLogEntry(0, "Steve", STEVE.toString(), WORLD, 10, 64, -5,
+                "minecraft:player", "Alex", EntityLogEntry.ACTION_KILL), "time"));
+    }
+
+    @Test
+    void interactionIsQueued() {
+        EntityLogEventHandler.log(player, entity(EntityType.COW), EntityLogEntry.ACTION_INTERACT);
+
+        verify(consumer).queueEntry(refEq(new EntityLogEntry(0, "Steve", STEVE.toString(), WORLD, 10, 64, -5,
+                "minecraft:cow", null, EntityLogEntry.ACTION_INTERACT), "time"));
+    }
+
+    @Test
+    void excludedTypesAreCountedButNotQueued() {
+        DatabaseConfig.CONFIG.entityExclude.set("minecraft:cow, minecraft:chicken");
+
+        EntityLogEventHandler.log(player, entity(EntityType.COW), EntityLogEntry.ACTION_KILL);
+        EntityLogEventHandler.log(player, entity(EntityType.ZOMBIE), EntityLogEntry.ACTION_KILL);
+
+        verify(consumer, times(1)).queueEntry(any());
+        assertEquals(List.of(new TypeCount("minecraft:cow", 1, 0), new TypeCount("minecraft:zombie", 1, 1)),
+                sorted(EntityLogEventHandler.getCounts()));
+    }
+
+    @Test
+    void includeListKeepsOnlyItsTypes() {
+        DatabaseConfig.CONFIG.entityInclude.set("minecraft:zombie");
+
+        EntityLogEventHandler.log(player, entity(EntityType.COW), EntityLogEntry.ACTION_INTERACT);
+        EntityLogEventHandler.log(player, entity(EntityType.ZOMBIE), EntityLogEntry.ACTION_INTERACT);
+
+        verify(consumer, times(1)).queueEntry(any());
+    }
+
+    @Test
+    void killsPastTheThresholdAreSampled() {
+        DatabaseConfig.CONFIG.entitySampleThreshold.set(10);
+        DatabaseConfig.CONFIG.entitySamplePercent.set(0);
+        LivingEntity cow = entity(EntityType.COW);
+
+        for (int i = 0; i < 100; i++) {
+            EntityLogEventHandler.log(player, cow, EntityLogEntry.ACTION_KILL);
+        }
+        // Interactions are never sampled
+        EntityLogEventHandler.log(player, cow, EntityLogEntry.ACTION_INTERACT);
+
+        verify(consumer, times(11)).queueEntry(any());
+        assertEquals(List.of(new TypeCount("minecraft:cow", 101, 11)), EntityLogEventHandler.getCounts());
+    }
+
+    @Test
+    void nothingIsQueuedWhileTheConsumerIsStopped() {
+        when(consumer.isRunning()).thenReturn(false);
+
+        EntityLogEventHandler.log(player, entity(EntityType.COW), EntityLogEntry.ACTION_KILL);
+
+        verify(consumer, never()).queueEntry(any());
+    }
+
+    private LivingEntity entity(EntityType<?> type) {
+        LivingEntity entity = mock(LivingEntity.class);
+        when(entity.getType()).thenAnswer(invocation -> type);
+        when(entity.blockPosition()).thenReturn(new BlockPos(10, 64, -5));
+        entity.level = level;
+        return entity;
+    }
+
+    private static List<TypeCount> sorted(List<TypeCount> counts) {
+        return counts.stream().sorted((a, b) -> a.type().compareTo(b.type())).toList();
+    }
+}
@@ -8,12 +8,15 @@ import net.minecraft.world.effect.MobEffects;
 import net.minecraft.world.food.FoodData;
 import net.minecraft.world.level.GameType;
 import network.vonix.vonixcore.VonixCore;
+import network.vonix.vonixcore.database.Database;
+import network.vonix.vonixcore.database.SqlDialect;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import net.minecraft.network.protocol.game.ClientboundPlayerInfoPacket;
 
@@ -40,36 +43,40 @@ public class AdminManager {
     /**
      * Initialize admin tables in database.
      */
-    public void initializeTable(Connection conn) throws SQLException {
+    public void initializeTable(Connection conn, SqlDialect dialect) throws SQLException {
+        String textType = dialect.text();
+
         // Bans table
-        conn.createStatement().execute("""
+        conn.createStatement().execute(String.format("""
                     CREATE TABLE IF NOT EXISTS vc_bans (
-                        uuid TEXT PRIMARY KEY,
+                        uuid %s PRIMARY KEY,
                         banned_by TEXT NOT NULL,
                         reason TEXT,
-                        expires_at INTEGER,
-                        created_at INTEGER NOT NULL
+                        expires_at BIGINT,
+                        created_at BIGINT NOT NULL
                     )
-                """);
+                """, textType));
 
         // Mutes table
-        conn.createStatement().execute("""
+        conn.createStatement().execute(String.format("""
                     CREATE TABLE IF NOT EXISTS vc_mutes (
-                        uuid TEXT PRIMARY KEY,
+                        uuid %s PRIMARY KEY,
                         muted_by TEXT NOT NULL,
                         reason TEXT,
-                        expires_at INTEGER,
-                        created_at INTEGER NOT NULL
+                        expires_at BIGINT,
+                        created_at BIGINT NOT NULL
                     )
-                """);
+                """, textType));
     }
 
     // ===== Ban Management =====
+    // Queries run on the database I/O threads and complete on the server thread
 
-    public boolean banPlayer(UUID uuid, String bannedBy, String reason, Long expiresAt) {
-        try (Connection conn = VonixCore.getInstance().getDatabase().getConnection()) {
-            PreparedStatement stmt = conn.prepareStatement(
-                    "INSERT OR REPLACE INTO vc_bans (uuid, banned_by, reason, expires_at, created_at) VALUES (?, ?, ?, ?, ?)");
+    public CompletableFuture<Boolean> banPlayer(UUID uuid, String bannedBy, String reason, Long expiresAt) {
+        Database database = VonixCore.getInstance().getDatabase();
+        return database.supplyAsync(conn -> {
+            PreparedStatement stmt = conn.prepareStatement(database.getDialect().upsert("vc_bans", "uuid",
+                    "uuid", "banned_by", "reason", "expires_at", "created_at"));
             stmt.setString(1, uuid.toString());
             stmt.setString(2, bannedBy);
             stmt.setString(3, reason);
@@ -77,25 +84,26 @@ public class AdminManager {
             stmt.setLong(5, System.currentTimeMillis() / 1000L);
             stmt.executeUpdate();
             return true;
-        } catch (SQLException e) {
+        }).exceptionally(e -> {
             VonixCore.LOGGER.error("[VonixCore] Failed to ban player: {}", e.getMessage());
             return false;
-        }
+        });
     }
 
-    public boolean unbanPlayer(UUID uuid) {
-        try (Connection conn = VonixCore.getInstance().getDatabase().getConnection()) {
-            PreparedStatement stmt = conn.prepareStatement("DELETE FROM vc_bans WHERE uuid = ?");
-            stmt.setString(1, uuid.toString());
-            return stmt.executeUpdate() > 0;
-        } catch (SQLException e) {
-            VonixCore.LOGGER.error("[VonixCore] Failed to unban player: {}", e.getMessage());
-            return false;
-        }
+    public CompletableFuture<Boolean> unbanPlayer(UUID uuid) {
+        return VonixCore.getInstance().getDatabase().supplyAsync(conn -> deleteRow(conn, "vc_bans", uuid))
+                .exceptionally(e -> {
+                    VonixCore.LOGGER.error("[VonixCore] Failed to unban player: {}", e.getMessage());
+                    return false;
+                });
     }
 
-    public BanInfo getBan(UUID uuid) {
-        try (Connection conn = VonixCore.getInstance().getDatabase().getConnection()) {
+    /**
+     * Completes with null if the player is not banned. Expired bans are
+     * removed on the way.
+     */
+    public CompletableFuture<BanInfo> getBan(UUID uuid) {
+        return VonixCore.getInstance().getDatabase().supplyAsync(conn -> {
             PreparedStatement stmt = conn.prepareStatement(
                     "SELECT banned_by, reason, expires_at, created_at FROM vc_bans WHERE uuid = ?");
             stmt.setString(1, uuid.toString());
@@ -104,7 +112,7 @@ public class AdminManager {
                 Long expiresAt = rs.getObject("expires_at") != null ? rs.getLong("expires_at") : null;
                 // Check if expired
                 if (expiresAt != null && expiresAt < System.currentTimeMillis() / 1000L) {
-                    unbanPlayer(uuid);
+                    deleteRow(conn, "vc_bans", uuid);
                     return null;
                 }
                 return new BanInfo(
@@ -113,22 +121,24 @@ public class AdminManager {
                         expiresAt,
                         rs.getLong("created_at"));
             }
-        } catch (SQLException e) {
+            return null;
+        }).exceptionally(e -> {
             VonixCore.LOGGER.error("[VonixCore] Failed to check ban: {}", e.getMessage());
-        }
-        return null;
+            return null;
+        });
     }
 
-    public boolean isBanned(UUID uuid) {
-        return getBan(uuid) != null;
+    public CompletableFuture<Boolean> isBanned(UUID uuid) {
+        return getBan(uuid).thenApply(ban -> ban != null);
     }
 
     // ===== Mute Management =====
 
-    public boolean mutePlayer(UUID uuid, String mutedBy, String reason, Long expiresAt) {
-        try (Connection conn = VonixCore.getInstance().getDatabase().getConnection()) {
-            PreparedStatement stmt = conn.prepareStatement(
-                    "INSERT OR REPLACE INTO vc_mutes (uuid, muted_by, reason, expires_at, created_at) VALUES (?, ?, ?, ?, ?)");
+    public CompletableFuture<Boolean> mutePlayer(UUID uuid, String mutedBy, String reason, Long expiresAt) {
+        Database database = VonixCore.getInstance().getDatabase();
+        return database.supplyAsync(conn -> {
+            PreparedStatement stmt = conn.prepareStatement(database.getDialect().upsert("vc_mutes", "uuid",
+                    "uuid", "muted_by", "reason", "expires_at", "created_at"));
             stmt.setString(1, uuid.toString());
             stmt.setString(2, mutedBy);
             stmt.setString(3, reason);
@@ -136,25 +146,22 @@ public class AdminManager {
             stmt.setLong(5, System.currentTimeMillis() / 1000L);
             stmt.executeUpdate();
             return true;
-        } catch (SQLException e) {
+        }).exceptionally(e -> {
             VonixCore.LOGGER.error("[VonixCore] Failed to mute player: {}", e.getMessage());
             return false;
-        }
+        });
     }
 
-    public boolean unmutePlayer(UUID uuid) {
-        try (Connection conn = VonixCore.getInstance().getDatabase().getConnection()) {
-            PreparedStatement stmt = conn.prepareStatement("DELETE FROM vc_mutes WHERE uuid = ?");
-            stmt.setString(1, uuid.toString());
-            return stmt.executeUpdate() > 0;
-        } catch (SQLException e) {
-            VonixCore.LOGGER.error("[VonixCore] Failed to unmute player: {}", e.getMessage());
-            return false;
-        }
+    public CompletableFuture<Boolean> unmutePlayer(UUID uuid) {
+        return VonixCore.getInstance().getDatabase().supplyAsync(conn -> deleteRow(conn, "vc_mutes", uuid))
+                .exceptionally(e -> {
+                    VonixCore.LOGGER.error("[VonixCore] Failed to unmute player: {}", e.getMessage());
+                    return false;
+                });
     }
 
-    public boolean isMuted(UUID uuid) {
-        try (Connection conn = VonixCore.getInstance().getDatabase().getConnection()) {
+    public CompletableFuture<Boolean> isMuted(UUID uuid) {
+        return VonixCore.getInstance().getDatabase().supplyAsync(conn -> {
             PreparedStatement stmt = conn.prepareStatement(
                     "SELECT expires_at FROM vc_mutes WHERE uuid = ?");
             stmt.setString(1, uuid.toString());
@@ -162,15 +169,22 @@ public class AdminManager {
             if (rs.next()) {
                 Long expiresAt = rs.getObject("expires_at") != null ? rs.getLong("expires_at") : null;
                 if (expiresAt != null && expiresAt < System.currentTimeMillis() / 1000L) {
-                    unmutePlayer(uuid);
+                    deleteRow(conn, "vc_mutes", uuid);
                     return false;
                 }
                 return true;
             }
-        } catch (SQLException e) {
+            return false;
+        }).exceptionally(e -> {
             VonixCore.LOGGER.error("[VonixCore] Failed to check mute: {}", e.getMessage());
-        }
-        return false;
+            return false;
+        });
+    }
+
+    private static boolean deleteRow(Connection conn, String table, UUID uuid) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement("DELETE FROM " + table + " WHERE uuid = ?");
+        stmt.setString(1, uuid.toString());
+        return stmt.executeUpdate() > 0;
     }
 
     // ===== Vanish =====
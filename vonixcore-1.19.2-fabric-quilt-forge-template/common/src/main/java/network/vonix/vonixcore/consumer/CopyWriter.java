@@ -0,0 +1,196 @@
+package network.vonix.vonixcore.consumer;
+
+import network.vonix.vonixcore.VonixCore;
+import network.vonix.vonixcore.consumer.Consumer.BatchableEntry;
+import network.vonix.vonixcore.consumer.Consumer.LogEntry;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams groups of log rows into PostgreSQL with {@code COPY ... FROM STDIN}
+ * instead of batched INSERTs.
+ *
+ * The PostgreSQL driver is supplied by the server owner rather than bundled,
+ * so its CopyManager is reached through reflection. The lookup happens once;
+ * if the driver doesn't offer it, COPY stays off and the ShardWriter keeps
+ * using batched INSERTs. Rows are sent as CSV in chunks of
+ * {@link #FLUSH_BYTES}, so a batch is never held as one large buffer.
+ *
+ * One per ShardWriter, writer thread only.
+ */
+final class CopyWriter {
+
+    // Smaller groups gain little over a rewritten batched INSERT
+    static final int MIN_ROWS = 32;
+    private static final int FLUSH_BYTES = 64 * 1024;
+
+    // Resolved on first use; null methods after a failed lookup mean COPY is unavailable
+    private static volatile boolean resolved;
+    private static Class<?> pgConnectionClass;
+    private static Method getCopyAPI;
+    private static Method copyIn;
+    private static Method writeToCopy;
+    private static Method endCopy;
+    private static Method cancelCopy;
+
+    private final Map<String, String> copySql = new HashMap<>();
+    private final CopyRow row = new CopyRow();
+
+    /**
+     * @return false if the connection's driver has no usable CopyManager
+     */
+    static boolean isAvailable(Connection conn) {
+        if (!resolved) {
+            resolve(conn);
+        }
+        return getCopyAPI != null;
+    }
+
+    private static synchronized void resolve(Connection conn) {
+        if (resolved) {
+            return;
+        }
+        try {
+            ClassLoader loader = conn.unwrap(Connection.class).getClass().getClassLoader();
+            pgConnectionClass = Class.forName("org.postgresql.PGConnection", true, loader);
+            Class<?> copyManagerClass = Class.forName("org.postgresql.copy.CopyManager", true, loader);
+            Class<?> copyInClass = Class.forName("org.postgresql.copy.CopyIn", true, loader);
+            Class<?> copyOperationClass = Class.forName("org.postgresql.copy.CopyOperation", true, loader);
+            copyIn = copyManagerClass.getMethod("copyIn", String.class);
+            writeToCopy = copyInClass.getMethod("writeToCopy", byte[].class, int.class, int.class);
+            endCopy = copyInClass.getMethod("endCopy");
+            cancelCopy = copyOperationClass.getMethod("cancelCopy");
+            getCopyAPI = pgConnectionClass.getMethod("getCopyAPI");
+            VonixCore.LOGGER.info("[vonixcore] Using PostgreSQL COPY for log batches");
+        } catch (ReflectiveOperationException | SQLException | LinkageError e) {
+            getCopyAPI = null;
+            VonixCore.LOGGER.warn("[vonixcore] PostgreSQL COPY unavailable, using batched inserts: {}",
+                    e.toString());
+        }
+        resolved = true;
+    }
+
+    /**
+     * Write one group of entries sharing an insert statement. Runs inside the
+     * caller's transaction; on failure the caller rolls back and falls back to
+     * batched INSERTs.
+     *
+     * @return number of rows written
+     */
+    int copy(Connection conn, String insertSql, List<BatchableEntry> entries) throws SQLException {
+        Object copyManager = invoke(getCopyAPI, conn.unwrap(pgConnectionClass));
+        Object operation = invoke(copyIn, copyManager,
+                copySql.computeIfAbsent(insertSql, CopyWriter::toCopySql));
+        boolean done = false;
+        try {
+            StringBuilder out = row.out;
+            out.setLength(0);
+            for (BatchableEntry entry : entries) {
+                ((LogEntry) entry).copy(row);
+                out.setCharAt(out.length() - 1, '\n');
+                if (out.length() >= FLUSH_BYTES) {
+                    send(operation, out);
+                }
+            }
+            if (out.length() > 0) {
+                send(operation, out);
+            }
+            long rows = (Long) invoke(endCopy, operation);
+            done = true;
+            return (int) rows;
+        } finally {
+            row.out.setLength(0);
+            if (!done) {
+                try {
+                    invoke(cancelCopy, operation);
+                } catch (SQLException ignored) {
+                    // Already ended by the failure that got us here
+                }
+            }
+        }
+    }
+
+    private static void send(Object operation, StringBuilder out) throws SQLException {
+        byte[] bytes = out.toString().getBytes(StandardCharsets.UTF_8);
+        invoke(writeToCopy, operation, bytes, 0, bytes.length);
+        out.setLength(0);
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) throws SQLException {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new SQLException("COPY failed", e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new SQLException("COPY failed", e);
+        }
+    }
+
+    /**
+     * "INSERT INTO t (a, b) VALUES (?, ?)" to "COPY t ("a", "b") FROM STDIN WITH (FORMAT csv)".
+     * Column names are quoted since vp_* tables have a column named user,
+     * which the INSERT may have quoted already.
+     */
+    static String toCopySql(String insertSql) {
+        int open = insertSql.indexOf('(');
+        int close = insertSql.indexOf(')', open);
+        String table = insertSql.substring("INSERT INTO ".length(), open).trim();
+        StringBuilder sql = new StringBuilder("COPY ").append(table).append(" (");
+        String[] columns = insertSql.substring(open + 1, close).split(",");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append('"').append(columns[i].trim().replace("\"", "")).append('"');
+        }
+        return sql.append(") FROM STDIN WITH (FORMAT csv)").toString();
+    }
+
+    /**
+     * One CSV row being built. Every value is followed by a comma; the
+     * last one is turned into the line break once the row is complete.
+     * An unquoted empty field is NULL, a quoted one an empty string.
+     */
+    static final class CopyRow {
+        final StringBuilder out = new StringBuilder(FLUSH_BYTES + 1024);
+
+        void add(long value) {
+            out.append(value).append(',');
+        }
+
+        /**
+         * A dictionary id, where 0 means none.
+         */
+        void addId(int id) {
+            if (id != 0) {
+                out.append(id);
+            }
+            out.append(',');
+        }
+
+        void add(String value) {
+            if (value != null) {
+                out.append('"');
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    if (c == '"') {
+                        out.append('"');
+                    }
+                    out.append(c);
+                }
+                out.append('"');
+            }
+            out.append(',');
+        }
+    }
+}
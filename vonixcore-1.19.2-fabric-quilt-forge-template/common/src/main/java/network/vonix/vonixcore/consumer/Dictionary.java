@@ -0,0 +1,297 @@
+package network.vonix.vonixcore.consumer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interned names for the vp_* log tables.
+ *
+ * Users, worlds, namespaced ids (block, item and entity types) and block
+ * states are stored once in vp_user, vp_world, vp_material and vp_blockdata;
+ * the log tables only hold their integer ids. Both directions are cached in
+ * memory and misses go to the database.
+ *
+ * New ids are only created by the Consumer's writer thread, committed ahead of
+ * the batch that uses them so a rolled-back batch can't leave a cached id
+ * without its row. Lookups by id are safe from any thread.
+ */
+public final class Dictionary {
+
+    private final NameTable worlds = new NameTable("vp_world");
+    private final NameTable materials = new NameTable("vp_material");
+    private final NameTable blockData = new NameTable("vp_blockdata");
+
+    // Users are keyed by UUID, or by their tag (e.g. #explosion) for non-players
+    private final Map<String, Integer> userIds = new ConcurrentHashMap<>();
+    private final Map<Integer, String> userNames = new ConcurrentHashMap<>();
+
+    /**
+     * @param uuid the player's UUID, or null for non-player sources
+     * @param name the player name or source tag
+     */
+    public int getUserId(Connection conn, String uuid, String name) throws SQLException {
+        String key = uuid != null ? uuid : name;
+        Integer cached = userIds.get(key);
+        if (cached != null) {
+            if (uuid != null && !name.equals(userNames.get(cached))) {
+                renameUser(conn, cached, name);
+            }
+            return cached;
+        }
+
+        int id = selectUserId(conn, key, name);
+        if (id == 0) {
+            id = insert(conn, "INSERT INTO vp_user (uuid, username) VALUES (?, ?)", key, name);
+            if (id == 0) {
+                // Created by another connection in the meantime
+                id = selectUserId(conn, key, name);
+                if (id == 0) {
+                    throw new SQLException("Failed to add user " + key + " to vp_user");
+                }
+            }
+        }
+        userIds.put(key, id);
+        userNames.put(id, name);
+        return id;
+    }
+
+    public int getWorldId(Connection conn, String name) throws SQLException {
+        return worlds.getId(conn, name);
+    }
+
+    public int getMaterialId(Connection conn, String name) throws SQLException {
+        return materials.getId(conn, name);
+    }
+
+    public int getBlockDataId(Connection conn, String name) throws SQLException {
+        return blockData.getId(conn, name);
+    }
+
+    /**
+     * Look up a world's id without creating it, for readers.
+     *
+     * @return the id, or 0 if the world was never logged
+     */
+    public int findWorldId(Connection conn, String name) throws SQLException {
+        return worlds.findId(conn, name);
+    }
+
+    /**
+     * @return ids of the users currently known by any of the names
+     */
+    public Set<Integer> findUserIds(Connection conn, Collection<String> names) throws SQLException {
+        Set<Integer> ids = new HashSet<>();
+        if (names.isEmpty()) {
+            return ids;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT id FROM vp_user WHERE username IN ("
+                + "?, ".repeat(names.size() - 1) + "?)")) {
+            int i = 1;
+            for (String name : names) {
+                stmt.setString(i++, name);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    public String getUserName(Connection conn, int id) throws SQLException {
+        String name = userNames.get(id);
+        if (name == null && id > 0) {
+            name = selectName(conn, "SELECT username FROM vp_user WHERE id = ?", id);
+            if (name != null) {
+                userNames.put(id, name);
+            }
+        }
+        return name;
+    }
+
+    public String getWorldName(Connection conn, int id) throws SQLException {
+        return worlds.getName(conn, id);
+    }
+
+    public String getMaterialName(Connection conn, int id) throws SQLException {
+        return materials.getName(conn, id);
+    }
+
+    public String getBlockDataName(Connection conn, int id) throws SQLException {
+        return blockData.getName(conn, id);
+    }
+
+    /**
+     * Forget all cached ids, e.g. after the database was switched or reset.
+     */
+    public void clear() {
+        worlds.clear();
+        materials.clear();
+        blockData.clear();
+        userIds.clear();
+        userNames.clear();
+    }
+
+    private int selectUserId(Connection conn, String key, String name) throws SQLException {
+        int id = 0;
+        String storedName = null;
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT id, username FROM vp_user WHERE uuid = ?")) {
+            stmt.setString(1, key);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    id = rs.getInt(1);
+                    storedName = rs.getString(2);
+                }
+            }
+        }
+        if (id != 0 && !name.equals(storedName)) {
+            renameUser(conn, id, name);
+        }
+        return id;
+    }
+
+    private void renameUser(Connection conn, int id, String name) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("UPDATE vp_user SET username = ? WHERE id = ?")) {
+            stmt.setString(1, name);
+            stmt.setInt(2, id);
+            stmt.executeUpdate();
+        }
+        userNames.put(id, name);
+    }
+
+    /**
+     * Insert a dictionary row.
+     *
+     * @return the new id, or 0 if the row already exists
+     */
+    private static int insert(Connection conn, String sql, String... values) throws SQLException {
+        // A unique violation aborts the whole transaction on PostgreSQL, so fence it off
+        Savepoint savepoint = conn.getAutoCommit() ? null : conn.setSavepoint();
+        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < values.length; i++) {
+                stmt.setString(i + 1, values[i]);
+            }
+            stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("No id returned for " + values[0]);
+                }
+                int id = keys.getInt(1);
+                if (savepoint != null) {
+                    conn.releaseSavepoint(savepoint);
+                }
+                return id;
+            }
+        } catch (SQLException e) {
+            if (savepoint == null) {
+                throw e;
+            }
+            conn.rollback(savepoint);
+            return 0;
+        }
+    }
+
+    private static String selectName(Connection conn, String sql, int id) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    /**
+     * A plain id/name table.
+     */
+    private static final class NameTable {
+        private final String table;
+        private final String selectId;
+        private final String selectName;
+        private final String insert;
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private final Map<Integer, String> names = new ConcurrentHashMap<>();
+
+        NameTable(String table) {
+            this.table = table;
+            selectId = "SELECT id FROM " + table + " WHERE name = ?";
+            selectName = "SELECT name FROM " + table + " WHERE id = ?";
+            insert = "INSERT INTO " + table + " (name) VALUES (?)";
+        }
+
+        /**
+         * @return the id for the name, creating it if needed; 0 for null
+         */
+        int getId(Connection conn, String name) throws SQLException {
+            if (name == null) {
+                return 0;
+            }
+            Integer cached = ids.get(name);
+            if (cached != null) {
+                return cached;
+            }
+
+            int id = selectId(conn, name);
+            if (id == 0) {
+                id = insert(conn, insert, name);
+                if (id == 0) {
+                    id = selectId(conn, name);
+                    if (id == 0) {
+                        throw new SQLException("Failed to add " + name + " to " + table);
+                    }
+                }
+            }
+            ids.put(name, id);
+            names.put(id, name);
+            return id;
+        }
+
+        int findId(Connection conn, String name) throws SQLException {
+            Integer cached = ids.get(name);
+            if (cached != null) {
+                return cached;
+            }
+            int id = selectId(conn, name);
+            if (id != 0) {
+                ids.put(name, id);
+                names.put(id, name);
+            }
+            return id;
+        }
+
+        private int selectId(Connection conn, String name) throws SQLException {
+            try (PreparedStatement stmt = conn.prepareStatement(selectId)) {
+                stmt.setString(1, name);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            }
+        }
+
+        String getName(Connection conn, int id) throws SQLException {
+            String name = names.get(id);
+            if (name == null && id > 0) {
+                name = selectName(conn, selectName, id);
+                if (name != null) {
+                    names.put(id, name);
+                    ids.put(name, id);
+                }
+            }
+            return name;
+        }
+
+        void clear() {
+            ids.clear();
+            names.clear();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package network.vonix.vonixcore.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The SQL that differs between the supported databases: column types for
+ * table definitions, identifier quoting, index statements and upserts. {@link Database} picks
+ * one from the configured type; Turso speaks SQLite and Supabase PostgreSQL.
+ */
+public enum SqlDialect {
+    SQLITE, MYSQL, POSTGRESQL;
+
+    public static SqlDialect of(Database.DatabaseType type) {
+        return switch (type) {
+            case MYSQL -> MYSQL;
+            case POSTGRESQL, SUPABASE -> POSTGRESQL;
+            default -> SQLITE;
+        };
+    }
+
+    /**
+     * What follows {@code INTEGER PRIMARY KEY} for a generated id column.
+     */
+    public String autoIncrement() {
+        return switch (this) {
+            case MYSQL -> "AUTO_INCREMENT";
+            case POSTGRESQL -> "GENERATED ALWAYS AS IDENTITY";
+            default -> "AUTOINCREMENT";
+        };
+    }
+
+    /**
+     * A string column type that can be part of a key. MySQL cannot index
+     * TEXT without a prefix length, so it gets a VARCHAR.
+     */
+    public String text() {
+        return this == MYSQL ? "VARCHAR(255)" : "TEXT";
+    }
+
+    /**
+     * A string column type for free text that is never part of a key, such
+     * as logged chat and commands. A command can run to 32767 characters,
+     * more than a MySQL TEXT holds in utf8mb4.
+     */
+    public String longText() {
+        return this == MYSQL ? "MEDIUMTEXT" : "TEXT";
+    }
+
+    /**
+     * A boolean column type with its default. SQLite has no boolean type and
+     * only reads TRUE as a literal from 3.23 on, so it gets an integer.
+     */
+    public String bool(boolean defaultValue) {
+        return switch (this) {
+            case POSTGRESQL -> "BOOLEAN DEFAULT " + (defaultValue ? "TRUE" : "FALSE");
+            case MYSQL -> "TINYINT(1) DEFAULT " + (defaultValue ? 1 : 0);
+            default -> "INTEGER DEFAULT " + (defaultValue ? 1 : 0);
+        };
+    }
+
+    /**
+     * A date and time column type. On MySQL a TIMESTAMP ends in 2038 and,
+     * without explicit_defaults_for_timestamp, the first one in a table is
+     * made NOT NULL and updated on every write, so it gets a DATETIME.
+     */
+    public String timestamp() {
+        return this == MYSQL ? "DATETIME" : "TIMESTAMP";
+    }
+
+    /**
+     * Quote a column name the database reserves: user on PostgreSQL, groups
+     * on MySQL 8. SQLite takes the standard double quotes too.
+     */
+    public String quote(String identifier) {
+        return this == MYSQL ? "`" + identifier + "`" : "\"" + identifier + "\"";
+    }
+
+    /**
+     * {@code format} with each {@code %s} replaced by the quoted identifier,
+     * for every dialect by ordinal. For statements built once, before the
+     * configured dialect is known.
+     */
+    public static String[] quoteAll(String format, String identifier) {
+        SqlDialect[] dialects = values();
+        String[] sql = new String[dialects.length];
+        for (SqlDialect dialect : dialects) {
+            sql[dialect.ordinal()] = format.replace("%s", dialect.quote(identifier));
+        }
+        return sql;
+    }
+
+    /**
+     * An INSERT of every column that updates the other columns in place when
+     * a row with the same key exists, keeping its id. Parameters are the
+     * columns in the order given.
+     *
+     * @param key the unique or primary key columns, comma separated
+     */
+    public String upsert(String table, String key, String... columns) {
+        List<String> keys = new ArrayList<>();
+        for (String column : key.split(",")) {
+            keys.add(column.trim());
+        }
+        List<String> updates = new ArrayList<>();
+        for (String column : columns) {
+            if (!keys.contains(column)) {
+                updates.add(this == MYSQL
+                        ? column + " = VALUES(" + column + ")"
+                        : column + " = excluded." + column);
+            }
+        }
+        String insert = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.length, "?")) + ")";
+        if (this == MYSQL) {
+            return updates.isEmpty()
+                    ? "INSERT IGNORE" + insert.substring("INSERT".length())
+                    : insert + " ON DUPLICATE KEY UPDATE " + String.join(", ", updates);
+        }
+        return insert + " ON CONFLICT (" + String.join(", ", keys) + ")"
+                + (updates.isEmpty() ? " DO NOTHING" : " DO UPDATE SET " + String.join(", ", updates));
+    }
+
+    /**
+     * Create an index unless one with this name exists. MySQL has no
+     * {@code CREATE INDEX IF NOT EXISTS}, so it is looked up first there.
+     *
+     * @param columns column list as it goes between the parentheses
+     */
+    public void createIndex(Connection conn, String name, String table, String columns) throws SQLException {
+        if (this == MYSQL) {
+            if (!indexExists(conn, name, table)) {
+                execute(conn, "CREATE INDEX " + name + " ON " + table + " (" + columns + ")");
+            }
+            return;
+        }
+        execute(conn, "CREATE INDEX IF NOT EXISTS " + name + " ON " + table + " (" + columns + ")");
+    }
+
+    /**
+     * Like {@link #createIndex} but without blocking writes to the table
+     * while it builds: CONCURRENTLY on PostgreSQL, in place on MySQL. SQLite
+     * has no such build and holds its write lock as usual. On PostgreSQL the
+     * connection must be in auto-commit mode.
+     */
+    public void createIndexOnline(Connection conn, String name, String table, String columns) throws SQLException {
+        switch (this) {
+            case MYSQL -> {
+                if (!indexExists(conn, name, table)) {
+                    execute(conn, "CREATE INDEX " + name + " ON " + table + " (" + columns + ")"
+                            + " ALGORITHM=INPLACE LOCK=NONE");
+                }
+            }
+            case POSTGRESQL -> {
+                // An interrupted concurrent build leaves an invalid index that IF NOT EXISTS would accept
+                if (isInvalidPostgresIndex(conn, name)) {
+                    execute(conn, "DROP INDEX CONCURRENTLY IF EXISTS " + name);
+                }
+                try {
+                    execute(conn, "CREATE INDEX CONCURRENTLY IF NOT EXISTS " + name + " ON " + table
+                            + " (" + columns + ")");
+                } catch (SQLException e) {
+                    try {
+                        execute(conn, "DROP INDEX CONCURRENTLY IF EXISTS " + name);
+                    } catch (SQLException dropFailed) {
+                        e.addSuppressed(dropFailed);
+                    }
+                    throw e;
+                }
+            }
+            default -> createIndex(conn, name, table, columns);
+        }
+    }
+
+    /**
+     * Drop an index if it exists. MySQL names the table in DROP INDEX.
+     */
+    public void dropIndex(Connection conn, String name, String table) throws SQLException {
+        if (this == MYSQL) {
+            if (indexExists(conn, name, table)) {
+                execute(conn, "DROP INDEX " + name + " ON " + table);
+            }
+            return;
+        }
+        execute(conn, "DROP INDEX IF EXISTS " + name);
+    }
+
+    private static boolean indexExists(Connection conn, String name, String table) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT 1 FROM information_schema.statistics WHERE table_schema = DATABASE() "
+                        + "AND table_name = ? AND index_name = ? LIMIT 1")) {
+            ps.setString(1, table);
+            ps.setString(2, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static boolean isInvalidPostgresIndex(Connection conn, String name) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT 1 FROM pg_class c JOIN pg_index i ON i.indexrelid = c.oid "
+                        + "WHERE c.relname = ? AND pg_catalog.pg_table_is_visible(c.oid) AND NOT i.indisvalid")) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static void execute(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
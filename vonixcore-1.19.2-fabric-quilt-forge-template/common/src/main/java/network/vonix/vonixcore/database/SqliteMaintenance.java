@@ -0,0 +1,156 @@
+package network.vonix.vonixcore.database;
+
+import net.minecraft.server.MinecraftServer;
+import network.vonix.vonixcore.VonixCore;
+import network.vonix.vonixcore.config.DatabaseConfig;
+
+import java.io.File;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Housekeeping for a local SQLite file, run through the {@link SqliteWriter}.
+ *
+ * SQLite checkpoints the write-ahead log on its own after each commit, but
+ * only as far as open read snapshots allow, and it never shrinks the file.
+ * Under steady Consumer load the log keeps growing, and every read has to
+ * look through it. Once it passes {@code wal_checkpoint_mb} it is
+ * checkpointed and truncated, and between those a passive checkpoint runs
+ * every {@code wal_checkpoint_minutes}. Table statistics for the query
+ * planner are refreshed after startup and then every {@code analyze_hours},
+ * with a sampling limit so a large log table costs milliseconds.
+ *
+ * Work is put off while the average tick is over
+ * {@code maintenance_max_mspt} or writes are backing up at the writer. A log
+ * four times over its limit is truncated regardless.
+ */
+final class SqliteMaintenance {
+
+    private static final long INITIAL_DELAY_SECONDS = 60;
+    private static final long CHECK_SECONDS = 10;
+    private static final int BUSY_QUEUE = 4;
+    private static final int ANALYSIS_LIMIT = 1000;
+    private static final long MB = 1024 * 1024;
+
+    private final MinecraftServer server;
+    private final SqliteWriter writer;
+    private final File walFile;
+    private ScheduledExecutorService executor;
+    private long lastCheckpoint;
+    private long lastAnalyze;
+
+    SqliteMaintenance(MinecraftServer server, SqliteWriter writer, File dbFile) {
+        this.server = server;
+        this.writer = writer;
+        this.walFile = new File(dbFile.getPath() + "-wal");
+    }
+
+    void start() {
+        lastCheckpoint = System.currentTimeMillis();
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "VonixCore-DB-Maintenance");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::run, INITIAL_DELAY_SECONDS, CHECK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop the schedule and leave the log empty, so the next start opens a
+     * clean file.
+     */
+    void stop() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+        try {
+            checkpoint("TRUNCATE");
+        } catch (SQLException e) {
+            VonixCore.LOGGER.warn("[VonixCore] Final SQLite checkpoint failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * One check, run by the schedule every {@value #CHECK_SECONDS} seconds.
+     */
+    void run() {
+        long now = System.currentTimeMillis();
+        long limit = DatabaseConfig.CONFIG.sqliteCheckpointMb.get() * MB;
+        long walSize = walFile.length();
+        long checkpointMs = TimeUnit.MINUTES.toMillis(DatabaseConfig.CONFIG.sqliteCheckpointMinutes.get());
+        long analyzeMs = TimeUnit.HOURS.toMillis(DatabaseConfig.CONFIG.sqliteAnalyzeHours.get());
+
+        boolean truncate = walSize > limit;
+        boolean checkpoint = checkpointMs > 0 && now - lastCheckpoint >= checkpointMs;
+        boolean analyze = analyzeMs > 0 && now - lastAnalyze >= analyzeMs;
+        if (!truncate && !checkpoint && !analyze) {
+            return;
+        }
+        if (isBusy() && walSize <= limit * 4) {
+            return;
+        }
+
+        try {
+            if (truncate || checkpoint) {
+                checkpoint(truncate ? "TRUNCATE" : "PASSIVE");
+                lastCheckpoint = now;
+            }
+            if (analyze && !isBusy()) {
+                analyze();
+                lastAnalyze = now;
+            }
+        } catch (SQLException e) {
+            VonixCore.LOGGER.warn("[VonixCore] SQLite maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    private boolean isBusy() {
+        int maxMspt = DatabaseConfig.CONFIG.sqliteMaintenanceMaxMspt.get();
+        if (maxMspt > 0 && server.getAverageTickTime() > maxMspt) {
+            VonixCore.LOGGER.debug("[VonixCore] Server is lagging, putting off SQLite maintenance");
+            return true;
+        }
+        return writer.getQueued() > BUSY_QUEUE;
+    }
+
+    /**
+     * TRUNCATE waits for readers to finish their snapshots, up to the busy
+     * timeout; PASSIVE copies what it can without waiting.
+     */
+    private void checkpoint(String mode) throws SQLException {
+        writer.call(conn -> {
+            try (Statement stmt = conn.createStatement();
+                    ResultSet rs = stmt.executeQuery("PRAGMA wal_checkpoint(" + mode + ")")) {
+                if (rs.next() && rs.getInt(1) != 0) {
+                    VonixCore.LOGGER.debug("[VonixCore] SQLite {} checkpoint held back by readers ({} of {} pages)",
+                            mode, rs.getInt(3), rs.getInt(2));
+                }
+            }
+            return null;
+        });
+    }
+
+    private void analyze() throws SQLException {
+        long start = System.currentTimeMillis();
+        writer.call(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("PRAGMA analysis_limit = " + ANALYSIS_LIMIT);
+                stmt.execute("ANALYZE");
+            }
+            return null;
+        });
+        VonixCore.LOGGER.debug("[VonixCore] SQLite statistics refreshed in {}ms", System.currentTimeMillis() - start);
+    }
+}
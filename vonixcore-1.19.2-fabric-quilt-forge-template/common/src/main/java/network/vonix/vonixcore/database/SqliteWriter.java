@@ -0,0 +1,138 @@
+package network.vonix.vonixcore.database;
+
+import network.vonix.vonixcore.VonixCore;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The one connection that writes to a SQLite file, and the thread that owns
+ * it. SQLite lets one writer in at a time; with every write queued here,
+ * writers wait their turn in this queue instead of failing with
+ * SQLITE_BUSY, and the pooled connections can be opened read-only. In WAL
+ * mode those readers never wait for the writer.
+ */
+final class SqliteWriter {
+
+    private final String url;
+    private final Properties properties;
+    private final ThreadPoolExecutor executor;
+    private volatile Thread thread;
+    // Writer thread only
+    private Connection conn;
+
+    SqliteWriter(String url, Properties properties) throws SQLException {
+        this.url = url;
+        this.properties = properties;
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "VonixCore-DB-Writer");
+            t.setDaemon(true);
+            thread = t;
+            return t;
+        });
+        // Open now, so the file and its WAL exist before readers open them
+        call(c -> null);
+    }
+
+    /**
+     * Run work on the writer connection and wait for it. Work already on the
+     * writer thread runs in place. The connection is handed back in
+     * auto-commit mode; a transaction left open is rolled back.
+     */
+    <T> T call(Database.SqlFunction<T> work) throws SQLException {
+        if (Thread.currentThread() == thread) {
+            return work.apply(conn);
+        }
+        Future<T> future;
+        try {
+            future = executor.submit(() -> run(work));
+        } catch (RejectedExecutionException e) {
+            throw new SQLException("SQLite writer is closed", e);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for the SQLite writer", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sql) {
+                throw sql;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new SQLException(cause);
+        }
+    }
+
+    /**
+     * @return write tasks waiting for the writer
+     */
+    int getQueued() {
+        return executor.getQueue().size();
+    }
+
+    private <T> T run(Database.SqlFunction<T> work) throws SQLException {
+        if (conn == null || conn.isClosed()) {
+            conn = DriverManager.getConnection(url, properties);
+        }
+        try {
+            return work.apply(conn);
+        } finally {
+            reset();
+        }
+    }
+
+    private void reset() {
+        try {
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            // Start the next task on a fresh connection
+            VonixCore.LOGGER.warn("[VonixCore] Reopening SQLite writer connection: {}", e.getMessage());
+            closeConnection();
+        }
+    }
+
+    /**
+     * Finish queued writes, then close the connection.
+     */
+    void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                VonixCore.LOGGER.warn("[VonixCore] SQLite writer still busy at shutdown, dropping queued writes");
+                executor.shutdownNow();
+                executor.awaitTermination(2, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        closeConnection();
+    }
+
+    private void closeConnection() {
+        if (conn != null) {
+            try {
+                conn.close();
+            } catch (SQLException ignored) {
+            }
+            conn = null;
+        }
+    }
+}
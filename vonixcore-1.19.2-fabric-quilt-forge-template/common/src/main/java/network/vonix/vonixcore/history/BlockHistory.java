@@ -0,0 +1,84 @@
+package network.vonix.vonixcore.history;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Storage for block change history outside of vp_block.
+ *
+ * The Consumer's writers append resolved rows, and lookups and rollbacks read
+ * them back one chunk at a time. Names stay in the SQL dictionary tables; a
+ * store only holds their ids. Records are addressed by an opaque handle that
+ * is valid until the store is closed, which is what lookups page by and
+ * rollbacks mark rows with.
+ *
+ * Implementations must allow appends from several writer threads and reads
+ * from the lookup and rollback threads at the same time.
+ */
+public interface BlockHistory {
+
+    /**
+     * Writer threads: store a batch of rows. Returns once they are durable.
+     */
+    void append(List<BlockRecord> records) throws IOException;
+
+    /**
+     * Read matching rows chunk by chunk, as the caller pulls them. Within a
+     * chunk they are sorted by time, then handle.
+     *
+     * @param world       world id from vp_world, or 0 for every world
+     * @param newestFirst sort order within each chunk
+     */
+    ChunkScan scan(int world, Filter filter, boolean newestFirst);
+
+    /**
+     * Set or clear the rolled back flag of rows by handle.
+     */
+    void setRolledBack(long[] handles, int count, boolean rolledBack) throws IOException;
+
+    void close();
+
+    interface ChunkScan {
+        /**
+         * @return the next chunk with matching rows, or null once there are none
+         */
+        ChunkRecords next() throws IOException;
+    }
+
+    /**
+     * @param records the chunk's matching rows, not empty
+     */
+    record ChunkRecords(int world, int chunkX, int chunkZ, List<BlockRecord> records) {
+    }
+
+    /**
+     * Which rows a scan returns. Bounds are inclusive.
+     *
+     * @param users      vp_user ids; empty = everyone
+     * @param actions    BlockLogEntry action ids; empty = all actions
+     * @param rolledBack 0 or 1 to match that flag, -1 for either
+     */
+    record Filter(long since, Set<Integer> users, Set<Integer> actions, int rolledBack,
+            int minX, int maxX, int minY, int maxY, int minZ, int maxZ) {
+
+        public static Filter everywhere(long since, Set<Integer> users, Set<Integer> actions, int rolledBack) {
+            return new Filter(since, users, actions, rolledBack, Integer.MIN_VALUE, Integer.MAX_VALUE,
+                    Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+
+        public Filter within(int minX, int maxX, int minY, int maxY, int minZ, int maxZ) {
+            return new Filter(since, users, actions, rolledBack, minX, maxX, minY, maxY, minZ, maxZ);
+        }
+
+        boolean matches(BlockRecord record) {
+            return record.time() >= since
+                    && record.x() >= minX && record.x() <= maxX
+                    && record.y() >= minY && record.y() <= maxY
+                    && record.z() >= minZ && record.z() <= maxZ
+                    && (rolledBack < 0 || record.rolledBack() == (rolledBack == 1))
+                    && (users.isEmpty() || users.contains(record.user()))
+                    && (actions.isEmpty() || actions.contains(record.action()));
+        }
+    }
+}
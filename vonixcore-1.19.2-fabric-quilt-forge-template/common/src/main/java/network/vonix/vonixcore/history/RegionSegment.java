@@ -0,0 +1,290 @@
+package network.vonix.vonixcore.history;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The block history of one 32x32 chunk region: an append-only data file of
+ * fixed-width records, and an index of which record ranges (extents) belong
+ * to which chunk.
+ *
+ * Each append writes a chunk's rows as one contiguous extent, so reading a
+ * chunk touches only its own extents, newest last. The data file is mapped
+ * in slices of {@link #SLICE_RECORDS} records. A slice's channel is closed
+ * once it is mapped, so an idle region holds no file handles.
+ *
+ * The index is the source of truth. Extents reach it only after their
+ * records are forced, so records written after the last index entry are
+ * ignored on the next open and overwritten.
+ *
+ * All methods are called with the instance locked.
+ */
+final class RegionSegment {
+
+    static final int RECORD_BYTES = 48;
+    private static final int INDEX_BYTES = 32;
+    private static final int SLICE_RECORDS = 4096;
+    private static final int SLICE_BYTES = SLICE_RECORDS * RECORD_BYTES;
+    private static final int CHUNKS = 32 * 32;
+
+    final int world;
+    final int regionX;
+    final int regionZ;
+    final int number;
+    private final Path dataFile;
+    private final Path indexFile;
+
+    private final List<MappedByteBuffer> slices = new ArrayList<>();
+    private final ChunkExtents[] chunks = new ChunkExtents[CHUNKS];
+    private int count;
+    // Range of records written since the last commit
+    private int dirtyFrom = Integer.MAX_VALUE;
+    private int dirtyTo;
+    private final ByteBuffer pendingIndex = ByteBuffer.allocate(INDEX_BYTES * 64);
+
+    private RegionSegment(int world, int regionX, int regionZ, int number, Path dataFile, Path indexFile) {
+        this.world = world;
+        this.regionX = regionX;
+        this.regionZ = regionZ;
+        this.number = number;
+        this.dataFile = dataFile;
+        this.indexFile = indexFile;
+    }
+
+    static RegionSegment open(Path dir, int world, int regionX, int regionZ, int number) throws IOException {
+        String name = "r." + regionX + "." + regionZ;
+        RegionSegment region = new RegionSegment(world, regionX, regionZ, number, dir.resolve(name + ".dat"),
+                dir.resolve(name + ".idx"));
+        region.loadIndex();
+        region.mapAll();
+        return region;
+    }
+
+    private void loadIndex() throws IOException {
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long whole = channel.size() - channel.size() % INDEX_BYTES;
+            // A torn entry from a crash mid-append; later entries must stay aligned
+            if (whole != channel.size()) {
+                channel.truncate(whole);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(whole, INDEX_BYTES * 4096));
+            long position = 0;
+            while (position < whole) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                position += read - read % INDEX_BYTES;
+                buffer.flip();
+                while (buffer.remaining() >= INDEX_BYTES) {
+                    int chunk = buffer.getShort();
+                    buffer.getShort();
+                    int start = buffer.getInt();
+                    int length = buffer.getInt();
+                    buffer.getInt();
+                    buffer.getLong();
+                    long maxTime = buffer.getLong();
+                    extents(chunk).add(start, length, maxTime);
+                    count = Math.max(count, start + length);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write one chunk's rows as a new extent. They become visible to readers
+     * right away but only survive a crash after {@link #commit}.
+     *
+     * @param chunk chunk index within the region, (z & 31) * 32 + (x & 31)
+     */
+    void append(int chunk, List<BlockRecord> records) throws IOException {
+        int start = count;
+        long minTime = Long.MAX_VALUE;
+        long maxTime = Long.MIN_VALUE;
+        for (BlockRecord record : records) {
+            write(count++, record);
+            minTime = Math.min(minTime, record.time());
+            maxTime = Math.max(maxTime, record.time());
+        }
+        dirtyFrom = Math.min(dirtyFrom, start);
+        dirtyTo = Math.max(dirtyTo, count);
+        extents(chunk).add(start, records.size(), maxTime);
+
+        if (pendingIndex.remaining() < INDEX_BYTES) {
+            flushIndex(false);
+        }
+        pendingIndex.putShort((short) chunk).putShort((short) 0).putInt(start).putInt(records.size()).putInt(0)
+                .putLong(minTime).putLong(maxTime);
+    }
+
+    /**
+     * Force written records, then the index entries that point at them.
+     */
+    void commit() throws IOException {
+        forceDirty();
+        flushIndex(true);
+    }
+
+    private void forceDirty() {
+        if (dirtyFrom >= dirtyTo) {
+            return;
+        }
+        for (int slice = dirtyFrom / SLICE_RECORDS; slice <= (dirtyTo - 1) / SLICE_RECORDS; slice++) {
+            int from = slice == dirtyFrom / SLICE_RECORDS ? dirtyFrom % SLICE_RECORDS : 0;
+            int to = slice == (dirtyTo - 1) / SLICE_RECORDS ? (dirtyTo - 1) % SLICE_RECORDS + 1 : SLICE_RECORDS;
+            slices.get(slice).force(from * RECORD_BYTES, (to - from) * RECORD_BYTES);
+        }
+        dirtyFrom = Integer.MAX_VALUE;
+        dirtyTo = 0;
+    }
+
+    private void flushIndex(boolean force) throws IOException {
+        if (pendingIndex.position() == 0) {
+            return;
+        }
+        // Entries must never point past forced records
+        forceDirty();
+        pendingIndex.flip();
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            while (pendingIndex.hasRemaining()) {
+                channel.write(pendingIndex);
+            }
+            if (force) {
+                channel.force(false);
+            }
+        }
+        pendingIndex.clear();
+    }
+
+    /**
+     * Add the chunk's rows matching the filter to {@code out}, skipping
+     * extents that end before {@code filter.since()}.
+     */
+    void read(int chunk, BlockHistory.Filter filter, List<BlockRecord> out) {
+        ChunkExtents extents = chunks[chunk];
+        if (extents == null) {
+            return;
+        }
+        for (int i = 0; i < extents.size; i++) {
+            if (extents.maxTimes[i] < filter.since()) {
+                continue;
+            }
+            int end = extents.starts[i] + extents.lengths[i];
+            for (int index = extents.starts[i]; index < end; index++) {
+                BlockRecord record = read(index);
+                if (filter.matches(record)) {
+                    out.add(record);
+                }
+            }
+        }
+    }
+
+    boolean hasChunk(int chunk) {
+        return chunks[chunk] != null;
+    }
+
+    void setRolledBack(int index, boolean rolledBack) throws IOException {
+        if (index < 0 || index >= count) {
+            return;
+        }
+        slice(index).put(offset(index) + 45, (byte) (rolledBack ? 1 : 0));
+        dirtyFrom = Math.min(dirtyFrom, index);
+        dirtyTo = Math.max(dirtyTo, index + 1);
+    }
+
+    private void write(int index, BlockRecord record) throws IOException {
+        ByteBuffer slice = slice(index);
+        int offset = offset(index);
+        slice.putLong(offset, record.time());
+        slice.putInt(offset + 8, record.user());
+        slice.putInt(offset + 12, record.x());
+        slice.putInt(offset + 16, record.y());
+        slice.putInt(offset + 20, record.z());
+        slice.putInt(offset + 24, record.type());
+        slice.putInt(offset + 28, record.oldType());
+        slice.putInt(offset + 32, record.oldData());
+        slice.putInt(offset + 36, record.newType());
+        slice.putInt(offset + 40, record.newData());
+        slice.put(offset + 44, (byte) record.action());
+        slice.put(offset + 45, (byte) (record.rolledBack() ? 1 : 0));
+    }
+
+    private BlockRecord read(int index) {
+        ByteBuffer slice = slices.get(index / SLICE_RECORDS);
+        int offset = offset(index);
+        return new BlockRecord(((long) number << 32) | index, slice.getLong(offset), slice.getInt(offset + 8),
+                world, slice.getInt(offset + 12), slice.getInt(offset + 16), slice.getInt(offset + 20),
+                slice.getInt(offset + 24), slice.getInt(offset + 28), slice.getInt(offset + 32),
+                slice.getInt(offset + 36), slice.getInt(offset + 40), slice.get(offset + 44),
+                slice.get(offset + 45) != 0);
+    }
+
+    private static int offset(int index) {
+        return (index % SLICE_RECORDS) * RECORD_BYTES;
+    }
+
+    private ByteBuffer slice(int index) throws IOException {
+        int slice = index / SLICE_RECORDS;
+        while (slices.size() <= slice) {
+            try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                slices.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) slices.size() * SLICE_BYTES,
+                        SLICE_BYTES));
+            }
+        }
+        return slices.get(slice);
+    }
+
+    /**
+     * Map every slice holding indexed records so readers never need to.
+     */
+    private void mapAll() throws IOException {
+        if (count > 0) {
+            slice(count - 1);
+        }
+    }
+
+    private ChunkExtents extents(int chunk) {
+        ChunkExtents extents = chunks[chunk];
+        if (extents == null) {
+            extents = new ChunkExtents();
+            chunks[chunk] = extents;
+        }
+        return extents;
+    }
+
+    /**
+     * The record ranges of one chunk, in the order they were written.
+     */
+    private static final class ChunkExtents {
+        int[] starts = new int[4];
+        int[] lengths = new int[4];
+        long[] maxTimes = new long[4];
+        int size;
+
+        void add(int start, int length, long maxTime) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+                maxTimes = Arrays.copyOf(maxTimes, size * 2);
+            }
+            starts[size] = start;
+            lengths[size] = length;
+            maxTimes[size] = maxTime;
+            size++;
+        }
+    }
+}
@@ -6,12 +6,16 @@ import net.minecraft.world.item.Items;
 import net.minecraft.core.Registry;
 import net.minecraft.resources.ResourceLocation;
 import network.vonix.vonixcore.VonixCore;
+import network.vonix.vonixcore.database.Database;
+import network.vonix.vonixcore.database.JournaledWrite;
+import network.vonix.vonixcore.database.SqlDialect;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Manages kits - predefined item sets players can claim with cooldowns.
@@ -23,6 +27,9 @@ public class KitManager {
     // Kit definitions (loaded from config or defaults)
     private final Map<String, Kit> kits = new HashMap<>();
 
+    // Server thread only: claims whose cooldown row is not written yet
+    private final Map<String, Long> recentClaims = new HashMap<>();
+
     public static KitManager getInstance() {
         if (instance == null) {
             instance = new KitManager();
@@ -33,15 +40,16 @@ public class KitManager {
     /**
      * Initialize kits table in database.
      */
-    public void initializeTable(Connection conn) throws SQLException {
-        conn.createStatement().execute("""
+    public void initializeTable(Connection conn, SqlDialect dialect) throws SQLException {
+        String textType = dialect.text();
+        conn.createStatement().execute(String.format("""
                     CREATE TABLE IF NOT EXISTS vc_kit_cooldowns (
-                        uuid TEXT NOT NULL,
-                        kit_name TEXT NOT NULL,
-                        last_used INTEGER NOT NULL,
+                        uuid %s NOT NULL,
+                        kit_name %s NOT NULL,
+                        last_used BIGINT NOT NULL,
                         PRIMARY KEY (uuid, kit_name)
                     )
-                """);
+                """, textType, textType));
     }
 
     /**
@@ -81,64 +89,84 @@ public class KitManager {
     }
 
     /**
-     * Give a kit to a player.
+     * Give a kit to a player. The cooldown is read off-thread; the items are
+     * handed out on the server thread once it is known. If it cannot be read
+     * the kit is refused rather than treated as never claimed.
      */
-    public KitResult giveKit(ServerPlayer player, String kitName) {
+    public CompletableFuture<KitResult> giveKit(ServerPlayer player, String kitName) {
         Kit kit = kits.get(kitName.toLowerCase());
         if (kit == null) {
-            return KitResult.NOT_FOUND;
+            return CompletableFuture.completedFuture(KitResult.NOT_FOUND);
         }
 
         UUID uuid = player.getUUID();
 
-        // Check cooldown
-        long lastUsed = getLastUsed(uuid, kitName);
-        long now = System.currentTimeMillis() / 1000L;
-        long remaining = (lastUsed + kit.cooldownSeconds()) - now;
+        return getLastUsed(uuid, kitName).handle((lastUsed, failure) -> {
+            if (failure != null) {
+                return KitResult.UNAVAILABLE;
+            }
 
-        if (remaining > 0) {
-            return KitResult.ON_COOLDOWN;
-        }
+            // Check cooldown
+            long now = System.currentTimeMillis() / 1000L;
+            long remaining = (lastUsed + kit.cooldownSeconds()) - now;
 
-        // Check if one-time kit already claimed
-        if (kit.oneTime() && lastUsed > 0) {
-            return KitResult.ALREADY_CLAIMED;
-        }
+            if (remaining > 0) {
+                return KitResult.ON_COOLDOWN;
+            }
 
-        // Give items
-        for (KitItem item : kit.items()) {
-            ItemStack stack = createItemStack(item.itemId(), item.count());
-            if (!stack.isEmpty()) {
-                if (!player.getInventory().add(stack)) {
-                    // Drop on ground if inventory full
-                    player.drop(stack, false);
+            // Check if one-time kit already claimed
+            if (kit.oneTime() && lastUsed > 0) {
+                return KitResult.ALREADY_CLAIMED;
+            }
+
+            // Give items
+            for (KitItem item : kit.items()) {
+                ItemStack stack = createItemStack(item.itemId(), item.count());
+                if (!stack.isEmpty()) {
+                    if (!player.getInventory().add(stack)) {
+                        // Drop on ground if inventory full
+                        player.drop(stack, false);
+                    }
                 }
             }
-        }
 
-        // Set cooldown
-        setLastUsed(uuid, kitName, now);
+            // Set cooldown. A save kept in the outage journal completes at once, so the
+            // claim is held until the journal has been written to the database
+            String key = claimKey(uuid, kitName);
+            recentClaims.put(key, now);
+            setLastUsed(uuid, kitName, now)
+                    .thenCompose(ignored -> VonixCore.getInstance().getDatabase().whenJournalWritten())
+                    .whenComplete((ignored, e) -> recentClaims.remove(key, now));
 
-        return KitResult.SUCCESS;
+            return KitResult.SUCCESS;
+        });
     }
 
     /**
      * Get remaining cooldown in seconds.
      */
-    public int getRemainingCooldown(UUID uuid, String kitName) {
+    public CompletableFuture<Integer> getRemainingCooldown(UUID uuid, String kitName) {
         Kit kit = kits.get(kitName.toLowerCase());
         if (kit == null)
-            return 0;
+            return CompletableFuture.completedFuture(0);
 
-        long lastUsed = getLastUsed(uuid, kitName);
-        long now = System.currentTimeMillis() / 1000L;
-        long remaining = (lastUsed + kit.cooldownSeconds()) - now;
+        // Only shown to the player, so a failed read falls back to a claim still being written
+        return getLastUsed(uuid, kitName).exceptionally(e -> recentClaims.getOrDefault(claimKey(uuid, kitName), 0L))
+                .thenApply(lastUsed -> {
+                    long now = System.currentTimeMillis() / 1000L;
+                    long remaining = (lastUsed + kit.cooldownSeconds()) - now;
 
-        return Math.max(0, (int) remaining);
+                    return Math.max(0, (int) remaining);
+                });
     }
 
-    private long getLastUsed(UUID uuid, String kitName) {
-        try (Connection conn = VonixCore.getInstance().getDatabase().getConnection()) {
+    /**
+     * Completes on the server thread with the later of the stored time and
+     * a claim whose cooldown row is still being written, or exceptionally if
+     * the stored time cannot be read.
+     */
+    private CompletableFuture<Long> getLastUsed(UUID uuid, String kitName) {
+        return VonixCore.getInstance().getDatabase().queryAsync(uuid, conn -> {
             PreparedStatement stmt = conn.prepareStatement(
                     "SELECT last_used FROM vc_kit_cooldowns WHERE uuid = ? AND kit_name = ?");
             stmt.setString(1, uuid.toString());
@@ -147,23 +175,27 @@ public class KitManager {
             if (rs.next()) {
                 return rs.getLong("last_used");
             }
-        } catch (SQLException e) {
-            VonixCore.LOGGER.error("[VonixCore] Failed to get kit cooldown: {}", e.getMessage());
-        }
-        return 0;
+            return 0L;
+        }).whenComplete((ignored, e) -> {
+            if (e != null) {
+                VonixCore.LOGGER.error("[VonixCore] Failed to get kit cooldown: {}", e.getMessage());
+            }
+        }).thenApply(lastUsed -> Math.max(lastUsed, recentClaims.getOrDefault(claimKey(uuid, kitName), 0L)));
     }
 
-    private void setLastUsed(UUID uuid, String kitName, long time) {
-        try (Connection conn = VonixCore.getInstance().getDatabase().getConnection()) {
-            PreparedStatement stmt = conn.prepareStatement(
-                    "INSERT OR REPLACE INTO vc_kit_cooldowns (uuid, kit_name, last_used) VALUES (?, ?, ?)");
-            stmt.setString(1, uuid.toString());
-            stmt.setString(2, kitName.toLowerCase());
-            stmt.setLong(3, time);
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            VonixCore.LOGGER.error("[VonixCore] Failed to set kit cooldown: {}", e.getMessage());
-        }
+    private CompletableFuture<Void> setLastUsed(UUID uuid, String kitName, long time) {
+        Database database = VonixCore.getInstance().getDatabase();
+        String upsert = database.getDialect().upsert("vc_kit_cooldowns",
+                "uuid, kit_name", "uuid", "kit_name", "last_used");
+        return database.saveAsync(uuid, new JournaledWrite().add(upsert, uuid.toString(), kitName.toLowerCase(), time))
+                .exceptionally(e -> {
+                    VonixCore.LOGGER.error("[VonixCore] Failed to set kit cooldown: {}", e.getMessage());
+                    return null;
+                });
+    }
+
+    private static String claimKey(UUID uuid, String kitName) {
+        return uuid + ":" + kitName.toLowerCase();
     }
 
     /**
@@ -207,7 +239,9 @@ public class KitManager {
         SUCCESS,
         NOT_FOUND,
         ON_COOLDOWN,
-        ALREADY_CLAIMED
+        ALREADY_CLAIMED,
+        // The cooldown could not be read
+        UNAVAILABLE
     }
 
     /**
@@ -0,0 +1,193 @@
+package network.vonix.vonixcore.listener;
+
+import dev.architectury.event.EventResult;
+import dev.architectury.event.events.common.InteractionEvent;
+import dev.architectury.event.events.common.LifecycleEvent;
+import dev.architectury.event.events.common.PlayerEvent;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Registry;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.Container;
+import net.minecraft.world.entity.player.Inventory;
+import net.minecraft.world.inventory.AbstractContainerMenu;
+import net.minecraft.world.inventory.Slot;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import network.vonix.vonixcore.VonixCore;
+import network.vonix.vonixcore.config.DatabaseConfig;
+import network.vonix.vonixcore.consumer.Consumer;
+import network.vonix.vonixcore.consumer.Consumer.ContainerLogEntry;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Logs items players put into and take out of block containers.
+ *
+ * When a menu opens and again when it closes, the container's slots are
+ * snapshotted on the server thread into item id and count arrays; the stacks
+ * themselves are only read, never copied. The two snapshots are diffed per
+ * item on a worker thread, so splitting or merging stacks inside the
+ * container nets out, and one vp_container row is queued per item whose
+ * total changed. Item NBT is not compared.
+ */
+public class ContainerLogEventHandler {
+
+    // Server-thread only
+    private static final Map<UUID, Snapshot> OPEN = new HashMap<>();
+    private static final Map<UUID, Click> LAST_CLICK = new HashMap<>();
+
+    private static final ExecutorService DIFF_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "VonixCore-ContainerLog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public static void init() {
+        // Menus don't know their block, so remember what was clicked this tick
+        InteractionEvent.RIGHT_CLICK_BLOCK.register((player, hand, pos, face) -> {
+            if (player instanceof ServerPlayer) {
+                LAST_CLICK.put(player.getUUID(), new Click(player.level, pos.immutable(), player.level.getGameTime()));
+            }
+            return EventResult.pass();
+        });
+
+        PlayerEvent.OPEN_MENU.register((player, menu) -> {
+            if (player instanceof ServerPlayer serverPlayer && DatabaseConfig.CONFIG.containerLogging.get()
+                    && Consumer.getInstance().isRunning()) {
+                open(serverPlayer, menu);
+            }
+        });
+
+        PlayerEvent.CLOSE_MENU.register((player, menu) -> {
+            Snapshot opened = OPEN.remove(player.getUUID());
+            if (opened != null && opened.menu == menu) {
+                Snapshot closed = Snapshot.of(menu, opened.slots);
+                long time = System.currentTimeMillis();
+                DIFF_EXECUTOR.execute(() -> diff(opened, closed, time));
+            }
+        });
+
+        PlayerEvent.PLAYER_QUIT.register(player -> LAST_CLICK.remove(player.getUUID()));
+
+        LifecycleEvent.SERVER_STOPPING.register(server -> {
+            OPEN.clear();
+            LAST_CLICK.clear();
+        });
+    }
+
+    private static void open(ServerPlayer player, AbstractContainerMenu menu) {
+        int[] slots = containerSlots(menu);
+        if (slots.length == 0) {
+            return;
+        }
+
+        Level level = null;
+        BlockPos pos = null;
+        Container container = menu.getSlot(slots[0]).container;
+        if (container instanceof BlockEntity blockEntity && blockEntity.getLevel() != null) {
+            level = blockEntity.getLevel();
+            pos = blockEntity.getBlockPos();
+        } else {
+            // Double chests and other wrapped containers
+            Click click = LAST_CLICK.get(player.getUUID());
+            if (click != null && click.level == player.level && click.gameTime == player.level.getGameTime()) {
+                level = click.level;
+                pos = click.pos;
+            }
+        }
+        if (pos == null) {
+            return;
+        }
+
+        Snapshot snapshot = Snapshot.of(menu, slots);
+        snapshot.user = player.getGameProfile().getName();
+        snapshot.uuid = player.getStringUUID();
+        snapshot.world = level.dimension().location().toString();
+        snapshot.x = pos.getX();
+        snapshot.y = pos.getY();
+        snapshot.z = pos.getZ();
+        snapshot.containerType = Registry.BLOCK.getKey(level.getBlockState(pos).getBlock()).toString();
+        OPEN.put(player.getUUID(), snapshot);
+    }
+
+    /**
+     * @return indexes of the menu's slots that don't belong to the player's inventory
+     */
+    private static int[] containerSlots(AbstractContainerMenu menu) {
+        int count = 0;
+        int[] slots = new int[menu.slots.size()];
+        for (int i = 0; i < menu.slots.size(); i++) {
+            if (!(menu.slots.get(i).container instanceof Inventory)) {
+                slots[count++] = i;
+            }
+        }
+        return count == slots.length ? slots : Arrays.copyOf(slots, count);
+    }
+
+    /**
+     * Worker thread: queue one row per item whose total count changed.
+     */
+    private static void diff(Snapshot opened, Snapshot closed, long time) {
+        Map<Integer, Integer> deltas = ContainerDiff.between(opened.ids, opened.counts, closed.ids, closed.counts);
+        Consumer consumer = Consumer.getInstance();
+        for (Map.Entry<Integer, Integer> delta : deltas.entrySet()) {
+            int amount = delta.getValue();
+            try {
+                String item = Registry.ITEM.getKey(Item.byId(delta.getKey())).toString();
+                consumer.queueEntry(new ContainerLogEntry(time, opened.user, opened.uuid, opened.world,
+                        opened.x, opened.y, opened.z, opened.containerType, item, Math.abs(amount),
+                        amount > 0 ? ContainerLogEntry.ACTION_ADD : ContainerLogEntry.ACTION_REMOVE));
+            } catch (Exception e) {
+                VonixCore.LOGGER.error("[VonixCore] Failed to log container change: {}", e.getMessage());
+            }
+        }
+    }
+
+    private record Click(Level level, BlockPos pos, long gameTime) {
+    }
+
+    /**
+     * Item ids and counts of a menu's container slots at one moment.
+     */
+    private static final class Snapshot {
+        final AbstractContainerMenu menu;
+        final int[] slots;
+        final int[] ids;
+        final int[] counts;
+
+        // Filled in for the opening snapshot only
+        String user;
+        String uuid;
+        String world;
+        int x, y, z;
+        String containerType;
+
+        private Snapshot(AbstractContainerMenu menu, int[] slots) {
+            this.menu = menu;
+            this.slots = slots;
+            this.ids = new int[slots.length];
+            this.counts = new int[slots.length];
+        }
+
+        static Snapshot of(AbstractContainerMenu menu, int[] slots) {
+            Snapshot snapshot = new Snapshot(menu, slots);
+            for (int i = 0; i < slots.length; i++) {
+                Slot slot = menu.getSlot(slots[i]);
+                // getItem returns the live stack; only its id and count are read
+                ItemStack stack = slot.getItem();
+                if (!stack.isEmpty()) {
+                    snapshot.ids[i] = Item.getId(stack.getItem());
+                    snapshot.counts[i] = stack.getCount();
+                }
+            }
+            return snapshot;
+        }
+    }
+}
@@ -119,8 +119,8 @@ public class EssentialsEventHandler {
                 // Track for /seen command
                 UtilityCommands.onPlayerJoin(serverPlayer.getUUID());
 
-                // Pre-load permission data
-                PermissionManager.getInstance().getUser(serverPlayer.getUUID());
+                // Pre-load permission data off the server thread
+                PermissionManager.getInstance().preloadUser(serverPlayer.getUUID());
 
                 // Auto-sync donation rank from website (works without login)
                 RankSyncHandler.syncOnJoin(serverPlayer.getUUID());
@@ -194,10 +194,10 @@ public class PermissionCommands {
             return 0;
         }
 
-        PermissionUser user = pm.getUser(target.getUUID());
-        user.setUsername(target.getName().getString());
-        user.setPrimaryGroup(groupName);
-        pm.saveUser(user);
+        pm.editUser(target.getUUID(), user -> {
+            user.setUsername(target.getName().getString());
+            user.setPrimaryGroup(groupName);
+        });
 
         ctx.getSource().sendSuccess(Component.literal(
                 "§aSet §e" + target.getName().getString() + "§a's primary group to §e" + groupName),
@@ -215,10 +215,10 @@ public class PermissionCommands {
             return 0;
         }
 
-        PermissionUser user = pm.getUser(target.getUUID());
-        user.setUsername(target.getName().getString());
-        user.addGroup(groupName);
-        pm.saveUser(user);
+        pm.editUser(target.getUUID(), user -> {
+            user.setUsername(target.getName().getString());
+            user.addGroup(groupName);
+        });
 
         ctx.getSource().sendSuccess(Component
                 .literal("§aAdded §e" + target.getName().getString() + "§a to group §e" + groupName),
@@ -231,9 +231,9 @@ public class PermissionCommands {
         String groupName = StringArgumentType.getString(ctx, "group");
         PermissionManager pm = PermissionManager.getInstance();
 
-        PermissionUser user = pm.getUser(target.getUUID());
-        user.removeGroup(groupName);
-        pm.saveUser(user);
+        pm.editUser(target.getUUID(), user -> {
+            user.removeGroup(groupName);
+        });
 
         ctx.getSource().sendSuccess(Component.literal(
                 "§aRemoved §e" + target.getName().getString() + "§a from group §e" + groupName), true);
@@ -246,10 +246,10 @@ public class PermissionCommands {
         boolean value = BoolArgumentType.getBool(ctx, "value");
         PermissionManager pm = PermissionManager.getInstance();
 
-        PermissionUser user = pm.getUser(target.getUUID());
-        user.setUsername(target.getName().getString());
-        user.setPermission(permission, value);
-        pm.saveUser(user);
+        pm.editUser(target.getUUID(), user -> {
+            user.setUsername(target.getName().getString());
+            user.setPermission(permission, value);
+        });
 
         String valStr = value ? "§atrue" : "§cfalse";
         ctx.getSource().sendSuccess(Component.literal("§aSet §e" + permission + "§a = " + valStr
@@ -262,9 +262,9 @@ public class PermissionCommands {
         String permission = StringArgumentType.getString(ctx, "permission");
         PermissionManager pm = PermissionManager.getInstance();
 
-        PermissionUser user = pm.getUser(target.getUUID());
-        user.unsetPermission(permission);
-        pm.saveUser(user);
+        pm.editUser(target.getUUID(), user -> {
+            user.unsetPermission(permission);
+        });
 
         ctx.getSource().sendSuccess(
                 Component.literal(
@@ -296,10 +296,10 @@ public class PermissionCommands {
             return 0;
         }
 
-        PermissionUser user = pm.getUser(target.getUUID());
-        user.setUsername(target.getName().getString());
-        user.setPrefix(prefix);
-        pm.saveUser(user);
+        pm.editUser(target.getUUID(), user -> {
+            user.setUsername(target.getName().getString());
+            user.setPrefix(prefix);
+        });
 
         ctx.getSource().sendSuccess(
                 Component.literal(
@@ -318,10 +318,10 @@ public class PermissionCommands {
             return 0;
         }
 
-        PermissionUser user = pm.getUser(target.getUUID());
-        user.setUsername(target.getName().getString());
-        user.setSuffix(suffix);
-        pm.saveUser(user);
+        pm.editUser(target.getUUID(), user -> {
+            user.setUsername(target.getName().getString());
+            user.setSuffix(suffix);
+        });
 
         ctx.getSource().sendSuccess(
                 Component.literal(
@@ -338,9 +338,9 @@ public class PermissionCommands {
                     .literal("§cLuckPerms is active - use /lp user <user> meta clear ..."));
             return 0;
         }
-        PermissionUser user = pm.getUser(target.getUUID());
-        user.setPrefix("");
-        pm.saveUser(user);
+        pm.editUser(target.getUUID(), user -> {
+            user.setPrefix("");
+        });
         ctx.getSource().sendSuccess(
                 Component.literal("§aCleared prefix for §e" + target.getName().getString()),
                 true);
@@ -355,9 +355,9 @@ public class PermissionCommands {
                     .literal("§cLuckPerms is active - use /lp user <user> meta clear ..."));
             return 0;
         }
-        PermissionUser user = pm.getUser(target.getUUID());
-        user.setSuffix("");
-        pm.saveUser(user);
+        pm.editUser(target.getUUID(), user -> {
+            user.setSuffix("");
+        });
         ctx.getSource().sendSuccess(
                 Component.literal("§aCleared suffix for §e" + target.getName().getString()),
                 true);
@@ -595,12 +595,10 @@ public class PermissionCommands {
     }
 
     private static void saveGroupAsync(PermissionGroup group) {
-        new Thread(() -> {
-            try (var conn = VonixCore.getInstance().getDatabase().getConnection()) {
-                PermissionManager.getInstance().saveGroup(conn, group);
-            } catch (Exception e) {
-                VonixCore.LOGGER.error("[Permissions] Error saving group", e);
-            }
-        }).start();
+        PermissionManager.getInstance().saveGroupAsync(group)
+                .exceptionally(e -> {
+                    VonixCore.LOGGER.error("[Permissions] Error saving group", e);
+                    return null;
+                });
     }
 }
@@ -0,0 +1,87 @@
+package network.vonix.vonixcore.consumer;
+
+import network.vonix.vonixcore.consumer.Consumer.BlockLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.ChatLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.CommandLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.ContainerLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.EntityLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.LogEntry;
+import network.vonix.vonixcore.consumer.Consumer.SignLogEntry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EntryCodecTest {
+
+    static final String UUID = "069a79f4-44e9-4726-a5be-fca90e38aaf5";
+
+    /**
+     * One entry of every type, with nulls where the hooks leave names out.
+     */
+    static List<LogEntry> sampleEntries() {
+        return List.of(
+                new BlockLogEntry(1_700_000_000_000L, "Notch", UUID, "minecraft:overworld", 10, 64, -20,
+                        "minecraft:stone", "minecraft:air", "minecraft:air", "minecraft:stone", "minecraft:stone",
+                        BlockLogEntry.ACTION_PLACE),
+                new BlockLogEntry(1_700_000_000_001L, "#explosion", null, "minecraft:the_nether", -1, 0, 1,
+                        "minecraft:oak_stairs", "minecraft:oak_stairs", "minecraft:oak_stairs[facing=north]", null,
+                        null, BlockLogEntry.ACTION_EXPLODE),
+                new ContainerLogEntry(1_700_000_000_002L, "Notch", UUID, "minecraft:overworld", 5, 70, 5,
+                        "minecraft:chest", "minecraft:diamond", 3, ContainerLogEntry.ACTION_REMOVE),
+                new EntityLogEntry(1_700_000_000_003L, "Notch", UUID, "minecraft:overworld", 0, 65, 0,
+                        "minecraft:cow", null, EntityLogEntry.ACTION_KILL),
+                new ChatLogEntry(1_700_000_000_004L, "Notch", UUID, "hello §aworld ✓"),
+                new CommandLogEntry(1_700_000_000_005L, "Notch", UUID, "/tp @s ~ ~10 ~"),
+                new SignLogEntry(1_700_000_000_006L, "Notch", UUID, "minecraft:overworld", 1, 2, 3,
+                        new String[] { "line one", "", null, "line four" }));
+    }
+
+    static byte[] encode(LogEntry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EntryCodec.write(new DataOutputStream(bytes), entry);
+        return bytes.toByteArray();
+    }
+
+    static LogEntry decode(byte[] data) throws IOException {
+        return EntryCodec.read(new DataInputStream(new ByteArrayInputStream(data)));
+    }
+
+    @Test
+    void everyTypeRoundTrips() throws IOException {
+        long sequence = 41;
+        for (LogEntry entry : sampleEntries()) {
+            entry.sequence = ++sequence;
+            byte[] data = encode(entry);
+            LogEntry read = decode(data);
+            assertEquals(entry.getClass(), read.getClass());
+            assertEquals(sequence, read.getSequence());
+            assertEquals(entry.getSql(), read.getSql());
+            // No getters for the fields; an identical encoding means every one came back
+            assertArrayEquals(data, encode(read));
+        }
+    }
+
+    @Test
+    void commandsLongerThanWriteUtfAllows() throws IOException {
+        String command = "/say " + "ä".repeat(40_000);
+        LogEntry entry = new CommandLogEntry(1L, "Notch", UUID, command);
+        byte[] data = encode(entry);
+        assertArrayEquals(data, encode(decode(data)));
+    }
+
+    @Test
+    void unknownTypeIsRejected() throws IOException {
+        byte[] data = encode(sampleEntries().get(0));
+        data[0] = 99;
+        assertThrows(IOException.class, () -> decode(data));
+    }
+}
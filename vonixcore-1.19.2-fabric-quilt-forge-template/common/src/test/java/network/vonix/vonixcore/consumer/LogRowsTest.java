@@ -0,0 +1,137 @@
+package network.vonix.vonixcore.consumer;
+
+import network.vonix.vonixcore.consumer.Consumer.ChatLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.CommandLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.EntityLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.QueueEntry;
+import network.vonix.vonixcore.consumer.Consumer.SignLogEntry;
+import network.vonix.vonixcore.database.TestSchema;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The rows each kind of log entry leaves once written, with its ids
+ * turned back into names.
+ */
+class LogRowsTest {
+
+    private static final long TIME = 1_700_000_000_000L;
+
+    @TempDir
+    Path dir;
+
+    private Connection conn;
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite:" + dir.resolve("test.db"));
+        TestSchema.createTables(conn);
+        conn.setAutoCommit(false);
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    void chatIsStoredAsSent() throws SQLException {
+        write(new ChatLogEntry(TIME, "Steve", "uuid-steve", "hello §aworld ✓"),
+                new ChatLogEntry(TIME + 1, "Alex", "uuid-alex", "hi"));
+
+        assertEquals(List.of(
+                List.of(TIME, "Steve", "hello §aworld ✓"),
+                List.of(TIME + 1, "Alex", "hi")),
+                rows("SELECT c.time, u.username, c.message FROM vp_chat c JOIN vp_user u ON u.id = c.\"user\""
+                        + " ORDER BY c.id"));
+    }
+
+    @Test
+    void commandIsStoredWhole() throws SQLException {
+        String longCommand = "/say " + "a".repeat(70_000);
+        write(new CommandLogEntry(TIME, "Steve", "uuid-steve", "/tp @s ~ ~10 ~"),
+                new CommandLogEntry(TIME + 1, "Steve", "uuid-steve", longCommand));
+
+        assertEquals(List.of(
+                List.of(TIME, "Steve", "/tp @s ~ ~10 ~"),
+                List.of(TIME + 1, "Steve", longCommand)),
+                rows("SELECT c.time, u.username, c.command FROM vp_command c JOIN vp_user u"
+                        + " ON u.id = c.\"user\" ORDER BY c.id"));
+    }
+
+    @Test
+    void signKeepsItsPositionAndLines() throws SQLException {
+        write(new SignLogEntry(TIME, "Steve", "uuid-steve", "minecraft:the_nether", 10, 64, -5,
+                new String[] { "Welcome", "", "to the", "nether" }),
+                // Lines missing from a short array are stored as null
+                new SignLogEntry(TIME + 1, "Steve", "uuid-steve", "minecraft:overworld", 0, 70, 0,
+                        new String[] { "Spawn" }));
+
+        assertEquals(List.of(
+                Arrays.asList(TIME, "Steve", "minecraft:the_nether", 10, 64, -5, "Welcome", "", "to the", "nether"),
+                Arrays.asList(TIME + 1, "Steve", "minecraft:overworld", 0, 70, 0, "Spawn", null, null, null)),
+                rows("SELECT s.time, u.username, w.name, s.x, s.y, s.z, s.line1, s.line2, s.line3, s.line4"
+                        + " FROM vp_sign s JOIN vp_user u ON u.id = s.\"user\" JOIN vp_world w ON w.id = s.world"
+                        + " ORDER BY s.id"));
+    }
+
+    @Test
+    void entityKillsAndInteractionsAreStored() throws SQLException {
+        write(new EntityLogEntry(TIME, "Steve", "uuid-steve", "minecraft:overworld", 10, 64, -5,
+                "minecraft:zombie", "Bob", EntityLogEntry.ACTION_KILL),
+                new EntityLogEntry(TIME + 1, "Steve", "uuid-steve", "minecraft:overworld", 11, 64, -5,
+                        "minecraft:cow", null, EntityLogEntry.ACTION_INTERACT));
+
+        assertEquals(List.of(
+                Arrays.asList(TIME, "Steve", "minecraft:overworld", 10, 64, -5, "minecraft:zombie", "Bob",
+                        EntityLogEntry.ACTION_KILL),
+                Arrays.asList(TIME + 1, "Steve", "minecraft:overworld", 11, 64, -5, "minecraft:cow", null,
+                        EntityLogEntry.ACTION_INTERACT)),
+                rows("SELECT e.time, u.username, w.name, e.x, e.y, e.z, m.name, e.entity_data, e.action"
+                        + " FROM vp_entity e JOIN vp_user u ON u.id = e.\"user\" JOIN vp_world w ON w.id = e.world"
+                        + " JOIN vp_material m ON m.id = e.entity_type ORDER BY e.id"));
+    }
+
+    private void write(QueueEntry... entries) throws SQLException {
+        ShardWriter writer = new ShardWriter(0, new long[ShardWriter.LANES], new Dictionary(), false, null, null,
+                entry -> {
+                });
+        writer.accept(new ArrayList<>(List.of(entries)), new long[ShardWriter.LANES]);
+        assertEquals(entries.length, writer.write(conn));
+    }
+
+    /**
+     * @return each row's columns, the first read as a time
+     */
+    private List<List<Object>> rows(String sql) throws SQLException {
+        List<List<Object>> rows = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery(sql)) {
+            ResultSetMetaData meta = rs.getMetaData();
+            while (rs.next()) {
+                List<Object> row = new ArrayList<>();
+                row.add(rs.getLong(1));
+                for (int i = 2; i <= meta.getColumnCount(); i++) {
+                    row.add(rs.getObject(i));
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
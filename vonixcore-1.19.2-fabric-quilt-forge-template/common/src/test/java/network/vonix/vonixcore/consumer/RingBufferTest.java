@@ -0,0 +1,44 @@
+package network.vonix.vonixcore.consumer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RingBufferTest {
+
+    @Test
+    void holdsExactlyItsCapacity() {
+        // Backed by 1024 slots
+        RingBuffer<Integer> ring = new RingBuffer<>(1000);
+        assertEquals(1000, ring.capacity());
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(ring.offer(i), "offer " + i);
+        }
+        assertFalse(ring.offer(1000));
+        assertEquals(1000, ring.size());
+
+        assertEquals(0, ring.poll());
+        assertTrue(ring.offer(1000));
+        assertFalse(ring.offer(1001));
+    }
+
+    @Test
+    void wrapsAroundInOrder() {
+        RingBuffer<Integer> ring = new RingBuffer<>(3);
+        int next = 0;
+        for (int round = 0; round < 10; round++) {
+            while (ring.offer(next)) {
+                next++;
+            }
+            assertEquals(3, ring.size());
+            for (int i = 3; i > 0; i--) {
+                assertEquals(next - i, ring.poll());
+            }
+        }
+        assertNull(ring.poll());
+        assertTrue(ring.isEmpty());
+    }
+}
@@ -0,0 +1,96 @@
+package network.vonix.vonixcore.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournaledWriteTest {
+
+    private static final String INSERT = "INSERT INTO t (s, i, l, d, f, b, ts, n) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private Connection conn;
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE t (s TEXT, i INTEGER, l BIGINT, d DOUBLE, f REAL, b BOOLEAN, ts BIGINT, n TEXT)");
+        }
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    void everyParameterTypeRoundTrips() throws IOException {
+        JournaledWrite write = new JournaledWrite()
+                .add(INSERT, "ä §a", 42, 1L << 40, 0.25, 1.5f, true, new Timestamp(1_700_000_000_123L), null)
+                .add("DELETE FROM t WHERE s = ?", "gone");
+        byte[] data = write.toBytes();
+        assertArrayEquals(data, JournaledWrite.fromBytes(data).toBytes());
+    }
+
+    @Test
+    void decodedWriteRunsLikeTheOriginal() throws IOException, SQLException {
+        JournaledWrite write = new JournaledWrite()
+                .add(INSERT, "first", 1, 2L, 3.0, 4.0f, false, null, null)
+                .add(INSERT, "second", 5, 6L, 7.0, 8.0f, true, null, null)
+                .add("UPDATE t SET n = ? WHERE s = ?", "updated", "first");
+        JournaledWrite.fromBytes(write.toBytes()).run(conn);
+
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT s, i, l, b, n FROM t ORDER BY rowid")) {
+            assertTrue(rs.next());
+            assertEquals("first", rs.getString(1));
+            assertEquals(1, rs.getInt(2));
+            assertEquals(2L, rs.getLong(3));
+            assertFalse(rs.getBoolean(4));
+            assertEquals("updated", rs.getString(5));
+            assertTrue(rs.next());
+            assertEquals("second", rs.getString(1));
+            assertNull(rs.getString(5));
+            assertFalse(rs.next());
+        }
+    }
+
+    @Test
+    void failedStatementRollsBackTheWholeWrite() throws SQLException {
+        JournaledWrite write = new JournaledWrite()
+                .add(INSERT, "kept?", 1, 2L, 3.0, 4.0f, true, null, null)
+                .add("INSERT INTO missing (x) VALUES (?)", 1);
+        assertThrows(SQLException.class, () -> write.run(conn));
+        assertTrue(conn.getAutoCommit());
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM t")) {
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void truncatedEntryIsUnreadable() throws IOException {
+        byte[] data = new JournaledWrite().add(INSERT, "x", 1, 2L, 3.0, 4.0f, true, null, null).toBytes();
+        assertThrows(IOException.class, () -> JournaledWrite.fromBytes(Arrays.copyOf(data, data.length - 3)));
+    }
+
+    @Test
+    void unsupportedParameterIsRefusedWhenAdded() {
+        assertThrows(IllegalArgumentException.class, () -> new JournaledWrite().add(INSERT, new Object()));
+    }
+}
@@ -0,0 +1,256 @@
+package network.vonix.vonixcore.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A database as the last release before versioning left it, migrated to
+ * the latest version. The lookups that run on every inspector click, kit
+ * and login are checked against SQLite's query plans.
+ */
+class SchemaMigratorTest {
+
+    private static final int BLOCKS = 200;
+
+    @TempDir
+    Path dir;
+
+    private Connection conn;
+
+    @BeforeEach
+    void createVersion0() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite:" + dir.resolve("test.db"));
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                    CREATE TABLE vp_block (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        time BIGINT NOT NULL,
+                        user TEXT NOT NULL,
+                        world TEXT NOT NULL,
+                        x INTEGER NOT NULL,
+                        y INTEGER NOT NULL,
+                        z INTEGER NOT NULL,
+                        type TEXT NOT NULL,
+                        old_type TEXT,
+                        old_data TEXT,
+                        new_type TEXT,
+                        new_data TEXT,
+                        action INTEGER NOT NULL,
+                        rolled_back INTEGER DEFAULT 0
+                    )
+                    """);
+            stmt.execute("""
+                    CREATE TABLE vp_container (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        time BIGINT NOT NULL,
+                        user TEXT NOT NULL,
+                        world TEXT NOT NULL,
+                        x INTEGER NOT NULL,
+                        y INTEGER NOT NULL,
+                        z INTEGER NOT NULL,
+                        type TEXT NOT NULL,
+                        item TEXT NOT NULL,
+                        amount INTEGER NOT NULL,
+                        action INTEGER NOT NULL,
+                        rolled_back INTEGER DEFAULT 0
+                    )
+                    """);
+            stmt.execute("""
+                    CREATE TABLE vp_user (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        uuid TEXT UNIQUE NOT NULL,
+                        username TEXT NOT NULL
+                    )
+                    """);
+            stmt.execute("CREATE INDEX idx_block_time ON vp_block (time)");
+            stmt.execute("CREATE INDEX idx_block_user ON vp_block (user)");
+            stmt.execute("CREATE INDEX idx_block_location ON vp_block (world, x, y, z)");
+            stmt.execute("CREATE INDEX idx_container_location ON vp_container (world, x, y, z)");
+
+            stmt.execute("""
+                    CREATE TABLE vc_homes (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        uuid TEXT NOT NULL,
+                        name TEXT NOT NULL,
+                        world TEXT NOT NULL,
+                        x DOUBLE NOT NULL,
+                        y DOUBLE NOT NULL,
+                        z DOUBLE NOT NULL,
+                        yaw REAL NOT NULL,
+                        pitch REAL NOT NULL,
+                        UNIQUE(uuid, name)
+                    )
+                    """);
+            stmt.execute("CREATE INDEX idx_homes_uuid ON vc_homes (uuid)");
+            stmt.execute("""
+                    CREATE TABLE vc_kit_cooldowns (
+                        uuid TEXT NOT NULL,
+                        kit_name TEXT NOT NULL,
+                        last_used INTEGER NOT NULL,
+                        PRIMARY KEY (uuid, kit_name)
+                    )
+                    """);
+            stmt.execute("""
+                    CREATE TABLE vc_user_groups (
+                        uuid VARCHAR(36),
+                        group_name VARCHAR(64),
+                        expires_at TIMESTAMP NULL,
+                        PRIMARY KEY(uuid, group_name)
+                    )
+                    """);
+
+            stmt.execute("INSERT INTO vp_user (uuid, username) VALUES ('uuid-steve', 'Steve')");
+            stmt.execute("INSERT INTO vc_homes (uuid, name, world, x, y, z, yaw, pitch)"
+                    + " VALUES ('uuid-steve', 'base', 'minecraft:overworld', 10, 64, 10, 0, 0)");
+            stmt.execute("INSERT INTO vc_kit_cooldowns (uuid, kit_name, last_used)"
+                    + " VALUES ('uuid-steve', 'starter', 1)");
+            stmt.execute("INSERT INTO vc_user_groups (uuid, group_name) VALUES ('uuid-steve', 'builder')");
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO vp_block (time, user, world, x, y, z, type,"
+                + " old_type, new_type, action) VALUES (?, 'Steve', 'minecraft:overworld', ?, 64, ?, 'minecraft:stone',"
+                + " 'minecraft:air', 'minecraft:stone', 1)")) {
+            for (int i = 0; i < BLOCKS; i++) {
+                stmt.setLong(1, i);
+                stmt.setInt(2, i % 20);
+                stmt.setInt(3, i / 20);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    void version0MigratesToLatest() throws SQLException {
+        migrate();
+
+        assertEquals(List.of("1", "2", "3", "4"), versions());
+        assertEquals(BLOCKS, count("vp_block"));
+        assertEquals(1, count("vc_homes"));
+        assertEquals(1, count("vc_kit_cooldowns"));
+        assertEquals(1, count("vc_user_groups"));
+        // Tables new since version 0
+        assertEquals(0, count("vc_warps"));
+        assertEquals(0, count("vc_group_permissions"));
+
+        List<String> indexes = strings("SELECT name FROM sqlite_master WHERE type = 'index'");
+        assertTrue(indexes.contains("idx_block_lookup"), indexes.toString());
+        assertTrue(indexes.contains("idx_container_lookup"), indexes.toString());
+        assertFalse(indexes.contains("idx_block_location"), indexes.toString());
+        assertFalse(indexes.contains("idx_container_location"), indexes.toString());
+        // Both lookups are covered by the primary keys already
+        assertFalse(indexes.contains("idx_kit_cooldowns_lookup"), indexes.toString());
+        assertFalse(indexes.contains("idx_user_groups_uuid"), indexes.toString());
+    }
+
+    @Test
+    void migratingAgainChangesNothing() throws SQLException {
+        migrate();
+        List<String> schema = schema();
+
+        migrate();
+        assertEquals(schema, schema());
+
+        // A crash between the index step and its record
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DELETE FROM vonixcore_schema_version WHERE version >= 3");
+        }
+        migrate();
+        assertEquals(schema, schema());
+        assertEquals(List.of("1", "2", "3", "4"), versions());
+        assertEquals(BLOCKS, count("vp_block"));
+    }
+
+    @Test
+    void lookupsUseTheirIndexes() throws SQLException {
+        migrate();
+
+        // Inspector click: newest change at one position, read from the index in order
+        String click = plan("SELECT id FROM vp_block WHERE world = 1 AND x = 1 AND z = 2 AND y = 64"
+                + " ORDER BY time DESC LIMIT 1");
+        assertSearch(click, "vp_block", "idx_block_lookup (world=? AND x=? AND z=? AND y=?)");
+        assertFalse(click.contains("TEMP B-TREE"), click);
+
+        String chest = plan("SELECT id FROM vp_container WHERE world = 1 AND x = 1 AND z = 2 AND y = 64"
+                + " ORDER BY time DESC LIMIT 1");
+        assertSearch(chest, "vp_container", "idx_container_lookup (world=? AND x=? AND z=? AND y=?)");
+        assertFalse(chest.contains("TEMP B-TREE"), chest);
+
+        // Radius lookup and the position filter's region load
+        assertSearch(plan("SELECT x, y, z FROM vp_block WHERE world = 1 AND x BETWEEN 0 AND 511"
+                + " AND z BETWEEN 0 AND 511"), "vp_block", "idx_block_lookup (world=? AND x>? AND x<?)");
+
+        assertSearch(plan("SELECT last_used FROM vc_kit_cooldowns WHERE uuid = 'uuid-steve'"
+                + " AND kit_name = 'starter'"), "vc_kit_cooldowns", "(uuid=? AND kit_name=?)");
+        assertSearch(plan("SELECT group_name FROM vc_user_groups WHERE uuid = 'uuid-steve'"
+                + " AND (expires_at IS NULL OR expires_at > CURRENT_TIMESTAMP)"), "vc_user_groups", "(uuid=?)");
+        assertSearch(plan("SELECT name FROM vc_homes WHERE uuid = 'uuid-steve'"), "vc_homes", "(uuid=?)");
+    }
+
+    /**
+     * The plan reads the table through an index on the given terms and
+     * scans nothing.
+     */
+    private static void assertSearch(String plan, String table, String index) {
+        assertTrue(plan.contains("SEARCH " + table + " USING ") && plan.contains(index), plan);
+        assertFalse(plan.contains("SCAN"), plan);
+    }
+
+    private void migrate() throws SQLException {
+        new SchemaMigrator(new Database(null)).migrate(conn);
+    }
+
+    private List<String> versions() throws SQLException {
+        return strings("SELECT version FROM vonixcore_schema_version ORDER BY version");
+    }
+
+    /**
+     * Every table and index as created, to compare runs.
+     */
+    private List<String> schema() throws SQLException {
+        return strings("SELECT type || ' ' || name || ': ' || COALESCE(sql, '') FROM sqlite_master"
+                + " WHERE name <> 'sqlite_sequence' ORDER BY type, name");
+    }
+
+    private String plan(String sql) throws SQLException {
+        return String.join("\n", strings("EXPLAIN QUERY PLAN " + sql, 4));
+    }
+
+    private int count(String table) throws SQLException {
+        return Integer.parseInt(strings("SELECT COUNT(*) FROM " + table).get(0));
+    }
+
+    private List<String> strings(String sql) throws SQLException {
+        return strings(sql, 1);
+    }
+
+    private List<String> strings(String sql, int column) throws SQLException {
+        List<String> values = new ArrayList<>();
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                values.add(rs.getString(column));
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,147 @@
+package network.vonix.vonixcore.listener;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Diffs of container snapshots, as taken when a menu opens and closes.
+ */
+class ContainerDiffTest {
+
+    private static final int STONE = 1;
+    private static final int DIRT = 2;
+    private static final int DIAMOND = 3;
+    // A double chest
+    private static final int SLOTS = 54;
+
+    @Test
+    void splittingAStackLogsNothing() {
+        Slots before = new Slots(3).set(0, STONE, 64);
+        Slots after = new Slots(3).set(0, STONE, 32).set(1, STONE, 16).set(2, STONE, 16);
+
+        assertEquals(Map.of(), diff(before, after));
+    }
+
+    @Test
+    void mergingStacksLogsNothing() {
+        Slots before = new Slots(3).set(0, STONE, 10).set(1, STONE, 20).set(2, DIRT, 5);
+        Slots after = new Slots(3).set(1, STONE, 30).set(2, DIRT, 5);
+
+        assertEquals(Map.of(), diff(before, after));
+    }
+
+    @Test
+    void movingAStackToAnotherSlotLogsNothing() {
+        Slots before = new Slots(2).set(0, DIAMOND, 3);
+        Slots after = new Slots(2).set(1, DIAMOND, 3);
+
+        assertEquals(Map.of(), diff(before, after));
+    }
+
+    @Test
+    void splitAndPartlyTakenLogsOnlyWhatLeft() {
+        Slots before = new Slots(3).set(0, STONE, 64);
+        Slots after = new Slots(3).set(0, STONE, 20).set(2, STONE, 20);
+
+        assertEquals(Map.of(STONE, -24), diff(before, after));
+    }
+
+    @Test
+    void mergedIntoWithMoreAddedLogsOnlyWhatCameIn() {
+        Slots before = new Slots(2).set(0, STONE, 10).set(1, STONE, 10);
+        Slots after = new Slots(2).set(0, STONE, 64);
+
+        assertEquals(Map.of(STONE, 44), diff(before, after));
+    }
+
+    @Test
+    void replacingAStackLogsBothItems() {
+        Slots before = new Slots(2).set(0, DIRT, 64).set(1, STONE, 5);
+        Slots after = new Slots(2).set(0, DIAMOND, 2).set(1, STONE, 5);
+
+        assertEquals(Map.of(DIRT, -64, DIAMOND, 2), diff(before, after));
+    }
+
+    @Test
+    void unchangedChestAllocatesNothing() {
+        Slots chest = fullChest();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        // Warm up, so the measured loop runs compiled code
+        for (int i = 0; i < 100_000; i++) {
+            diff(chest, chest);
+        }
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 100_000; i++) {
+            diff(chest, chest);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        // Anything per call would come to megabytes
+        assertTrue(allocated < 10_000, allocated + " bytes allocated");
+    }
+
+    /**
+     * Not a rigorous benchmark, but catches the diff becoming something a
+     * busy storage room would notice.
+     */
+    @Test
+    void doubleChestDiffIsCheap() {
+        Slots opened = fullChest();
+        // The player took a stack, filled up two slots and swapped one for dirt
+        Slots closed = fullChest().set(0, 0, 0).set(10, STONE, 32).set(11, STONE, 32).set(20, DIRT, 64);
+        assertEquals(Map.of(STONE, 34, DIRT, 64), diff(opened, closed));
+
+        int rounds = 200_000;
+        long sink = 0;
+        for (int i = 0; i < rounds; i++) {
+            sink += diff(opened, closed).size();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            sink += diff(opened, closed).size();
+        }
+        long perDiff = (System.nanoTime() - start) / rounds;
+        System.out.println("Double chest diff: " + perDiff + " ns");
+
+        assertEquals(2L * rounds * 2, sink);
+        assertTrue(perDiff < 20_000, perDiff + " ns per diff");
+    }
+
+    /**
+     * Alternating stone and dirt, 10 of each per slot, except slot 11 which
+     * starts empty.
+     */
+    private static Slots fullChest() {
+        Slots chest = new Slots(SLOTS);
+        for (int i = 0; i < SLOTS; i++) {
+            chest.set(i, i % 2 == 0 ? STONE : DIRT, 10);
+        }
+        return chest.set(11, 0, 0);
+    }
+
+    private static Map<Integer, Integer> diff(Slots before, Slots after) {
+        return ContainerDiff.between(before.ids, before.counts, after.ids, after.counts);
+    }
+
+    private static final class Slots {
+        final int[] ids;
+        final int[] counts;
+
+        Slots(int size) {
+            ids = new int[size];
+            counts = new int[size];
+        }
+
+        Slots set(int slot, int id, int count) {
+            ids[slot] = id;
+            counts[slot] = count;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package network.vonix.vonixcore.lookup;
+
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.Level;
+import network.vonix.vonixcore.VonixCore;
+import network.vonix.vonixcore.archive.LogArchive;
+import network.vonix.vonixcore.consumer.Consumer;
+import network.vonix.vonixcore.consumer.Consumer.BlockLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.ContainerLogEntry;
+import network.vonix.vonixcore.consumer.Dictionary;
+import network.vonix.vonixcore.database.Database;
+import network.vonix.vonixcore.database.SqlDialect;
+import network.vonix.vonixcore.database.TestSchema;
+import network.vonix.vonixcore.rollback.RollbackParams;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.MockedStatic;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.when;
+
+/**
+ * Lookups against a SQLite log, with the server mocked so each page sent
+ * back can be read as plain lines.
+ */
+class LookupManagerTest {
+
+    private static final String WORLD = "minecraft:overworld";
+    private static final Pattern POSITION = Pattern.compile("\\((-?\\d+) -?\\d+ -?\\d+\\)$");
+
+    @TempDir
+    Path dir;
+
+    private String url;
+    private Connection conn;
+    private Dictionary dictionary;
+    private MockedStatic<VonixCore> vonixCore;
+    private MockedStatic<Consumer> consumers;
+    private final BlockingQueue<List<String>> pages = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void open() throws SQLException {
+        url = "jdbc:sqlite:" + dir.resolve("test.db");
+        conn = DriverManager.getConnection(url);
+        TestSchema.createTables(conn);
+        dictionary = new Dictionary();
+
+        Database database = mock(Database.class);
+        when(database.getReadConnection()).thenAnswer(invocation -> DriverManager.getConnection(url));
+        when(database.getDialect()).thenReturn(SqlDialect.of(Database.DatabaseType.SQLITE));
+        when(database.getArchive()).thenReturn(mock(LogArchive.class));
+        VonixCore instance = mock(VonixCore.class);
+        when(instance.getDatabase()).thenReturn(database);
+        vonixCore = mockStatic(VonixCore.class);
+        vonixCore.when(VonixCore::getInstance).thenReturn(instance);
+
+        Consumer consumer = mock(Consumer.class);
+        when(consumer.getDictionary()).thenReturn(dictionary);
+        consumers = mockStatic(Consumer.class);
+        consumers.when(Consumer::getInstance).thenReturn(consumer);
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        consumers.close();
+        vonixCore.close();
+        conn.close();
+    }
+
+    @Test
+    void pagesWalkBackWithoutRepeatsOrGaps() throws Exception {
+        long start = System.currentTimeMillis() - 60_000;
+        for (int x = 0; x < 25; x++) {
+            // Runs of four rows share a time, so pages end inside a run
+            insertBlock(start + (x / 4) * 1000L, x, 64, 0, "minecraft:stone", BlockLogEntry.ACTION_PLACE);
+        }
+        CommandSourceStack source = source("Admin");
+
+        LookupManager.search(source, new RollbackParams(List.of(), 0, -1, List.of()));
+        List<String> first = page();
+        assertEquals("[VonixCore] Lookup results (page 1)", first.get(0));
+        assertTrue(first.get(first.size() - 1).startsWith("Use /vonixcore lookup next"));
+
+        assertTrue(LookupManager.next(source));
+        List<String> second = page();
+        assertTrue(LookupManager.next(source));
+        List<String> third = page();
+        assertEquals("[VonixCore] Lookup results (page 3)", third.get(0));
+        assertFalse(LookupManager.next(source));
+
+        List<Integer> xs = new ArrayList<>();
+        for (List<String> page : List.of(first, second, third)) {
+            xs.addAll(positions(page));
+        }
+        List<Integer> expected = new ArrayList<>();
+        for (int x = 24; x >= 0; x--) {
+            expected.add(x);
+        }
+        assertEquals(expected, xs);
+    }
+
+    @Test
+    void lookupMatchesOnlyTheGivenUsers() throws Exception {
+        long now = System.currentTimeMillis();
+        insertBlock(now - 2000, 1, 64, 0, "minecraft:stone", BlockLogEntry.ACTION_PLACE);
+        insertBlock("Alex", now - 1000, 2, 64, 0, "minecraft:dirt", BlockLogEntry.ACTION_BREAK);
+
+        LookupManager.search(source("Admin"), new RollbackParams(List.of("Alex"), 0, -1, List.of()));
+        List<String> page = page();
+
+        assertEquals(List.of(2), positions(page));
+        assertTrue(page.get(1).contains("Alex broke minecraft:dirt"), page.get(1));
+    }
+
+    @Test
+    void inspectorShowsTheHistoryOfOneBlock() throws Exception {
+        long now = System.currentTimeMillis();
+        insertBlock(now - 3000, 10, 64, -5, "minecraft:stone", BlockLogEntry.ACTION_PLACE);
+        insertBlock(now - 2000, 11, 64, -5, "minecraft:dirt", BlockLogEntry.ACTION_PLACE);
+        insertBlock(now - 1000, 10, 64, -5, "minecraft:stone", BlockLogEntry.ACTION_BREAK);
+        ServerPlayer player = player();
+
+        LookupManager.inspect(player, new BlockPos(10, 64, -5), false);
+        List<String> page = page();
+
+        assertEquals(3, page.size(), page.toString());
+        assertEquals("[VonixCore] Block history at 10 64 -5 (page 1)", page.get(0));
+        assertTrue(page.get(1).endsWith("ago Steve broke minecraft:stone"), page.get(1));
+        assertTrue(page.get(2).endsWith("ago Steve placed minecraft:stone"), page.get(2));
+    }
+
+    @Test
+    void inspectorShowsContainerTransactions() throws Exception {
+        long now = System.currentTimeMillis();
+        insertContainer(now - 2000, "minecraft:diamond", 3, ContainerLogEntry.ACTION_ADD);
+        insertContainer(now - 1000, "minecraft:diamond", 1, ContainerLogEntry.ACTION_REMOVE);
+
+        LookupManager.inspect(player(), new BlockPos(10, 64, -5), true);
+        List<String> page = page();
+
+        assertEquals("[VonixCore] Container history at 10 64 -5 (page 1)", page.get(0));
+        assertTrue(page.get(1).endsWith("ago Steve removed 1 minecraft:diamond"), page.get(1));
+        assertTrue(page.get(2).endsWith("ago Steve added 3 minecraft:diamond"), page.get(2));
+    }
+
+    @Test
+    void heldClickInspectsOnce() throws Exception {
+        insertBlock(System.currentTimeMillis(), 10, 64, -5, "minecraft:stone", BlockLogEntry.ACTION_PLACE);
+        ServerPlayer player = player();
+
+        LookupManager.inspect(player, new BlockPos(10, 64, -5), false);
+        LookupManager.inspect(player, new BlockPos(10, 64, -5), false);
+
+        assertNotNull(page());
+        assertNull(pages.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * A command source whose server thread runs tasks in place, sending
+     * each batch of lines as one page with colour codes stripped.
+     */
+    private CommandSourceStack source(String name) {
+        CommandSourceStack source = mock(CommandSourceStack.class);
+        MinecraftServer server = mock(MinecraftServer.class);
+        List<String> lines = new ArrayList<>();
+        doAnswer(invocation -> {
+            lines.clear();
+            invocation.<Runnable>getArgument(0).run();
+            pages.add(List.copyOf(lines));
+            return null;
+        }).when(server).execute(any());
+        doAnswer(invocation -> lines.add(strip(invocation.getArgument(0))))
+                .when(source).sendSuccess(any(Component.class), anyBoolean());
+        doAnswer(invocation -> lines.add(strip(invocation.getArgument(0))))
+                .when(source).sendFailure(any());
+        when(source.getServer()).thenReturn(server);
+        when(source.getTextName()).thenReturn(name);
+        return source;
+    }
+
+    private ServerPlayer player() {
+        ServerLevel level = mock(ServerLevel.class);
+        when(level.dimension()).thenReturn(Level.OVERWORLD);
+        ServerPlayer player = mock(ServerPlayer.class);
+        when(player.getUUID()).thenReturn(UUID.randomUUID());
+        player.level = level;
+        CommandSourceStack source = source("Steve");
+        when(player.createCommandSourceStack()).thenReturn(source);
+        return player;
+    }
+
+    private List<String> page() throws InterruptedException {
+        List<String> page = pages.poll(10, TimeUnit.SECONDS);
+        assertNotNull(page, "no page was sent");
+        return page;
+    }
+
+    private static List<Integer> positions(List<String> page) {
+        List<Integer> xs = new ArrayList<>();
+        for (String line : page) {
+            Matcher matcher = POSITION.matcher(line);
+            if (matcher.find()) {
+                xs.add(Integer.parseInt(matcher.group(1)));
+            }
+        }
+        return xs;
+    }
+
+    private static String strip(Component line) {
+        return line.getString().replaceAll("§.", "");
+    }
+
+    private void insertBlock(long time, int x, int y, int z, String type, int action) throws SQLException {
+        insertBlock("Steve", time, x, y, z, type, action);
+    }
+
+    private void insertBlock(String user, long time, int x, int y, int z, String type, int action)
+            throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO vp_block (time, \"user\", world, x, y, z,"
+                + " type, action) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            stmt.setLong(1, time);
+            stmt.setInt(2, dictionary.getUserId(conn, "uuid-" + user, user));
+            stmt.setInt(3, dictionary.getWorldId(conn, WORLD));
+            stmt.setInt(4, x);
+            stmt.setInt(5, y);
+            stmt.setInt(6, z);
+            stmt.setInt(7, dictionary.getMaterialId(conn, type));
+            stmt.setInt(8, action);
+            stmt.executeUpdate();
+        }
+    }
+
+    private void insertContainer(long time, String item, int amount, int action) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO vp_container (time, \"user\", world, x, y,"
+                + " z, type, item, amount, action) VALUES (?, ?, ?, 10, 64, -5, ?, ?, ?, ?)")) {
+            stmt.setLong(1, time);
+            stmt.setInt(2, dictionary.getUserId(conn, "uuid-Steve", "Steve"));
+            stmt.setInt(3, dictionary.getWorldId(conn, WORLD));
+            stmt.setInt(4, dictionary.getMaterialId(conn, "minecraft:chest"));
+            stmt.setInt(5, dictionary.getMaterialId(conn, item));
+            stmt.setInt(6, amount);
+            stmt.setInt(7, action);
+            stmt.executeUpdate();
+        }
+    }
+}
@@ -2,18 +2,22 @@ package network.vonix.vonixcore.forge.mixin;
 
 import net.minecraft.network.chat.Component;
 import net.minecraft.network.chat.PlayerChatMessage;
+import net.minecraft.network.protocol.game.ServerboundSignUpdatePacket;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.server.network.ServerGamePacketListenerImpl;
 import network.vonix.vonixcore.VonixCore;
 import network.vonix.vonixcore.config.EssentialsConfig;
 import network.vonix.vonixcore.config.DiscordConfig;
 import network.vonix.vonixcore.discord.DiscordManager;
+import network.vonix.vonixcore.listener.ChatLogEventHandler;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
+import java.util.List;
+
 /**
  * Forge mixin to intercept chat messages and apply custom formatting while
  * cancelling vanilla broadcast. This prevents duplicate messages that occur when using
@@ -41,6 +45,9 @@ public abstract class ServerGamePacketListenerMixin {
             // In 1.19.2, serverContent() returns the Component with the message
             String rawMessage = message.serverContent().getString();
 
+            // Raw text to vp_chat before any formatting
+            ChatLogEventHandler.logChat(player, rawMessage);
+
             // ALWAYS send to Discord (if running), regardless of chat formatting setting
             sendToDiscordIfEnabled(rawMessage);
 
@@ -90,4 +97,16 @@ public abstract class ServerGamePacketListenerMixin {
                     .sendChatMessage(displayName, rawMessage, player.getStringUUID());
         }
     }
+
+    /**
+     * Log sign text as sent by the client, before vanilla applies it.
+     */
+    @Inject(method = "updateSignText", at = @At("HEAD"))
+    private void vonixcore$onUpdateSignText(ServerboundSignUpdatePacket packet, List<?> lines, CallbackInfo ci) {
+        try {
+            ChatLogEventHandler.logSign(player, packet.getPos(), packet.getLines());
+        } catch (Exception e) {
+            VonixCore.LOGGER.error("[VonixCore] Error logging sign update", e);
+        }
+    }
 }
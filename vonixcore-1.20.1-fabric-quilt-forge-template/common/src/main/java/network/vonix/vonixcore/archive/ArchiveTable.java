@@ -0,0 +1,63 @@
+package network.vonix.vonixcore.archive;
+
+import network.vonix.vonixcore.database.SqlDialect;
+
+/**
+ * A log table that can be archived, and the columns its archive files keep.
+ *
+ * Every table stores id, time and world, then the value columns listed
+ * here. The first seven value columns are the same for every table, so
+ * readers can use {@link #USER} through {@link #ROLLED_BACK} without
+ * knowing which table a row came from.
+ */
+public enum ArchiveTable {
+    BLOCK("vp_block", "user", "x", "y", "z", "type", "action", "rolled_back", "old_type", "old_data", "new_type",
+            "new_data"),
+    CONTAINER("vp_container", "user", "x", "y", "z", "type", "action", "rolled_back", "item", "amount");
+
+    public static final int USER = 0;
+    public static final int X = 1;
+    public static final int Y = 2;
+    public static final int Z = 3;
+    public static final int TYPE = 4;
+    public static final int ACTION = 5;
+    public static final int ROLLED_BACK = 6;
+    // vp_block only
+    public static final int OLD_TYPE = 7;
+    public static final int OLD_DATA = 8;
+    public static final int NEW_TYPE = 9;
+    public static final int NEW_DATA = 10;
+    // vp_container only
+    public static final int ITEM = 7;
+    public static final int AMOUNT = 8;
+
+    private final String table;
+    private final String[] columns;
+
+    ArchiveTable(String table, String... columns) {
+        this.table = table;
+        this.columns = columns;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * Rows of one id range older than a cutoff, in id order. Nullable
+     * columns come back as 0, which is how the archive stores "none".
+     */
+    public String getSelectSql(SqlDialect dialect) {
+        StringBuilder sql = new StringBuilder("SELECT id, time, world");
+        for (String column : columns) {
+            // user is reserved on PostgreSQL
+            sql.append(", ").append(dialect.quote(column));
+        }
+        return sql.append(" FROM ").append(table)
+                .append(" WHERE id >= ? AND id < ? AND time < ? ORDER BY id").toString();
+    }
+}
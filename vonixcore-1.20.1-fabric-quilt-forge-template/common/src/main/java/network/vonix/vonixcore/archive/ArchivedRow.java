@@ -0,0 +1,14 @@
+package network.vonix.vonixcore.archive;
+
+/**
+ * One archived log row. Names are dictionary ids, as in the SQL table.
+ *
+ * @param values the table's value columns, indexed by the
+ *               {@link ArchiveTable} constants
+ */
+public record ArchivedRow(long id, long time, int world, int[] values) {
+
+    public int get(int column) {
+        return values[column];
+    }
+}
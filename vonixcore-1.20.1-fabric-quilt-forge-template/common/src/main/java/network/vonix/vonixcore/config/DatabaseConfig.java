@@ -15,6 +15,12 @@ public class DatabaseConfig {
 
         public final SimpleConfigValue<String> type;
         public final SimpleConfigValue<String> sqliteFile;
+        public final SimpleConfigValue<Integer> sqliteMmapMb;
+        public final SimpleConfigValue<Integer> sqlitePageSize;
+        public final SimpleConfigValue<Integer> sqliteCheckpointMb;
+        public final SimpleConfigValue<Integer> sqliteCheckpointMinutes;
+        public final SimpleConfigValue<Integer> sqliteAnalyzeHours;
+        public final SimpleConfigValue<Integer> sqliteMaintenanceMaxMspt;
         public final SimpleConfigValue<String> mysqlHost;
         public final SimpleConfigValue<Integer> mysqlPort;
         public final SimpleConfigValue<String> mysqlDatabase;
@@ -39,10 +45,46 @@ public class DatabaseConfig {
 
         public final SimpleConfigValue<Integer> connectionPoolSize;
         public final SimpleConfigValue<Integer> connectionTimeout;
+        public final SimpleConfigValue<Boolean> warnServerThreadQueries;
+        public final SimpleConfigValue<Integer> breakerFailures;
+        public final SimpleConfigValue<Integer> breakerRetrySeconds;
+        public final SimpleConfigValue<Boolean> outageJournal;
+
+        public final SimpleConfigValue<String> replicaUrl;
+        public final SimpleConfigValue<Integer> replicaPoolSize;
+        public final SimpleConfigValue<Integer> replicaStickyMs;
 
         public final SimpleConfigValue<Integer> consumerBatchSize;
         public final SimpleConfigValue<Integer> consumerDelayMs;
+        public final SimpleConfigValue<Integer> consumerQueueCapacity;
+        public final SimpleConfigValue<String> consumerOverflowPolicy;
+        public final SimpleConfigValue<Integer> consumerBlockMs;
+        public final SimpleConfigValue<Boolean> consumerJournal;
+        public final SimpleConfigValue<Integer> consumerJournalFsyncMs;
+        public final SimpleConfigValue<Integer> consumerCoalesceMs;
+        public final SimpleConfigValue<Integer> consumerWriters;
+        public final SimpleConfigValue<Boolean> consumerCopy;
+        public final SimpleConfigValue<String> blockStore;
         public final SimpleConfigValue<Integer> dataPurgeDays;
+        public final SimpleConfigValue<Integer> purgePauseMs;
+        public final SimpleConfigValue<Integer> archiveDays;
+        public final SimpleConfigValue<Integer> backupPauseMs;
+
+        public final SimpleConfigValue<Boolean> blockLogging;
+        public final SimpleConfigValue<Boolean> explosionLogging;
+        public final SimpleConfigValue<Boolean> containerLogging;
+        public final SimpleConfigValue<Boolean> chatLogging;
+        public final SimpleConfigValue<Boolean> commandLogging;
+        public final SimpleConfigValue<Boolean> signLogging;
+        public final SimpleConfigValue<Boolean> entityLogging;
+        public final SimpleConfigValue<Boolean> entityInteractionLogging;
+        public final SimpleConfigValue<String> entityInclude;
+        public final SimpleConfigValue<String> entityExclude;
+        public final SimpleConfigValue<Integer> entitySampleThreshold;
+        public final SimpleConfigValue<Integer> entitySamplePercent;
+        public final SimpleConfigValue<Integer> rollbackTickBudgetMs;
+        public final SimpleConfigValue<Integer> lookupThreads;
+        public final SimpleConfigValue<Integer> lookupFilterRegions;
 
         static {
                 Pair<DatabaseConfig, SimpleConfigSpec> pair = new SimpleConfigBuilder()
@@ -79,6 +121,36 @@ public class DatabaseConfig {
                                 "Stored in: world/vonixcore/<filename>")
                                 .define("file", "vonixcore.db");
 
+                sqliteMmapMb = builder.comment(
+                                "Memory-map up to this much of the database file (MB)",
+                                "Saves a copy per page read; 256 suits most servers. 0 = off")
+                                .defineInRange("mmap_size_mb", 0, 0, 4096);
+
+                sqlitePageSize = builder.comment(
+                                "Page size in bytes for new database files, a power of two",
+                                "Existing files keep the size they were created with")
+                                .defineInRange("page_size", 4096, 512, 65536);
+
+                sqliteCheckpointMb = builder.comment(
+                                "Copy the write-ahead log back into the database and truncate it once it",
+                                "grows past this size (MB)")
+                                .defineInRange("wal_checkpoint_mb", 64, 1, 4096);
+
+                sqliteCheckpointMinutes = builder.comment(
+                                "Also checkpoint the write-ahead log this often (minutes), without waiting",
+                                "for readers. 0 = only by size")
+                                .defineInRange("wal_checkpoint_minutes", 5, 0, 1440);
+
+                sqliteAnalyzeHours = builder.comment(
+                                "Refresh the query planner's table statistics this often (hours)",
+                                "0 = never")
+                                .defineInRange("analyze_hours", 24, 0, 720);
+
+                sqliteMaintenanceMaxMspt = builder.comment(
+                                "Put off checkpoints and statistics while the average tick takes longer than",
+                                "this (ms). 0 = run regardless")
+                                .defineInRange("maintenance_max_mspt", 40, 0, 1000);
+
                 builder.pop().comment(
                                 "MySQL/MariaDB Configuration",
                                 "Used when type = 'mysql'")
@@ -178,6 +250,46 @@ public class DatabaseConfig {
                                 "Connection timeout in milliseconds")
                                 .defineInRange("timeout_ms", 5000, 1000, 30000);
 
+                warnServerThreadQueries = builder.comment(
+                                "Warn once per call site when code uses the database on the server thread",
+                                "Such calls stall the tick until the query returns")
+                                .define("warn_server_thread", true);
+
+                breakerFailures = builder.comment(
+                                "Remote databases: connection attempts failing in a row before VonixCore stops",
+                                "waiting for connections and fails database work at once until it is back")
+                                .defineInRange("breaker_failures", 2, 1, 20);
+
+                breakerRetrySeconds = builder.comment(
+                                "While the database is unreachable, try to reconnect this often (seconds)")
+                                .defineInRange("breaker_retry_seconds", 10, 1, 300);
+
+                outageJournal = builder.comment(
+                                "Keep kit cooldowns and permission changes made while the database is unreachable",
+                                "in <world>/vonixcore/outage-journal.db and write them in order once it is back")
+                                .define("outage_journal", true);
+
+                builder.pop().comment(
+                                "Read Replica",
+                                "MySQL/PostgreSQL/Supabase only: lookups, home lists, kit cooldowns and",
+                                "permission loads read from a replica instead of the primary")
+                                .push("replica");
+
+                replicaUrl = builder.comment(
+                                "JDBC URL of the replica, e.g. jdbc:mysql://replica:3306/vonixcore",
+                                "For several replicas use the driver's multi-host URL",
+                                "Uses the primary's username and password. Empty = read from the primary")
+                                .define("url", "");
+
+                replicaPoolSize = builder.comment(
+                                "Maximum connections to the replica")
+                                .defineInRange("max_connections", 5, 1, 50);
+
+                replicaStickyMs = builder.comment(
+                                "After a player changes their own data, read it from the primary for this long (ms)",
+                                "so they see the change; cover the replica's usual lag")
+                                .defineInRange("sticky_ms", 2000, 0, 60000);
+
                 builder.pop().comment(
                                 "Performance Tuning",
                                 "Adjust for your server's needs")
@@ -192,11 +304,153 @@ public class DatabaseConfig {
                                 "Delay between batch writes (ms)")
                                 .defineInRange("batch_delay_ms", 500, 100, 5000);
 
+                consumerQueueCapacity = builder.comment(
+                                "Maximum log entries held in memory while waiting to be written")
+                                .defineInRange("queue_capacity", 65536, 1024, 1048576);
+
+                consumerOverflowPolicy = builder.comment(
+                                "What to do when the queue is full (e.g. the database is stalled):",
+                                "  'block' - wait up to queue_block_ms for space, then drop the entry",
+                                "            (with the journal on, entries are spilled instead of waiting)",
+                                "  'drop_oldest' - discard the oldest queued entry",
+                                "  'spill' - write entries to config/vonixcore/spill and replay them later")
+                                .define("queue_overflow", "spill");
+
+                consumerBlockMs = builder.comment(
+                                "Longest time a full queue may stall the server thread (ms)",
+                                "Used by the 'block' overflow policy")
+                                .defineInRange("queue_block_ms", 5, 0, 1000);
+
+                consumerJournal = builder.comment(
+                                "Journal queued log entries to config/vonixcore/journal before they are written",
+                                "Entries still queued when the server crashes are replayed on the next start")
+                                .define("journal", false);
+
+                consumerJournalFsyncMs = builder.comment(
+                                "How often the journal is forced to disk (ms)",
+                                "0 = before every batch write")
+                                .defineInRange("journal_fsync_ms", 0, 0, 10000);
+
+                consumerCoalesceMs = builder.comment(
+                                "Window for merging repeated changes to one block by one user (ms)",
+                                "Toggles that end where they started are not logged at all",
+                                "0 = log every change")
+                                .defineInRange("coalesce_window_ms", 1000, 0, 10000);
+
+                consumerWriters = builder.comment(
+                                "Threads writing log rows on MySQL/PostgreSQL, each with its own pooled connection",
+                                "Tables, and chunks for block changes, are spread over them",
+                                "SQLite always uses one; keep below the connection pool size")
+                                .defineInRange("writer_threads", 1, 1, 8);
+
+                consumerCopy = builder.comment(
+                                "Write larger log batches with COPY instead of INSERT on PostgreSQL/Supabase",
+                                "Falls back to inserts if the driver or server doesn't support it")
+                                .define("copy_ingest", true);
+
+                blockStore = builder.comment(
+                                "Where block change history is kept:",
+                                "  'sql' - the vp_block table (default)",
+                                "  'segments' - append-only per-region files in <world>/vonixcore/blocks",
+                                "Switching does not move existing history")
+                                .define("block_store", "sql");
+
                 dataPurgeDays = builder.comment(
                                 "Auto-purge data older than X days",
                                 "0 = never purge")
                                 .defineInRange("purge_days", 30, 0, 365);
 
+                purgePauseMs = builder.comment(
+                                "Pause between purge chunks of 5000 rows (ms)",
+                                "Higher leaves more room for log writes while a purge runs")
+                                .defineInRange("purge_pause_ms", 50, 0, 5000);
+
+                archiveDays = builder.comment(
+                                "Move block and container log rows older than X days out of the database into",
+                                "compressed files in <world>/vonixcore/archive, one per world and day.",
+                                "Lookups and rollbacks still read them. While on, purge_days no longer deletes",
+                                "those two tables; archive files are kept until removed by hand.",
+                                "0 = never archive")
+                                .defineInRange("archive_days", 0, 0, 365);
+
+                backupPauseMs = builder.comment(
+                                "Pause between steps of /vonixcore db backup (ms): 256 pages of a SQLite file,",
+                                "or 500 rows of a MySQL/PostgreSQL dump",
+                                "Higher leaves more disk time for log writes while a backup runs")
+                                .defineInRange("backup_pause_ms", 10, 0, 1000);
+
+                builder.pop().comment(
+                                "Block Logging",
+                                "Records world changes into the vp_* log tables")
+                                .push("logging");
+
+                blockLogging = builder.comment(
+                                "Log blocks broken and placed by players")
+                                .define("blocks", true);
+
+                explosionLogging = builder.comment(
+                                "Log blocks destroyed by explosions")
+                                .define("explosions", true);
+
+                containerLogging = builder.comment(
+                                "Log items players put into and take out of containers")
+                                .define("containers", true);
+
+                chatLogging = builder.comment(
+                                "Log player chat messages")
+                                .define("chat", true);
+
+                commandLogging = builder.comment(
+                                "Log commands run by players",
+                                "Arguments of /login, /register and /link are never stored")
+                                .define("commands", true);
+
+                signLogging = builder.comment(
+                                "Log text written on signs")
+                                .define("signs", true);
+
+                entityLogging = builder.comment(
+                                "Log entities killed by players")
+                                .define("entity_kills", true);
+
+                entityInteractionLogging = builder.comment(
+                                "Log players right-clicking entities")
+                                .define("entity_interactions", false);
+
+                entityInclude = builder.comment(
+                                "Comma-separated entity types to log, e.g. minecraft:villager,minecraft:wolf",
+                                "Empty = all types")
+                                .define("entity_include", "");
+
+                entityExclude = builder.comment(
+                                "Comma-separated entity types never to log")
+                                .define("entity_exclude", "");
+
+                entitySampleThreshold = builder.comment(
+                                "Kills of one entity type per minute that are all logged",
+                                "Beyond this (e.g. mob farms) only entity_sample_percent of kills are logged")
+                                .defineInRange("entity_sample_threshold", 100, 1, 100000);
+
+                entitySamplePercent = builder.comment(
+                                "Percentage of kills logged once a type passes entity_sample_threshold",
+                                "100 = no sampling")
+                                .defineInRange("entity_sample_percent", 10, 0, 100);
+
+                rollbackTickBudgetMs = builder.comment(
+                                "Time per server tick spent applying a rollback or restore (ms)",
+                                "Higher finishes sooner, lower keeps the tick rate steady")
+                                .defineInRange("rollback_tick_budget_ms", 10, 1, 45);
+
+                lookupThreads = builder.comment(
+                                "Threads running /vonixcore lookup and inspector queries")
+                                .defineInRange("lookup_threads", 2, 1, 8);
+
+                lookupFilterRegions = builder.comment(
+                                "Regions (32x32 chunks) whose logged block positions are kept in memory, so",
+                                "lookups and inspector clicks where nothing was logged skip the database.",
+                                "About 50 bytes per logged chunk; 0 = off")
+                                .defineInRange("lookup_filter_regions", 1024, 0, 65536);
+
                 builder.pop();
         }
 }
@@ -0,0 +1,157 @@
+package network.vonix.vonixcore.consumer;
+
+import network.vonix.vonixcore.consumer.Consumer.BlockLogEntry;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Holds block log entries for a short window and merges repeated changes to
+ * the same block by the same user into one row. A change by anyone else
+ * ends the run, so a block's rows still go back in the order the changes
+ * were made.
+ *
+ * A merged row keeps the first entry's old state and the last entry's new
+ * state, so rolling it back still restores what was there before the run.
+ * Runs that end where they started (A to B to A) are dropped entirely.
+ * Entries leave in the order their run started.
+ *
+ * With the journal enabled, the Consumer never commits its block change
+ * sequence mark past the oldest held entry. After a crash an entry that was merged into an
+ * already written row can be replayed as a row of its own; that duplicates
+ * the final state but never loses a change.
+ *
+ * Writer thread only.
+ */
+final class Coalescer {
+
+    private final long windowMillis;
+    private final int maxPending;
+    // Insertion order is the order runs started
+    private final LinkedHashMap<Key, Run> runs = new LinkedHashMap<>();
+    // Runs cut off by a later entry outside the window, ready to go out
+    private final ArrayDeque<Run> ready = new ArrayDeque<>();
+    private final java.util.function.Consumer<BlockLogEntry> release;
+
+    private long droppedSequence;
+    private volatile long entriesIn;
+    private volatile long rowsOut;
+
+    Coalescer(long windowMillis, int maxPending, java.util.function.Consumer<BlockLogEntry> release) {
+        this.windowMillis = windowMillis;
+        this.maxPending = maxPending;
+        this.release = release;
+    }
+
+    void add(BlockLogEntry entry) {
+        entriesIn++;
+        Key key = entry.coalesceKey();
+        Run run = runs.get(key);
+        if (run == null || entry.getTime() - run.firstTime > windowMillis || !run.entry.sameUser(entry)) {
+            if (run != null) {
+                runs.remove(key);
+                ready.add(run);
+            }
+            runs.put(key, new Run(entry, System.currentTimeMillis()));
+            return;
+        }
+
+        run.entry.absorb(entry);
+        run.lastSequence = Math.max(run.lastSequence, entry.getSequence());
+        release.accept(entry);
+        if (run.entry.isNoOp()) {
+            runs.remove(key);
+            droppedSequence = Math.max(droppedSequence, run.lastSequence);
+            release.accept(run.entry);
+        }
+    }
+
+    /**
+     * Hand out runs whose window has passed, oldest first.
+     *
+     * @param all   ignore the window, e.g. while stopping
+     * @param limit most entries to hand out
+     * @return highest journal sequence number covered by the handed out and dropped entries
+     */
+    long drain(boolean all, int limit, java.util.function.Consumer<BlockLogEntry> sink) {
+        long sequence = droppedSequence;
+        droppedSequence = 0;
+        int drained = 0;
+
+        Run run;
+        while (drained < limit && (run = ready.poll()) != null) {
+            rowsOut++;
+            sequence = Math.max(sequence, run.lastSequence);
+            sink.accept(run.entry);
+            drained++;
+        }
+
+        long cutoff = System.currentTimeMillis() - windowMillis;
+        Iterator<Run> it = runs.values().iterator();
+        while (it.hasNext() && drained < limit) {
+            run = it.next();
+            if (!all && run.arrived > cutoff && runs.size() <= maxPending) {
+                break;
+            }
+            it.remove();
+            rowsOut++;
+            sequence = Math.max(sequence, run.lastSequence);
+            sink.accept(run.entry);
+            drained++;
+        }
+        return sequence;
+    }
+
+    /**
+     * @return journal sequence number of the oldest held entry, 0 if none
+     */
+    long lowestHeldSequence() {
+        long lowest = Long.MAX_VALUE;
+        for (Run run : ready) {
+            lowest = lowestOf(lowest, run);
+        }
+        for (Run run : runs.values()) {
+            // Runs are in arrival order, so the first journaled one is the lowest
+            if (run.entry.getSequence() != 0) {
+                lowest = lowestOf(lowest, run);
+                break;
+            }
+        }
+        return lowest == Long.MAX_VALUE ? 0 : lowest;
+    }
+
+    private static long lowestOf(long lowest, Run run) {
+        long sequence = run.entry.getSequence();
+        return sequence != 0 ? Math.min(lowest, sequence) : lowest;
+    }
+
+    boolean isEmpty() {
+        return runs.isEmpty() && ready.isEmpty();
+    }
+
+    long getEntriesIn() {
+        return entriesIn;
+    }
+
+    long getRowsOut() {
+        return rowsOut;
+    }
+
+    record Key(String world, int x, int y, int z) {
+    }
+
+    private static final class Run {
+        final BlockLogEntry entry;
+        final long firstTime;
+        final long arrived;
+        long lastSequence;
+
+        Run(BlockLogEntry entry, long arrived) {
+            this.entry = entry;
+            this.firstTime = entry.getTime();
+            this.arrived = arrived;
+            this.lastSequence = entry.getSequence();
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package network.vonix.vonixcore.database;
+
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.network.chat.Component;
+import network.vonix.vonixcore.VonixCore;
+import network.vonix.vonixcore.config.DatabaseConfig;
+import org.sqlite.SQLiteConnection;
+import org.sqlite.SQLiteErrorCode;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Copies the database into {@code <world>/vonixcore/backups} while the
+ * server keeps running. Only one backup runs at a time.
+ *
+ * A local SQLite file is copied with SQLite's online backup,
+ * {@link #PAGES_PER_STEP} pages per step with {@code backup_pause_ms} in
+ * between, inside a read transaction held for the whole copy. In WAL mode
+ * that snapshot doesn't hold up the writer, and because it stays put the
+ * copy never restarts when rows are written meanwhile. The copy is checked
+ * and switched out of WAL mode before it gets its final name.
+ *
+ * Other databases get a logical dump: INSERT statements for every VonixCore
+ * table, read in one repeatable-read transaction so the tables agree with
+ * each other, streamed into a gzip file. Each table is emptied first, so the
+ * dump restores into a database the server has already created its tables
+ * in.
+ */
+public class DatabaseBackup {
+
+    private static final int PAGES_PER_STEP = 256;
+    private static final int ROWS_PER_INSERT = 500;
+    private static final int FETCH_SIZE = 1000;
+    private static final String[] TABLE_PREFIXES = { "vp_", "vonixcore_", "vc_" };
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private static volatile Thread active;
+    private static volatile boolean stopping;
+
+    /**
+     * Start a backup for the sender. Called on the server thread.
+     *
+     * @return false if another backup is still running
+     */
+    public static boolean start(CommandSourceStack source) {
+        if (active != null) {
+            return false;
+        }
+        Database database = VonixCore.getInstance().getDatabase();
+        Thread thread = new Thread(() -> run(source, database), "VonixCore-Backup");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        active = thread;
+        thread.start();
+        return true;
+    }
+
+    /**
+     * At shutdown, before the database closes: let a SQLite copy finish
+     * without pauses, and abandon a dump.
+     */
+    public static void stop() {
+        Thread thread = active;
+        if (thread == null) {
+            return;
+        }
+        stopping = true;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void run(CommandSourceStack source, Database database) {
+        long started = System.currentTimeMillis();
+        String name = "vonixcore-" + LocalDateTime.now().format(NAME_FORMAT);
+        try {
+            Path dir = database.getDataDirectory().resolve("backups");
+            Files.createDirectories(dir);
+            Path file;
+            if (database.getDatabaseType() == Database.DatabaseType.SQLITE) {
+                file = dir.resolve(name + ".db");
+                copySqlite(database, file);
+            } else {
+                file = dir.resolve(name + ".sql.gz");
+                dump(database, file);
+            }
+            double seconds = (System.currentTimeMillis() - started) / 1000.0;
+            String summary = String.format("%s (%.1f MB, %.1fs)", file.getFileName(),
+                    Files.size(file) / (1024.0 * 1024.0), seconds);
+            VonixCore.LOGGER.info("[VonixCore] Database backed up to {}", summary);
+            source.getServer().execute(() -> source.sendSuccess(
+                    () -> Component.literal("§6[VonixCore] §aBackup written: §f" + summary), true));
+        } catch (SQLException | IOException e) {
+            VonixCore.LOGGER.error("[VonixCore] Database backup failed: {}", e.getMessage());
+            source.getServer().execute(() -> source.sendFailure(
+                    Component.literal("§c[VonixCore] Backup failed: " + e.getMessage())));
+        } finally {
+            active = null;
+            stopping = false;
+        }
+    }
+
+    /**
+     * Copy a local SQLite database to {@code file} through a
+     * {@code .part} file that gets the final name once it passes its check.
+     */
+    static void copySqlite(Database database, Path file) throws SQLException, IOException {
+        Path part = file.resolveSibling(file.getFileName() + ".part");
+        Files.deleteIfExists(part);
+        long pauseMs = DatabaseConfig.CONFIG.backupPauseMs.get();
+        try {
+            try (Connection conn = database.getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    // Opens the snapshot every step copies from
+                    try (Statement stmt = conn.createStatement();
+                            ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM sqlite_master")) {
+                        rs.next();
+                    }
+                    // The observer runs between steps on this thread, so pausing there throttles the copy
+                    int rc = conn.unwrap(SQLiteConnection.class).getDatabase().backup("main", part.toString(),
+                            (remaining, total) -> pause(pauseMs), 100, 50, PAGES_PER_STEP);
+                    if (rc != SQLiteErrorCode.SQLITE_OK.code) {
+                        throw new SQLException("SQLite backup stopped with code " + rc);
+                    }
+                } finally {
+                    conn.rollback();
+                }
+            }
+            try (Connection copy = DriverManager.getConnection("jdbc:sqlite:" + part);
+                    Statement stmt = copy.createStatement()) {
+                try (ResultSet rs = stmt.executeQuery("PRAGMA quick_check")) {
+                    String result = rs.next() ? rs.getString(1) : "no result";
+                    if (!"ok".equals(result)) {
+                        throw new SQLException("Backup copy failed its check: " + result);
+                    }
+                }
+                // One self-contained file
+                stmt.execute("PRAGMA journal_mode = DELETE");
+            }
+            Files.move(part, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (SQLException | IOException e) {
+            Files.deleteIfExists(part);
+            throw e;
+        }
+    }
+
+    private static void dump(Database database, Path file) throws SQLException, IOException {
+        Path part = file.resolveSibling(file.getFileName() + ".part");
+        long pauseMs = DatabaseConfig.CONFIG.backupPauseMs.get();
+        try {
+            try (Connection conn = database.getConnection();
+                    Writer out = new BufferedWriter(new OutputStreamWriter(
+                            new GZIPOutputStream(Files.newOutputStream(part)), StandardCharsets.UTF_8))) {
+                conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                conn.setAutoCommit(false);
+                try {
+                    out.write("-- VonixCore data dump, " + Instant.now() + "\n");
+                    out.write("-- Load into a database VonixCore has created its tables in\n");
+                    out.write("BEGIN;\n");
+                    for (String table : listTables(conn)) {
+                        dumpTable(database, conn, table, out, pauseMs);
+                    }
+                    out.write("COMMIT;\n");
+                } finally {
+                    conn.rollback();
+                }
+            }
+            Files.move(part, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (SQLException | IOException e) {
+            Files.deleteIfExists(part);
+            throw e;
+        }
+    }
+
+    private static List<String> listTables(Connection conn) throws SQLException {
+        List<String> tables = new ArrayList<>();
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getTables(conn.getCatalog(), conn.getSchema(), "%", new String[] { "TABLE" })) {
+            while (rs.next()) {
+                String table = rs.getString("TABLE_NAME");
+                for (String prefix : TABLE_PREFIXES) {
+                    if (table.toLowerCase().startsWith(prefix)) {
+                        tables.add(table);
+                        break;
+                    }
+                }
+            }
+        }
+        return tables;
+    }
+
+    private static void dumpTable(Database database, Connection conn, String table, Writer out, long pauseMs)
+            throws SQLException, IOException {
+        String quote = conn.getMetaData().getIdentifierQuoteString().trim();
+        boolean hasId = false;
+        out.write("DELETE FROM " + quote + table + quote + ";\n");
+        try (Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // MySQL streams row by row only with this marker value
+            stmt.setFetchSize(database.isMySQL() ? Integer.MIN_VALUE : FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery("SELECT * FROM " + quote + table + quote)) {
+                ResultSetMetaData meta = rs.getMetaData();
+                int columns = meta.getColumnCount();
+                StringBuilder insert = new StringBuilder("INSERT INTO ").append(quote).append(table).append(quote)
+                        .append(" (");
+                for (int i = 1; i <= columns; i++) {
+                    String column = meta.getColumnName(i);
+                    hasId |= column.equalsIgnoreCase("id");
+                    insert.append(i > 1 ? ", " : "").append(quote).append(column).append(quote);
+                }
+                // Keep the ids of identity columns
+                insert.append(database.isPostgreSQL() ? ") OVERRIDING SYSTEM VALUE VALUES\n" : ") VALUES\n");
+
+                int rows = 0;
+                while (rs.next()) {
+                    out.write(rows == 0 ? insert.toString() : ",\n");
+                    out.write('(');
+                    for (int i = 1; i <= columns; i++) {
+                        if (i > 1) {
+                            out.write(", ");
+                        }
+                        out.write(literal(rs.getObject(i), database.isMySQL()));
+                    }
+                    out.write(')');
+                    if (++rows == ROWS_PER_INSERT) {
+                        out.write(";\n");
+                        rows = 0;
+                        if (stopping) {
+                            throw new IOException("abandoned at shutdown");
+                        }
+                        pause(pauseMs);
+                    }
+                }
+                if (rows > 0) {
+                    out.write(";\n");
+                }
+            }
+        }
+        if (hasId && database.isPostgreSQL()) {
+            // Inserted ids don't advance the identity sequence
+            out.write("SELECT setval(pg_get_serial_sequence('" + table + "', 'id'), COALESCE(MAX(id), 1)) FROM "
+                    + quote + table + quote + ";\n");
+        }
+    }
+
+    private static String literal(Object value, boolean mysql) {
+        if (value == null) {
+            return "NULL";
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        if (value instanceof byte[] bytes) {
+            String hex = HexFormat.of().formatHex(bytes);
+            return mysql ? "X'" + hex + "'" : "'\\x" + hex + "'";
+        }
+        String text = value.toString();
+        if (mysql) {
+            text = text.replace("\\", "\\\\");
+        }
+        return "'" + text.replace("'", "''") + "'";
+    }
+
+    private static void pause(long pauseMs) {
+        if (pauseMs <= 0 || stopping) {
+            return;
+        }
+        try {
+            Thread.sleep(pauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package network.vonix.vonixcore.database;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A save written as plain statements and parameters rather than code, so it
+ * can be kept in the {@link OutageJournal} while the database is unreachable
+ * and run later. See {@link Database#saveAsync}.
+ *
+ * Parameters may be null, String, Integer, Long, Double, Float, Boolean or
+ * Timestamp.
+ */
+public final class JournaledWrite {
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte FLOAT = 5;
+    private static final byte BOOLEAN = 6;
+    private static final byte TIMESTAMP = 7;
+
+    private final List<String> statements = new ArrayList<>();
+    private final List<Object[]> parameters = new ArrayList<>();
+
+    /**
+     * Add a statement. Statements run in the order added, all in one
+     * transaction.
+     */
+    public JournaledWrite add(String sql, Object... params) {
+        for (Object param : params) {
+            tag(param);
+        }
+        statements.add(sql);
+        parameters.add(params);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return statements.isEmpty();
+    }
+
+    /**
+     * Run the statements as one transaction, sending runs of the same
+     * statement as a single batch.
+     */
+    public void run(Connection conn) throws SQLException {
+        Database.inTransaction(conn, tx -> {
+            int i = 0;
+            while (i < statements.size()) {
+                String sql = statements.get(i);
+                try (PreparedStatement ps = tx.prepareStatement(sql)) {
+                    int end = i;
+                    while (end < statements.size() && statements.get(end).equals(sql)) {
+                        bind(ps, parameters.get(end));
+                        ps.addBatch();
+                        end++;
+                    }
+                    ps.executeBatch();
+                    i = end;
+                }
+            }
+        });
+    }
+
+    private static void bind(PreparedStatement ps, Object[] params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            Object param = params[i];
+            if (param == null) {
+                ps.setNull(i + 1, Types.NULL);
+            } else if (param instanceof Timestamp timestamp) {
+                ps.setTimestamp(i + 1, timestamp);
+            } else {
+                ps.setObject(i + 1, param);
+            }
+        }
+    }
+
+    byte[] toBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(statements.size());
+        for (int i = 0; i < statements.size(); i++) {
+            out.writeUTF(statements.get(i));
+            Object[] params = parameters.get(i);
+            out.writeInt(params.length);
+            for (Object param : params) {
+                byte tag = tag(param);
+                out.writeByte(tag);
+                switch (tag) {
+                    case STRING -> out.writeUTF((String) param);
+                    case INT -> out.writeInt((Integer) param);
+                    case LONG -> out.writeLong((Long) param);
+                    case DOUBLE -> out.writeDouble((Double) param);
+                    case FLOAT -> out.writeFloat((Float) param);
+                    case BOOLEAN -> out.writeBoolean((Boolean) param);
+                    case TIMESTAMP -> out.writeLong(((Timestamp) param).getTime());
+                    default -> {
+                    }
+                }
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static JournaledWrite fromBytes(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        JournaledWrite write = new JournaledWrite();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String sql = in.readUTF();
+            Object[] params = new Object[in.readInt()];
+            for (int p = 0; p < params.length; p++) {
+                byte tag = in.readByte();
+                params[p] = switch (tag) {
+                    case NULL -> null;
+                    case STRING -> in.readUTF();
+                    case INT -> in.readInt();
+                    case LONG -> in.readLong();
+                    case DOUBLE -> in.readDouble();
+                    case FLOAT -> in.readFloat();
+                    case BOOLEAN -> in.readBoolean();
+                    case TIMESTAMP -> new Timestamp(in.readLong());
+                    default -> throw new IOException("Unknown parameter type " + tag);
+                };
+            }
+            write.add(sql, params);
+        }
+        return write;
+    }
+
+    private static byte tag(Object param) {
+        if (param == null) {
+            return NULL;
+        } else if (param instanceof String) {
+            return STRING;
+        } else if (param instanceof Integer) {
+            return INT;
+        } else if (param instanceof Long) {
+            return LONG;
+        } else if (param instanceof Double) {
+            return DOUBLE;
+        } else if (param instanceof Float) {
+            return FLOAT;
+        } else if (param instanceof Boolean) {
+            return BOOLEAN;
+        } else if (param instanceof Timestamp) {
+            return TIMESTAMP;
+        }
+        throw new IllegalArgumentException("Can't journal a parameter of type " + param.getClass().getName());
+    }
+}
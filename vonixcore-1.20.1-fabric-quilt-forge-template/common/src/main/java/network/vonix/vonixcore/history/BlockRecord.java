@@ -0,0 +1,11 @@
+package network.vonix.vonixcore.history;
+
+/**
+ * One block change with its names resolved to dictionary ids, as a
+ * {@link BlockHistory} stores it. Nullable ids are 0 when absent.
+ *
+ * @param handle the store's address for the row; 0 until appended
+ */
+public record BlockRecord(long handle, long time, int user, int world, int x, int y, int z, int type,
+        int oldType, int oldData, int newType, int newData, int action, boolean rolledBack) {
+}
@@ -0,0 +1,248 @@
+package network.vonix.vonixcore.history;
+
+import network.vonix.vonixcore.VonixCore;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Block history in per-region segment files under
+ * {@code <world>/vonixcore/blocks/<world id>/}, one {@link RegionSegment} per
+ * 32x32 chunk region.
+ *
+ * Region indexes are loaded the first time a region is touched. A handle is
+ * the region's number in this session in the upper half and the record
+ * index in the lower half, so handles must not outlive the store.
+ */
+public final class SegmentBlockHistory implements BlockHistory {
+
+    private static final Comparator<BlockRecord> OLDEST_FIRST = Comparator.comparingLong(BlockRecord::time)
+            .thenComparingLong(BlockRecord::handle);
+
+    private final Path root;
+    // Every region with files, loaded or not, in a stable scan order
+    private final ConcurrentSkipListSet<RegionKey> known = new ConcurrentSkipListSet<>();
+    private final Map<RegionKey, RegionSegment> loaded = new ConcurrentHashMap<>();
+    // Index + 1 is the region's number; guarded by itself
+    private final List<RegionSegment> numbered = new ArrayList<>();
+
+    private SegmentBlockHistory(Path root) {
+        this.root = root;
+    }
+
+    public static SegmentBlockHistory open(Path root) throws IOException {
+        Files.createDirectories(root);
+        SegmentBlockHistory history = new SegmentBlockHistory(root);
+        try (DirectoryStream<Path> worlds = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path worldDir : worlds) {
+                int world;
+                try {
+                    world = Integer.parseInt(worldDir.getFileName().toString());
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(worldDir, "r.*.*.idx")) {
+                    for (Path file : files) {
+                        String[] parts = file.getFileName().toString().split("\\.");
+                        try {
+                            history.known.add(new RegionKey(world, Integer.parseInt(parts[1]),
+                                    Integer.parseInt(parts[2])));
+                        } catch (NumberFormatException ignored) {
+                        }
+                    }
+                }
+            }
+        }
+        VonixCore.LOGGER.info("[vonixcore] Block history store opened with {} regions at {}", history.known.size(),
+                root);
+        return history;
+    }
+
+    @Override
+    public void append(List<BlockRecord> records) throws IOException {
+        // Region, then chunk within the region, keeping each chunk's rows in order
+        Map<RegionKey, Map<Integer, List<BlockRecord>>> grouped = new LinkedHashMap<>();
+        for (BlockRecord record : records) {
+            RegionKey key = new RegionKey(record.world(), record.x() >> 9, record.z() >> 9);
+            grouped.computeIfAbsent(key, k -> new LinkedHashMap<>())
+                    .computeIfAbsent(localChunk(record.x() >> 4, record.z() >> 4), k -> new ArrayList<>())
+                    .add(record);
+        }
+        for (Map.Entry<RegionKey, Map<Integer, List<BlockRecord>>> entry : grouped.entrySet()) {
+            RegionSegment region = region(entry.getKey(), true);
+            synchronized (region) {
+                for (Map.Entry<Integer, List<BlockRecord>> chunk : entry.getValue().entrySet()) {
+                    region.append(chunk.getKey(), chunk.getValue());
+                }
+                region.commit();
+            }
+        }
+    }
+
+    @Override
+    public ChunkScan scan(int world, Filter filter, boolean newestFirst) {
+        List<RegionKey> regions = new ArrayList<>();
+        for (RegionKey key : known) {
+            if ((world == 0 || key.world() == world)
+                    && overlaps(key.regionX() << 9, 512, filter.minX(), filter.maxX())
+                    && overlaps(key.regionZ() << 9, 512, filter.minZ(), filter.maxZ())) {
+                regions.add(key);
+            }
+        }
+        return new SegmentScan(regions, filter, newestFirst ? OLDEST_FIRST.reversed() : OLDEST_FIRST);
+    }
+
+    @Override
+    public void setRolledBack(long[] handles, int count, boolean rolledBack) throws IOException {
+        RegionSegment last = null;
+        try {
+            for (int i = 0; i < count; i++) {
+                RegionSegment region = byNumber((int) (handles[i] >>> 32));
+                if (region == null) {
+                    continue;
+                }
+                if (region != last) {
+                    if (last != null) {
+                        commit(last);
+                    }
+                    last = region;
+                }
+                synchronized (region) {
+                    region.setRolledBack((int) handles[i], rolledBack);
+                }
+            }
+        } finally {
+            if (last != null) {
+                commit(last);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        for (RegionSegment region : loaded.values()) {
+            try {
+                commit(region);
+            } catch (IOException e) {
+                VonixCore.LOGGER.error("[vonixcore] Failed to flush block history region {},{}: {}",
+                        region.regionX, region.regionZ, e.getMessage());
+            }
+        }
+        loaded.clear();
+        synchronized (numbered) {
+            numbered.clear();
+        }
+    }
+
+    private static void commit(RegionSegment region) throws IOException {
+        synchronized (region) {
+            region.commit();
+        }
+    }
+
+    private RegionSegment region(RegionKey key, boolean create) throws IOException {
+        RegionSegment region = loaded.get(key);
+        if (region != null || (!create && !known.contains(key))) {
+            return region;
+        }
+        synchronized (numbered) {
+            region = loaded.get(key);
+            if (region == null) {
+                Path dir = root.resolve(Integer.toString(key.world()));
+                Files.createDirectories(dir);
+                region = RegionSegment.open(dir, key.world(), key.regionX(), key.regionZ(), numbered.size() + 1);
+                numbered.add(region);
+                loaded.put(key, region);
+                known.add(key);
+            }
+        }
+        return region;
+    }
+
+    private RegionSegment byNumber(int number) {
+        synchronized (numbered) {
+            return number > 0 && number <= numbered.size() ? numbered.get(number - 1) : null;
+        }
+    }
+
+    private static int localChunk(int chunkX, int chunkZ) {
+        return (chunkZ & 31) * 32 + (chunkX & 31);
+    }
+
+    /**
+     * @return true if {@code [start, start + span)} meets {@code [min, max]}
+     */
+    private static boolean overlaps(int start, int span, int min, int max) {
+        return start <= max && (long) start + span > min;
+    }
+
+    /**
+     * Walks the chunks of the given regions in index order.
+     */
+    private final class SegmentScan implements ChunkScan {
+        private final List<RegionKey> regions;
+        private final Filter filter;
+        private final Comparator<BlockRecord> order;
+        private int regionIndex;
+        private RegionSegment region;
+        private int chunk = 32 * 32;
+
+        SegmentScan(List<RegionKey> regions, Filter filter, Comparator<BlockRecord> order) {
+            this.regions = regions;
+            this.filter = filter;
+            this.order = order;
+        }
+
+        @Override
+        public ChunkRecords next() throws IOException {
+            while (true) {
+                if (chunk == 32 * 32) {
+                    if (regionIndex == regions.size()) {
+                        return null;
+                    }
+                    region = region(regions.get(regionIndex++), false);
+                    chunk = region != null ? 0 : 32 * 32;
+                    continue;
+                }
+                int index = chunk++;
+                int chunkX = (region.regionX << 5) + (index & 31);
+                int chunkZ = (region.regionZ << 5) + (index >> 5);
+                if (!overlaps(chunkX << 4, 16, filter.minX(), filter.maxX())
+                        || !overlaps(chunkZ << 4, 16, filter.minZ(), filter.maxZ())) {
+                    continue;
+                }
+                List<BlockRecord> records = new ArrayList<>();
+                synchronized (region) {
+                    if (!region.hasChunk(index)) {
+                        continue;
+                    }
+                    region.read(index, filter, records);
+                }
+                if (!records.isEmpty()) {
+                    records.sort(order);
+                    return new ChunkRecords(region.world, chunkX, chunkZ, records);
+                }
+            }
+        }
+    }
+
+    private record RegionKey(int world, int regionX, int regionZ) implements Comparable<RegionKey> {
+        @Override
+        public int compareTo(RegionKey other) {
+            int c = Integer.compare(world, other.world);
+            if (c == 0) {
+                c = Integer.compare(regionX, other.regionX);
+            }
+            return c != 0 ? c : Integer.compare(regionZ, other.regionZ);
+        }
+    }
+}
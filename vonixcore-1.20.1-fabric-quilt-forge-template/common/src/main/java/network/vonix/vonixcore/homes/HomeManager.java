@@ -4,6 +4,8 @@ import net.minecraft.core.BlockPos;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import network.vonix.vonixcore.VonixCore;
+import network.vonix.vonixcore.database.Database;
+import network.vonix.vonixcore.database.SqlDialect;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -12,9 +14,11 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Manages player homes - set, delete, and teleport to saved locations.
+ * Queries run on the database I/O threads and complete on the server thread.
  */
 public class HomeManager {
 
@@ -30,28 +34,30 @@ public class HomeManager {
     /**
      * Initialize homes table in database.
      */
-    public void initializeTable(Connection conn) throws SQLException {
-        conn.createStatement().execute("""
+    public void initializeTable(Connection conn, SqlDialect dialect) throws SQLException {
+        String textType = dialect.text();
+        conn.createStatement().execute(String.format("""
                     CREATE TABLE IF NOT EXISTS vc_homes (
-                        id INTEGER PRIMARY KEY AUTOINCREMENT,
-                        uuid TEXT NOT NULL,
-                        name TEXT NOT NULL,
+                        id INTEGER PRIMARY KEY %s,
+                        uuid %s NOT NULL,
+                        name %s NOT NULL,
                         world TEXT NOT NULL,
-                        x DOUBLE NOT NULL,
-                        y DOUBLE NOT NULL,
-                        z DOUBLE NOT NULL,
+                        x DOUBLE PRECISION NOT NULL,
+                        y DOUBLE PRECISION NOT NULL,
+                        z DOUBLE PRECISION NOT NULL,
                         yaw REAL NOT NULL,
                         pitch REAL NOT NULL,
                         UNIQUE(uuid, name)
                     )
-                """);
-        conn.createStatement().execute("CREATE INDEX IF NOT EXISTS idx_homes_uuid ON vc_homes (uuid)");
+                """, dialect.autoIncrement(), textType, textType));
+        dialect.createIndex(conn, "idx_homes_uuid", "vc_homes", "uuid");
     }
 
     /**
-     * Set or update a home for a player.
+     * Set or update a home for a player. Completes with false at the home
+     * limit or on a database error.
      */
-    public boolean setHome(ServerPlayer player, String name) {
+    public CompletableFuture<Boolean> setHome(ServerPlayer player, String name) {
         UUID uuid = player.getUUID();
         String world = player.level().dimension().location().toString();
         double x = player.getX();
@@ -59,17 +65,22 @@ public class HomeManager {
         double z = player.getZ();
         float yaw = player.getYRot();
         float pitch = player.getXRot();
+        int maxHomes = VonixCore.getInstance().getMaxHomes();
 
-        try (Connection conn = VonixCore.getInstance().getDatabase().getConnection()) {
-            // Check home limit
-            int homeCount = getHomeCount(uuid);
-            int maxHomes = VonixCore.getInstance().getMaxHomes();
-            if (homeCount >= maxHomes && !homeExists(uuid, name)) {
+        Database database = VonixCore.getInstance().getDatabase();
+        return database.supplyAsync(uuid, conn -> {
+            // Check home limit; replacing an existing home is always allowed
+            PreparedStatement count = conn.prepareStatement(
+                    "SELECT COUNT(*), SUM(CASE WHEN name = ? THEN 1 ELSE 0 END) FROM vc_homes WHERE uuid = ?");
+            count.setString(1, name.toLowerCase());
+            count.setString(2, uuid.toString());
+            ResultSet rs = count.executeQuery();
+            if (rs.next() && rs.getInt(1) >= maxHomes && rs.getInt(2) == 0) {
                 return false; // At limit
             }
 
-            PreparedStatement stmt = conn.prepareStatement(
-                    "INSERT OR REPLACE INTO vc_homes (uuid, name, world, x, y, z, yaw, pitch) VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+            PreparedStatement stmt = conn.prepareStatement(database.getDialect().upsert("vc_homes", "uuid, name",
+                    "uuid", "name", "world", "x", "y", "z", "yaw", "pitch"));
             stmt.setString(1, uuid.toString());
             stmt.setString(2, name.toLowerCase());
             stmt.setString(3, world);
@@ -80,60 +91,45 @@ public class HomeManager {
             stmt.setFloat(8, pitch);
             stmt.executeUpdate();
             return true;
-        } catch (SQLException e) {
+        }).exceptionally(e -> {
             VonixCore.LOGGER.error("[VonixCore] Failed to set home: {}", e.getMessage());
             return false;
-        }
+        });
     }
 
     /**
      * Delete a home.
      */
-    public boolean deleteHome(UUID uuid, String name) {
-        try (Connection conn = VonixCore.getInstance().getDatabase().getConnection()) {
+    public CompletableFuture<Boolean> deleteHome(UUID uuid, String name) {
+        return VonixCore.getInstance().getDatabase().supplyAsync(uuid, conn -> {
             PreparedStatement stmt = conn.prepareStatement(
                     "DELETE FROM vc_homes WHERE uuid = ? AND name = ?");
             stmt.setString(1, uuid.toString());
             stmt.setString(2, name.toLowerCase());
             return stmt.executeUpdate() > 0;
-        } catch (SQLException e) {
+        }).exceptionally(e -> {
             VonixCore.LOGGER.error("[VonixCore] Failed to delete home: {}", e.getMessage());
             return false;
-        }
+        });
     }
 
     /**
-     * Get a home location.
+     * Get a home location; completes with null if there is none.
      */
-    public Home getHome(UUID uuid, String name) {
-        try (Connection conn = VonixCore.getInstance().getDatabase().getConnection()) {
-            PreparedStatement stmt = conn.prepareStatement(
-                    "SELECT world, x, y, z, yaw, pitch FROM vc_homes WHERE uuid = ? AND name = ?");
-            stmt.setString(1, uuid.toString());
-            stmt.setString(2, name.toLowerCase());
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return new Home(
-                        name,
-                        rs.getString("world"),
-                        rs.getDouble("x"),
-                        rs.getDouble("y"),
-                        rs.getDouble("z"),
-                        rs.getFloat("yaw"),
-                        rs.getFloat("pitch"));
-            }
-        } catch (SQLException e) {
-            VonixCore.LOGGER.error("[VonixCore] Failed to get home: {}", e.getMessage());
-        }
-        return null;
+    public CompletableFuture<Home> getHome(UUID uuid, String name) {
+        return VonixCore.getInstance().getDatabase().queryAsync(uuid, conn -> findHome(conn, uuid, name))
+                .exceptionally(e -> {
+                    VonixCore.LOGGER.error("[VonixCore] Failed to get home: {}", e.getMessage());
+                    return null;
+                });
     }
 
     /**
      * Get all homes for a player.
      */
-    public List<Home> getHomes(UUID uuid) {
-        List<Home> homes = new ArrayList<>();
-        try (Connection conn = VonixCore.getInstance().getDatabase().getConnection()) {
+    public CompletableFuture<List<Home>> getHomes(UUID uuid) {
+        return VonixCore.getInstance().getDatabase().queryAsync(uuid, conn -> {
+            List<Home> homes = new ArrayList<>();
             PreparedStatement stmt = conn.prepareStatement(
                     "SELECT name, world, x, y, z, yaw, pitch FROM vc_homes WHERE uuid = ? ORDER BY name");
             stmt.setString(1, uuid.toString());
@@ -148,35 +144,30 @@ public class HomeManager {
                         rs.getFloat("yaw"),
                         rs.getFloat("pitch")));
             }
-        } catch (SQLException e) {
+            return homes;
+        }).exceptionally(e -> {
             VonixCore.LOGGER.error("[VonixCore] Failed to list homes: {}", e.getMessage());
-        }
-        return homes;
+            return new ArrayList<>();
+        });
     }
 
-    /**
-     * Get home count for a player.
-     */
-    public int getHomeCount(UUID uuid) {
-        try (Connection conn = VonixCore.getInstance().getDatabase().getConnection()) {
-            PreparedStatement stmt = conn.prepareStatement(
-                    "SELECT COUNT(*) FROM vc_homes WHERE uuid = ?");
-            stmt.setString(1, uuid.toString());
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt(1);
-            }
-        } catch (SQLException e) {
-            VonixCore.LOGGER.error("[VonixCore] Failed to count homes: {}", e.getMessage());
+    private Home findHome(Connection conn, UUID uuid, String name) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(
+                "SELECT world, x, y, z, yaw, pitch FROM vc_homes WHERE uuid = ? AND name = ?");
+        stmt.setString(1, uuid.toString());
+        stmt.setString(2, name.toLowerCase());
+        ResultSet rs = stmt.executeQuery();
+        if (rs.next()) {
+            return new Home(
+                    name,
+                    rs.getString("world"),
+                    rs.getDouble("x"),
+                    rs.getDouble("y"),
+                    rs.getDouble("z"),
+                    rs.getFloat("yaw"),
+                    rs.getFloat("pitch"));
         }
-        return 0;
-    }
-
-    /**
-     * Check if a home exists.
-     */
-    public boolean homeExists(UUID uuid, String name) {
-        return getHome(uuid, name) != null;
+        return null;
     }
 
     /**
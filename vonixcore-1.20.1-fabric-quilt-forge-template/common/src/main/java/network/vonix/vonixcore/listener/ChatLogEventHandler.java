@@ -0,0 +1,99 @@
+package network.vonix.vonixcore.listener;
+
+import com.mojang.brigadier.ParseResults;
+import dev.architectury.event.EventResult;
+import dev.architectury.event.events.common.CommandPerformEvent;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.entity.SignBlockEntity;
+import network.vonix.vonixcore.config.DatabaseConfig;
+import network.vonix.vonixcore.consumer.Consumer;
+import network.vonix.vonixcore.consumer.Consumer.ChatLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.CommandLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.SignLogEntry;
+
+/**
+ * Feeds chat messages, player commands and sign text into the Consumer's
+ * vp_chat, vp_command and vp_sign queues.
+ *
+ * Chat and sign edits come from the platform's ServerGamePacketListenerMixin,
+ * commands from Architectury's command event. Only the raw text and the
+ * player's cached name and UUID strings are queued; nothing is formatted or
+ * copied on the calling thread.
+ */
+public class ChatLogEventHandler {
+
+    // Commands whose arguments are passwords or link codes
+    private static final String[] REDACTED = { "login", "l", "log", "register", "reg", "link" };
+
+    public static void init() {
+        CommandPerformEvent.EVENT.register(event -> {
+            if (DatabaseConfig.CONFIG.commandLogging.get()) {
+                ParseResults<CommandSourceStack> results = event.getResults();
+                if (results.getContext().getSource().getEntity() instanceof ServerPlayer player) {
+                    logCommand(player, results.getReader().getString());
+                }
+            }
+            return EventResult.pass();
+        });
+    }
+
+    /**
+     * Called by the chat mixin with the message as the player sent it.
+     */
+    public static void logChat(ServerPlayer player, String message) {
+        Consumer consumer = Consumer.getInstance();
+        if (DatabaseConfig.CONFIG.chatLogging.get() && consumer.isRunning()) {
+            consumer.queueEntry(new ChatLogEntry(System.currentTimeMillis(), player.getGameProfile().getName(),
+                    player.getStringUUID(), message));
+        }
+    }
+
+    /**
+     * Called by the sign update mixin before vanilla applies the lines.
+     * Updates vanilla would reject, from anyone but the sign's editor, are skipped.
+     */
+    public static void logSign(ServerPlayer player, BlockPos pos, String[] lines) {
+        Consumer consumer = Consumer.getInstance();
+        if (!DatabaseConfig.CONFIG.signLogging.get() || !consumer.isRunning()) {
+            return;
+        }
+        Level level = player.level();
+        if (!(level.getBlockEntity(pos) instanceof SignBlockEntity sign)
+                || !player.getUUID().equals(sign.getPlayerWhoMayEdit())) {
+            return;
+        }
+        consumer.queueEntry(new SignLogEntry(System.currentTimeMillis(), player.getGameProfile().getName(),
+                player.getStringUUID(), level.dimension().location().toString(), pos.getX(), pos.getY(), pos.getZ(),
+                lines));
+    }
+
+    private static void logCommand(ServerPlayer player, String command) {
+        Consumer consumer = Consumer.getInstance();
+        if (!consumer.isRunning()) {
+            return;
+        }
+        command = redact(command);
+        consumer.queueEntry(new CommandLogEntry(System.currentTimeMillis(), player.getGameProfile().getName(),
+                player.getStringUUID(), command));
+    }
+
+    /**
+     * @return the command without its arguments if it is one of {@link #REDACTED}
+     */
+    static String redact(String command) {
+        int start = command.startsWith("/") ? 1 : 0;
+        int end = command.indexOf(' ', start);
+        if (end < 0) {
+            return command;
+        }
+        for (String name : REDACTED) {
+            if (end - start == name.length() && command.regionMatches(true, start, name, 0, name.length())) {
+                return command.substring(0, end);
+            }
+        }
+        return command;
+    }
+}
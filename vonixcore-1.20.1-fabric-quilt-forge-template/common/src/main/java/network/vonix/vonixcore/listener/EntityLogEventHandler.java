@@ -0,0 +1,170 @@
+package network.vonix.vonixcore.listener;
+
+import dev.architectury.event.EventResult;
+import dev.architectury.event.events.common.EntityEvent;
+import dev.architectury.event.events.common.InteractionEvent;
+import dev.architectury.event.events.common.LifecycleEvent;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.InteractionHand;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.Level;
+import network.vonix.vonixcore.config.DatabaseConfig;
+import network.vonix.vonixcore.consumer.Consumer;
+import network.vonix.vonixcore.consumer.Consumer.EntityLogEntry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Feeds entities killed by players, and optionally entity right-clicks, into
+ * the Consumer's vp_entity queue.
+ *
+ * Each entity type is resolved once to its name and include/exclude verdict
+ * and cached by identity. Kills are counted per type over one-minute windows;
+ * past {@code entity_sample_threshold} in a window, as on a mob farm, only
+ * {@code entity_sample_percent} of further kills are queued. Seen and logged
+ * counts per type are kept for /vonixcore status.
+ */
+public class EntityLogEventHandler {
+
+    private static final long SAMPLE_WINDOW_MS = 60_000;
+
+    // Server-thread only
+    private static final Map<EntityType<?>, TypeStats> TYPES = new IdentityHashMap<>();
+    private static final Map<ResourceKey<Level>, String> WORLD_NAMES = new IdentityHashMap<>();
+
+    public static void init() {
+        EntityEvent.LIVING_DEATH.register((entity, source) -> {
+            if (DatabaseConfig.CONFIG.entityLogging.get() && source.getEntity() instanceof ServerPlayer player) {
+                log(player, entity, EntityLogEntry.ACTION_KILL);
+            }
+            return EventResult.pass();
+        });
+
+        InteractionEvent.INTERACT_ENTITY.register((player, entity, hand) -> {
+            if (hand == InteractionHand.MAIN_HAND && player instanceof ServerPlayer serverPlayer
+                    && DatabaseConfig.CONFIG.entityInteractionLogging.get()) {
+                log(serverPlayer, entity, EntityLogEntry.ACTION_INTERACT);
+            }
+            return EventResult.pass();
+        });
+
+        LifecycleEvent.SERVER_STOPPING.register(server -> clear());
+    }
+
+    /**
+     * Forget the cached type verdicts, counts and world names.
+     */
+    static void clear() {
+        TYPES.clear();
+        WORLD_NAMES.clear();
+    }
+
+    static void log(ServerPlayer player, Entity entity, int action) {
+        Consumer consumer = Consumer.getInstance();
+        if (!consumer.isRunning()) {
+            return;
+        }
+        TypeStats stats = stats(entity.getType());
+        stats.seen++;
+        if (!stats.included || (action == EntityLogEntry.ACTION_KILL && !sample(stats))) {
+            return;
+        }
+        stats.logged++;
+
+        String data = null;
+        if (entity instanceof Player victim) {
+            data = victim.getGameProfile().getName();
+        } else if (entity.hasCustomName()) {
+            data = entity.getCustomName().getString();
+        }
+        BlockPos pos = entity.blockPosition();
+        consumer.queueEntry(new EntityLogEntry(System.currentTimeMillis(), player.getGameProfile().getName(),
+                player.getStringUUID(), worldName(entity.level()), pos.getX(), pos.getY(), pos.getZ(), stats.name,
+                data, action));
+    }
+
+    /**
+     * @return true if this kill should be logged
+     */
+    private static boolean sample(TypeStats stats) {
+        long now = System.currentTimeMillis();
+        if (now - stats.windowStart >= SAMPLE_WINDOW_MS) {
+            stats.windowStart = now;
+            stats.windowKills = 0;
+        }
+        if (++stats.windowKills <= DatabaseConfig.CONFIG.entitySampleThreshold.get()) {
+            return true;
+        }
+        return ThreadLocalRandom.current().nextInt(100) < DatabaseConfig.CONFIG.entitySamplePercent.get();
+    }
+
+    private static TypeStats stats(EntityType<?> type) {
+        TypeStats stats = TYPES.get(type);
+        if (stats == null) {
+            String name = BuiltInRegistries.ENTITY_TYPE.getKey(type).toString();
+            Set<String> include = parseList(DatabaseConfig.CONFIG.entityInclude.get());
+            Set<String> exclude = parseList(DatabaseConfig.CONFIG.entityExclude.get());
+            stats = new TypeStats(name, (include.isEmpty() || include.contains(name)) && !exclude.contains(name));
+            TYPES.put(type, stats);
+        }
+        return stats;
+    }
+
+    private static Set<String> parseList(String list) {
+        return Arrays.stream(list.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    private static String worldName(Level level) {
+        String name = WORLD_NAMES.get(level.dimension());
+        if (name == null) {
+            name = level.dimension().location().toString();
+            WORLD_NAMES.put(level.dimension(), name);
+        }
+        return name;
+    }
+
+    /**
+     * Server thread: seen and logged events per entity type, busiest first.
+     */
+    public static List<TypeCount> getCounts() {
+        List<TypeCount> counts = new ArrayList<>(TYPES.size());
+        for (TypeStats stats : TYPES.values()) {
+            counts.add(new TypeCount(stats.name, stats.seen, stats.logged));
+        }
+        counts.sort(Comparator.comparingLong(TypeCount::seen).reversed());
+        return counts;
+    }
+
+    public record TypeCount(String type, long seen, long logged) {
+    }
+
+    private static final class TypeStats {
+        final String name;
+        final boolean included;
+        long seen;
+        long logged;
+        long windowStart;
+        int windowKills;
+
+        TypeStats(String name, boolean included) {
+            this.name = name;
+            this.included = included;
+        }
+    }
+}
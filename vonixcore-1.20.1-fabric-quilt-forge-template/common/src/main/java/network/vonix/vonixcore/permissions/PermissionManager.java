@@ -4,10 +4,14 @@ import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
 import network.vonix.vonixcore.VonixCore;
 import network.vonix.vonixcore.database.Database;
+import network.vonix.vonixcore.database.JournaledWrite;
+import network.vonix.vonixcore.database.SqlDialect;
 
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * Comprehensive permission system - LuckPerms replacement.
@@ -20,6 +24,10 @@ public class PermissionManager {
     // Cache
     private final Map<UUID, PermissionUser> userCache = new ConcurrentHashMap<>();
     private final Map<String, PermissionGroup> groupCache = new ConcurrentHashMap<>();
+    // Last queued save per user, so the next one runs after it
+    private final Map<UUID, CompletableFuture<Void>> pendingSaves = new ConcurrentHashMap<>();
+    // Users being read into the cache, so concurrent misses share one query
+    private final Map<UUID, CompletableFuture<PermissionUser>> pendingLoads = new ConcurrentHashMap<>();
 
     // LuckPerms integration fallback
     private boolean useLuckPerms = false;
@@ -46,8 +54,7 @@ public class PermissionManager {
             VonixCore.LOGGER.info("[Permissions] LuckPerms not found - using built-in system");
         }
 
-        // Create tables for built-in system
-        createTables(conn);
+        // Tables come from the startup schema migration
         loadGroups(conn);
 
         // Create default group if none exists
@@ -56,71 +63,78 @@ public class PermissionManager {
         }
     }
 
-    private void createTables(Connection conn) throws SQLException {
+    /**
+     * Create the built-in permission tables; run by the schema migrator.
+     */
+    public void createTables(Connection conn, SqlDialect dialect) throws SQLException {
+        String textType = dialect.text();
+        String timestampType = dialect.timestamp();
+        String boolType = dialect.bool(true);
+
         // Groups table
         try (Statement stmt = conn.createStatement()) {
-            stmt.executeUpdate("""
+            stmt.executeUpdate(String.format("""
                         CREATE TABLE IF NOT EXISTS vc_groups (
-                            name VARCHAR(64) PRIMARY KEY,
-                            display_name VARCHAR(128),
-                            prefix VARCHAR(256),
-                            suffix VARCHAR(256),
+                            name %s PRIMARY KEY,
+                            display_name TEXT,
+                            prefix TEXT,
+                            suffix TEXT,
                             weight INT DEFAULT 0,
-                            parent VARCHAR(64),
-                            created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                            parent %s,
+                            created_at %s DEFAULT CURRENT_TIMESTAMP
                         )
-                    """);
+                    """, textType, textType, timestampType));
         }
 
         // Group permissions table
         try (Statement stmt = conn.createStatement()) {
-            stmt.executeUpdate("""
+            stmt.executeUpdate(String.format("""
                         CREATE TABLE IF NOT EXISTS vc_group_permissions (
-                            id INTEGER PRIMARY KEY AUTOINCREMENT,
-                            group_name VARCHAR(64),
-                            permission VARCHAR(256),
-                            value BOOLEAN DEFAULT TRUE,
+                            id INTEGER PRIMARY KEY %s,
+                            group_name %s,
+                            permission %s,
+                            value %s,
                             UNIQUE(group_name, permission)
                         )
-                    """);
+                    """, dialect.autoIncrement(), textType, textType, boolType));
         }
 
         // User data table
         try (Statement stmt = conn.createStatement()) {
-            stmt.executeUpdate("""
+            stmt.executeUpdate(String.format("""
                         CREATE TABLE IF NOT EXISTS vc_user_permissions (
-                            uuid VARCHAR(36) PRIMARY KEY,
-                            username VARCHAR(16),
-                            primary_group VARCHAR(64) DEFAULT 'default',
-                            prefix VARCHAR(256),
-                            suffix VARCHAR(256),
-                            updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                            uuid %s PRIMARY KEY,
+                            username TEXT,
+                            primary_group %s DEFAULT 'default',
+                            prefix TEXT,
+                            suffix TEXT,
+                            updated_at %s DEFAULT CURRENT_TIMESTAMP
                         )
-                    """);
+                    """, textType, textType, timestampType));
         }
 
         // User additional groups
         try (Statement stmt = conn.createStatement()) {
-            stmt.executeUpdate("""
+            stmt.executeUpdate(String.format("""
                         CREATE TABLE IF NOT EXISTS vc_user_groups (
-                            uuid VARCHAR(36),
-                            group_name VARCHAR(64),
-                            expires_at TIMESTAMP NULL,
+                            uuid %s,
+                            group_name %s,
+                            expires_at %s NULL,
                             PRIMARY KEY(uuid, group_name)
                         )
-                    """);
+                    """, textType, textType, timestampType));
         }
 
         // User specific permissions
         try (Statement stmt = conn.createStatement()) {
-            stmt.executeUpdate("""
+            stmt.executeUpdate(String.format("""
                         CREATE TABLE IF NOT EXISTS vc_user_perms (
-                            uuid VARCHAR(36),
-                            permission VARCHAR(256),
-                            value BOOLEAN DEFAULT TRUE,
+                            uuid %s,
+                            permission %s,
+                            value %s,
                             PRIMARY KEY(uuid, permission)
                         )
-                    """);
+                    """, textType, textType, boolType));
         }
     }
 
@@ -134,7 +148,7 @@ public class PermissionManager {
         VonixCore.LOGGER.info("[Permissions] Created default group");
     }
 
-    private void loadGroups(Connection conn) throws SQLException {
+    void loadGroups(Connection conn) throws SQLException {
         try (PreparedStatement ps = conn.prepareStatement("SELECT * FROM vc_groups")) {
             ResultSet rs = ps.executeQuery();
             while (rs.next()) {
@@ -319,45 +333,81 @@ public class PermissionManager {
 
     // === USER MANAGEMENT ===
 
+    /**
+     * The cached user, never waiting for the database. On a miss the user is
+     * loaded in the background and a default user is returned meanwhile, so
+     * checks fall back to the default group until it arrives. Don't change
+     * and save the returned user; use {@link #editUser} for that.
+     */
     public PermissionUser getUser(UUID uuid) {
-        // IMPORTANT: Don't use computeIfAbsent with database I/O - it can cause
-        // deadlocks!
-        // The mapping function runs while holding a lock on the ConcurrentHashMap
-        // segment.
         PermissionUser user = userCache.get(uuid);
         if (user != null) {
             return user;
         }
-        // Load outside the lock
-        user = loadUser(uuid);
-        // Use putIfAbsent to handle race conditions safely
-        PermissionUser existing = userCache.putIfAbsent(uuid, user);
-        return existing != null ? existing : user;
+        preloadUser(uuid);
+        return new PermissionUser(uuid);
     }
 
-    private PermissionUser loadUser(UUID uuid) {
+    /**
+     * Load a user into the cache on the database I/O threads, e.g. on join,
+     * so later permission checks find it without a query. The future is
+     * completed on the server thread.
+     */
+    public CompletableFuture<PermissionUser> preloadUser(UUID uuid) {
+        PermissionUser cached = userCache.get(uuid);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
         Database db = VonixCore.getInstance().getDatabase();
-        if (db == null)
-            return new PermissionUser(uuid);
-
-        try (Connection conn = db.getConnection()) {
-            try (PreparedStatement ps = conn.prepareStatement(
-                    "SELECT * FROM vc_user_permissions WHERE uuid = ?")) {
-                ps.setString(1, uuid.toString());
-                ResultSet rs = ps.executeQuery();
-                if (rs.next()) {
-                    PermissionUser user = new PermissionUser(uuid);
-                    user.setUsername(rs.getString("username"));
-                    user.setPrimaryGroup(rs.getString("primary_group"));
-                    user.setPrefix(rs.getString("prefix"));
-                    user.setSuffix(rs.getString("suffix"));
-                    loadUserGroups(conn, user);
-                    loadUserPermissions(conn, user);
-                    return user;
-                }
+        if (db == null) {
+            return CompletableFuture.completedFuture(userCache.computeIfAbsent(uuid, PermissionUser::new));
+        }
+        CompletableFuture<PermissionUser> load = new CompletableFuture<>();
+        CompletableFuture<PermissionUser> pending = pendingLoads.putIfAbsent(uuid, load);
+        if (pending != null) {
+            return pending;
+        }
+        db.queryAsync(uuid, conn -> readUser(conn, uuid))
+                .exceptionally(e -> {
+                    VonixCore.LOGGER.error("[Permissions] Error loading user {}", uuid, e);
+                    return new PermissionUser(uuid);
+                })
+                .thenAccept(user -> {
+                    PermissionUser existing = userCache.putIfAbsent(uuid, user);
+                    pendingLoads.remove(uuid, load);
+                    load.complete(existing != null ? existing : user);
+                });
+        return load;
+    }
+
+    /**
+     * Change a user and save them, once they are loaded: at once if cached,
+     * otherwise on the server thread when the load finishes. Editing the
+     * stand-in {@link #getUser} returns on a miss would overwrite their
+     * stored groups and permissions.
+     */
+    public void editUser(UUID uuid, Consumer<PermissionUser> edit) {
+        preloadUser(uuid).thenAccept(user -> {
+            edit.accept(user);
+            saveUser(user);
+        });
+    }
+
+    PermissionUser readUser(Connection conn, UUID uuid) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT * FROM vc_user_permissions WHERE uuid = ?")) {
+            ps.setString(1, uuid.toString());
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                PermissionUser user = new PermissionUser(uuid);
+                user.setUsername(rs.getString("username"));
+                user.setPrimaryGroup(rs.getString("primary_group"));
+                user.setPrefix(rs.getString("prefix"));
+                user.setSuffix(rs.getString("suffix"));
+                loadUserGroups(conn, user);
+                loadUserPermissions(conn, user);
+                return user;
             }
-        } catch (SQLException e) {
-            VonixCore.LOGGER.error("[Permissions] Error loading user {}", uuid, e);
         }
         return new PermissionUser(uuid);
     }
@@ -384,78 +434,85 @@ public class PermissionManager {
         }
     }
 
+    /**
+     * Write a user's current state on the database I/O threads. Saves of one
+     * user are chained so they land in the order they were made.
+     */
     public void saveUser(PermissionUser user) {
         Database db = VonixCore.getInstance().getDatabase();
         if (db == null)
             return;
 
-        try (Connection conn = db.getConnection()) {
-            // Upsert user data
-            try (PreparedStatement ps = conn.prepareStatement("""
-                        INSERT OR REPLACE INTO vc_user_permissions
-                        (uuid, username, primary_group, prefix, suffix, updated_at)
-                        VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP)
-                    """)) {
-                ps.setString(1, user.getUuid().toString());
-                ps.setString(2, user.getUsername());
-                ps.setString(3, user.getPrimaryGroup());
-                ps.setString(4, user.getPrefix());
-                ps.setString(5, user.getSuffix());
-                ps.executeUpdate();
-            }
+        // Built now; the user may change again before the write runs
+        UUID uuid = user.getUuid();
+        JournaledWrite write = userWrite(db.getDialect(), user);
+
+        CompletableFuture<Void> save = pendingSaves.compute(uuid, (key, previous) ->
+                (previous != null ? previous : CompletableFuture.<Void>completedFuture(null))
+                        .thenCompose(ignored -> db.saveAsync(uuid, write))
+                        .exceptionally(e -> {
+                            VonixCore.LOGGER.error("[Permissions] Error saving user {}", uuid, e);
+                            return null;
+                        }));
+        save.thenRun(() -> pendingSaves.remove(uuid, save));
+    }
 
-            // Save permissions
-            try (PreparedStatement del = conn.prepareStatement("DELETE FROM vc_user_perms WHERE uuid = ?")) {
-                del.setString(1, user.getUuid().toString());
-                del.executeUpdate();
-            }
-            for (Map.Entry<String, Boolean> perm : user.getPermissions().entrySet()) {
-                try (PreparedStatement ps = conn.prepareStatement(
-                        "INSERT INTO vc_user_perms (uuid, permission, value) VALUES (?, ?, ?)")) {
-                    ps.setString(1, user.getUuid().toString());
-                    ps.setString(2, perm.getKey());
-                    ps.setBoolean(3, perm.getValue());
-                    ps.executeUpdate();
-                }
-            }
-        } catch (SQLException e) {
-            VonixCore.LOGGER.error("[Permissions] Error saving user {}", user.getUuid(), e);
-        }
+    static JournaledWrite userWrite(SqlDialect dialect, PermissionUser user) {
+        String uuid = user.getUuid().toString();
+        JournaledWrite write = new JournaledWrite().add(dialect.upsert("vc_user_permissions", "uuid",
+                "uuid", "username", "primary_group", "prefix", "suffix", "updated_at"),
+                uuid, user.getUsername(), user.getPrimaryGroup(), user.getPrefix(), user.getSuffix(),
+                new Timestamp(System.currentTimeMillis()));
+        savePermissions(dialect, write, "vc_user_perms", "uuid", uuid, user.getPermissions());
+        return write;
     }
 
     // === GROUP MANAGEMENT ===
 
     public void saveGroup(Connection conn, PermissionGroup group) throws SQLException {
-        try (PreparedStatement ps = conn.prepareStatement("""
-                    INSERT OR REPLACE INTO vc_groups
-                    (name, display_name, prefix, suffix, weight, parent)
-                    VALUES (?, ?, ?, ?, ?, ?)
-                """)) {
-            ps.setString(1, group.getName());
-            ps.setString(2, group.getDisplayName());
-            ps.setString(3, group.getPrefix());
-            ps.setString(4, group.getSuffix());
-            ps.setInt(5, group.getWeight());
-            ps.setString(6, group.getParent());
-            ps.executeUpdate();
-        }
-
-        // Save permissions
-        try (PreparedStatement del = conn.prepareStatement("DELETE FROM vc_group_permissions WHERE group_name = ?")) {
-            del.setString(1, group.getName());
-            del.executeUpdate();
-        }
-        for (Map.Entry<String, Boolean> perm : group.getPermissions().entrySet()) {
-            try (PreparedStatement ps = conn.prepareStatement(
-                    "INSERT INTO vc_group_permissions (group_name, permission, value) VALUES (?, ?, ?)")) {
-                ps.setString(1, group.getName());
-                ps.setString(2, perm.getKey());
-                ps.setBoolean(3, perm.getValue());
-                ps.executeUpdate();
-            }
-        }
+        groupWrite(VonixCore.getInstance().getDatabase().getDialect(), group).run(conn);
+        groupCache.put(group.getName(), group);
+    }
 
+    /**
+     * Save a group on the database I/O threads; kept in the outage journal
+     * while the database is unreachable.
+     */
+    public CompletableFuture<Void> saveGroupAsync(PermissionGroup group) {
         groupCache.put(group.getName(), group);
+        Database db = VonixCore.getInstance().getDatabase();
+        return db.saveAsync(null, groupWrite(db.getDialect(), group));
+    }
+
+    static JournaledWrite groupWrite(SqlDialect dialect, PermissionGroup group) {
+        JournaledWrite write = new JournaledWrite().add(dialect.upsert("vc_groups", "name",
+                "name", "display_name", "prefix", "suffix", "weight", "parent"),
+                group.getName(), group.getDisplayName(), group.getPrefix(), group.getSuffix(), group.getWeight(),
+                group.getParent());
+        savePermissions(dialect, write, "vc_group_permissions", "group_name", group.getName(), group.getPermissions());
+        return write;
+    }
+
+    /**
+     * Bring the permission rows of one user or group in line with the map:
+     * upsert every entry in one batch, then delete the rows no longer set.
+     */
+    private static void savePermissions(SqlDialect dialect, JournaledWrite write, String table, String ownerColumn,
+            String owner, Map<String, Boolean> permissions) {
+        List<String> names = new ArrayList<>(permissions.keySet());
+        String upsert = dialect.upsert(table, ownerColumn + ", permission", ownerColumn, "permission", "value");
+        for (String name : names) {
+            write.add(upsert, owner, name, permissions.get(name));
+        }
+
+        String sql = "DELETE FROM " + table + " WHERE " + ownerColumn + " = ?";
+        if (!names.isEmpty()) {
+            sql += " AND permission NOT IN (" + String.join(", ", Collections.nCopies(names.size(), "?")) + ")";
+        }
+        List<Object> params = new ArrayList<>(names.size() + 1);
+        params.add(owner);
+        params.addAll(names);
+        write.add(sql, params.toArray());
     }
 
     public void createGroup(String name) {
@@ -465,11 +522,10 @@ public class PermissionManager {
 
         Database db = VonixCore.getInstance().getDatabase();
         if (db != null) {
-            try (Connection conn = db.getConnection()) {
-                saveGroup(conn, group);
-            } catch (SQLException e) {
+            saveGroupAsync(group).exceptionally(e -> {
                 VonixCore.LOGGER.error("[Permissions] Error creating group {}", name, e);
-            }
+                return null;
+            });
         }
     }
 
@@ -480,19 +536,13 @@ public class PermissionManager {
 
         Database db = VonixCore.getInstance().getDatabase();
         if (db != null) {
-            try (Connection conn = db.getConnection()) {
-                try (PreparedStatement ps = conn.prepareStatement("DELETE FROM vc_groups WHERE name = ?")) {
-                    ps.setString(1, name.toLowerCase());
-                    ps.executeUpdate();
-                }
-                try (PreparedStatement ps = conn
-                        .prepareStatement("DELETE FROM vc_group_permissions WHERE group_name = ?")) {
-                    ps.setString(1, name.toLowerCase());
-                    ps.executeUpdate();
-                }
-            } catch (SQLException e) {
-                VonixCore.LOGGER.error("[Permissions] Error deleting group {}", name, e);
-            }
+            db.saveAsync(null, new JournaledWrite()
+                    .add("DELETE FROM vc_groups WHERE name = ?", name.toLowerCase())
+                    .add("DELETE FROM vc_group_permissions WHERE group_name = ?", name.toLowerCase()))
+                    .exceptionally(e -> {
+                        VonixCore.LOGGER.error("[Permissions] Error deleting group {}", name, e);
+                        return null;
+                    });
         }
     }
 
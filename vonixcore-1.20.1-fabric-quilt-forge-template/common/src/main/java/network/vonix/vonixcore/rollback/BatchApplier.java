@@ -0,0 +1,195 @@
+package network.vonix.vonixcore.rollback;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * The server thread's half of a rollback job. Takes the reader's
+ * {@link ChunkBatch}es off a small bounded queue and applies them one change
+ * at a time until the tick's time budget is used up, carrying on from the
+ * same change next tick. The budget is checked before every change, so a
+ * tick only runs over by the change already started.
+ *
+ * How a change reaches the world is left to a {@link Target}: the server's
+ * levels in game, a stand-in in tests.
+ */
+final class BatchApplier {
+
+    /**
+     * The world side of a job. Called on the server thread only.
+     */
+    interface Target {
+        /**
+         * Hold the batch's chunk loaded until {@link #release}.
+         *
+         * @return false if the batch's world does not exist
+         */
+        boolean hold(ChunkBatch batch);
+
+        boolean isLoaded(ChunkBatch batch);
+
+        /**
+         * @return false if the change could not be applied, e.g. its block
+         *         came from a mod that has been removed
+         */
+        boolean apply(ChunkBatch batch, int index);
+
+        void release(ChunkBatch batch);
+    }
+
+    private final Target target;
+    private final LongSupplier clock;
+    private final ArrayBlockingQueue<ChunkBatch> batches;
+    // Ids of applied rows, waiting for the reader thread to flag them
+    private final LinkedBlockingQueue<long[]> applied = new LinkedBlockingQueue<>();
+
+    // Server thread only
+    private ChunkBatch current;
+    private int index;
+    private long changed;
+    private long skipped;
+    private int chunks;
+    private long peakTickNanos;
+
+    /**
+     * @param clock {@link System#nanoTime} outside of tests
+     */
+    BatchApplier(Target target, int queuedBatches, LongSupplier clock) {
+        this.target = target;
+        this.batches = new ArrayBlockingQueue<>(queuedBatches);
+        this.clock = clock;
+    }
+
+    /**
+     * Reader thread: queue a batch, waiting up to the timeout for space.
+     */
+    boolean offer(ChunkBatch batch, long timeout, TimeUnit unit) throws InterruptedException {
+        return batches.offer(batch, timeout, unit);
+    }
+
+    /**
+     * Reader thread: the ids applied since the last call, one array per batch.
+     */
+    void drainApplied(Collection<long[]> to) {
+        applied.drainTo(to);
+    }
+
+    /**
+     * Server thread: apply changes until the budget is used up.
+     *
+     * @param readerDone no more batches will be queued
+     * @return true once everything queued has been applied and the reader is done
+     */
+    boolean tick(long budgetNanos, boolean readerDone) {
+        long start = clock.getAsLong();
+        long deadline = start + budgetNanos;
+        try {
+            while (clock.getAsLong() < deadline) {
+                if (current == null && !nextBatch()) {
+                    return readerDone && batches.isEmpty();
+                }
+                // Still loading; the ticket keeps it coming
+                if (!target.isLoaded(current)) {
+                    return false;
+                }
+                if (!apply(deadline)) {
+                    return false;
+                }
+                completeBatch();
+            }
+            return false;
+        } finally {
+            peakTickNanos = Math.max(peakTickNanos, clock.getAsLong() - start);
+        }
+    }
+
+    /**
+     * Server thread: drop whatever is still queued and let go of every chunk.
+     */
+    void clear() {
+        if (current != null) {
+            target.release(current);
+            current = null;
+        }
+        ChunkBatch batch;
+        while ((batch = batches.poll()) != null) {
+            target.release(batch);
+        }
+    }
+
+    long getChanged() {
+        return changed;
+    }
+
+    long getSkipped() {
+        return skipped;
+    }
+
+    int getChunks() {
+        return chunks;
+    }
+
+    long getPeakTickNanos() {
+        return peakTickNanos;
+    }
+
+    private boolean nextBatch() {
+        while ((current = batches.poll()) != null) {
+            if (target.hold(current)) {
+                index = 0;
+                // Start loading the next chunk while this one is applied
+                ChunkBatch next = batches.peek();
+                if (next != null) {
+                    target.hold(next);
+                }
+                return true;
+            }
+            skipped += current.size;
+        }
+        return false;
+    }
+
+    /**
+     * @return true once every change in the current batch was applied
+     */
+    private boolean apply(long deadline) {
+        ChunkBatch batch = current;
+        while (index < batch.size) {
+            if (clock.getAsLong() >= deadline) {
+                return false;
+            }
+            int i = index++;
+            if (target.apply(batch, i)) {
+                changed++;
+            } else {
+                batch.ids[i] = 0;
+                skipped++;
+            }
+        }
+        return true;
+    }
+
+    private void completeBatch() {
+        ChunkBatch batch = current;
+        long[] ids = new long[batch.size];
+        int count = 0;
+        for (int i = 0; i < batch.size; i++) {
+            if (batch.ids[i] != 0) {
+                ids[count++] = batch.ids[i];
+            }
+        }
+        if (count > 0) {
+            applied.add(count == ids.length ? ids : Arrays.copyOf(ids, count));
+        }
+
+        if (!batch.sameChunk(batches.peek())) {
+            target.release(batch);
+            chunks++;
+        }
+        current = null;
+    }
+}
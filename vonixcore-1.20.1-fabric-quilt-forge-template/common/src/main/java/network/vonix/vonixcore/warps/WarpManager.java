@@ -2,6 +2,8 @@ package network.vonix.vonixcore.warps;
 
 import net.minecraft.server.level.ServerPlayer;
 import network.vonix.vonixcore.VonixCore;
+import network.vonix.vonixcore.database.Database;
+import network.vonix.vonixcore.database.SqlDialect;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -9,9 +11,11 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Manages server warps - named teleport locations accessible to all players.
+ * Queries run on the database I/O threads and complete on the server thread.
  */
 public class WarpManager {
 
@@ -27,36 +31,38 @@ public class WarpManager {
     /**
      * Initialize warps table in database.
      */
-    public void initializeTable(Connection conn) throws SQLException {
-        conn.createStatement().execute("""
+    public void initializeTable(Connection conn, SqlDialect dialect) throws SQLException {
+        conn.createStatement().execute(String.format("""
                     CREATE TABLE IF NOT EXISTS vc_warps (
-                        name TEXT PRIMARY KEY,
+                        name %s PRIMARY KEY,
                         world TEXT NOT NULL,
-                        x DOUBLE NOT NULL,
-                        y DOUBLE NOT NULL,
-                        z DOUBLE NOT NULL,
+                        x DOUBLE PRECISION NOT NULL,
+                        y DOUBLE PRECISION NOT NULL,
+                        z DOUBLE PRECISION NOT NULL,
                         yaw REAL NOT NULL,
                         pitch REAL NOT NULL,
                         created_by TEXT,
-                        created_at INTEGER NOT NULL
+                        created_at BIGINT NOT NULL
                     )
-                """);
+                """, dialect.text()));
     }
 
     /**
      * Create or update a warp.
      */
-    public boolean setWarp(String name, ServerPlayer player) {
+    public CompletableFuture<Boolean> setWarp(String name, ServerPlayer player) {
         String world = player.level().dimension().location().toString();
         double x = player.getX();
         double y = player.getY();
         double z = player.getZ();
         float yaw = player.getYRot();
         float pitch = player.getXRot();
+        String createdBy = player.getUUID().toString();
 
-        try (Connection conn = VonixCore.getInstance().getDatabase().getConnection()) {
-            PreparedStatement stmt = conn.prepareStatement(
-                    "INSERT OR REPLACE INTO vc_warps (name, world, x, y, z, yaw, pitch, created_by, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        Database database = VonixCore.getInstance().getDatabase();
+        return database.supplyAsync(conn -> {
+            PreparedStatement stmt = conn.prepareStatement(database.getDialect().upsert("vc_warps", "name",
+                    "name", "world", "x", "y", "z", "yaw", "pitch", "created_by", "created_at"));
             stmt.setString(1, name.toLowerCase());
             stmt.setString(2, world);
             stmt.setDouble(3, x);
@@ -64,35 +70,35 @@ public class WarpManager {
             stmt.setDouble(5, z);
             stmt.setFloat(6, yaw);
             stmt.setFloat(7, pitch);
-            stmt.setString(8, player.getUUID().toString());
+            stmt.setString(8, createdBy);
             stmt.setLong(9, System.currentTimeMillis() / 1000L);
             stmt.executeUpdate();
             return true;
-        } catch (SQLException e) {
+        }).exceptionally(e -> {
             VonixCore.LOGGER.error("[VonixCore] Failed to set warp: {}", e.getMessage());
             return false;
-        }
+        });
     }
 
     /**
      * Delete a warp.
      */
-    public boolean deleteWarp(String name) {
-        try (Connection conn = VonixCore.getInstance().getDatabase().getConnection()) {
+    public CompletableFuture<Boolean> deleteWarp(String name) {
+        return VonixCore.getInstance().getDatabase().supplyAsync(conn -> {
             PreparedStatement stmt = conn.prepareStatement("DELETE FROM vc_warps WHERE name = ?");
             stmt.setString(1, name.toLowerCase());
             return stmt.executeUpdate() > 0;
-        } catch (SQLException e) {
+        }).exceptionally(e -> {
             VonixCore.LOGGER.error("[VonixCore] Failed to delete warp: {}", e.getMessage());
             return false;
-        }
+        });
     }
 
     /**
-     * Get a warp location.
+     * Get a warp location; completes with null if there is none.
      */
-    public Warp getWarp(String name) {
-        try (Connection conn = VonixCore.getInstance().getDatabase().getConnection()) {
+    public CompletableFuture<Warp> getWarp(String name) {
+        return VonixCore.getInstance().getDatabase().queryAsync(conn -> {
             PreparedStatement stmt = conn.prepareStatement(
                     "SELECT world, x, y, z, yaw, pitch FROM vc_warps WHERE name = ?");
             stmt.setString(1, name.toLowerCase());
@@ -107,18 +113,19 @@ public class WarpManager {
                         rs.getFloat("yaw"),
                         rs.getFloat("pitch"));
             }
-        } catch (SQLException e) {
+            return null;
+        }).exceptionally(e -> {
             VonixCore.LOGGER.error("[VonixCore] Failed to get warp: {}", e.getMessage());
-        }
-        return null;
+            return null;
+        });
     }
 
     /**
      * Get all warps.
      */
-    public List<Warp> getWarps() {
-        List<Warp> warps = new ArrayList<>();
-        try (Connection conn = VonixCore.getInstance().getDatabase().getConnection()) {
+    public CompletableFuture<List<Warp>> getWarps() {
+        return VonixCore.getInstance().getDatabase().queryAsync(conn -> {
+            List<Warp> warps = new ArrayList<>();
             ResultSet rs = conn.createStatement().executeQuery(
                     "SELECT name, world, x, y, z, yaw, pitch FROM vc_warps ORDER BY name");
             while (rs.next()) {
@@ -131,10 +138,11 @@ public class WarpManager {
                         rs.getFloat("yaw"),
                         rs.getFloat("pitch")));
             }
-        } catch (SQLException e) {
+            return warps;
+        }).exceptionally(e -> {
             VonixCore.LOGGER.error("[VonixCore] Failed to list warps: {}", e.getMessage());
-        }
-        return warps;
+            return new ArrayList<>();
+        });
     }
 
     /**
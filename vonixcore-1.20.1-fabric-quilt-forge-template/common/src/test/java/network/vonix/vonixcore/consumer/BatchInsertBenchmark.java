@@ -0,0 +1,118 @@
+package network.vonix.vonixcore.consumer;
+
+import network.vonix.vonixcore.consumer.Consumer.BlockLogEntry;
+import network.vonix.vonixcore.database.TestSchema;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Rows per second for block changes written the way the Consumer used to,
+ * one prepared INSERT per row, against the batched path through
+ * {@link ShardWriter}. Both commit once per round of
+ * {@value #BATCH_SIZE} entries and resolve names through a
+ * {@link Dictionary}.
+ *
+ * Run with {@code gradlew benchmark}. The round trip added for the
+ * networked case is set with {@code -Dbenchmark.roundTripMicros}.
+ */
+@Tag("benchmark")
+class BatchInsertBenchmark {
+
+    private static final int ROWS = 10_000;
+    private static final int BATCH_SIZE = 500;
+    private static final long ROUND_TRIP_MICROS = Long.getLong("benchmark.roundTripMicros", 500);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void batchedAgainstSingleInserts() throws SQLException {
+        // Warms up the JIT and the driver
+        measure("warmup-single", 0, false);
+        measure("warmup-batched", 0, true);
+
+        report("SQLite", 0);
+        report("SQLite + " + ROUND_TRIP_MICROS + "us round trip", ROUND_TRIP_MICROS);
+    }
+
+    private void report(String label, long roundTripMicros) throws SQLException {
+        double single = measure(label + "-single", roundTripMicros, false);
+        double batched = measure(label + "-batched", roundTripMicros, true);
+        System.out.printf("%s: single %,.0f rows/s, batched %,.0f rows/s (%.1fx)%n", label, single, batched,
+                batched / single);
+    }
+
+    /**
+     * @return rows per second
+     */
+    private double measure(String name, long roundTripMicros, boolean batched) throws SQLException {
+        List<BlockLogEntry> entries = entries(ROWS);
+        try (Connection target = DriverManager.getConnection("jdbc:sqlite:" + dir.resolve(name + ".db"))) {
+            TestSchema.createTables(target);
+            target.setAutoCommit(false);
+            Connection conn = RoundTripConnection.wrap(target, roundTripMicros);
+
+            long start = System.nanoTime();
+            if (batched) {
+                ShardWriter writer = new ShardWriter(0, new long[ShardWriter.LANES], new Dictionary(), false, null,
+                        null, entry -> {
+                        });
+                for (int i = 0; i < ROWS; i += BATCH_SIZE) {
+                    writer.accept(new ArrayList<>(entries.subList(i, i + BATCH_SIZE)), new long[ShardWriter.LANES]);
+                    writer.write(conn);
+                }
+            } else {
+                Dictionary dictionary = new Dictionary();
+                for (int i = 0; i < ROWS; i += BATCH_SIZE) {
+                    for (BlockLogEntry entry : entries.subList(i, i + BATCH_SIZE)) {
+                        entry.resolve(dictionary, conn);
+                        entry.execute(conn);
+                    }
+                    conn.commit();
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+
+            try (Statement stmt = target.createStatement();
+                    ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM vp_block")) {
+                assertEquals(ROWS, rs.getInt(1));
+            }
+            return ROWS * 1e9 / elapsed;
+        }
+    }
+
+    /**
+     * Block changes by a handful of players around spawn, the same on every call.
+     */
+    static List<BlockLogEntry> entries(int count) {
+        String[] materials = { "minecraft:stone", "minecraft:dirt", "minecraft:oak_planks", "minecraft:cobblestone",
+                "minecraft:glass", "minecraft:torch", "minecraft:oak_log", "minecraft:sand" };
+        Random random = new Random(42);
+        List<BlockLogEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int player = random.nextInt(8);
+            String material = materials[random.nextInt(materials.length)];
+            boolean place = random.nextBoolean();
+            entries.add(new BlockLogEntry(1_700_000_000_000L + i * 50L, "Player" + player, "uuid-" + player,
+                    "minecraft:overworld", random.nextInt(1000) - 500, 40 + random.nextInt(40),
+                    random.nextInt(1000) - 500, material, place ? "minecraft:air" : material,
+                    place ? "minecraft:air" : material, place ? material : "minecraft:air",
+                    place ? material : "minecraft:air",
+                    place ? BlockLogEntry.ACTION_PLACE : BlockLogEntry.ACTION_BREAK));
+        }
+        return entries;
+    }
+}
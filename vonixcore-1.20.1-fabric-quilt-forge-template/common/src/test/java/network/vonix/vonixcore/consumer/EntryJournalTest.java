@@ -0,0 +1,126 @@
+package network.vonix.vonixcore.consumer;
+
+import network.vonix.vonixcore.consumer.Consumer.LogEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EntryJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void entriesReplayAfterReopen() throws IOException {
+        List<LogEntry> entries = EntryCodecTest.sampleEntries();
+        EntryJournal journal = EntryJournal.open(dir, 0);
+        for (LogEntry entry : entries) {
+            journal.append(entry);
+        }
+        journal.close();
+
+        EntryJournal reopened = EntryJournal.open(dir, 0);
+        assertEquals(entries.size(), reopened.recoveredCount(0));
+        List<LogEntry> replayed = drain(reopened.replay(0));
+        assertEquals(entries.size(), replayed.size());
+        for (int i = 0; i < entries.size(); i++) {
+            assertEquals(i + 1, replayed.get(i).getSequence());
+            assertArrayEquals(EntryCodecTest.encode(entries.get(i)), EntryCodecTest.encode(replayed.get(i)));
+        }
+    }
+
+    @Test
+    void onlyEntriesPastTheStoredMarkReplay() throws IOException {
+        EntryJournal journal = EntryJournal.open(dir, 0);
+        for (LogEntry entry : EntryCodecTest.sampleEntries()) {
+            journal.append(entry);
+        }
+        journal.close();
+
+        EntryJournal reopened = EntryJournal.open(dir, 4);
+        List<LogEntry> replayed = drain(reopened.replay(4));
+        assertEquals(List.of(5L, 6L, 7L), replayed.stream().map(LogEntry::getSequence).toList());
+    }
+
+    @Test
+    void committedEntriesAreNotRecovered() throws IOException {
+        EntryJournal journal = EntryJournal.open(dir, 0);
+        List<LogEntry> entries = EntryCodecTest.sampleEntries();
+        for (LogEntry entry : entries) {
+            journal.append(entry);
+        }
+        journal.commit(entries.size());
+        journal.close();
+
+        EntryJournal reopened = EntryJournal.open(dir, entries.size());
+        assertEquals(0, reopened.recoveredCount(entries.size()));
+        assertTrue(drain(reopened.replay(entries.size())).isEmpty());
+    }
+
+    @Test
+    void tornTailIsIgnoredAndOverwritten() throws IOException {
+        List<LogEntry> entries = EntryCodecTest.sampleEntries();
+        EntryJournal journal = EntryJournal.open(dir, 0);
+        for (LogEntry entry : entries) {
+            journal.append(entry);
+        }
+        journal.close();
+        corruptLastRecord();
+
+        EntryJournal reopened = EntryJournal.open(dir, 0);
+        assertEquals(entries.size() - 1, reopened.recoveredCount(0));
+        // The torn record's sequence number is handed out again
+        LogEntry next = EntryCodecTest.sampleEntries().get(4);
+        reopened.append(next);
+        assertEquals(entries.size(), next.getSequence());
+        reopened.close();
+
+        List<LogEntry> replayed = drain(EntryJournal.open(dir, 0).replay(0));
+        assertEquals(entries.size(), replayed.size());
+        assertArrayEquals(EntryCodecTest.encode(next), EntryCodecTest.encode(replayed.get(entries.size() - 1)));
+    }
+
+    /**
+     * Flip a payload byte of the last record, as a crash mid-append would
+     * leave it.
+     */
+    private void corruptLastRecord() throws IOException {
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.filter(p -> p.getFileName().toString().endsWith(".journal")).findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            int pos = 0;
+            int last = -1;
+            int length;
+            while ((length = buffer.getInt(pos)) > 0) {
+                last = pos;
+                pos += length + 8;
+            }
+            int offset = last + 4 + buffer.getInt(last) - 1;
+            buffer.put(offset, (byte) (buffer.get(offset) ^ 0x5a));
+            buffer.force();
+        }
+    }
+
+    private static List<LogEntry> drain(Iterator<LogEntry> replay) {
+        List<LogEntry> entries = new ArrayList<>();
+        replay.forEachRemaining(entries::add);
+        return entries;
+    }
+}
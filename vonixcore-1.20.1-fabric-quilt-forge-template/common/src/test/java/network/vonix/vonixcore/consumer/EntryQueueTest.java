@@ -0,0 +1,191 @@
+package network.vonix.vonixcore.consumer;
+
+import network.vonix.vonixcore.consumer.Consumer.BatchableEntry;
+import network.vonix.vonixcore.consumer.Consumer.ChatLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.QueueEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The queue under a burst far faster than a stalled database can take:
+ * producers on several threads, one writer draining it through a JDBC
+ * stand-in that takes 2ms per batch.
+ */
+class EntryQueueTest {
+
+    private static final int CAPACITY = 1000;
+    private static final int PRODUCERS = 8;
+    private static final int PER_PRODUCER = 25_000;
+    private static final int BATCH = 256;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void dropOldestKeepsTheQueueBounded() throws Exception {
+        Run run = stress(new EntryQueue(CAPACITY, EntryQueue.OverflowPolicy.DROP_OLDEST, 0, null, e -> {
+        }), PER_PRODUCER);
+        assertTrue(run.dropped > 0, "writer kept up, the queue was never full");
+        assertEquals(PRODUCERS * PER_PRODUCER, run.written + run.dropped);
+    }
+
+    @Test
+    void blockDropsOnceTheWaitRunsOut() throws Exception {
+        // Every drop costs the producer the full wait, so fewer entries
+        int perProducer = PER_PRODUCER / 10;
+        Run run = stress(new EntryQueue(CAPACITY, EntryQueue.OverflowPolicy.BLOCK, 1, null, e -> {
+        }), perProducer);
+        assertTrue(run.dropped > 0, "writer kept up, the queue was never full");
+        assertEquals(PRODUCERS * perProducer, run.written + run.dropped);
+    }
+
+    @Test
+    void spillLosesNothing() throws Exception {
+        Run run = stress(new EntryQueue(CAPACITY, EntryQueue.OverflowPolicy.SPILL, 0, dir, e -> {
+        }), PER_PRODUCER);
+        assertTrue(run.spilled > 0, "writer kept up, the queue was never full");
+        assertEquals(0, run.dropped);
+        assertEquals(PRODUCERS * PER_PRODUCER, run.written);
+    }
+
+    @Test
+    void spilledEntriesComeBackInOrder() {
+        EntryQueue queue = new EntryQueue(CAPACITY, EntryQueue.OverflowPolicy.SPILL, 0, dir, e -> {
+        });
+        int total = CAPACITY * 5;
+        for (int i = 0; i < total; i++) {
+            assertTrue(queue.offer(entry(i)));
+        }
+        assertEquals(CAPACITY, queue.size());
+        for (int i = 0; i < total; i++) {
+            QueueEntry entry = queue.poll();
+            assertEquals(String.valueOf(i), ((ChatLogEntry) entry).message);
+        }
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void fullBlockQueueSpillsInsteadOfParkingWhenAskedTo() {
+        EntryQueue queue = new EntryQueue(CAPACITY, EntryQueue.OverflowPolicy.BLOCK, 1000, dir, e -> {
+        });
+        for (int i = 0; i < CAPACITY; i++) {
+            assertTrue(queue.offer(entry(i)));
+        }
+
+        long start = System.nanoTime();
+        assertTrue(queue.offer(entry(CAPACITY), false));
+        assertTrue(System.nanoTime() - start < 500_000_000L, "offer parked for the full block time");
+        assertEquals(1, queue.getSpilledCount());
+
+        for (int i = 0; i <= CAPACITY; i++) {
+            assertEquals(String.valueOf(i), ((ChatLogEntry) queue.poll()).message);
+        }
+    }
+
+    /**
+     * Run the producers against a slow writer until everything offered is
+     * either written or dropped, sampling the queue depth all along.
+     */
+    private static Run stress(EntryQueue queue, int perProducer) throws Exception {
+        Connection conn = slowConnection(2);
+        AtomicBoolean producing = new AtomicBoolean(true);
+        AtomicInteger maxDepth = new AtomicInteger();
+        LongAdder written = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            Thread producer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    queue.offer(entry(i));
+                    maxDepth.accumulateAndGet(queue.size(), Math::max);
+                }
+            });
+            producer.start();
+            producers.add(producer);
+        }
+
+        Thread writer = new Thread(() -> {
+            try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO vp_chat VALUES (?, ?, ?)")) {
+                while (producing.get() || !queue.isEmpty()) {
+                    int batched = 0;
+                    QueueEntry entry;
+                    while (batched < BATCH && (entry = queue.poll()) != null) {
+                        ((BatchableEntry) entry).bind(stmt);
+                        stmt.addBatch();
+                        batched++;
+                    }
+                    if (batched > 0) {
+                        stmt.executeBatch();
+                        written.add(batched);
+                    }
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        writer.start();
+
+        start.countDown();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        producing.set(false);
+        writer.join();
+
+        assertTrue(maxDepth.get() <= queue.capacity(), "queue grew past its capacity: " + maxDepth.get());
+        assertTrue(queue.getHighWaterMark() <= queue.capacity());
+        return new Run(written.sum(), queue.getDroppedCount(), queue.getSpilledCount());
+    }
+
+    private static ChatLogEntry entry(int i) {
+        return new ChatLogEntry(i, "player", null, String.valueOf(i));
+    }
+
+    /**
+     * A connection whose statements accept anything and take
+     * {@code batchMillis} per executeBatch, like a database far away.
+     */
+    private static Connection slowConnection(long batchMillis) {
+        PreparedStatement stmt = (PreparedStatement) Proxy.newProxyInstance(EntryQueueTest.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("executeBatch")) {
+                        Thread.sleep(batchMillis);
+                        return new int[0];
+                    }
+                    return null;
+                });
+        return (Connection) Proxy.newProxyInstance(EntryQueueTest.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("prepareStatement")) {
+                        return stmt;
+                    }
+                    return null;
+                });
+    }
+
+    private record Run(long written, long dropped, long spilled) {
+    }
+}
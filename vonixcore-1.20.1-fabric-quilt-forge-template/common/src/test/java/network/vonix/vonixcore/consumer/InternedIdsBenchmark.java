@@ -0,0 +1,178 @@
+package network.vonix.vonixcore.consumer;
+
+import network.vonix.vonixcore.consumer.Consumer.BlockLogEntry;
+import network.vonix.vonixcore.database.TestSchema;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Bytes per vp_block row with names stored as dictionary ids, against the
+ * old layout that repeated the user, world, type and block state names on
+ * every row. Sizes are the pages SQLite's dbstat reports for each table,
+ * without indexes.
+ *
+ * Run with {@code gradlew benchmark}.
+ */
+@Tag("benchmark")
+class InternedIdsBenchmark {
+
+    private static final int ROWS = 100_000;
+    private static final int BATCH_SIZE = 1000;
+    private static final String[] BLOCKS = { "minecraft:stone", "minecraft:dirt", "minecraft:oak_planks",
+            "minecraft:oak_stairs[facing=north,half=bottom,shape=straight,waterlogged=false]",
+            "minecraft:oak_stairs[facing=east,half=top,shape=inner_left,waterlogged=false]",
+            "minecraft:oak_log[axis=y]", "minecraft:torch", "minecraft:wall_torch[facing=south]",
+            "minecraft:oak_door[facing=west,half=lower,hinge=left,open=false,powered=false]",
+            "minecraft:redstone_wire[east=side,north=none,power=0,south=side,west=none]",
+            "minecraft:glass", "minecraft:chest[facing=north,type=single,waterlogged=false]" };
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void internedIdsAgainstRepeatedNames() throws SQLException {
+        List<BlockLogEntry> entries = entries();
+        long repeated;
+        try (Connection conn = open("repeated.db")) {
+            writeNames(conn);
+            repeated = bytes(conn, "vp_block");
+        }
+        long interned;
+        long names;
+        try (Connection conn = open("interned.db")) {
+            TestSchema.createTables(conn);
+            conn.setAutoCommit(false);
+            ShardWriter writer = new ShardWriter(0, new long[ShardWriter.LANES], new Dictionary(), false, null, null,
+                    entry -> {
+                    });
+            for (int i = 0; i < ROWS; i += BATCH_SIZE) {
+                writer.accept(new ArrayList<>(entries.subList(i, i + BATCH_SIZE)), new long[ShardWriter.LANES]);
+                writer.write(conn);
+            }
+            interned = bytes(conn, "vp_block");
+            names = bytes(conn, "vp_user", "vp_world", "vp_material", "vp_blockdata");
+        }
+
+        System.out.printf("Repeated names: %.1f bytes/row%n", (double) repeated / ROWS);
+        System.out.printf("Interned ids: %.1f bytes/row, %.1f with the name tables (%.0f%% smaller)%n",
+                (double) interned / ROWS, (double) (interned + names) / ROWS,
+                100.0 * (repeated - interned - names) / repeated);
+    }
+
+    private Connection open(String name) throws SQLException {
+        return DriverManager.getConnection("jdbc:sqlite:" + dir.resolve(name));
+    }
+
+    /**
+     * The rows of {@link #entries} in the layout from before the dictionary tables.
+     */
+    private static void writeNames(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                    CREATE TABLE vp_block (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        time BIGINT NOT NULL,
+                        user TEXT NOT NULL,
+                        world TEXT NOT NULL,
+                        x INTEGER NOT NULL,
+                        y INTEGER NOT NULL,
+                        z INTEGER NOT NULL,
+                        type TEXT NOT NULL,
+                        old_type TEXT,
+                        old_data TEXT,
+                        new_type TEXT,
+                        new_data TEXT,
+                        action INTEGER NOT NULL,
+                        rolled_back INTEGER DEFAULT 0
+                    )
+                    """);
+        }
+        conn.setAutoCommit(false);
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO vp_block (time, user, world, x, y, z,"
+                + " type, old_type, old_data, new_type, new_data, action)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            Random random = new Random(42);
+            for (int i = 0; i < ROWS; i++) {
+                Row row = row(random, i);
+                stmt.setLong(1, row.time());
+                stmt.setString(2, row.user());
+                stmt.setString(3, row.world());
+                stmt.setInt(4, row.x());
+                stmt.setInt(5, row.y());
+                stmt.setInt(6, row.z());
+                stmt.setString(7, type(row.block()));
+                stmt.setString(8, type(row.oldData()));
+                stmt.setString(9, row.oldData());
+                stmt.setString(10, type(row.newData()));
+                stmt.setString(11, row.newData());
+                stmt.setInt(12, row.action());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        conn.commit();
+    }
+
+    private static List<BlockLogEntry> entries() {
+        Random random = new Random(42);
+        List<BlockLogEntry> entries = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Row row = row(random, i);
+            entries.add(new BlockLogEntry(row.time(), row.user(), "uuid-" + row.user(), row.world(), row.x(),
+                    row.y(), row.z(), type(row.block()), type(row.oldData()), row.oldData(), type(row.newData()),
+                    row.newData(), row.action()));
+        }
+        return entries;
+    }
+
+    /**
+     * Row i of a day's block changes by 20 players across three worlds.
+     */
+    private static Row row(Random random, int i) {
+        String user = "Player_" + random.nextInt(20);
+        int world = random.nextInt(10);
+        String worldName = world < 8 ? "minecraft:overworld" : world == 8 ? "minecraft:the_nether"
+                : "minecraft:the_end";
+        String block = BLOCKS[random.nextInt(BLOCKS.length)];
+        boolean place = random.nextBoolean();
+        return new Row(1_700_000_000_000L + i * 800L, user, worldName, random.nextInt(4000) - 2000,
+                random.nextInt(120) - 60, random.nextInt(4000) - 2000, block, place ? "minecraft:air" : block,
+                place ? block : "minecraft:air", place ? BlockLogEntry.ACTION_PLACE : BlockLogEntry.ACTION_BREAK);
+    }
+
+    /**
+     * @return the block name without its state properties
+     */
+    private static String type(String data) {
+        int bracket = data.indexOf('[');
+        return bracket < 0 ? data : data.substring(0, bracket);
+    }
+
+    private static long bytes(Connection conn, String... tables) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT COALESCE(SUM(pgsize), 0) FROM dbstat"
+                + " WHERE name IN (" + "?, ".repeat(tables.length - 1) + "?)")) {
+            for (int i = 0; i < tables.length; i++) {
+                stmt.setString(i + 1, tables[i]);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private record Row(long time, String user, String world, int x, int y, int z, String block, String oldData,
+            String newData, int action) {
+    }
+}
@@ -0,0 +1,56 @@
+package network.vonix.vonixcore.consumer;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A connection that waits a fixed round trip for every statement executed,
+ * batches included, and every commit, so the benchmarks can stand a local
+ * database in for a networked one.
+ */
+final class RoundTripConnection {
+
+    private RoundTripConnection() {
+    }
+
+    static Connection wrap(Connection target, long roundTripMicros) {
+        if (roundTripMicros <= 0) {
+            return target;
+        }
+        long nanos = TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+        return (Connection) Proxy.newProxyInstance(RoundTripConnection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("commit")) {
+                        LockSupport.parkNanos(nanos);
+                    }
+                    Object result = invoke(target, method, args);
+                    if (result instanceof Statement stmt) {
+                        return delayed(stmt, method.getReturnType(), nanos);
+                    }
+                    return result;
+                });
+    }
+
+    private static Statement delayed(Statement target, Class<?> type, long nanos) {
+        return (Statement) Proxy.newProxyInstance(RoundTripConnection.class.getClassLoader(),
+                new Class<?>[] { type }, (proxy, method, args) -> {
+                    if (method.getName().startsWith("execute")) {
+                        LockSupport.parkNanos(nanos);
+                    }
+                    return invoke(target, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package network.vonix.vonixcore.consumer;
+
+import network.vonix.vonixcore.consumer.Consumer.BlockLogEntry;
+import network.vonix.vonixcore.database.TestSchema;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Block change throughput with one to four writers, each on its own
+ * connection and thread, with entries routed by chunk as the Consumer
+ * does. The database is H2, since SQLite takes one writer at a time, with
+ * a simulated network round trip on every statement and commit. H2's
+ * MySQL mode is left off as it hands concurrent transactions the same
+ * generated ids. Names are resolved before timing, so only the rows are
+ * written, and each count reports the best of {@value #RUNS} runs.
+ *
+ * Run with {@code gradlew benchmark}. The round trip is set with
+ * {@code -Dbenchmark.roundTripMicros}.
+ */
+@Tag("benchmark")
+class ShardWriterBenchmark {
+
+    private static final int ROWS = 20_000;
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_WRITERS = 4;
+    private static final int RUNS = 3;
+    private static final long ROUND_TRIP_MICROS = Long.getLong("benchmark.roundTripMicros", 500);
+
+    @Test
+    void throughputByWriterCount() throws Exception {
+        // Warms up the JIT and the driver
+        for (int writers = 1; writers <= MAX_WRITERS; writers++) {
+            measure("warmup-" + writers, writers, 0);
+        }
+
+        report("H2", 0);
+        report("H2 + " + ROUND_TRIP_MICROS + "us round trip", ROUND_TRIP_MICROS);
+    }
+
+    private void report(String label, long roundTripMicros) throws Exception {
+        double single = 0;
+        for (int writers = 1; writers <= MAX_WRITERS; writers++) {
+            double rate = 0;
+            for (int run = 0; run < RUNS; run++) {
+                rate = Math.max(rate, measure(label + "-" + writers + "-" + run, writers, roundTripMicros));
+            }
+            if (writers == 1) {
+                single = rate;
+            }
+            System.out.printf("%s, %d writer%s: %,.0f rows/s (%.1fx)%n", label, writers, writers == 1 ? "" : "s",
+                    rate, rate / single);
+        }
+    }
+
+    /**
+     * @return rows per second
+     */
+    private double measure(String name, int writerCount, long roundTripMicros) throws Exception {
+        String url = "jdbc:h2:mem:" + name.replaceAll("[^A-Za-z0-9]", "_")
+                + ";DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE;DB_CLOSE_DELAY=-1";
+        List<BlockLogEntry> entries = BatchInsertBenchmark.entries(ROWS);
+        Dictionary dictionary = new Dictionary();
+        try (Connection conn = DriverManager.getConnection(url)) {
+            TestSchema.createTables(forH2(conn));
+            for (BlockLogEntry entry : entries) {
+                entry.resolve(dictionary, conn);
+            }
+        }
+        List<List<BlockLogEntry>> routed = new ArrayList<>();
+        for (int i = 0; i < writerCount; i++) {
+            routed.add(new ArrayList<>());
+        }
+        for (BlockLogEntry entry : entries) {
+            routed.get(Math.floorMod(entry.chunkHash(), writerCount)).add(entry);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(writerCount);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> done = new ArrayList<>();
+            for (int i = 0; i < writerCount; i++) {
+                int index = i;
+                List<BlockLogEntry> share = routed.get(i);
+                done.add(executor.submit(() -> {
+                    try (Connection target = DriverManager.getConnection(url)) {
+                        target.setAutoCommit(false);
+                        Connection conn = RoundTripConnection.wrap(target, roundTripMicros);
+                        ShardWriter writer = new ShardWriter(index, new long[ShardWriter.LANES], dictionary, false,
+                                null, null, entry -> {
+                                });
+                        for (int from = 0; from < share.size(); from += BATCH_SIZE) {
+                            List<BlockLogEntry> round = share.subList(from, Math.min(share.size(), from + BATCH_SIZE));
+                            writer.accept(new ArrayList<>(round), new long[ShardWriter.LANES]);
+                            writer.write(conn);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : done) {
+                future.get();
+            }
+            long elapsed = System.nanoTime() - start;
+
+            try (Connection conn = DriverManager.getConnection(url);
+                    Statement stmt = conn.createStatement()) {
+                try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM vp_block")) {
+                    rs.next();
+                    assertEquals(ROWS, rs.getInt(1));
+                }
+                stmt.execute("SHUTDOWN");
+            }
+            return ROWS * 1e9 / elapsed;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * The schema is created with SQLite's DDL, which H2 takes once
+     * AUTOINCREMENT is spelled its way.
+     */
+    private static Connection forH2(Connection target) {
+        return (Connection) Proxy.newProxyInstance(ShardWriterBenchmark.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    Object result = invoke(target, method, args);
+                    if (result instanceof Statement stmt && method.getName().equals("createStatement")) {
+                        return forH2(stmt);
+                    }
+                    return result;
+                });
+    }
+
+    private static Statement forH2(Statement target) {
+        return (Statement) Proxy.newProxyInstance(ShardWriterBenchmark.class.getClassLoader(),
+                new Class<?>[] { Statement.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("execute")) {
+                        args[0] = ((String) args[0]).replace("AUTOINCREMENT", "AUTO_INCREMENT");
+                    }
+                    return invoke(target, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
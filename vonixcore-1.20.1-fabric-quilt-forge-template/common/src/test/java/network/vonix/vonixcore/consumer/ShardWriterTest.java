@@ -0,0 +1,223 @@
+package network.vonix.vonixcore.consumer;
+
+import network.vonix.vonixcore.consumer.Consumer.BlockLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.ChatLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.ContainerLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.QueueEntry;
+import network.vonix.vonixcore.database.TestSchema;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardWriterTest {
+
+    @TempDir
+    Path dir;
+
+    private Connection conn;
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite:" + dir.resolve("test.db"));
+        TestSchema.createTables(conn);
+        conn.setAutoCommit(false);
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    void eachTableIsWrittenWithOneBatch() throws SQLException {
+        List<QueueEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            entries.add(block(i));
+            if (i % 10 == 0) {
+                entries.add(new ChatLogEntry(i, "Steve", "uuid-steve", "message " + i));
+            }
+            if (i % 20 == 0) {
+                entries.add(new ContainerLogEntry(i, "Steve", "uuid-steve", "minecraft:overworld", i, 64, 0,
+                        "minecraft:chest", "minecraft:diamond", 3, ContainerLogEntry.ACTION_ADD));
+            }
+        }
+        ShardWriter writer = writer();
+        writer.accept(entries, new long[ShardWriter.LANES]);
+
+        Counting counting = new Counting(conn);
+        assertEquals(entries.size(), writer.write(counting.connection));
+
+        assertEquals(1000, count("vp_block"));
+        assertEquals(100, count("vp_chat"));
+        assertEquals(50, count("vp_container"));
+        for (String table : List.of("vp_block", "vp_chat", "vp_container")) {
+            assertEquals(1, counting.prepared(table), table);
+            assertEquals(1, counting.batches(table), table);
+        }
+    }
+
+    @Test
+    void rejectedRowDoesNotCostTheRestOfItsBatch() throws SQLException {
+        List<QueueEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            // vp_chat.message is NOT NULL
+            entries.add(new ChatLogEntry(i, "Steve", "uuid-steve", i == 4 ? null : "message " + i));
+        }
+        ShardWriter writer = writer();
+        writer.accept(entries, new long[ShardWriter.LANES]);
+
+        assertEquals(9, writer.write(conn));
+        assertEquals(9, count("vp_chat"));
+        assertTrue(writer.isEmpty());
+    }
+
+    @Test
+    void failedDirectEntryLeavesNothingBehind() throws SQLException {
+        List<QueueEntry> entries = new ArrayList<>();
+        entries.add(tx -> insertChat(tx, "before"));
+        entries.add(tx -> {
+            insertChat(tx, "partial");
+            throw new SQLException("second statement failed");
+        });
+        entries.add(tx -> insertChat(tx, "after"));
+        entries.add(new ChatLogEntry(0, "Steve", "uuid-steve", "batched"));
+        ShardWriter writer = writer();
+        writer.accept(entries, new long[ShardWriter.LANES]);
+
+        assertEquals(3, writer.write(conn));
+        List<String> messages = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT message FROM vp_chat ORDER BY rowid")) {
+            while (rs.next()) {
+                messages.add(rs.getString(1));
+            }
+        }
+        assertEquals(List.of("before", "after", "batched"), messages);
+        assertTrue(writer.isEmpty());
+    }
+
+    @Test
+    void namesAreStoredOnce() throws SQLException {
+        List<QueueEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            entries.add(block(i));
+        }
+        ShardWriter writer = writer();
+        writer.accept(entries, new long[ShardWriter.LANES]);
+        writer.write(conn);
+
+        assertEquals(1, count("vp_user"));
+        assertEquals(1, count("vp_world"));
+        // stone and air
+        assertEquals(2, count("vp_material"));
+        assertEquals(2, count("vp_blockdata"));
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COUNT(DISTINCT \"user\") FROM vp_block")) {
+            assertEquals(1, rs.getInt(1));
+        }
+    }
+
+    private ShardWriter writer() {
+        return new ShardWriter(0, new long[ShardWriter.LANES], new Dictionary(), false, null, null, entry -> {
+        });
+    }
+
+    static BlockLogEntry block(int i) {
+        return new BlockLogEntry(1_700_000_000_000L + i, "Steve", "uuid-steve", "minecraft:overworld", i, 64, 0,
+                "minecraft:stone", "minecraft:air", "minecraft:air", "minecraft:stone", "minecraft:stone",
+                BlockLogEntry.ACTION_PLACE);
+    }
+
+    private static void insertChat(Connection tx, String message) throws SQLException {
+        try (PreparedStatement stmt = tx.prepareStatement(
+                "INSERT INTO vp_chat (time, \"user\", message) VALUES (0, 1, ?)")) {
+            stmt.setString(1, message);
+            stmt.executeUpdate();
+        }
+    }
+
+    private int count(String table) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            return rs.getInt(1);
+        }
+    }
+
+    /**
+     * Counts the statements prepared and batches run per table on a connection.
+     */
+    private static final class Counting {
+        final Connection connection;
+        private final Map<String, Integer> prepared = new ConcurrentHashMap<>();
+        private final Map<String, Integer> batches = new ConcurrentHashMap<>();
+
+        Counting(Connection target) {
+            connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                        Object result = invoke(target, method, args);
+                        if (method.getName().equals("prepareStatement")) {
+                            String table = table((String) args[0]);
+                            prepared.merge(table, 1, Integer::sum);
+                            return countBatches((PreparedStatement) result, table);
+                        }
+                        return result;
+                    });
+        }
+
+        int prepared(String table) {
+            return prepared.getOrDefault(table, 0);
+        }
+
+        int batches(String table) {
+            return batches.getOrDefault(table, 0);
+        }
+
+        private PreparedStatement countBatches(PreparedStatement target, String table) {
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+                        if (method.getName().equals("executeBatch")) {
+                            batches.merge(table, 1, Integer::sum);
+                        }
+                        return invoke(target, method, args);
+                    });
+        }
+
+        private static String table(String sql) {
+            String[] words = sql.trim().split("\\s+");
+            for (int i = 0; i < words.length - 1; i++) {
+                if (words[i].equalsIgnoreCase("INTO") || words[i].equalsIgnoreCase("UPDATE")
+                        || words[i].equalsIgnoreCase("FROM")) {
+                    return words[i + 1];
+                }
+            }
+            return sql;
+        }
+
+        private static Object invoke(Object target, java.lang.reflect.Method method, Object[] args)
+                throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
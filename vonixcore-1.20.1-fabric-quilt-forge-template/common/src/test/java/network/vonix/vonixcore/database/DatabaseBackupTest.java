@@ -0,0 +1,158 @@
+package network.vonix.vonixcore.database;
+
+import network.vonix.vonixcore.config.DatabaseConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hot backups of a SQLite database taking 10,000 inserts a second. Each
+ * copy has to pass a full integrity check and hold one consistent snapshot,
+ * and the inserts have to keep going while it is made.
+ */
+@Tag("slow")
+class DatabaseBackupTest {
+
+    private static final int PREFILL = 200_000;
+    private static final int BATCH = 500;
+    private static final int BATCHES_PER_SECOND = 20;
+    private static final int BACKUPS = 3;
+
+    @TempDir
+    Path dir;
+
+    private Database database;
+    private int pauseMs;
+    private final ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    void open() throws SQLException {
+        pauseMs = DatabaseConfig.CONFIG.backupPauseMs.get();
+        // Long enough that every copy spans many batches
+        DatabaseConfig.CONFIG.backupPauseMs.set(20);
+        database = new Database(null) {
+            @Override
+            public Path getDataDirectory() {
+                return dir;
+            }
+        };
+        database.initialize();
+        for (int i = 0; i < PREFILL / BATCH; i++) {
+            database.write(conn -> {
+                Database.inTransaction(conn, DatabaseBackupTest::insert);
+                return null;
+            });
+        }
+    }
+
+    @AfterEach
+    void close() {
+        database.close();
+        DatabaseConfig.CONFIG.backupPauseMs.set(pauseMs);
+    }
+
+    @Test
+    void backupsUnderInsertLoadPassIntegrityCheck() throws Exception {
+        AtomicLong rows = new AtomicLong(PREFILL);
+        AtomicLong batches = new AtomicLong();
+        Thread inserter = new Thread(() -> {
+            long next = System.nanoTime();
+            while (!Thread.currentThread().isInterrupted() && errors.isEmpty()) {
+                try {
+                    database.write(conn -> {
+                        Database.inTransaction(conn, DatabaseBackupTest::insert);
+                        return null;
+                    });
+                    rows.addAndGet(BATCH);
+                    batches.incrementAndGet();
+                    next += TimeUnit.MILLISECONDS.toNanos(1000 / BATCHES_PER_SECOND);
+                    TimeUnit.NANOSECONDS.sleep(next - System.nanoTime());
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }
+        }, "Inserter");
+        inserter.start();
+
+        try {
+            for (int i = 0; i < BACKUPS; i++) {
+                Path file = dir.resolve("backup-" + i + ".db");
+                long rowsBefore = rows.get();
+                long batchesBefore = batches.get();
+                long start = System.nanoTime();
+                DatabaseBackup.copySqlite(database, file);
+                long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                long rowsAfter = rows.get();
+                long inserted = batches.get() - batchesBefore;
+                System.out.printf("Backup %d: %d ms, %.1f MB, %d batches inserted meanwhile%n", i, ms,
+                        Files.size(file) / (1024.0 * 1024.0), inserted);
+
+                assertEquals("ok", integrityCheck(file));
+                assertFalse(Files.exists(dir.resolve("backup-" + i + ".db.part")));
+                assertFalse(Files.exists(dir.resolve("backup-" + i + ".db-wal")));
+                // One snapshot, taken somewhere between the two counts
+                long copied = count(file);
+                assertTrue(copied >= rowsBefore && copied <= rowsAfter,
+                        copied + " rows, expected " + rowsBefore + ".." + rowsAfter);
+                assertEquals(0, copied % BATCH, "a batch copied in part");
+                // The copy doesn't hold the writer up: inserts kept their rate
+                assertTrue(inserted >= ms * BATCHES_PER_SECOND / 1000 / 2,
+                        inserted + " batches in " + ms + " ms");
+            }
+        } finally {
+            inserter.interrupt();
+            inserter.join(10_000);
+        }
+        assertEquals(List.of(), errors.stream().map(Throwable::toString).toList());
+    }
+
+    private static void insert(Connection tx) throws SQLException {
+        try (PreparedStatement stmt = tx.prepareStatement(
+                "INSERT INTO vp_chat (time, \"user\", message) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < BATCH; i++) {
+                stmt.setLong(1, System.currentTimeMillis());
+                stmt.setInt(2, i % 50);
+                stmt.setString(3, "message " + i + " with enough text to fill a page now and then");
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private static String integrityCheck(Path file) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file);
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("PRAGMA integrity_check")) {
+            return rs.next() ? rs.getString(1) : "no result";
+        }
+    }
+
+    private static long count(Path file) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file);
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM vp_chat")) {
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package network.vonix.vonixcore.database;
+
+import network.vonix.vonixcore.config.DatabaseConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Saves made while the primary is down: they complete once kept in the
+ * outage journal, and {@link Database#whenJournalWritten} tells when they
+ * have reached the database.
+ */
+class DatabaseOutageTest {
+
+    @TempDir
+    Path dir;
+
+    private String url;
+    private FaultyDataSource primary;
+    private Database database;
+    private int failures;
+    private int retrySeconds;
+
+    @BeforeEach
+    void open() throws SQLException {
+        failures = DatabaseConfig.CONFIG.breakerFailures.get();
+        retrySeconds = DatabaseConfig.CONFIG.breakerRetrySeconds.get();
+        DatabaseConfig.CONFIG.breakerFailures.set(2);
+        DatabaseConfig.CONFIG.breakerRetrySeconds.set(1);
+
+        url = "jdbc:sqlite:" + dir.resolve("remote.db");
+        try (Connection conn = DriverManager.getConnection(url);
+                Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE vc_kit_cooldowns (uuid TEXT NOT NULL, kit_name TEXT NOT NULL,"
+                    + " last_used BIGINT NOT NULL, PRIMARY KEY (uuid, kit_name))");
+        }
+        primary = new FaultyDataSource(url);
+        database = new Database(null) {
+            @Override
+            public Path getDataDirectory() {
+                return dir;
+            }
+
+            @Override
+            void executeOnServer(Runnable task) {
+                task.run();
+            }
+        };
+        database.initialize(Database.DatabaseType.POSTGRESQL, primary, null);
+    }
+
+    @AfterEach
+    void close() {
+        database.close();
+        DatabaseConfig.CONFIG.breakerFailures.set(failures);
+        DatabaseConfig.CONFIG.breakerRetrySeconds.set(retrySeconds);
+    }
+
+    @Test
+    void nothingToWaitForWithoutAnOutage() throws Exception {
+        UUID player = UUID.randomUUID();
+        database.saveAsync(player, cooldown(player, 100)).get(10, TimeUnit.SECONDS);
+
+        assertTrue(database.whenJournalWritten().isDone());
+        assertEquals(100, lastUsed(player));
+    }
+
+    @Test
+    void journaledSavesAreReportedOnceWritten() throws Exception {
+        UUID player = UUID.randomUUID();
+        primary.down = true;
+        // Fails for want of a connection, goes into the journal and opens the breaker
+        database.saveAsync(player, cooldown(player, 100)).get(10, TimeUnit.SECONDS);
+        CompletableFuture<Void> written = database.whenJournalWritten();
+        // Joins the journal without trying the database
+        database.saveAsync(player, cooldown(player, 200)).get(10, TimeUnit.SECONDS);
+
+        assertFalse(written.isDone());
+        assertEquals(0, lastUsed(player));
+
+        primary.down = false;
+        written.get(10, TimeUnit.SECONDS);
+        assertEquals(200, lastUsed(player));
+        assertTrue(database.whenJournalWritten().isDone());
+    }
+
+    private JournaledWrite cooldown(UUID player, long time) {
+        String upsert = database.getDialect().upsert("vc_kit_cooldowns",
+                "uuid, kit_name", "uuid", "kit_name", "last_used");
+        return new JournaledWrite().add(upsert, player.toString(), "starter", time);
+    }
+
+    /**
+     * Read past the pool, which refuses while the primary is down.
+     */
+    private long lastUsed(UUID player) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url);
+                PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT last_used FROM vc_kit_cooldowns WHERE uuid = ?")) {
+            stmt.setString(1, player.toString());
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package network.vonix.vonixcore.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Log tables from before names were interned, holding rows, are moved
+ * aside and copied into the new layout when the schema is created.
+ */
+class LegacyLogTableTest {
+
+    private static final int ROWS = 1000;
+
+    @TempDir
+    Path dir;
+
+    private Connection conn;
+
+    @BeforeEach
+    void createLegacyTables() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite:" + dir.resolve("test.db"));
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                    CREATE TABLE vp_block (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        time BIGINT NOT NULL,
+                        user TEXT NOT NULL,
+                        world TEXT NOT NULL,
+                        x INTEGER NOT NULL,
+                        y INTEGER NOT NULL,
+                        z INTEGER NOT NULL,
+                        type TEXT NOT NULL,
+                        old_type TEXT,
+                        old_data TEXT,
+                        new_type TEXT,
+                        new_data TEXT,
+                        action INTEGER NOT NULL,
+                        rolled_back INTEGER DEFAULT 0
+                    )
+                    """);
+            stmt.execute("CREATE INDEX idx_block_time ON vp_block (time)");
+            stmt.execute("""
+                    CREATE TABLE vp_chat (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        time BIGINT NOT NULL,
+                        user TEXT NOT NULL,
+                        message TEXT NOT NULL
+                    )
+                    """);
+            // Empty, so simply recreated
+            stmt.execute("""
+                    CREATE TABLE vp_command (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        time BIGINT NOT NULL,
+                        user TEXT NOT NULL,
+                        command TEXT NOT NULL
+                    )
+                    """);
+            stmt.execute("""
+                    CREATE TABLE vp_user (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        uuid TEXT UNIQUE NOT NULL,
+                        username TEXT NOT NULL
+                    )
+                    """);
+            stmt.execute("INSERT INTO vp_user (uuid, username) VALUES ('uuid-steve', 'Steve')");
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO vp_block (time, user, world, x, y, z, type,"
+                + " old_type, old_data, new_type, new_data, action, rolled_back) VALUES (?, ?, ?, ?, 64, 0, ?, ?, ?, ?,"
+                + " ?, ?, ?)")) {
+            for (int i = 0; i < ROWS; i++) {
+                boolean placed = i % 2 == 0;
+                stmt.setLong(1, i);
+                stmt.setString(2, i % 3 == 0 ? "#creeper" : "Steve");
+                stmt.setString(3, i % 4 == 0 ? "minecraft:the_nether" : "minecraft:overworld");
+                stmt.setInt(4, i);
+                stmt.setString(5, placed ? "minecraft:stone" : "minecraft:air");
+                stmt.setString(6, placed ? "minecraft:air" : "minecraft:stone");
+                stmt.setString(7, placed ? null : "minecraft:stone");
+                stmt.setString(8, placed ? "minecraft:stone" : "minecraft:air");
+                stmt.setString(9, placed ? "minecraft:stone" : null);
+                stmt.setInt(10, placed ? 1 : 0);
+                stmt.setInt(11, i % 5 == 0 ? 1 : 0);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO vp_chat (time, user, message) VALUES (1, 'Steve', 'hello')");
+        }
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    void rowsAreCopiedWithTheirNamesInterned() throws SQLException {
+        TestSchema.createTables(conn);
+
+        assertEquals(ROWS, query("SELECT COUNT(*) FROM vp_block"));
+        assertEquals(ROWS, query("""
+                SELECT COUNT(*) FROM vp_block b
+                JOIN vp_user u ON u.id = b."user"
+                JOIN vp_world w ON w.id = b.world
+                JOIN vp_material t ON t.id = b.type
+                WHERE u.username = CASE WHEN b.x % 3 = 0 THEN '#creeper' ELSE 'Steve' END
+                  AND w.name = CASE WHEN b.x % 4 = 0 THEN 'minecraft:the_nether' ELSE 'minecraft:overworld' END
+                  AND t.name = CASE WHEN b.x % 2 = 0 THEN 'minecraft:stone' ELSE 'minecraft:air' END
+                  AND b.time = b.x AND b.rolled_back = (b.x % 5 = 0)
+                """));
+        // Missing names stay missing
+        assertEquals(ROWS / 2, query("SELECT COUNT(*) FROM vp_block WHERE old_data IS NULL"));
+        assertEquals(ROWS / 2, query("""
+                SELECT COUNT(*) FROM vp_block b JOIN vp_blockdata d ON d.id = b.new_data
+                WHERE d.name = 'minecraft:stone'
+                """));
+
+        // The known player keeps their id, the source tag gets one like the Consumer gives it
+        assertEquals(1, query("SELECT id FROM vp_user WHERE username = 'Steve'"));
+        assertEquals(1, query("SELECT COUNT(*) FROM vp_user WHERE uuid = '#creeper' AND username = '#creeper'"));
+        assertEquals(2, query("SELECT COUNT(*) FROM vp_user"));
+        assertEquals(1, query("SELECT COUNT(*) FROM vp_chat c JOIN vp_user u ON u.id = c.\"user\""
+                + " WHERE u.username = 'Steve' AND c.message = 'hello'"));
+    }
+
+    @Test
+    void oldTablesAreGoneAndTheNewOnesTakeIds() throws SQLException {
+        TestSchema.createTables(conn);
+
+        for (String table : new String[] { "vp_block_legacy", "vp_chat_legacy", "vp_command_legacy" }) {
+            try (ResultSet rs = conn.getMetaData().getTables(null, null, table, null)) {
+                assertFalse(rs.next(), table);
+            }
+        }
+        try (ResultSet rs = conn.getMetaData().getColumns(null, null, "vp_block", "user")) {
+            rs.next();
+            assertEquals("INTEGER", rs.getString("TYPE_NAME"));
+        }
+        // Taken off the old table so the new one could have it
+        try (ResultSet rs = conn.getMetaData().getIndexInfo(null, null, "vp_block", false, false)) {
+            boolean timeIndex = false;
+            while (rs.next()) {
+                timeIndex |= "idx_block_time".equals(rs.getString("INDEX_NAME"));
+            }
+            assertTrue(timeIndex, "idx_block_time is missing from the new vp_block");
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO vp_command (time, \"user\", command) VALUES (2, 1, '/spawn')");
+            stmt.executeUpdate("INSERT INTO vp_block (time, \"user\", world, x, y, z, type, action)"
+                    + " VALUES (2, 1, 1, 0, 0, 0, 1, 0)");
+        }
+        assertEquals(ROWS + 1, query("SELECT COUNT(*) FROM vp_block"));
+    }
+
+    @Test
+    void runningAgainChangesNothing() throws SQLException {
+        TestSchema.createTables(conn);
+        TestSchema.createTables(conn);
+
+        assertEquals(ROWS, query("SELECT COUNT(*) FROM vp_block"));
+        assertEquals(2, query("SELECT COUNT(*) FROM vp_user"));
+        assertEquals(2, query("SELECT COUNT(*) FROM vp_world"));
+    }
+
+    private int query(String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package network.vonix.vonixcore.database;
+
+import network.vonix.vonixcore.config.DatabaseConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Where reads go with a replica configured. The primary and the replica
+ * are separate files that each name themselves, so every read shows
+ * which one answered it.
+ */
+class ReadReplicaTest {
+
+    private static final int STICKY_MS = 500;
+
+    @TempDir
+    Path dir;
+
+    private FaultyDataSource primary;
+    private FaultyDataSource replica;
+    private Database database;
+    private int stickyMs;
+
+    @BeforeEach
+    void open() throws SQLException {
+        stickyMs = DatabaseConfig.CONFIG.replicaStickyMs.get();
+        DatabaseConfig.CONFIG.replicaStickyMs.set(STICKY_MS);
+        primary = new FaultyDataSource(named("primary"));
+        replica = new FaultyDataSource(named("replica"));
+        database = new Database(null) {
+            @Override
+            public Path getDataDirectory() {
+                return dir;
+            }
+
+            @Override
+            void executeOnServer(Runnable task) {
+                task.run();
+            }
+        };
+        database.initialize(Database.DatabaseType.POSTGRESQL, primary, replica);
+    }
+
+    @AfterEach
+    void close() {
+        database.close();
+        DatabaseConfig.CONFIG.replicaStickyMs.set(stickyMs);
+    }
+
+    @Test
+    void readsGoToTheReplica() throws Exception {
+        assertEquals("replica", read(null));
+        assertEquals("replica", read(UUID.randomUUID()));
+    }
+
+    @Test
+    void playerReadsStayOnThePrimaryAfterTheirWrite() throws Exception {
+        UUID player = UUID.randomUUID();
+        database.runAsync(player, conn -> {
+        }).get(10, TimeUnit.SECONDS);
+
+        assertEquals("primary", read(player));
+        // Only the writer's reads are held back
+        assertEquals("replica", read(UUID.randomUUID()));
+        assertEquals("replica", read(null));
+
+        Thread.sleep(STICKY_MS + 100);
+        assertEquals("replica", read(player));
+    }
+
+    @Test
+    void readsFallBackToThePrimaryWhileTheReplicaIsDown() throws Exception {
+        replica.down = true;
+        assertEquals("primary", read(null));
+
+        // The replica is left alone for a while rather than tried on every read
+        int attempts = replica.attempts.get();
+        assertEquals("primary", read(null));
+        assertEquals("primary", read(UUID.randomUUID()));
+        assertEquals(attempts, replica.attempts.get());
+    }
+
+    private String read(UUID player) throws Exception {
+        return database.queryAsync(player, conn -> {
+            try (Statement stmt = conn.createStatement();
+                    ResultSet rs = stmt.executeQuery("SELECT name FROM source")) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }).get(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return the URL of a new database holding its own name
+     */
+    private String named(String name) throws SQLException {
+        String url = "jdbc:sqlite:" + dir.resolve(name + ".db");
+        try (Connection conn = DriverManager.getConnection(url);
+                Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE source (name TEXT NOT NULL)");
+            stmt.execute("INSERT INTO source (name) VALUES ('" + name + "')");
+        }
+        return url;
+    }
+}
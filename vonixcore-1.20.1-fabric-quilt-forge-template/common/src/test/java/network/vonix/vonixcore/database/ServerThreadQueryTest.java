@@ -0,0 +1,164 @@
+package network.vonix.vonixcore.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Database calls made from a stand-in server thread, watched as they are
+ * once the server has started. Any JDBC call from that thread fails the
+ * test.
+ */
+class ServerThreadQueryTest {
+
+    @TempDir
+    Path dir;
+
+    private ExecutorService server;
+    private Thread serverThread;
+    private ServerDatabase database;
+
+    @BeforeEach
+    void start() throws Exception {
+        server = Executors.newSingleThreadExecutor(r -> new Thread(r, "Server thread"));
+        serverThread = onServerThread(Thread::currentThread);
+        database = new ServerDatabase(dir);
+        database.initialize();
+        onServerThread(() -> {
+            database.watchServerThread(true);
+            return null;
+        });
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        database.close();
+        server.shutdown();
+        assertTrue(server.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void asyncCallsKeepJdbcOffTheServerThread() throws Exception {
+        List<String> callbackThreads = new ArrayList<>();
+        CompletableFuture<Integer> done = onServerThread(() -> database
+                .runAsync(conn -> {
+                    try (PreparedStatement stmt = conn.prepareStatement(
+                            "INSERT INTO vonixcore_warps (name, world, x, y, z) VALUES (?, ?, 0, 64, 0)")) {
+                        stmt.setString(1, "spawn");
+                        stmt.setString(2, "minecraft:overworld");
+                        stmt.executeUpdate();
+                    }
+                })
+                .thenCompose(ignored -> {
+                    callbackThreads.add(Thread.currentThread().getName());
+                    return database.supplyAsync(conn -> {
+                        try (PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM vonixcore_warps");
+                                ResultSet rs = stmt.executeQuery()) {
+                            return rs.getInt(1);
+                        }
+                    });
+                })
+                .thenApply(count -> {
+                    callbackThreads.add(Thread.currentThread().getName());
+                    return count;
+                }));
+
+        assertEquals(1, done.get(10, TimeUnit.SECONDS));
+        assertEquals(List.of("Server thread", "Server thread"), callbackThreads);
+        assertNoServerThreadQueries();
+    }
+
+    @Test
+    void failedAsyncCallCompletesOnTheServerThread() throws Exception {
+        CompletableFuture<String> failed = onServerThread(() -> database
+                .supplyAsync(conn -> {
+                    try (PreparedStatement stmt = conn.prepareStatement("SELECT * FROM no_such_table")) {
+                        stmt.executeQuery();
+                    }
+                    return "unreachable";
+                })
+                .handle((result, e) -> e instanceof SQLException ? Thread.currentThread().getName() : result));
+
+        assertEquals("Server thread", failed.get(10, TimeUnit.SECONDS));
+        assertNoServerThreadQueries();
+    }
+
+    /**
+     * The check itself: what the tests above would catch.
+     */
+    @Test
+    void directCallsOnTheServerThreadAreCounted() throws Exception {
+        onServerThread(() -> {
+            try (Connection conn = database.getConnection()) {
+                return null;
+            }
+        });
+        onServerThread(() -> database.write(conn -> null));
+        assertEquals(2, database.getServerThreadQueries());
+
+        // Off the server thread, or before it has started, nothing is counted
+        try (Connection conn = database.getConnection()) {
+            database.write(c -> null);
+        }
+        onServerThread(() -> {
+            database.watchServerThread(false);
+            try (Connection conn = database.getConnection()) {
+                return null;
+            }
+        });
+        assertEquals(2, database.getServerThreadQueries());
+    }
+
+    private void assertNoServerThreadQueries() {
+        assertEquals(0, database.getServerThreadQueries(), "JDBC calls made on the server thread");
+    }
+
+    private <T> T onServerThread(Callable<T> task) throws Exception {
+        return server.submit(task).get(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * A SQLite database in a temporary world folder, whose server thread is
+     * the test's.
+     */
+    private final class ServerDatabase extends Database {
+        private final Path dataDirectory;
+
+        ServerDatabase(Path dataDirectory) {
+            super(null);
+            this.dataDirectory = dataDirectory;
+        }
+
+        @Override
+        public Path getDataDirectory() {
+            return dataDirectory;
+        }
+
+        @Override
+        boolean isServerThread() {
+            return Thread.currentThread() == serverThread;
+        }
+
+        @Override
+        void executeOnServer(Runnable task) {
+            server.execute(task);
+        }
+    }
+}
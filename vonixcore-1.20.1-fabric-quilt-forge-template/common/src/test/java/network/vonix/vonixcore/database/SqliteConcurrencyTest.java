@@ -0,0 +1,232 @@
+package network.vonix.vonixcore.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 8 threads writing and 16 reading one SQLite file at once, as the log
+ * consumer, saves and lookups do on a busy server. Writers queue on the
+ * writer thread and readers use the read-only pool, so no one may see
+ * SQLITE_BUSY and latency must not climb as the file grows.
+ */
+class SqliteConcurrencyTest {
+
+    private static final int WRITERS = 8;
+    private static final int READERS = 16;
+    private static final long WINDOW_MS = 1500;
+    private static final int WINDOWS = 4;
+    private static final int ROWS_PER_WRITE = 20;
+
+    @TempDir
+    Path dir;
+
+    private Database database;
+    private final ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    void open() throws SQLException {
+        database = new Database(null) {
+            @Override
+            public Path getDataDirectory() {
+                return dir;
+            }
+        };
+        database.initialize();
+    }
+
+    @AfterEach
+    void close() {
+        database.close();
+    }
+
+    @Test
+    void poolConnectionsCannotWrite() throws SQLException {
+        try (Connection conn = database.getConnection(); Statement stmt = conn.createStatement()) {
+            assertThrows(SQLException.class,
+                    () -> stmt.executeUpdate("INSERT INTO vp_chat (time, \"user\", message) VALUES (1, 1, 'hi')"));
+        }
+    }
+
+    @Tag("slow")
+    @Test
+    void writersAndReadersNeverHitBusy() throws Exception {
+        Latencies writes = new Latencies();
+        Latencies reads = new Latencies();
+        AtomicLong rowsWritten = new AtomicLong();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.MILLISECONDS.toNanos(WINDOW_MS * WINDOWS);
+        CountDownLatch done = new CountDownLatch(WRITERS + READERS);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            threads.add(new Thread(() -> {
+                int n = 0;
+                while (System.nanoTime() < end && errors.isEmpty()) {
+                    int batch = n++;
+                    long t0 = System.nanoTime();
+                    try {
+                        database.write(conn -> {
+                            Database.inTransaction(conn, tx -> insert(tx, writer, batch));
+                            return null;
+                        });
+                        rowsWritten.addAndGet(ROWS_PER_WRITE);
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    }
+                    writes.add(t0 - start, System.nanoTime() - t0);
+                }
+                done.countDown();
+            }, "Writer " + w));
+        }
+        for (int r = 0; r < READERS; r++) {
+            int reader = r;
+            threads.add(new Thread(() -> {
+                while (System.nanoTime() < end && errors.isEmpty()) {
+                    long t0 = System.nanoTime();
+                    try {
+                        read(reader);
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    }
+                    reads.add(t0 - start, System.nanoTime() - t0);
+                }
+                done.countDown();
+            }, "Reader " + r));
+        }
+        threads.forEach(Thread::start);
+        assertTrue(done.await(WINDOW_MS * WINDOWS + 30_000, TimeUnit.MILLISECONDS));
+
+        assertEquals(List.of(), errors.stream().map(Throwable::toString).toList());
+        assertEquals(rowsWritten.get(), count());
+
+        long[] writeP99 = writes.p99PerWindow();
+        long[] readP99 = reads.p99PerWindow();
+        System.out.printf("%d writes, %d reads, %d rows%n", writes.count(), reads.count(), rowsWritten.get());
+        System.out.println("Write p99 per window (ms): " + Arrays.toString(writeP99));
+        System.out.println("Read p99 per window (ms): " + Arrays.toString(readP99));
+        assertStable(writeP99, 500);
+        assertStable(readP99, 100);
+    }
+
+    /**
+     * No window's p99 more than three times the best one's, beyond a floor
+     * that absorbs scheduler noise on a loaded machine.
+     */
+    private static void assertStable(long[] p99, long floorMs) {
+        long limit = Math.max(3 * Arrays.stream(p99).min().getAsLong(), floorMs);
+        for (int i = 0; i < p99.length; i++) {
+            assertTrue(p99[i] <= limit, "p99 " + Arrays.toString(p99) + " ms climbs past " + limit);
+        }
+    }
+
+    /**
+     * A batch of chat rows and the writer's kit cooldown, like one consumer
+     * flush and one save.
+     */
+    private static void insert(Connection tx, int writer, int batch) throws SQLException {
+        try (PreparedStatement stmt = tx.prepareStatement(
+                "INSERT INTO vp_chat (time, \"user\", message) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < ROWS_PER_WRITE; i++) {
+                stmt.setLong(1, System.currentTimeMillis());
+                stmt.setInt(2, writer);
+                stmt.setString(3, "message " + batch + "/" + i + " from writer " + writer);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        try (PreparedStatement stmt = tx.prepareStatement(SqlDialect.SQLITE.upsert("vc_kit_cooldowns",
+                "uuid, kit_name", "uuid", "kit_name", "last_used"))) {
+            stmt.setString(1, "uuid-" + writer);
+            stmt.setString(2, "starter");
+            stmt.setLong(3, batch);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * The latest chat and a kit cooldown, like a lookup and a /kit.
+     */
+    private void read(int reader) throws SQLException {
+        try (Connection conn = database.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT message FROM vp_chat ORDER BY id DESC LIMIT 10")) {
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        rs.getString(1);
+                    }
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT last_used FROM vc_kit_cooldowns WHERE uuid = ? AND kit_name = ?")) {
+                stmt.setString(1, "uuid-" + reader % WRITERS);
+                stmt.setString(2, "starter");
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                }
+            }
+        }
+    }
+
+    private long count() throws SQLException {
+        try (Connection conn = database.getConnection(); Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM vp_chat")) {
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * Operation latencies bucketed by when they started.
+     */
+    private static final class Latencies {
+        private final List<List<Long>> windows = new ArrayList<>();
+
+        Latencies() {
+            for (int i = 0; i < WINDOWS; i++) {
+                windows.add(new ArrayList<>());
+            }
+        }
+
+        synchronized void add(long startedAt, long nanos) {
+            int window = (int) Math.min(WINDOWS - 1, TimeUnit.NANOSECONDS.toMillis(startedAt) / WINDOW_MS);
+            windows.get(window).add(nanos);
+        }
+
+        synchronized int count() {
+            return windows.stream().mapToInt(List::size).sum();
+        }
+
+        synchronized long[] p99PerWindow() {
+            long[] p99 = new long[WINDOWS];
+            for (int i = 0; i < WINDOWS; i++) {
+                List<Long> sorted = new ArrayList<>(windows.get(i));
+                sorted.sort(null);
+                assertFalse(sorted.isEmpty(), "nothing ran in window " + i);
+                p99[i] = TimeUnit.NANOSECONDS.toMillis(sorted.get((int) Math.ceil(sorted.size() * 0.99) - 1));
+            }
+            return p99;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package network.vonix.vonixcore.database;
+
+import network.vonix.vonixcore.config.DatabaseConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The write-ahead log under 10,000 inserts a second while readers always
+ * hold a snapshot, so SQLite's own checkpoints never get to the end of it.
+ * The maintenance checks run every 250ms here instead of every 10s, against
+ * a 4 MB limit.
+ */
+@Tag("slow")
+class SqliteMaintenanceTest {
+
+    private static final int LIMIT_MB = 4;
+    private static final long MB = 1024 * 1024;
+    private static final long RUN_MS = 6000;
+    private static final long CHECK_MS = 250;
+    private static final int READERS = 4;
+    private static final int BATCH = 500;
+    private static final int BATCHES_PER_SECOND = 20;
+    private static final String ROW = "x".repeat(200);
+
+    @TempDir
+    Path dir;
+
+    private File dbFile;
+    private File walFile;
+    private SqliteWriter writer;
+    private int checkpointMb;
+    private int maxMspt;
+    private final ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    void open() throws SQLException {
+        DatabaseConfig config = DatabaseConfig.CONFIG;
+        checkpointMb = config.sqliteCheckpointMb.get();
+        maxMspt = config.sqliteMaintenanceMaxMspt.get();
+        config.sqliteCheckpointMb.set(LIMIT_MB);
+        // No server to ask for its tick time
+        config.sqliteMaintenanceMaxMspt.set(0);
+
+        dbFile = dir.resolve("test.db").toFile();
+        walFile = new File(dbFile.getPath() + "-wal");
+        writer = new SqliteWriter("jdbc:sqlite:" + dbFile, pragmas());
+        writer.call(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE log (id INTEGER PRIMARY KEY, time BIGINT NOT NULL, data TEXT NOT NULL)");
+            }
+            return null;
+        });
+    }
+
+    @AfterEach
+    void close() {
+        writer.close();
+        DatabaseConfig.CONFIG.sqliteCheckpointMb.set(checkpointMb);
+        DatabaseConfig.CONFIG.sqliteMaintenanceMaxMspt.set(maxMspt);
+    }
+
+    @Test
+    void walStaysWithinItsLimit() throws Exception {
+        SqliteMaintenance maintenance = new SqliteMaintenance(null, writer, dbFile);
+        maintenance.start();
+        long peak = load(maintenance);
+        System.out.printf("WAL peak with maintenance: %.1f MB%n", (double) peak / MB);
+
+        assertEquals(List.of(), errors.stream().map(Throwable::toString).toList());
+        // Past the limit for at most one check's worth of inserts
+        assertTrue(peak < 2 * LIMIT_MB * MB, peak / MB + " MB");
+
+        maintenance.stop();
+        assertEquals(0, walFile.length());
+    }
+
+    /**
+     * What the test above guards against.
+     */
+    @Test
+    void walOutgrowsTheLimitWithoutMaintenance() throws Exception {
+        long peak = load(null);
+        System.out.printf("WAL peak without maintenance: %.1f MB%n", (double) peak / MB);
+
+        assertEquals(List.of(), errors.stream().map(Throwable::toString).toList());
+        assertTrue(peak > 2 * LIMIT_MB * MB, peak / MB + " MB");
+    }
+
+    /**
+     * Insert at a steady rate for {@link #RUN_MS} with readers holding overlapping snapshots,
+     * running the maintenance check if given.
+     *
+     * @return the largest WAL size seen
+     */
+    private long load(SqliteMaintenance maintenance) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RUN_MS);
+        AtomicLong peak = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+
+        threads.add(new Thread(() -> {
+            long next = System.nanoTime();
+            while (System.nanoTime() < end && errors.isEmpty()) {
+                try {
+                    writer.call(conn -> {
+                        Database.inTransaction(conn, this::insert);
+                        return null;
+                    });
+                    next += TimeUnit.MILLISECONDS.toNanos(1000 / BATCHES_PER_SECOND);
+                    TimeUnit.NANOSECONDS.sleep(next - System.nanoTime());
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }
+        }, "Inserter"));
+        for (int r = 0; r < READERS; r++) {
+            long offset = r * 25L;
+            threads.add(new Thread(() -> {
+                try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dbFile, readOnly())) {
+                    Thread.sleep(offset);
+                    conn.setAutoCommit(false);
+                    while (System.nanoTime() < end && errors.isEmpty()) {
+                        try (Statement stmt = conn.createStatement();
+                                ResultSet rs = stmt.executeQuery("SELECT MAX(id) FROM log")) {
+                            rs.next();
+                        }
+                        Thread.sleep(100);
+                        conn.commit();
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }, "Reader " + r));
+        }
+        threads.add(new Thread(() -> {
+            long nextCheck = System.nanoTime();
+            while (System.nanoTime() < end) {
+                peak.accumulateAndGet(walFile.length(), Math::max);
+                if (maintenance != null && System.nanoTime() >= nextCheck) {
+                    maintenance.run();
+                    nextCheck = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CHECK_MS);
+                }
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "Maintenance"));
+
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join(RUN_MS + 30_000);
+        }
+        return peak.get();
+    }
+
+    private void insert(Connection tx) throws SQLException {
+        try (PreparedStatement stmt = tx.prepareStatement("INSERT INTO log (time, data) VALUES (?, ?)")) {
+            for (int i = 0; i < BATCH; i++) {
+                stmt.setLong(1, System.nanoTime());
+                stmt.setString(2, ROW);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * As {@link Database} opens a local file.
+     */
+    private static Properties pragmas() {
+        Properties pragmas = new Properties();
+        pragmas.setProperty("journal_mode", "WAL");
+        pragmas.setProperty("synchronous", "NORMAL");
+        pragmas.setProperty("journal_size_limit", String.valueOf(LIMIT_MB * MB));
+        return pragmas;
+    }
+
+    private static Properties readOnly() {
+        Properties properties = pragmas();
+        properties.setProperty("open_mode", "1");
+        return properties;
+    }
+}
@@ -0,0 +1,130 @@
+package network.vonix.vonixcore.history;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentBlockHistoryTest {
+
+    private static final BlockHistory.Filter EVERYTHING = BlockHistory.Filter.everywhere(0, Set.of(), Set.of(), -1);
+
+    @TempDir
+    Path root;
+
+    @Test
+    void recordsRoundTripAcrossReopen() throws IOException {
+        BlockRecord a = record(1000, 1, 3, 64, 5);
+        BlockRecord b = record(1001, 2, 20, 70, -3);
+        BlockRecord c = new BlockRecord(0, 1002, 1, 2, 600, 12, 600, 3, 4, 5, 0, 0, 0, true);
+        BlockRecord d = record(1003, 1, -1, 0, -1);
+        BlockRecord e = record(1004, 1, 4, 65, 6);
+        SegmentBlockHistory history = SegmentBlockHistory.open(root);
+        history.append(List.of(a, b, c, d, e));
+        // By world, region and chunk, then time
+        List<BlockRecord> expected = List.of(d, b, a, e, c);
+        assertEquals(expected, withoutHandles(scanAll(history, EVERYTHING, false)));
+        history.close();
+
+        SegmentBlockHistory reopened = SegmentBlockHistory.open(root);
+        assertEquals(expected, withoutHandles(scanAll(reopened, EVERYTHING, false)));
+        reopened.close();
+    }
+
+    @Test
+    void scanFiltersAndOrdersWithinAChunk() throws IOException {
+        SegmentBlockHistory history = SegmentBlockHistory.open(root);
+        history.append(List.of(record(1000, 1, 3, 64, 5), record(2000, 2, 4, 64, 5)));
+        history.append(List.of(record(3000, 1, 5, 64, 5)));
+
+        BlockHistory.ChunkScan scan = history.scan(1, BlockHistory.Filter.everywhere(1500, Set.of(), Set.of(), -1),
+                true);
+        BlockHistory.ChunkRecords chunk = scan.next();
+        assertEquals(List.of(3000L, 2000L), chunk.records().stream().map(BlockRecord::time).toList());
+        assertEquals(0, chunk.chunkX());
+        assertEquals(0, chunk.chunkZ());
+        assertNull(scan.next());
+
+        BlockHistory.Filter byUser = BlockHistory.Filter.everywhere(0, Set.of(2), Set.of(), -1);
+        assertEquals(List.of(2000L), scanAll(history, byUser, false).stream().map(BlockRecord::time).toList());
+        history.close();
+    }
+
+    @Test
+    void rolledBackFlagPersists() throws IOException {
+        SegmentBlockHistory history = SegmentBlockHistory.open(root);
+        history.append(List.of(record(1000, 1, 3, 64, 5), record(1001, 1, 4, 64, 5), record(1002, 1, 5, 64, 5)));
+        List<BlockRecord> stored = scanAll(history, EVERYTHING, false);
+        history.setRolledBack(new long[] { stored.get(0).handle(), stored.get(2).handle(), 0 }, 2, true);
+        history.close();
+
+        SegmentBlockHistory reopened = SegmentBlockHistory.open(root);
+        BlockHistory.Filter rolledBack = BlockHistory.Filter.everywhere(0, Set.of(), Set.of(), 1);
+        assertEquals(List.of(1000L, 1002L),
+                scanAll(reopened, rolledBack, false).stream().map(BlockRecord::time).toList());
+        reopened.close();
+    }
+
+    @Test
+    void tornIndexEntryDropsOnlyTheLastAppend() throws IOException {
+        BlockRecord kept = record(1000, 1, 3, 64, 5);
+        SegmentBlockHistory history = SegmentBlockHistory.open(root);
+        history.append(List.of(kept));
+        history.append(List.of(record(2000, 1, 3, 64, 5)));
+        history.close();
+
+        // A crash in the middle of writing the second index entry
+        Path index = root.resolve("1").resolve("r.0.0.idx");
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        SegmentBlockHistory reopened = SegmentBlockHistory.open(root);
+        assertEquals(List.of(kept), withoutHandles(scanAll(reopened, EVERYTHING, false)));
+        // The lost record's space is reused
+        BlockRecord next = record(3000, 1, 3, 64, 5);
+        reopened.append(List.of(next));
+        reopened.close();
+
+        SegmentBlockHistory again = SegmentBlockHistory.open(root);
+        assertEquals(List.of(kept, next), withoutHandles(scanAll(again, EVERYTHING, false)));
+        again.close();
+    }
+
+    @Test
+    void emptyStoreScansNothing() throws IOException {
+        SegmentBlockHistory history = SegmentBlockHistory.open(root);
+        assertTrue(scanAll(history, EVERYTHING, true).isEmpty());
+        history.close();
+    }
+
+    private static BlockRecord record(long time, int user, int x, int y, int z) {
+        return new BlockRecord(0, time, user, 1, x, y, z, 7, 0, 0, 7, 9, 1, false);
+    }
+
+    private static List<BlockRecord> scanAll(BlockHistory history, BlockHistory.Filter filter, boolean newestFirst)
+            throws IOException {
+        List<BlockRecord> records = new ArrayList<>();
+        BlockHistory.ChunkScan scan = history.scan(0, filter, newestFirst);
+        BlockHistory.ChunkRecords chunk;
+        while ((chunk = scan.next()) != null) {
+            records.addAll(chunk.records());
+        }
+        return records;
+    }
+
+    private static List<BlockRecord> withoutHandles(List<BlockRecord> records) {
+        return records.stream().map(r -> new BlockRecord(0, r.time(), r.user(), r.world(), r.x(), r.y(), r.z(),
+                r.type(), r.oldType(), r.oldData(), r.newType(), r.newData(), r.action(), r.rolledBack())).toList();
+    }
+}
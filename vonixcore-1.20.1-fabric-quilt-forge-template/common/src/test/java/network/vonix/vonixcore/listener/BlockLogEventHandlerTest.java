@@ -0,0 +1,165 @@
+package network.vonix.vonixcore.listener;
+
+import com.mojang.authlib.GameProfile;
+import net.minecraft.SharedConstants;
+import net.minecraft.commands.arguments.blocks.BlockStateParser;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.monster.Creeper;
+import net.minecraft.world.level.Explosion;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import network.vonix.vonixcore.config.DatabaseConfig;
+import network.vonix.vonixcore.consumer.Consumer;
+import network.vonix.vonixcore.consumer.Consumer.BlockLogEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The block hooks against a mocked level and Consumer, with real block
+ * states so their names come out as they would on a server.
+ */
+class BlockLogEventHandlerTest {
+
+    private static final UUID STEVE = UUID.fromString("8667ba71-b85a-4004-af54-457a9734eed7");
+    private static final String WORLD = "minecraft:overworld";
+    private static final String AIR = "minecraft:air";
+    private static final String STONE = "minecraft:stone";
+    private static final BlockPos POS = new BlockPos(10, 64, -5);
+
+    private MockedStatic<Consumer> consumers;
+    private Consumer consumer;
+    private ServerLevel level;
+    private ServerPlayer player;
+    private boolean blockLogging;
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+    }
+
+    @BeforeEach
+    void mockServer() {
+        blockLogging = DatabaseConfig.CONFIG.blockLogging.get();
+        consumer = mock(Consumer.class);
+        when(consumer.isRunning()).thenReturn(true);
+        consumers = mockStatic(Consumer.class);
+        consumers.when(Consumer::getInstance).thenReturn(consumer);
+
+        level = mock(ServerLevel.class);
+        when(level.dimension()).thenReturn(Level.OVERWORLD);
+        when(level.getBlockState(any())).thenReturn(Blocks.AIR.defaultBlockState());
+
+        player = mock(ServerPlayer.class);
+        when(player.getGameProfile()).thenReturn(new GameProfile(STEVE, "Steve"));
+        when(player.getStringUUID()).thenReturn(STEVE.toString());
+    }
+
+    @AfterEach
+    void close() {
+        consumers.close();
+        DatabaseConfig.CONFIG.blockLogging.set(blockLogging);
+    }
+
+    @Test
+    void breakLogsTheBrokenBlock() {
+        BlockLogEventHandler.onBreak(level, POS, Blocks.STONE.defaultBlockState(), player);
+
+        verify(consumer).queueBlockLog(anyLong(), eq("Steve"), eq(STEVE.toString()), eq(WORLD), eq(10), eq(64),
+                eq(-5), eq(STONE), eq(STONE), eq(STONE), eq(AIR), eq(AIR), eq(BlockLogEntry.ACTION_BREAK));
+    }
+
+    @Test
+    void placeLogsTheReplacedBlock() {
+        BlockState water = Blocks.WATER.defaultBlockState();
+        String waterData = BlockStateParser.serialize(water);
+        when(level.getBlockState(POS)).thenReturn(water);
+
+        BlockLogEventHandler.onPlace(level, POS, Blocks.STONE.defaultBlockState(), player);
+
+        verify(consumer).queueBlockLog(anyLong(), eq("Steve"), eq(STEVE.toString()), eq(WORLD), eq(10), eq(64),
+                eq(-5), eq(STONE), eq("minecraft:water"), eq(waterData), eq(STONE), eq(STONE),
+                eq(BlockLogEntry.ACTION_PLACE));
+    }
+
+    @Test
+    void placeAlreadyAppliedLogsAirAsReplaced() {
+        BlockState stone = Blocks.STONE.defaultBlockState();
+        when(level.getBlockState(POS)).thenReturn(stone);
+
+        BlockLogEventHandler.onPlace(level, POS, stone, player);
+
+        verify(consumer).queueBlockLog(anyLong(), eq("Steve"), eq(STEVE.toString()), eq(WORLD), eq(10), eq(64),
+                eq(-5), eq(STONE), eq(AIR), eq(AIR), eq(STONE), eq(STONE), eq(BlockLogEntry.ACTION_PLACE));
+    }
+
+    @Test
+    void explosionLogsEachBlockItDestroysAgainstItsPlayer() {
+        BlockPos air = new BlockPos(11, 64, -5);
+        when(level.getBlockState(POS)).thenReturn(Blocks.STONE.defaultBlockState());
+        Explosion explosion = explosion(List.of(POS, air));
+        when(explosion.getIndirectSourceEntity()).thenReturn(player);
+
+        BlockLogEventHandler.onDetonate(level, explosion);
+
+        verify(consumer).queueBlockLog(anyLong(), eq("Steve"), eq(STEVE.toString()), eq(WORLD), eq(10), eq(64),
+                eq(-5), eq(STONE), eq(STONE), eq(STONE), eq(AIR), eq(AIR), eq(BlockLogEntry.ACTION_EXPLODE));
+        // Nothing was there to destroy
+        verify(consumer, never()).queueBlockLog(anyLong(), anyString(), any(), anyString(), eq(11), anyInt(),
+                anyInt(), anyString(), anyString(), anyString(), anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    void explosionWithoutAPlayerIsChargedToTheMob() {
+        when(level.getBlockState(POS)).thenReturn(Blocks.STONE.defaultBlockState());
+        Creeper creeper = mock(Creeper.class);
+        when(creeper.getType()).thenAnswer(invocation -> EntityType.CREEPER);
+        Explosion explosion = explosion(List.of(POS));
+        when(explosion.getIndirectSourceEntity()).thenReturn(creeper);
+
+        BlockLogEventHandler.onDetonate(level, explosion);
+
+        verify(consumer).queueBlockLog(anyLong(), eq("#creeper"), isNull(), eq(WORLD), eq(10), eq(64), eq(-5),
+                eq(STONE), eq(STONE), eq(STONE), eq(AIR), eq(AIR), eq(BlockLogEntry.ACTION_EXPLODE));
+    }
+
+    @Test
+    void nothingIsQueuedWithBlockLoggingOff() {
+        DatabaseConfig.CONFIG.blockLogging.set(false);
+
+        BlockLogEventHandler.onBreak(level, POS, Blocks.STONE.defaultBlockState(), player);
+        BlockLogEventHandler.onPlace(level, POS, Blocks.STONE.defaultBlockState(), player);
+
+        verify(consumer, never()).queueBlockLog(anyLong(), any(), any(), any(), anyInt(), anyInt(), anyInt(), any(),
+                any(), any(), any(), any(), anyInt());
+    }
+
+    private static Explosion explosion(List<BlockPos> toBlow) {
+        Explosion explosion = mock(Explosion.class);
+        when(explosion.getToBlow()).thenReturn(toBlow);
+        return explosion;
+    }
+}
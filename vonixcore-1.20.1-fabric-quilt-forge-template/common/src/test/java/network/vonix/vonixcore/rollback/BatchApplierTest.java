@@ -0,0 +1,262 @@
+package network.vonix.vonixcore.rollback;
+
+import network.vonix.vonixcore.database.SqlDialect;
+import network.vonix.vonixcore.database.TestSchema;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * A rollback of 500k logged changes, read from SQLite the way the reader
+ * thread does, and applied tick by tick against a world stand-in whose
+ * changes cost a known amount of time on a fake clock.
+ */
+@Tag("slow")
+class BatchApplierTest {
+
+    private static final int SIDE = 500;
+    // Two changes per position
+    private static final int ROWS = SIDE * SIDE * 2;
+    private static final long BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    // A chunk's worth of changes takes a couple of ticks
+    private static final long CHANGE_NANOS = 20_000;
+    // Every so often a change is much slower, like a block entity being replaced
+    private static final int SLOW_EVERY = 5_000;
+    private static final long SLOW_CHANGE_NANOS = 300_000;
+
+    @TempDir
+    Path dir;
+
+    private Connection conn;
+
+    @BeforeEach
+    void logChanges() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite:" + dir.resolve("test.db"));
+        TestSchema.createTables(conn);
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO vp_world (id, name) VALUES (1, 'minecraft:overworld')");
+            stmt.execute("INSERT INTO vp_blockdata (id, name) VALUES (1, 'minecraft:grass_block'),"
+                    + " (2, 'minecraft:sand'), (3, 'minecraft:stone'), (4, 'minecraft:dirt')");
+        }
+        // Each position was first changed from grass or sand to stone, then from stone to dirt
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO vp_block (time, \"user\", world, x, y, z,"
+                + " type, old_type, old_data, new_type, new_data, action) VALUES (?, 1, 1, ?, 64, ?, 1, 1, ?, 1, ?, 1)")) {
+            for (int x = 0; x < SIDE; x++) {
+                for (int z = 0; z < SIDE; z++) {
+                    stmt.setLong(1, 1000);
+                    stmt.setInt(2, x);
+                    stmt.setInt(3, z);
+                    stmt.setInt(4, (x + z) % 2 == 0 ? 1 : 2);
+                    stmt.setInt(5, 3);
+                    stmt.addBatch();
+                    stmt.setLong(1, 2000);
+                    stmt.setInt(4, 3);
+                    stmt.setInt(5, 4);
+                    stmt.addBatch();
+                }
+            }
+            stmt.executeBatch();
+        }
+        conn.commit();
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    void rollbackNeverStartsAChangePastTheTickBudget() throws Exception {
+        FakeWorld world = new FakeWorld();
+        BatchApplier applier = new BatchApplier(world, 16, () -> world.now);
+        RollbackParams params = new RollbackParams(List.of(), 0, -1, List.of());
+        Reader reader = new Reader(params, applier);
+        reader.start();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(120);
+        int ticks = 0;
+        boolean done = false;
+        while (!done) {
+            if (System.nanoTime() > deadline) {
+                fail("rollback did not finish, " + applier.getChanged() + " changes applied");
+            }
+            world.startTick(++ticks);
+            done = applier.tick(BUDGET_NANOS, !reader.isAlive());
+            long used = world.now - world.tickStart;
+            assertTrue(used < BUDGET_NANOS + SLOW_CHANGE_NANOS, "tick " + ticks + " took " + used + "ns");
+            // Reading is a lot slower than applying here, so let it catch up as a real tick's gap would
+            if (!done && used < BUDGET_NANOS / 2) {
+                Thread.sleep(1);
+            }
+        }
+        reader.join();
+        if (reader.failure != null) {
+            throw reader.failure;
+        }
+
+        assertEquals(ROWS, applier.getChanged());
+        assertEquals(0, applier.getSkipped());
+        assertTrue(world.lateChanges == 0, world.lateChanges + " changes started after the tick's budget ran out");
+        assertTrue(applier.getPeakTickNanos() < BUDGET_NANOS + SLOW_CHANGE_NANOS);
+        // The next chunk is loaded ahead, but no more than that
+        assertTrue(world.maxHeld <= 2, world.maxHeld + " chunks held at once");
+        assertTrue(world.held.isEmpty());
+
+        // Applied newest first, so each position ends up as it was before its first change
+        for (int x = 0; x < SIDE; x++) {
+            for (int z = 0; z < SIDE; z++) {
+                String expected = (x + z) % 2 == 0 ? "minecraft:grass_block" : "minecraft:sand";
+                assertEquals(expected, world.blocks.get(pos(x, z)), x + ", " + z);
+            }
+        }
+
+        // Every row is handed back to be flagged, once
+        List<long[]> applied = new ArrayList<>();
+        applier.drainApplied(applied);
+        BitSet ids = new BitSet();
+        int count = 0;
+        for (long[] batch : applied) {
+            for (long id : batch) {
+                assertTrue(!ids.get((int) id), "row " + id + " applied twice");
+                ids.set((int) id);
+                count++;
+            }
+        }
+        assertEquals(ROWS, count);
+    }
+
+    private static long pos(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Streams the rollback query into per-chunk batches, like the job's reader thread.
+     */
+    private final class Reader extends Thread {
+        private final RollbackParams params;
+        private final BatchApplier applier;
+        volatile Exception failure;
+
+        Reader(RollbackParams params, BatchApplier applier) {
+            super("rollback-reader");
+            this.params = params;
+            this.applier = applier;
+        }
+
+        @Override
+        public void run() {
+            try (PreparedStatement stmt = conn.prepareStatement(params.blockQuery(false, SqlDialect.SQLITE))) {
+                stmt.setFetchSize(1000);
+                params.bind(stmt, false, "minecraft:overworld", 0, 0);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    ChunkBatch batch = null;
+                    while (rs.next()) {
+                        String worldName = rs.getString(2);
+                        int x = rs.getInt(3);
+                        int z = rs.getInt(5);
+                        if (batch == null || !batch.accepts(worldName, x >> 4, z >> 4)) {
+                            if (batch != null) {
+                                handOver(batch);
+                            }
+                            batch = new ChunkBatch(worldName, x >> 4, z >> 4);
+                        }
+                        batch.add(rs.getLong(1), x, rs.getInt(4), z, rs.getInt(6), rs.getString(7));
+                    }
+                    if (batch != null) {
+                        handOver(batch);
+                    }
+                }
+            } catch (SQLException | InterruptedException e) {
+                failure = e;
+            }
+        }
+
+        private void handOver(ChunkBatch batch) throws InterruptedException {
+            while (!applier.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                // Queue full, the server thread is behind
+            }
+        }
+    }
+
+    /**
+     * A world whose chunks finish loading the tick after they are asked for
+     * and whose block changes advance the clock.
+     */
+    private static final class FakeWorld implements BatchApplier.Target {
+        final Map<Long, String> blocks = new HashMap<>();
+        final Set<Long> held = new HashSet<>();
+        final Map<Long, Integer> heldSince = new HashMap<>();
+        long now;
+        long tickStart;
+        int tick;
+        int maxHeld;
+        int lateChanges;
+        int changes;
+
+        void startTick(int tick) {
+            this.tick = tick;
+            // Time passes between ticks
+            now += TimeUnit.MILLISECONDS.toNanos(50);
+            tickStart = now;
+        }
+
+        @Override
+        public boolean hold(ChunkBatch batch) {
+            long chunk = pos(batch.chunkX, batch.chunkZ);
+            if (held.add(chunk)) {
+                heldSince.put(chunk, tick);
+                maxHeld = Math.max(maxHeld, held.size());
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isLoaded(ChunkBatch batch) {
+            Integer since = heldSince.get(pos(batch.chunkX, batch.chunkZ));
+            return since != null && since < tick;
+        }
+
+        @Override
+        public boolean apply(ChunkBatch batch, int index) {
+            if (!held.contains(pos(batch.chunkX, batch.chunkZ))) {
+                throw new IllegalStateException("change applied to a chunk without a ticket");
+            }
+            if (now >= tickStart + BUDGET_NANOS) {
+                lateChanges++;
+            }
+            now += ++changes % SLOW_EVERY == 0 ? SLOW_CHANGE_NANOS : CHANGE_NANOS;
+            blocks.put(pos(batch.xs[index], batch.zs[index]), batch.dataNames[index]);
+            return true;
+        }
+
+        @Override
+        public void release(ChunkBatch batch) {
+            long chunk = pos(batch.chunkX, batch.chunkZ);
+            held.remove(chunk);
+            heldSince.remove(chunk);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package network.vonix.vonixcore.fabric.mixin;
 
 import net.minecraft.network.chat.Component;
+import net.minecraft.network.protocol.game.ServerboundSignUpdatePacket;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.server.network.ServerGamePacketListenerImpl;
 import network.vonix.vonixcore.VonixCore;
@@ -8,12 +9,15 @@ import network.vonix.vonixcore.chat.ChatFormatter;
 import network.vonix.vonixcore.config.EssentialsConfig;
 import network.vonix.vonixcore.config.DiscordConfig;
 import network.vonix.vonixcore.discord.DiscordManager;
+import network.vonix.vonixcore.listener.ChatLogEventHandler;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
+import java.util.List;
+
 /**
  * Mixin to intercept chat messages and apply custom formatting while cancelling
  * vanilla broadcast.
@@ -34,6 +38,9 @@ public abstract class ServerGamePacketListenerMixin {
         try {
             String rawMessage = message.signedContent();
 
+            // Raw text to vp_chat before any formatting
+            ChatLogEventHandler.logChat(player, rawMessage);
+
             // ALWAYS send to Discord (if running), regardless of chat formatting setting
             sendToDiscordIfEnabled(rawMessage);
 
@@ -80,4 +87,16 @@ public abstract class ServerGamePacketListenerMixin {
                     .sendChatMessage(displayName, rawMessage, player.getStringUUID());
         }
     }
+
+    /**
+     * Log sign text as sent by the client, before vanilla applies it.
+     */
+    @Inject(method = "updateSignText", at = @At("HEAD"))
+    private void vonixcore$onUpdateSignText(ServerboundSignUpdatePacket packet, List<?> lines, CallbackInfo ci) {
+        try {
+            ChatLogEventHandler.logSign(player, packet.getPos(), packet.getLines());
+        } catch (Exception e) {
+            VonixCore.LOGGER.error("[VonixCore] Error logging sign update", e);
+        }
+    }
 }
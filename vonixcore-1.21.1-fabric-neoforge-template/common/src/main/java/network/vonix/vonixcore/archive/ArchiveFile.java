@@ -0,0 +1,253 @@
+package network.vonix.vonixcore.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The format of one archive file: a short header, then blocks of up to
+ * {@link #BLOCK_ROWS} rows appended one after another.
+ *
+ * A block starts with an uncompressed header holding its row count and its
+ * id, time and x/z ranges, so readers can skip blocks without inflating
+ * them. The rows follow column by column, each value stored as the
+ * difference to the row before, and the whole payload is deflated. Rows of
+ * one world and day repeat most of their values, so this typically packs
+ * a row into a few bytes.
+ *
+ * Blocks are only ever appended. A block cut short by a crash is ignored by
+ * readers and cut off before the next append.
+ */
+final class ArchiveFile {
+
+    static final int BLOCK_ROWS = 4096;
+    // "VCA1"
+    private static final int MAGIC = 0x56434131;
+    private static final int FILE_HEADER_BYTES = 8;
+    private static final int BLOCK_HEADER_BYTES = 60;
+
+    private ArchiveFile() {
+    }
+
+    /**
+     * Where a block is and what it holds, from its header.
+     */
+    record Block(long offset, int rows, long minId, long maxId, long minTime, long maxTime, int minX, int maxX,
+            int minZ, int maxZ, int rawLength, int compressedLength) {
+    }
+
+    /**
+     * Read the headers of every complete block.
+     *
+     * @param repair cut off a torn last block; only the writer may do this
+     */
+    static List<Block> readBlocks(Path file, int columns, boolean repair) throws IOException {
+        List<Block> blocks = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return blocks;
+        }
+        StandardOpenOption[] options = repair
+                ? new StandardOpenOption[] { StandardOpenOption.READ, StandardOpenOption.WRITE }
+                : new StandardOpenOption[] { StandardOpenOption.READ };
+        try (FileChannel channel = FileChannel.open(file, options)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+            if (size >= FILE_HEADER_BYTES) {
+                header.limit(FILE_HEADER_BYTES);
+                readFully(channel, header, 0);
+                header.flip();
+                if (header.getInt() != MAGIC || header.getInt() != columns) {
+                    throw new IOException("Not an archive file with " + columns + " columns: " + file);
+                }
+            }
+            long position = FILE_HEADER_BYTES;
+            while (position + BLOCK_HEADER_BYTES <= size) {
+                header.clear();
+                readFully(channel, header, position);
+                header.flip();
+                Block block = new Block(position, header.getInt(), header.getLong(), header.getLong(),
+                        header.getLong(), header.getLong(), header.getInt(), header.getInt(), header.getInt(),
+                        header.getInt(), header.getInt(), header.getInt());
+                long end = position + BLOCK_HEADER_BYTES + block.compressedLength();
+                if (block.compressedLength() <= 0 || end > size) {
+                    break;
+                }
+                blocks.add(block);
+                position = end;
+            }
+            if (repair && size < FILE_HEADER_BYTES) {
+                channel.truncate(0);
+            } else if (repair && position < size) {
+                channel.truncate(position);
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Append rows, sorted by id and all from one world and day, and force
+     * them to disk.
+     */
+    static void append(Path file, int columns, List<ArchivedRow> rows) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long position = channel.size();
+            if (position == 0) {
+                ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(MAGIC).putInt(columns);
+                header.flip();
+                writeFully(channel, header, 0);
+                position = FILE_HEADER_BYTES;
+            }
+            Deflater deflater = new Deflater();
+            try {
+                for (int from = 0; from < rows.size(); from += BLOCK_ROWS) {
+                    ByteBuffer block = encode(rows.subList(from, Math.min(rows.size(), from + BLOCK_ROWS)), columns,
+                            deflater);
+                    position += writeFully(channel, block, position);
+                }
+            } finally {
+                deflater.end();
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Inflate one block's rows, in id order.
+     */
+    static List<ArchivedRow> readRows(FileChannel channel, Block block, int world, int columns)
+            throws IOException {
+        ByteBuffer compressed = ByteBuffer.allocate(block.compressedLength());
+        readFully(channel, compressed, block.offset() + BLOCK_HEADER_BYTES);
+        byte[] raw = new byte[block.rawLength()];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.array());
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                int read = inflater.inflate(raw, length, raw.length - length);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += read;
+            }
+            if (length != raw.length) {
+                throw new IOException("Archive block at " + block.offset() + " is damaged");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Archive block at " + block.offset() + " is damaged", e);
+        } finally {
+            inflater.end();
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(raw);
+        int count = block.rows();
+        long[] ids = new long[count];
+        long id = block.minId();
+        for (int i = 0; i < count; i++) {
+            id += in.getInt();
+            ids[i] = id;
+        }
+        long[] times = new long[count];
+        for (int i = 0; i < count; i++) {
+            times[i] = block.minTime() + in.getInt();
+        }
+        int[][] values = new int[count][columns];
+        for (int column = 0; column < columns; column++) {
+            int value = 0;
+            for (int i = 0; i < count; i++) {
+                value += in.getInt();
+                values[i][column] = value;
+            }
+        }
+        List<ArchivedRow> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(new ArchivedRow(ids[i], times[i], world, values[i]));
+        }
+        return rows;
+    }
+
+    private static ByteBuffer encode(List<ArchivedRow> rows, int columns, Deflater deflater) {
+        long minId = rows.get(0).id();
+        long maxId = rows.get(rows.size() - 1).id();
+        long minTime = Long.MAX_VALUE;
+        long maxTime = Long.MIN_VALUE;
+        int minX = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int minZ = Integer.MAX_VALUE;
+        int maxZ = Integer.MIN_VALUE;
+        for (ArchivedRow row : rows) {
+            minTime = Math.min(minTime, row.time());
+            maxTime = Math.max(maxTime, row.time());
+            minX = Math.min(minX, row.get(ArchiveTable.X));
+            maxX = Math.max(maxX, row.get(ArchiveTable.X));
+            minZ = Math.min(minZ, row.get(ArchiveTable.Z));
+            maxZ = Math.max(maxZ, row.get(ArchiveTable.Z));
+        }
+
+        // Column by column, so runs of equal values sit next to each other
+        ByteBuffer raw = ByteBuffer.allocate(rows.size() * (8 + 4 * columns));
+        long previousId = minId;
+        for (ArchivedRow row : rows) {
+            raw.putInt((int) (row.id() - previousId));
+            previousId = row.id();
+        }
+        for (ArchivedRow row : rows) {
+            // A block holds one day, so the offset fits an int
+            raw.putInt((int) (row.time() - minTime));
+        }
+        for (int column = 0; column < columns; column++) {
+            int previous = 0;
+            for (ArchivedRow row : rows) {
+                raw.putInt(row.get(column) - previous);
+                previous = row.get(column);
+            }
+        }
+
+        deflater.reset();
+        deflater.setInput(raw.array(), 0, raw.position());
+        deflater.finish();
+        byte[] compressed = new byte[raw.position() + 64];
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_HEADER_BYTES + length);
+        block.putInt(rows.size()).putLong(minId).putLong(maxId).putLong(minTime).putLong(maxTime)
+                .putInt(minX).putInt(maxX).putInt(minZ).putInt(maxZ).putInt(raw.position()).putInt(length)
+                .put(compressed, 0, length);
+        block.flip();
+        return block;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of archive file");
+            }
+            position += read;
+        }
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+}
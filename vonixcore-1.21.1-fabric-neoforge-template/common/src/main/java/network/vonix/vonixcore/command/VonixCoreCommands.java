@@ -11,11 +11,21 @@ import net.minecraft.network.chat.Component;
 import net.minecraft.server.level.ServerPlayer;
 import network.vonix.vonixcore.VonixCore;
 import network.vonix.vonixcore.admin.AdminManager;
+import network.vonix.vonixcore.consumer.Consumer;
+import network.vonix.vonixcore.consumer.LoggedPositions;
+import network.vonix.vonixcore.database.Database;
+import network.vonix.vonixcore.database.DatabaseBackup;
 import network.vonix.vonixcore.homes.HomeManager;
 import network.vonix.vonixcore.kits.KitManager;
+import network.vonix.vonixcore.listener.EntityLogEventHandler;
+import network.vonix.vonixcore.lookup.LookupManager;
+import network.vonix.vonixcore.rollback.RollbackManager;
+import network.vonix.vonixcore.rollback.RollbackParams;
 import network.vonix.vonixcore.teleport.TeleportManager;
 import network.vonix.vonixcore.warps.WarpManager;
 
+import java.util.List;
+
 /**
  * Comprehensive command registration for all VonixCore features.
  */
@@ -54,6 +64,24 @@ public class VonixCoreCommands {
                         .executes(VonixCoreCommands::showVersion))
                 .then(Commands.literal("status")
                         .executes(VonixCoreCommands::showStatus))
+                .then(Commands.literal("rollback")
+                        .then(Commands.literal("cancel")
+                                .executes(VonixCoreCommands::cancelRollback))
+                        .then(Commands.argument("params", StringArgumentType.greedyString())
+                                .executes(ctx -> startRollback(ctx, false))))
+                .then(Commands.literal("restore")
+                        .then(Commands.argument("params", StringArgumentType.greedyString())
+                                .executes(ctx -> startRollback(ctx, true))))
+                .then(Commands.literal("lookup")
+                        .then(Commands.literal("next")
+                                .executes(VonixCoreCommands::lookupNext))
+                        .then(Commands.argument("params", StringArgumentType.greedyString())
+                                .executes(VonixCoreCommands::lookup)))
+                .then(Commands.literal("inspect")
+                        .executes(VonixCoreCommands::toggleInspect))
+                .then(Commands.literal("db")
+                        .then(Commands.literal("backup")
+                                .executes(VonixCoreCommands::startBackup)))
                 .executes(VonixCoreCommands::showHelp));
     }
 
@@ -106,6 +134,104 @@ public class VonixCoreCommands {
         ctx.getSource().sendSuccess(() -> Component.literal("§6[VonixCore] §fModule Status:"), false);
         ctx.getSource().sendSuccess(() -> Component.literal("§7- Essentials: " +
                 (VonixCore.getInstance().isEssentialsEnabled() ? "§aEnabled" : "§cDisabled")), false);
+        Consumer consumer = Consumer.getInstance();
+        ctx.getSource().sendSuccess(() -> Component.literal("§7- Log queue: §f" + consumer.getQueueSize() + "/"
+                + consumer.getQueueCapacity() + " §7(peak " + consumer.getHighWaterMark() + ", dropped "
+                + consumer.getDroppedCount() + ", spilled " + consumer.getSpilledCount() + ")"), false);
+        ctx.getSource().sendSuccess(() -> Component.literal("§7- Coalesced: §f" + consumer.getCoalescedIn()
+                + " §7block changes into §f" + consumer.getCoalescedOut() + " §7rows ("
+                + consumer.formatReduction() + " fewer)"), false);
+        LoggedPositions positions = consumer.getLoggedPositions();
+        if (positions != null) {
+            ctx.getSource().sendSuccess(() -> Component.literal("§7- Lookup filter: §f" + positions.getSkipped()
+                    + " §7of §f" + positions.getChecked() + " §7lookups skipped the database ("
+                    + positions.getRegionCount() + " regions)"), false);
+        }
+        Database database = VonixCore.getInstance().getDatabase();
+        if (database != null) {
+            ctx.getSource().sendSuccess(() -> Component.literal("§7- Server-thread queries: §f"
+                    + database.getServerThreadQueries()), false);
+        }
+        List<EntityLogEventHandler.TypeCount> entityCounts = EntityLogEventHandler.getCounts();
+        long seen = entityCounts.stream().mapToLong(EntityLogEventHandler.TypeCount::seen).sum();
+        long logged = entityCounts.stream().mapToLong(EntityLogEventHandler.TypeCount::logged).sum();
+        ctx.getSource().sendSuccess(() -> Component.literal("§7- Entities: §f" + logged + " §7of §f" + seen
+                + " §7events logged"), false);
+        for (EntityLogEventHandler.TypeCount count : entityCounts.subList(0, Math.min(3, entityCounts.size()))) {
+            ctx.getSource().sendSuccess(() -> Component.literal("§7  " + count.type() + ": §f" + count.logged()
+                    + "§7/§f" + count.seen()), false);
+        }
+        return 1;
+    }
+
+    private static int startRollback(CommandContext<CommandSourceStack> ctx, boolean restore) {
+        RollbackParams params;
+        try {
+            params = RollbackParams.parse(StringArgumentType.getString(ctx, "params"), System.currentTimeMillis());
+        } catch (IllegalArgumentException e) {
+            ctx.getSource().sendFailure(Component.literal("§c[VonixCore] " + e.getMessage()));
+            return 0;
+        }
+        if (!RollbackManager.start(ctx.getSource(), params, restore)) {
+            ctx.getSource().sendFailure(
+                    Component.literal("§c[VonixCore] A rollback is already running. Use /vonixcore rollback cancel"));
+            return 0;
+        }
+        String verb = restore ? "restore" : "rollback";
+        ctx.getSource().sendSuccess(() -> Component.literal("§6[VonixCore] §eStarting " + verb + "..."), true);
+        return 1;
+    }
+
+    private static int cancelRollback(CommandContext<CommandSourceStack> ctx) {
+        if (!RollbackManager.cancel()) {
+            ctx.getSource().sendFailure(Component.literal("§c[VonixCore] No rollback is running"));
+            return 0;
+        }
+        ctx.getSource().sendSuccess(() -> Component.literal("§6[VonixCore] §eCancelling rollback..."), true);
+        return 1;
+    }
+
+    private static int lookup(CommandContext<CommandSourceStack> ctx) {
+        try {
+            LookupManager.search(ctx.getSource(),
+                    RollbackParams.parse(StringArgumentType.getString(ctx, "params"), System.currentTimeMillis()));
+            return 1;
+        } catch (IllegalArgumentException e) {
+            ctx.getSource().sendFailure(Component.literal("§c[VonixCore] " + e.getMessage()));
+            return 0;
+        }
+    }
+
+    private static int lookupNext(CommandContext<CommandSourceStack> ctx) {
+        if (!LookupManager.next(ctx.getSource())) {
+            ctx.getSource().sendFailure(Component.literal("§c[VonixCore] No more results"));
+            return 0;
+        }
+        return 1;
+    }
+
+    private static int toggleInspect(CommandContext<CommandSourceStack> ctx) {
+        if (!(ctx.getSource().getEntity() instanceof ServerPlayer player)) {
+            ctx.getSource().sendFailure(Component.literal("§c[VonixCore] Only players can inspect blocks"));
+            return 0;
+        }
+        boolean enabled = LookupManager.toggleInspect(player);
+        ctx.getSource().sendSuccess(() -> Component.literal(enabled
+                ? "§6[VonixCore] §aInspector enabled. §7Left-click a block for its history, right-click a container for its transactions."
+                : "§6[VonixCore] §cInspector disabled."), false);
+        return 1;
+    }
+
+    private static int startBackup(CommandContext<CommandSourceStack> ctx) {
+        if (VonixCore.getInstance().getDatabase() == null) {
+            ctx.getSource().sendFailure(Component.literal("§c[VonixCore] The database is not available"));
+            return 0;
+        }
+        if (!DatabaseBackup.start(ctx.getSource())) {
+            ctx.getSource().sendFailure(Component.literal("§c[VonixCore] A backup is already running"));
+            return 0;
+        }
+        ctx.getSource().sendSuccess(() -> Component.literal("§6[VonixCore] §eBacking up the database..."), true);
         return 1;
     }
 
@@ -115,6 +241,17 @@ public class VonixCoreCommands {
                 false);
         ctx.getSource().sendSuccess(() -> Component.literal("§e/vonixcore version §7- Show version info"), false);
         ctx.getSource().sendSuccess(() -> Component.literal("§e/vonixcore status §7- Show module status"), false);
+        ctx.getSource().sendSuccess(() -> Component.literal(
+                "§e/vonixcore rollback <params> §7- Undo logged block changes"), false);
+        ctx.getSource().sendSuccess(() -> Component.literal(
+                "§e/vonixcore restore <params> §7- Redo rolled back changes"), false);
+        ctx.getSource().sendSuccess(() -> Component.literal(
+                "§e/vonixcore lookup <params> §7- Search logged block changes"), false);
+        ctx.getSource().sendSuccess(() -> Component.literal("§e/vonixcore inspect §7- Toggle the block inspector"), false);
+        ctx.getSource().sendSuccess(() -> Component.literal(
+                "§e/vonixcore db backup §7- Copy the database while the server runs"), false);
+        ctx.getSource().sendSuccess(() -> Component.literal(
+                "§7Params: t:<time> [u:<users>] [r:<radius>] [a:break,place,explode]"), false);
         ctx.getSource().sendSuccess(
                 () -> Component.literal("§7Modules: all, database, essentials, discord, xpsync"), false);
         return 1;
@@ -146,13 +283,14 @@ public class VonixCoreCommands {
         if (player == null)
             return 0;
 
-        if (HomeManager.getInstance().setHome(player, name)) {
-            player.sendSystemMessage(Component.literal("§a[VC] Home '" + name + "' set!"));
-            return 1;
-        } else {
-            player.sendSystemMessage(Component.literal("§c[VC] You've reached your home limit!"));
-            return 0;
-        }
+        HomeManager.getInstance().setHome(player, name).thenAccept(set -> {
+            if (set) {
+                player.sendSystemMessage(Component.literal("§a[VC] Home '" + name + "' set!"));
+            } else {
+                player.sendSystemMessage(Component.literal("§c[VC] You've reached your home limit!"));
+            }
+        });
+        return 1;
     }
 
     private static int teleportHome(CommandContext<CommandSourceStack> ctx, String name) {
@@ -160,23 +298,27 @@ public class VonixCoreCommands {
         if (player == null)
             return 0;
 
-        var home = HomeManager.getInstance().getHome(player.getUUID(), name);
-        if (home == null) {
-            player.sendSystemMessage(Component.literal("§c[VC] Home '" + name + "' not found!"));
-            return 0;
-        }
-
         var server = ctx.getSource().getServer();
-        for (var level : server.getAllLevels()) {
-            if (level.dimension().location().toString().equals(home.world())) {
-                TeleportManager.getInstance().teleportPlayer(player, level, home.x(), home.y(), home.z(), home.yaw(),
-                        home.pitch());
-                player.sendSystemMessage(Component.literal("§a[VC] Teleported to home '" + name + "'!"));
-                return 1;
+        HomeManager.getInstance().getHome(player.getUUID(), name).thenAccept(home -> {
+            if (player.hasDisconnected()) {
+                return;
             }
-        }
-        player.sendSystemMessage(Component.literal("§c[VC] World not found!"));
-        return 0;
+            if (home == null) {
+                player.sendSystemMessage(Component.literal("§c[VC] Home '" + name + "' not found!"));
+                return;
+            }
+
+            for (var level : server.getAllLevels()) {
+                if (level.dimension().location().toString().equals(home.world())) {
+                    TeleportManager.getInstance().teleportPlayer(player, level, home.x(), home.y(), home.z(),
+                            home.yaw(), home.pitch());
+                    player.sendSystemMessage(Component.literal("§a[VC] Teleported to home '" + name + "'!"));
+                    return;
+                }
+            }
+            player.sendSystemMessage(Component.literal("§c[VC] World not found!"));
+        });
+        return 1;
     }
 
     private static int deleteHome(CommandContext<CommandSourceStack> ctx, String name) {
@@ -184,12 +326,14 @@ public class VonixCoreCommands {
         if (player == null)
             return 0;
 
-        if (HomeManager.getInstance().deleteHome(player.getUUID(), name)) {
-            player.sendSystemMessage(Component.literal("§a[VC] Home '" + name + "' deleted!"));
-            return 1;
-        }
-        player.sendSystemMessage(Component.literal("§c[VC] Home not found!"));
-        return 0;
+        HomeManager.getInstance().deleteHome(player.getUUID(), name).thenAccept(deleted -> {
+            if (deleted) {
+                player.sendSystemMessage(Component.literal("§a[VC] Home '" + name + "' deleted!"));
+            } else {
+                player.sendSystemMessage(Component.literal("§c[VC] Home not found!"));
+            }
+        });
+        return 1;
     }
 
     private static int listHomes(CommandContext<CommandSourceStack> ctx) {
@@ -197,13 +341,14 @@ public class VonixCoreCommands {
         if (player == null)
             return 0;
 
-        var homes = HomeManager.getInstance().getHomes(player.getUUID());
-        if (homes.isEmpty()) {
-            player.sendSystemMessage(Component.literal("§7[VC] You have no homes set."));
-        } else {
-            player.sendSystemMessage(Component.literal("§6[VC] Your homes: §e" +
-                    String.join(", ", homes.stream().map(h -> h.name()).toList())));
-        }
+        HomeManager.getInstance().getHomes(player.getUUID()).thenAccept(homes -> {
+            if (homes.isEmpty()) {
+                player.sendSystemMessage(Component.literal("§7[VC] You have no homes set."));
+            } else {
+                player.sendSystemMessage(Component.literal("§6[VC] Your homes: §e" +
+                        String.join(", ", homes.stream().map(h -> h.name()).toList())));
+            }
+        });
         return 1;
     }
 
@@ -233,11 +378,12 @@ public class VonixCoreCommands {
         if (player == null)
             return 0;
 
-        if (WarpManager.getInstance().setWarp(name, player)) {
-            ctx.getSource().sendSuccess(() -> Component.literal("§a[VC] Warp '" + name + "' created!"), true);
-            return 1;
-        }
-        return 0;
+        WarpManager.getInstance().setWarp(name, player).thenAccept(set -> {
+            if (set) {
+                ctx.getSource().sendSuccess(() -> Component.literal("§a[VC] Warp '" + name + "' created!"), true);
+            }
+        });
+        return 1;
     }
 
     private static int teleportWarp(CommandContext<CommandSourceStack> ctx, String name) {
@@ -245,41 +391,48 @@ public class VonixCoreCommands {
         if (player == null)
             return 0;
 
-        var warp = WarpManager.getInstance().getWarp(name);
-        if (warp == null) {
-            player.sendSystemMessage(Component.literal("§c[VC] Warp '" + name + "' not found!"));
-            return 0;
-        }
-
         var server = ctx.getSource().getServer();
-        for (var level : server.getAllLevels()) {
-            if (level.dimension().location().toString().equals(warp.world())) {
-                TeleportManager.getInstance().teleportPlayer(player, level, warp.x(), warp.y(), warp.z(), warp.yaw(),
-                        warp.pitch());
-                player.sendSystemMessage(Component.literal("§a[VC] Warped to '" + name + "'!"));
-                return 1;
+        WarpManager.getInstance().getWarp(name).thenAccept(warp -> {
+            if (player.hasDisconnected()) {
+                return;
             }
-        }
-        return 0;
+            if (warp == null) {
+                player.sendSystemMessage(Component.literal("§c[VC] Warp '" + name + "' not found!"));
+                return;
+            }
+
+            for (var level : server.getAllLevels()) {
+                if (level.dimension().location().toString().equals(warp.world())) {
+                    TeleportManager.getInstance().teleportPlayer(player, level, warp.x(), warp.y(), warp.z(),
+                            warp.yaw(), warp.pitch());
+                    player.sendSystemMessage(Component.literal("§a[VC] Warped to '" + name + "'!"));
+                    return;
+                }
+            }
+        });
+        return 1;
     }
 
     private static int deleteWarp(CommandContext<CommandSourceStack> ctx, String name) {
-        if (WarpManager.getInstance().deleteWarp(name)) {
-            ctx.getSource().sendSuccess(() -> Component.literal("§a[VC] Warp deleted!"), true);
-            return 1;
-        }
-        ctx.getSource().sendFailure(Component.literal("§c[VC] Warp not found!"));
-        return 0;
+        WarpManager.getInstance().deleteWarp(name).thenAccept(deleted -> {
+            if (deleted) {
+                ctx.getSource().sendSuccess(() -> Component.literal("§a[VC] Warp deleted!"), true);
+            } else {
+                ctx.getSource().sendFailure(Component.literal("§c[VC] Warp not found!"));
+            }
+        });
+        return 1;
     }
 
     private static int listWarps(CommandContext<CommandSourceStack> ctx) {
-        var warps = WarpManager.getInstance().getWarps();
-        if (warps.isEmpty()) {
-            ctx.getSource().sendSuccess(() -> Component.literal("§7[VC] No warps available."), false);
-        } else {
-            ctx.getSource().sendSuccess(() -> Component.literal("§6[VC] Warps: §e" +
-                    String.join(", ", warps.stream().map(w -> w.name()).toList())), false);
-        }
+        WarpManager.getInstance().getWarps().thenAccept(warps -> {
+            if (warps.isEmpty()) {
+                ctx.getSource().sendSuccess(() -> Component.literal("§7[VC] No warps available."), false);
+            } else {
+                ctx.getSource().sendSuccess(() -> Component.literal("§6[VC] Warps: §e" +
+                        String.join(", ", warps.stream().map(w -> w.name()).toList())), false);
+            }
+        });
         return 1;
     }
 
@@ -462,19 +615,20 @@ public class VonixCoreCommands {
         if (player == null)
             return 0;
 
-        var result = KitManager.getInstance().giveKit(player, name);
-        switch (result) {
-            case SUCCESS -> player.sendSystemMessage(Component.literal("§a[VC] Kit '" + name + "' received!"));
-            case NOT_FOUND -> player.sendSystemMessage(Component.literal("§c[VC] Kit not found!"));
-            case ON_COOLDOWN -> {
-                int remaining = KitManager.getInstance().getRemainingCooldown(player.getUUID(), name);
-                player.sendSystemMessage(
-                        Component.literal("§c[VC] Kit on cooldown! " + formatTime(remaining) + " remaining."));
+        KitManager.getInstance().giveKit(player, name).thenAccept(result -> {
+            switch (result) {
+                case SUCCESS -> player.sendSystemMessage(Component.literal("§a[VC] Kit '" + name + "' received!"));
+                case NOT_FOUND -> player.sendSystemMessage(Component.literal("§c[VC] Kit not found!"));
+                case ON_COOLDOWN -> KitManager.getInstance().getRemainingCooldown(player.getUUID(), name)
+                        .thenAccept(remaining -> player.sendSystemMessage(Component.literal(
+                                "§c[VC] Kit on cooldown! " + formatTime(remaining) + " remaining.")));
+                case ALREADY_CLAIMED ->
+                    player.sendSystemMessage(Component.literal("§c[VC] You've already claimed this one-time kit!"));
+                case UNAVAILABLE -> player.sendSystemMessage(
+                        Component.literal("§c[VC] Kits are unavailable right now, try again later."));
             }
-            case ALREADY_CLAIMED ->
-                player.sendSystemMessage(Component.literal("§c[VC] You've already claimed this one-time kit!"));
-        }
-        return result == KitManager.KitResult.SUCCESS ? 1 : 0;
+        });
+        return 1;
     }
 
     private static int listKits(CommandContext<CommandSourceStack> ctx) {
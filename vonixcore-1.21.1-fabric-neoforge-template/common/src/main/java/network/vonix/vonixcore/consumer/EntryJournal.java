@@ -0,0 +1,383 @@
+package network.vonix.vonixcore.consumer;
+
+import network.vonix.vonixcore.VonixCore;
+import network.vonix.vonixcore.consumer.Consumer.LogEntry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal for queued log entries.
+ *
+ * Each entry is appended to a memory-mapped segment file and given a sequence
+ * number before it enters the queue. The writer stores the highest committed
+ * sequence number in vp_consumer_state inside the same transaction as the
+ * batch, then calls {@link #commit(long)} so fully written segments can be
+ * reused. After a crash only records past the stored mark are replayed, so
+ * every entry is inserted exactly once.
+ *
+ * Record layout: int payload length, payload ({@link EntryCodec} form, which
+ * carries the sequence number), int CRC32 of the payload. Every record is
+ * followed by a zero length, which marks the end of the segment's data.
+ *
+ * Producers append under the journal's monitor. {@link #commit(long)} and the
+ * replay iterator are only used by the Consumer's writer thread.
+ */
+final class EntryJournal {
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final int SEGMENT_BYTES = 16 * 1024 * 1024;
+    // Length prefix, CRC and the terminating zero length
+    private static final int RECORD_OVERHEAD = 12;
+    // Fully committed segments kept around for reuse instead of mapping new files
+    private static final int MAX_SPARE_SEGMENTS = 2;
+
+    private final Path dir;
+    private final ArrayDeque<Segment> sealed = new ArrayDeque<>();
+    private final ArrayDeque<Segment> spares = new ArrayDeque<>();
+    private final List<Segment> unforced = new ArrayList<>();
+    private final List<Segment> recovered = new ArrayList<>();
+    private final Buffer scratch = new Buffer();
+    private final DataOutputStream scratchOut = new DataOutputStream(scratch);
+    private final CRC32 crc = new CRC32();
+
+    private Segment active;
+    private long nextSequence;
+    private long segmentCounter;
+
+    private EntryJournal(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Map the journal directory, recovering any segments left by a previous run.
+     *
+     * @param committed highest sequence number already stored in the database
+     */
+    static EntryJournal open(Path dir, long committed) throws IOException {
+        EntryJournal journal = new EntryJournal(dir);
+        synchronized (journal) {
+            journal.recover(committed);
+        }
+        return journal;
+    }
+
+    /**
+     * Give the entry the next sequence number and append it to the journal.
+     * Callers hold the journal's monitor across this and the queue offer, so
+     * sequence order matches queue order.
+     */
+    synchronized void append(LogEntry entry) throws IOException {
+        long sequence = nextSequence;
+        entry.sequence = sequence;
+        scratch.reset();
+        try {
+            EntryCodec.write(scratchOut, entry);
+        } catch (IOException e) {
+            entry.sequence = 0;
+            throw e;
+        }
+        int length = scratch.size();
+        if (active.position + length + RECORD_OVERHEAD > SEGMENT_BYTES) {
+            if (length + RECORD_OVERHEAD > SEGMENT_BYTES) {
+                entry.sequence = 0;
+                throw new IOException("Entry of " + length + " bytes does not fit in a journal segment");
+            }
+            rotate();
+        }
+
+        crc.reset();
+        crc.update(scratch.array(), 0, length);
+        MappedByteBuffer buffer = active.buffer;
+        int pos = active.position;
+        // Payload, checksum and terminator go in before the length so a torn record never looks complete
+        buffer.put(pos + 4, scratch.array(), 0, length);
+        buffer.putInt(pos + 4 + length, (int) crc.getValue());
+        buffer.putInt(pos + 8 + length, 0);
+        buffer.putInt(pos, length);
+
+        active.position = pos + 8 + length;
+        if (active.firstSequence == 0) {
+            active.firstSequence = sequence;
+        }
+        active.lastSequence = sequence;
+        nextSequence++;
+    }
+
+    /**
+     * Mark everything up to and including the sequence number as written.
+     * Segments holding only committed records are reset for reuse.
+     */
+    synchronized void commit(long sequence) {
+        while (!sealed.isEmpty() && sealed.peek().lastSequence <= sequence) {
+            Segment segment = sealed.poll();
+            unforced.remove(segment);
+            recycle(segment);
+        }
+        if (active.position > 0 && active.lastSequence <= sequence) {
+            active.reset();
+        }
+    }
+
+    /**
+     * Flush written records to the storage device.
+     */
+    void force() {
+        List<MappedByteBuffer> buffers = new ArrayList<>();
+        synchronized (this) {
+            for (Segment segment : unforced) {
+                buffers.add(segment.buffer);
+            }
+            unforced.clear();
+            if (active != null && active.position > 0) {
+                buffers.add(active.buffer);
+            }
+        }
+        // Outside the lock; msync can take a while and producers shouldn't wait on it
+        for (MappedByteBuffer buffer : buffers) {
+            buffer.force();
+        }
+    }
+
+    void close() {
+        force();
+    }
+
+    /**
+     * Stream the records recovered at open time whose sequence number is
+     * above the given mark, oldest first. Writer thread only.
+     */
+    Iterator<LogEntry> replay(long after) {
+        List<Segment> segments = new ArrayList<>(recovered);
+        recovered.clear();
+        return new ReplayIterator(segments, after);
+    }
+
+    /**
+     * @return number of recovered records waiting to be replayed
+     */
+    long recoveredCount(long after) {
+        long count = 0;
+        for (Segment segment : recovered) {
+            int pos = 0;
+            int length;
+            while ((length = segment.buffer.getInt(pos)) > 0) {
+                if (segment.buffer.getLong(pos + 5) > after) {
+                    count++;
+                }
+                pos += length + 8;
+            }
+        }
+        return count;
+    }
+
+    // Callers hold the monitor
+    private void rotate() throws IOException {
+        Segment next = spares.poll();
+        if (next == null) {
+            next = map(dir.resolve(String.format("journal-%016d%s", segmentCounter++, SEGMENT_SUFFIX)));
+        }
+        if (active.position > 0) {
+            sealed.add(active);
+            unforced.add(active);
+        } else {
+            spares.add(active);
+        }
+        active = next;
+    }
+
+    private void recycle(Segment segment) {
+        segment.reset();
+        if (spares.size() < MAX_SPARE_SEGMENTS) {
+            spares.add(segment);
+            return;
+        }
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            // Still mapped on some platforms; it is picked up as a spare on the next start
+            VonixCore.LOGGER.debug("[vonixcore] Could not delete journal segment {}: {}", segment.path, e.getMessage());
+        }
+    }
+
+    private void recover(long committed) throws IOException {
+        Files.createDirectories(dir);
+        List<Path> paths = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX)).forEach(paths::add);
+        }
+
+        long highest = committed;
+        List<Segment> live = new ArrayList<>();
+        for (Path path : paths) {
+            String name = path.getFileName().toString();
+            try {
+                long index = Long.parseLong(name.substring("journal-".length(), name.length() - SEGMENT_SUFFIX.length()));
+                segmentCounter = Math.max(segmentCounter, index + 1);
+            } catch (NumberFormatException | IndexOutOfBoundsException ignored) {
+            }
+
+            Segment segment = map(path);
+            scan(segment);
+            highest = Math.max(highest, segment.lastSequence);
+            if (segment.position > 0 && segment.lastSequence > committed) {
+                live.add(segment);
+            } else {
+                recycle(segment);
+            }
+        }
+
+        // Spare segments are reused out of name order, so order by content instead
+        live.sort(Comparator.comparingLong(segment -> segment.firstSequence));
+        sealed.addAll(live);
+        recovered.addAll(live);
+        nextSequence = highest + 1;
+
+        active = spares.poll();
+        if (active == null) {
+            active = map(dir.resolve(String.format("journal-%016d%s", segmentCounter++, SEGMENT_SUFFIX)));
+        }
+    }
+
+    /**
+     * Find the end of a segment's valid records. A torn or corrupt record
+     * ends the segment; nothing after it was acknowledged.
+     */
+    private void scan(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int pos = 0;
+        byte[] payload = new byte[256];
+        while (pos + RECORD_OVERHEAD <= SEGMENT_BYTES) {
+            int length = buffer.getInt(pos);
+            if (length <= 0 || pos + length + RECORD_OVERHEAD > SEGMENT_BYTES) {
+                break;
+            }
+            if (payload.length < length) {
+                payload = new byte[Math.max(length, payload.length * 2)];
+            }
+            buffer.get(pos + 4, payload, 0, length);
+            crc.reset();
+            crc.update(payload, 0, length);
+            if (buffer.getInt(pos + 4 + length) != (int) crc.getValue()) {
+                VonixCore.LOGGER.warn("[vonixcore] Journal segment {} has a torn record at offset {}, ignoring the rest",
+                        segment.path.getFileName(), pos);
+                break;
+            }
+            long sequence = buffer.getLong(pos + 5);
+            if (segment.firstSequence == 0) {
+                segment.firstSequence = sequence;
+            }
+            segment.lastSequence = Math.max(segment.lastSequence, sequence);
+            pos += length + 8;
+        }
+        // Make sure appends and replay stop at the last good record
+        if (pos + 4 <= SEGMENT_BYTES) {
+            buffer.putInt(pos, 0);
+        }
+        segment.position = pos;
+    }
+
+    private static Segment map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            return new Segment(path, channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES));
+        }
+    }
+
+    private static final class Segment {
+        final Path path;
+        final MappedByteBuffer buffer;
+        int position;
+        long firstSequence;
+        long lastSequence;
+
+        Segment(Path path, MappedByteBuffer buffer) {
+            this.path = path;
+            this.buffer = buffer;
+        }
+
+        void reset() {
+            buffer.putInt(0, 0);
+            position = 0;
+            firstSequence = 0;
+            lastSequence = 0;
+        }
+    }
+
+    private static final class ReplayIterator implements Iterator<LogEntry> {
+        private final List<Segment> segments;
+        private final long after;
+        private int segmentIndex;
+        private int pos;
+        private LogEntry next;
+
+        ReplayIterator(List<Segment> segments, long after) {
+            this.segments = segments;
+            this.after = after;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && segmentIndex < segments.size()) {
+                MappedByteBuffer buffer = segments.get(segmentIndex).buffer;
+                int length = buffer.getInt(pos);
+                if (length <= 0) {
+                    segmentIndex++;
+                    pos = 0;
+                    continue;
+                }
+                if (buffer.getLong(pos + 5) > after) {
+                    byte[] payload = new byte[length];
+                    buffer.get(pos + 4, payload);
+                    try {
+                        next = EntryCodec.read(new DataInputStream(new ByteArrayInputStream(payload)));
+                    } catch (IOException e) {
+                        VonixCore.LOGGER.error("[vonixcore] Skipping unreadable journal record: {}", e.getMessage());
+                    }
+                }
+                pos += length + 8;
+            }
+            return next != null;
+        }
+
+        @Override
+        public LogEntry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            LogEntry entry = next;
+            next = null;
+            return entry;
+        }
+    }
+
+    /**
+     * Reusable encode buffer exposing its backing array.
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+        Buffer() {
+            super(256);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
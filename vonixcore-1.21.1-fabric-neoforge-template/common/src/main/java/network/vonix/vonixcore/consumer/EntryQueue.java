@@ -0,0 +1,376 @@
+package network.vonix.vonixcore.consumer;
+
+import network.vonix.vonixcore.VonixCore;
+import network.vonix.vonixcore.consumer.Consumer.LogEntry;
+import network.vonix.vonixcore.consumer.Consumer.QueueEntry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Bounded queue between the logging hooks and the Consumer's writer thread.
+ *
+ * Entries live in a fixed-size {@link RingBuffer}. When it is full (for
+ * example while a remote database is stalled) the configured
+ * {@link OverflowPolicy} decides what happens to new entries, so heap use
+ * stays bounded no matter how far the writer falls behind.
+ */
+public class EntryQueue {
+
+    public enum OverflowPolicy {
+        /** Park the producer for up to the configured time, then drop the entry. */
+        BLOCK,
+        /** Evict the oldest queued entry to make room. */
+        DROP_OLDEST,
+        /** Append entries to spill files on disk and replay them once the queue drains. */
+        SPILL;
+
+        public static OverflowPolicy fromConfig(String value) {
+            return switch (value.toLowerCase()) {
+                case "drop_oldest", "drop-oldest" -> DROP_OLDEST;
+                case "spill", "spill_to_disk", "spill-to-disk" -> SPILL;
+                default -> BLOCK;
+            };
+        }
+    }
+
+    private static final long PARK_NANOS = 50_000L;
+    private static final int MAX_SEGMENT_BYTES = 64 * 1024 * 1024;
+    private static final String SEGMENT_SUFFIX = ".spill";
+
+    private final RingBuffer<QueueEntry> ring;
+    private final OverflowPolicy policy;
+    private final long blockNanos;
+    private final Path spillDir;
+    private final java.util.function.Consumer<QueueEntry> release;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final AtomicLong highWaterMark = new AtomicLong();
+
+    // Spill state. Producers append under spillLock; the writer thread replays.
+    private final Object spillLock = new Object();
+    private final ArrayDeque<Path> spillSegments = new ArrayDeque<>();
+    private volatile boolean spilling;
+    private DataOutputStream spillOut;
+    private Path spillPath;
+    private int spillPending;
+    private long spillSequence;
+
+    // Writer thread only
+    private DataInputStream replayIn;
+    private Path replayPath;
+
+    /**
+     * @param release called with entries the queue no longer references
+     *                (dropped, or copied to disk) so pooled entries can be reused
+     */
+    public EntryQueue(int capacity, OverflowPolicy policy, long blockMillis, Path spillDir,
+            java.util.function.Consumer<QueueEntry> release) {
+        this.ring = new RingBuffer<>(capacity);
+        this.policy = policy;
+        this.blockNanos = blockMillis * 1_000_000L;
+        this.spillDir = spillDir;
+        this.release = release;
+        recoverSpillSegments();
+    }
+
+    /**
+     * Add an entry, applying the overflow policy if the buffer is full.
+     *
+     * @return false if the entry was dropped
+     */
+    public boolean offer(QueueEntry entry) {
+        return offer(entry, true);
+    }
+
+    /**
+     * {@link #offer(QueueEntry)} for callers that may have to hold a lock
+     * other producers wait on.
+     *
+     * @param mayPark false to spill the entry to disk at once under the BLOCK
+     *                policy rather than park for a free slot
+     * @return false if the entry was dropped
+     */
+    public boolean offer(QueueEntry entry, boolean mayPark) {
+        boolean spillPolicy = policy == OverflowPolicy.SPILL || (policy == OverflowPolicy.BLOCK && !mayPark);
+        // Once spilling, keep appending to disk so replay order stays FIFO
+        if (spilling && spillPolicy && spill(entry)) {
+            return true;
+        }
+        if (ring.offer(entry)) {
+            accepted();
+            return true;
+        }
+
+        switch (policy) {
+            case DROP_OLDEST -> {
+                while (!ring.offer(entry)) {
+                    QueueEntry oldest = ring.poll();
+                    if (oldest != null) {
+                        dropped.increment();
+                        release.accept(oldest);
+                    }
+                }
+                accepted();
+                return true;
+            }
+            default -> {
+                if (spillPolicy && spill(entry)) {
+                    return true;
+                }
+            }
+        }
+        if (!mayPark) {
+            dropped.increment();
+            release.accept(entry);
+            return false;
+        }
+
+        // BLOCK, or an entry that cannot be spilled
+        long deadline = System.nanoTime() + blockNanos;
+        while (System.nanoTime() < deadline) {
+            LockSupport.parkNanos(PARK_NANOS);
+            if (ring.offer(entry)) {
+                accepted();
+                return true;
+            }
+        }
+        dropped.increment();
+        release.accept(entry);
+        return false;
+    }
+
+    /**
+     * Take the oldest entry. Only called from the Consumer's writer thread.
+     */
+    public QueueEntry poll() {
+        QueueEntry entry = ring.poll();
+        if (entry != null) {
+            return entry;
+        }
+        return spilling || replayIn != null ? pollSpilled() : null;
+    }
+
+    public boolean isEmpty() {
+        return ring.isEmpty() && !spilling && replayIn == null;
+    }
+
+    public int size() {
+        return ring.size();
+    }
+
+    public int capacity() {
+        return ring.capacity();
+    }
+
+    public long getEnqueuedCount() {
+        return enqueued.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getSpilledCount() {
+        return spilled.sum();
+    }
+
+    public long getHighWaterMark() {
+        return highWaterMark.get();
+    }
+
+    /**
+     * Called once the writer has stopped. With the spill policy, anything the
+     * writer could not flush is moved to disk and replayed on the next start.
+     */
+    public void close() {
+        if (policy == OverflowPolicy.SPILL && spillDir != null) {
+            // Re-spill the unread tail of a half-replayed segment so it isn't replayed twice
+            while (replayIn != null) {
+                QueueEntry entry = readReplay();
+                if (entry != null) {
+                    respill(entry);
+                }
+            }
+            QueueEntry entry;
+            while ((entry = ring.poll()) != null) {
+                respill(entry);
+            }
+        }
+        synchronized (spillLock) {
+            rotateSegment();
+        }
+    }
+
+    private void respill(QueueEntry entry) {
+        if (!spill(entry)) {
+            dropped.increment();
+            release.accept(entry);
+        }
+    }
+
+    private void accepted() {
+        enqueued.increment();
+        int size = ring.size();
+        if (size > highWaterMark.get()) {
+            highWaterMark.accumulateAndGet(size, Math::max);
+        }
+    }
+
+    private boolean spill(QueueEntry entry) {
+        if (spillDir == null || !(entry instanceof LogEntry logEntry)) {
+            return false;
+        }
+        synchronized (spillLock) {
+            try {
+                if (spillOut == null) {
+                    openSegment();
+                }
+                EntryCodec.write(spillOut, logEntry);
+                spillPending++;
+                spilling = true;
+                if (spillOut.size() >= MAX_SEGMENT_BYTES) {
+                    rotateSegment();
+                }
+            } catch (IOException e) {
+                VonixCore.LOGGER.error("[vonixcore] Failed to spill queue entry to disk: {}", e.getMessage());
+                return false;
+            }
+        }
+        enqueued.increment();
+        spilled.increment();
+        release.accept(entry);
+        return true;
+    }
+
+    private QueueEntry pollSpilled() {
+        while (true) {
+            if (replayIn == null && !openNextReplay()) {
+                return null;
+            }
+            QueueEntry entry = readReplay();
+            if (entry != null) {
+                return entry;
+            }
+        }
+    }
+
+    /**
+     * @return the next replayed entry, or null once the current segment is exhausted
+     */
+    private QueueEntry readReplay() {
+        try {
+            return EntryCodec.read(replayIn);
+        } catch (EOFException e) {
+            finishReplay();
+        } catch (IOException e) {
+            VonixCore.LOGGER.error("[vonixcore] Corrupt spill segment {}: {}", replayPath, e.getMessage());
+            finishReplay();
+        }
+        return null;
+    }
+
+    private boolean openNextReplay() {
+        Path next;
+        synchronized (spillLock) {
+            next = spillSegments.poll();
+            if (next == null) {
+                if (spillPending == 0) {
+                    spilling = false;
+                    return false;
+                }
+                rotateSegment();
+                next = spillSegments.poll();
+            }
+        }
+        try {
+            replayIn = new DataInputStream(new BufferedInputStream(Files.newInputStream(next), 1 << 16));
+            replayPath = next;
+            return true;
+        } catch (IOException e) {
+            VonixCore.LOGGER.error("[vonixcore] Failed to open spill segment {}: {}", next, e.getMessage());
+            return false;
+        }
+    }
+
+    private void finishReplay() {
+        try {
+            replayIn.close();
+            Files.deleteIfExists(replayPath);
+        } catch (IOException e) {
+            VonixCore.LOGGER.warn("[vonixcore] Failed to remove spill segment {}: {}", replayPath, e.getMessage());
+        }
+        replayIn = null;
+        replayPath = null;
+    }
+
+    // Callers hold spillLock
+    private void openSegment() throws IOException {
+        Files.createDirectories(spillDir);
+        spillPath = spillDir.resolve(String.format("segment-%016d%s", spillSequence++, SEGMENT_SUFFIX));
+        spillOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spillPath), 1 << 16));
+        spillPending = 0;
+    }
+
+    // Callers hold spillLock
+    private void rotateSegment() {
+        if (spillOut == null) {
+            return;
+        }
+        try {
+            spillOut.close();
+        } catch (IOException e) {
+            VonixCore.LOGGER.error("[vonixcore] Failed to close spill segment {}: {}", spillPath, e.getMessage());
+        }
+        if (spillPending > 0) {
+            spillSegments.add(spillPath);
+        } else {
+            try {
+                Files.deleteIfExists(spillPath);
+            } catch (IOException ignored) {
+            }
+        }
+        spillOut = null;
+        spillPath = null;
+        spillPending = 0;
+    }
+
+    private void recoverSpillSegments() {
+        if (spillDir == null || !Files.isDirectory(spillDir)) {
+            return;
+        }
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(spillDir)) {
+            files.filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().forEach(segments::add);
+        } catch (IOException e) {
+            VonixCore.LOGGER.error("[vonixcore] Failed to scan spill directory: {}", e.getMessage());
+            return;
+        }
+        if (!segments.isEmpty()) {
+            spillSegments.addAll(segments);
+            spillSequence = segments.size();
+            String last = segments.get(segments.size() - 1).getFileName().toString();
+            try {
+                spillSequence = Long.parseLong(last.substring("segment-".length(), last.length() - SEGMENT_SUFFIX.length())) + 1;
+            } catch (NumberFormatException | IndexOutOfBoundsException ignored) {
+            }
+            spilling = true;
+            VonixCore.LOGGER.info("[vonixcore] Found {} spilled queue segment(s) to replay", segments.size());
+        }
+    }
+}
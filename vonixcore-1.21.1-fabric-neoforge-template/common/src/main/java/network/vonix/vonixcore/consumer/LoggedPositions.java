@@ -0,0 +1,268 @@
+package network.vonix.vonixcore.consumer;
+
+import network.vonix.vonixcore.VonixCore;
+import network.vonix.vonixcore.archive.ArchiveTable;
+import network.vonix.vonixcore.archive.ArchivedRow;
+import network.vonix.vonixcore.archive.LogArchive;
+import network.vonix.vonixcore.database.Database;
+import network.vonix.vonixcore.history.BlockHistory;
+import network.vonix.vonixcore.history.BlockRecord;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-memory map of which block positions have ever been logged, so a
+ * lookup at a spot nobody touched can answer "no results" without a query.
+ *
+ * Each chunk keeps one bit per block column and one bit per 16-block
+ * section of height. A position counts as logged when both its column and
+ * its section bit are set: a miss is certain, a hit may be a false positive
+ * and goes on to SQL.
+ *
+ * Bits are kept per 32x32 chunk region and read from vp_block and the log
+ * archive (or the block history store) the first time a lookup touches the
+ * region. Writers mark rows after they commit, but only in regions already
+ * in memory; a region loaded later reads those rows back itself. The least
+ * recently used regions are dropped past the configured limit.
+ */
+public final class LoggedPositions {
+
+    // Larger lookups go to SQL rather than loading this many regions' bits
+    private static final int MAX_CHUNKS = 256;
+    private static final int FETCH_SIZE = 1000;
+
+    private final Database database;
+    private final Dictionary dictionary;
+    private final BlockHistory blockHistory;
+    // Access ordered for eviction; guarded by itself
+    private final Map<RegionKey, Region> regions;
+
+    private final AtomicLong checked = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    /**
+     * @param maxRegions regions kept in memory
+     * @param database where regions are read from on first access
+     * @param blockHistory where block rows live, or null for vp_block
+     */
+    LoggedPositions(int maxRegions, Database database, Dictionary dictionary, BlockHistory blockHistory) {
+        this.database = database;
+        this.dictionary = dictionary;
+        this.blockHistory = blockHistory;
+        this.regions = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RegionKey, Region> eldest) {
+                return size() > maxRegions;
+            }
+        };
+    }
+
+    /**
+     * Writer threads: record a committed row.
+     */
+    void mark(String world, int x, int y, int z) {
+        Region region;
+        synchronized (regions) {
+            region = regions.get(new RegionKey(world, x >> 9, z >> 9));
+        }
+        if (region != null) {
+            region.mark(x, y, z);
+        }
+    }
+
+    /**
+     * Lookup threads: check whether any block in the box was ever logged.
+     * Loads the bits of regions not yet in memory.
+     *
+     * @return false only if nothing in the box was logged
+     */
+    public boolean mightContain(String world, int minX, int maxX, int minY, int maxY, int minZ, int maxZ) {
+        checked.incrementAndGet();
+        if ((long) ((maxX >> 4) - (minX >> 4) + 1) * ((maxZ >> 4) - (minZ >> 4) + 1) > MAX_CHUNKS) {
+            return true;
+        }
+        for (int regionX = minX >> 9; regionX <= maxX >> 9; regionX++) {
+            for (int regionZ = minZ >> 9; regionZ <= maxZ >> 9; regionZ++) {
+                RegionKey key = new RegionKey(world, regionX, regionZ);
+                Region region;
+                synchronized (regions) {
+                    region = regions.computeIfAbsent(key, k -> new Region());
+                }
+                if (!region.load(key) || region.contains(Math.max(minX, regionX << 9),
+                        Math.min(maxX, (regionX << 9) + 511), minY, maxY, Math.max(minZ, regionZ << 9),
+                        Math.min(maxZ, (regionZ << 9) + 511))) {
+                    return true;
+                }
+            }
+        }
+        skipped.incrementAndGet();
+        return false;
+    }
+
+    public long getChecked() {
+        return checked.get();
+    }
+
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    public int getRegionCount() {
+        synchronized (regions) {
+            return regions.size();
+        }
+    }
+
+    /**
+     * @return false if the rows could not be read
+     */
+    private boolean readRows(RegionKey key, Region region) {
+        int minX = key.regionX() << 9;
+        int minZ = key.regionZ() << 9;
+        try (Connection conn = database.getConnection()) {
+            int world = dictionary.findWorldId(conn, key.world());
+            if (world == 0) {
+                return true;
+            }
+            if (blockHistory != null) {
+                BlockHistory.ChunkScan scan = blockHistory.scan(world,
+                        BlockHistory.Filter.everywhere(0, Set.of(), Set.of(), -1)
+                                .within(minX, minX + 511, Integer.MIN_VALUE, Integer.MAX_VALUE, minZ, minZ + 511),
+                        false);
+                BlockHistory.ChunkRecords chunk;
+                while ((chunk = scan.next()) != null) {
+                    for (BlockRecord record : chunk.records()) {
+                        region.mark(record.x(), record.y(), record.z());
+                    }
+                }
+                return true;
+            }
+            // PostgreSQL only honours the fetch size inside a transaction
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT x, y, z FROM vp_block WHERE world = ? AND x BETWEEN ? AND ? AND z BETWEEN ? AND ?",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                // MySQL streams row by row only with this marker value
+                stmt.setFetchSize(database.isMySQL() ? Integer.MIN_VALUE : FETCH_SIZE);
+                stmt.setInt(1, world);
+                stmt.setInt(2, minX);
+                stmt.setInt(3, minX + 511);
+                stmt.setInt(4, minZ);
+                stmt.setInt(5, minZ + 511);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        region.mark(rs.getInt(1), rs.getInt(2), rs.getInt(3));
+                    }
+                }
+            } finally {
+                conn.rollback();
+            }
+            LogArchive archive = database.getArchive();
+            if (archive.covers(ArchiveTable.BLOCK, 0)) {
+                LogArchive.Scan scan = archive.scan(ArchiveTable.BLOCK, world,
+                        LogArchive.Filter.everywhere(0, Set.of(), Set.of(), -1)
+                                .within(minX, minX + 511, Integer.MIN_VALUE, Integer.MAX_VALUE, minZ, minZ + 511),
+                        false);
+                List<ArchivedRow> rows;
+                while ((rows = scan.next()) != null) {
+                    for (ArchivedRow row : rows) {
+                        region.mark(row.get(ArchiveTable.X), row.get(ArchiveTable.Y), row.get(ArchiveTable.Z));
+                    }
+                }
+            }
+            return true;
+        } catch (SQLException | IOException e) {
+            VonixCore.LOGGER.warn("[vonixcore] Failed to read logged positions of region {},{}: {}",
+                    key.regionX(), key.regionZ(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Section bits wrap at 64, which covers any world height Minecraft allows.
+     */
+    private static long sectionMask(int from, int to) {
+        long mask = 0;
+        for (int section = from; section <= to; section++) {
+            mask |= 1L << section;
+        }
+        return mask;
+    }
+
+    private record RegionKey(String world, int regionX, int regionZ) {
+    }
+
+    /**
+     * The bits of one region's chunks; null chunks have nothing logged.
+     */
+    private final class Region {
+        // Per chunk: four longs of column bits, then one of section bits
+        private final long[][] chunks = new long[32 * 32][];
+        private final Object loadLock = new Object();
+        private volatile boolean loaded;
+
+        synchronized void mark(int x, int y, int z) {
+            int index = ((z >> 4) & 31) * 32 + ((x >> 4) & 31);
+            long[] bits = chunks[index];
+            if (bits == null) {
+                bits = new long[5];
+                chunks[index] = bits;
+            }
+            int column = (z & 15) * 16 + (x & 15);
+            bits[column >> 6] |= 1L << column;
+            bits[4] |= 1L << (y >> 4);
+        }
+
+        /**
+         * @return false if the region could not be read and must be assumed logged
+         */
+        boolean load(RegionKey key) {
+            if (loaded) {
+                return true;
+            }
+            synchronized (loadLock) {
+                if (!loaded) {
+                    loaded = readRows(key, this);
+                }
+                return loaded;
+            }
+        }
+
+        /**
+         * @param minX box within this region, in block coordinates
+         */
+        synchronized boolean contains(int minX, int maxX, int minY, int maxY, int minZ, int maxZ) {
+            long sections = (long) maxY - minY >= 16 * 64 ? -1L : sectionMask(minY >> 4, maxY >> 4);
+            for (int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+                for (int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+                    long[] bits = chunks[(chunkZ & 31) * 32 + (chunkX & 31)];
+                    if (bits == null || (bits[4] & sections) == 0) {
+                        continue;
+                    }
+                    int fromX = Math.max(minX, chunkX << 4) & 15;
+                    int toX = Math.min(maxX, (chunkX << 4) + 15) & 15;
+                    int fromZ = Math.max(minZ, chunkZ << 4) & 15;
+                    int toZ = Math.min(maxZ, (chunkZ << 4) + 15) & 15;
+                    for (int z = fromZ; z <= toZ; z++) {
+                        for (int x = fromX; x <= toX; x++) {
+                            int column = z * 16 + x;
+                            if ((bits[column >> 6] & (1L << column)) != 0) {
+                                return true;
+                            }
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+    }
+}
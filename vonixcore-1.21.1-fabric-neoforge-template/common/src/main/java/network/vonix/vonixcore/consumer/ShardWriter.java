@@ -0,0 +1,442 @@
+package network.vonix.vonixcore.consumer;
+
+import network.vonix.vonixcore.VonixCore;
+import network.vonix.vonixcore.config.DatabaseConfig;
+import network.vonix.vonixcore.consumer.Consumer.BatchableEntry;
+import network.vonix.vonixcore.consumer.Consumer.BlockLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.LogEntry;
+import network.vonix.vonixcore.consumer.Consumer.QueueEntry;
+import network.vonix.vonixcore.history.BlockHistory;
+import network.vonix.vonixcore.history.BlockRecord;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Writes one share of the Consumer's entries over its own pooled connection.
+ *
+ * Entries are grouped by insert statement and written with one
+ * addBatch/executeBatch per table. Each writer keeps two journal marks in
+ * vp_consumer_state, advanced in the same transaction as its rows: one for
+ * block changes and one for everything else. Block changes can sit in the
+ * coalescer while later entries are written, so they need a mark of their
+ * own or a replay would insert those later entries twice. Entries always
+ * reach the same writer for the same table (or chunk, for vp_block), so the
+ * marks stay meaningful across restarts as long as the writer count doesn't
+ * change.
+ *
+ * On PostgreSQL larger groups are streamed with COPY instead (see
+ * {@link CopyWriter}), and with a {@link BlockHistory} store block changes
+ * are appended there rather than to vp_block. The store is written before
+ * the journal marks are committed, so a failed commit can repeat rows in
+ * the store but never lose them. Block rows are added to
+ * {@link LoggedPositions} only once committed.
+ *
+ * With a single writer the Consumer thread drives it directly. With more,
+ * each writer runs on its own thread and the Consumer thread hands it
+ * {@link Chunk}s through an inbox.
+ */
+final class ShardWriter {
+
+    private static final String UPDATE_SEQUENCE_SQL = "UPDATE vp_consumer_state SET last_seq = ? WHERE id = ?";
+
+    static final int LANE_BLOCK = 0;
+    static final int LANE_OTHER = 1;
+    static final int LANES = 2;
+    // vp_consumer_state id of a lane's mark is index + 1 + lane * LANE_STATE_OFFSET
+    static final int LANE_STATE_OFFSET = 1000;
+
+    private final int index;
+    private final Dictionary dictionary;
+    private final java.util.function.Consumer<QueueEntry> release;
+    // Null unless COPY is enabled on a PostgreSQL database
+    private final CopyWriter copyWriter;
+    // Null when block changes go to vp_block
+    private final BlockHistory blockHistory;
+    // Null when the lookup filter is off
+    private final LoggedPositions loggedPositions;
+
+    // Writer thread only (the Consumer thread in single-writer mode)
+    private final Map<String, List<BatchableEntry>> batches = new LinkedHashMap<>();
+    private final List<QueueEntry> direct = new ArrayList<>();
+    private int batchedCount;
+    // Per lane, highest journal sequence this writer may record once everything it holds is written
+    private final long[] ceiling = new long[LANES];
+
+    private final long[] committed = new long[LANES];
+    // Lowest committed mark, also raised while idle, for trimming the journal
+    private volatile long safeSequence;
+
+    // Multi-writer mode only
+    private final ConcurrentLinkedQueue<Chunk> inbox = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inboxSize = new AtomicInteger();
+    private ScheduledExecutorService executor;
+
+    /**
+     * @param committed the marks stored for this writer, per lane
+     * @param copy      stream large groups with PostgreSQL COPY
+     */
+    ShardWriter(int index, long[] committed, Dictionary dictionary, boolean copy, BlockHistory blockHistory,
+            LoggedPositions loggedPositions, java.util.function.Consumer<QueueEntry> release) {
+        this.index = index;
+        for (int lane = 0; lane < LANES; lane++) {
+            this.committed[lane] = committed[lane];
+            this.ceiling[lane] = committed[lane];
+        }
+        this.safeSequence = Math.min(committed[LANE_BLOCK], committed[LANE_OTHER]);
+        this.dictionary = dictionary;
+        this.copyWriter = copy ? new CopyWriter() : null;
+        this.blockHistory = blockHistory;
+        this.loggedPositions = loggedPositions;
+        this.release = release;
+    }
+
+    static int stateId(int index, int lane) {
+        return index + 1 + lane * LANE_STATE_OFFSET;
+    }
+
+    /**
+     * Any thread; a stale value only means a duplicate is written rather than skipped.
+     */
+    synchronized long getCommittedSequence(int lane) {
+        return committed[lane];
+    }
+
+    long getSafeSequence() {
+        return safeSequence;
+    }
+
+    int size() {
+        return batchedCount + direct.size();
+    }
+
+    boolean isEmpty() {
+        return batchedCount == 0 && direct.isEmpty();
+    }
+
+    /**
+     * Take over a round of entries.
+     *
+     * @param ceiling per lane, every journaled entry routed to this writer
+     *                with a lower or equal sequence number is in this round
+     *                or an earlier one
+     */
+    void accept(List<QueueEntry> entries, long[] ceiling) {
+        for (QueueEntry entry : entries) {
+            if (entry instanceof BatchableEntry batchable) {
+                batches.computeIfAbsent(batchable.getSql(), sql -> new ArrayList<>()).add(batchable);
+                batchedCount++;
+            } else {
+                direct.add(entry);
+            }
+        }
+        for (int lane = 0; lane < LANES; lane++) {
+            this.ceiling[lane] = Math.max(this.ceiling[lane], ceiling[lane]);
+        }
+    }
+
+    /**
+     * Write everything held in one transaction with this writer's sequence
+     * mark. On failure the entries are kept and retried on the next call.
+     *
+     * @return number of entries written
+     */
+    int write(Connection conn) throws SQLException {
+        int processed = 0;
+        for (QueueEntry entry : direct) {
+            // As in executeBatch, so a failed entry neither leaves part of its writes
+            // behind nor, on PostgreSQL, aborts the transaction for everything after it
+            Savepoint savepoint = conn.setSavepoint();
+            try {
+                entry.execute(conn);
+                conn.releaseSavepoint(savepoint);
+                processed++;
+            } catch (SQLException e) {
+                conn.rollback(savepoint);
+                VonixCore.LOGGER.error("[vonixcore] Failed to process queue entry: {}", e.getMessage());
+            }
+        }
+
+        // Names are turned into ids and committed on their own, ahead of the rows using them
+        for (List<BatchableEntry> entries : batches.values()) {
+            for (BatchableEntry batchable : entries) {
+                if (batchable instanceof LogEntry logEntry) {
+                    logEntry.resolve(dictionary, conn);
+                }
+            }
+        }
+        conn.commit();
+        // Committed along with the names; kept until now so a failure above runs them again
+        direct.clear();
+
+        for (Map.Entry<String, List<BatchableEntry>> batch : batches.entrySet()) {
+            List<BatchableEntry> entries = batch.getValue();
+            if (entries.isEmpty()) {
+                continue;
+            }
+            if (blockHistory != null && entries.get(0) instanceof BlockLogEntry) {
+                processed += appendHistory(entries);
+            } else if (copyWriter != null && entries.size() >= CopyWriter.MIN_ROWS && entries.get(0) instanceof LogEntry
+                    && CopyWriter.isAvailable(conn)) {
+                processed += copyBatch(conn, batch.getKey(), entries);
+            } else {
+                processed += executeBatch(conn, batch.getKey(), entries);
+            }
+        }
+
+        // Stored in the same transaction as the rows so a replay never inserts them twice
+        long[] marks = ceiling.clone();
+        boolean advance = false;
+        try (PreparedStatement stmt = conn.prepareStatement(UPDATE_SEQUENCE_SQL)) {
+            for (int lane = 0; lane < LANES; lane++) {
+                if (marks[lane] > committed[lane]) {
+                    stmt.setLong(1, marks[lane]);
+                    stmt.setInt(2, stateId(index, lane));
+                    stmt.addBatch();
+                    advance = true;
+                }
+            }
+            if (advance) {
+                stmt.executeBatch();
+            }
+        }
+
+        conn.commit();
+
+        if (advance) {
+            synchronized (this) {
+                for (int lane = 0; lane < LANES; lane++) {
+                    committed[lane] = Math.max(committed[lane], marks[lane]);
+                }
+            }
+            safeSequence = Math.max(safeSequence, Math.min(marks[LANE_BLOCK], marks[LANE_OTHER]));
+        }
+        if (loggedPositions != null) {
+            for (List<BatchableEntry> entries : batches.values()) {
+                for (BatchableEntry entry : entries) {
+                    if (entry instanceof BlockLogEntry blockEntry) {
+                        blockEntry.markLogged(loggedPositions);
+                    }
+                }
+            }
+        }
+        recycle();
+        return processed;
+    }
+
+    /**
+     * Insert one group of entries sharing the same statement. If the batch is
+     * rejected, roll back to a savepoint and retry row by row so a single bad
+     * row doesn't discard the rest of the group.
+     */
+    private int executeBatch(Connection conn, String sql, List<BatchableEntry> entries) throws SQLException {
+        Savepoint savepoint = conn.setSavepoint();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (BatchableEntry entry : entries) {
+                entry.bind(stmt);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            conn.releaseSavepoint(savepoint);
+            return entries.size();
+        } catch (SQLException e) {
+            VonixCore.LOGGER.warn("[vonixcore] Batch insert of {} entries failed, retrying individually: {}",
+                    entries.size(), e.getMessage());
+            conn.rollback(savepoint);
+        }
+
+        int processed = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (BatchableEntry entry : entries) {
+                Savepoint rowSavepoint = conn.setSavepoint();
+                try {
+                    entry.bind(stmt);
+                    stmt.executeUpdate();
+                    conn.releaseSavepoint(rowSavepoint);
+                    processed++;
+                } catch (SQLException e) {
+                    conn.rollback(rowSavepoint);
+                    VonixCore.LOGGER.error("[vonixcore] Failed to process queue entry: {}", e.getMessage());
+                }
+            }
+        }
+        return processed;
+    }
+
+    /**
+     * Stream one group with COPY. COPY is all or nothing, so if it fails the
+     * group is rolled back and goes through {@link #executeBatch}, which can
+     * still save the good rows.
+     */
+    private int copyBatch(Connection conn, String sql, List<BatchableEntry> entries) throws SQLException {
+        Savepoint savepoint = conn.setSavepoint();
+        try {
+            int processed = copyWriter.copy(conn, sql, entries);
+            conn.releaseSavepoint(savepoint);
+            return processed;
+        } catch (SQLException e) {
+            VonixCore.LOGGER.warn("[vonixcore] COPY of {} entries failed, retrying as inserts: {}",
+                    entries.size(), e.getMessage());
+            conn.rollback(savepoint);
+        }
+        return executeBatch(conn, sql, entries);
+    }
+
+    private int appendHistory(List<BatchableEntry> entries) throws SQLException {
+        List<BlockRecord> records = new ArrayList<>(entries.size());
+        for (BatchableEntry entry : entries) {
+            records.add(((BlockLogEntry) entry).toRecord());
+        }
+        try {
+            blockHistory.append(records);
+        } catch (IOException e) {
+            // Fails the whole write so the entries are kept and retried
+            throw new SQLException("Block history append failed", e);
+        }
+        return records.size();
+    }
+
+    private void recycle() {
+        for (List<BatchableEntry> entries : batches.values()) {
+            for (BatchableEntry entry : entries) {
+                release.accept(entry);
+            }
+            entries.clear();
+        }
+        batchedCount = 0;
+    }
+
+    /**
+     * @return everything not yet written, including the inbox, and forget it
+     */
+    List<QueueEntry> takeUnwritten() {
+        Chunk chunk;
+        while ((chunk = inbox.poll()) != null) {
+            accept(chunk.entries(), chunk.ceiling());
+        }
+        inboxSize.set(0);
+        List<QueueEntry> unwritten = new ArrayList<>(direct);
+        for (List<BatchableEntry> entries : batches.values()) {
+            unwritten.addAll(entries);
+            entries.clear();
+        }
+        direct.clear();
+        batchedCount = 0;
+        return unwritten;
+    }
+
+    // ---- Multi-writer mode ----
+
+    /**
+     * Start this writer's own thread.
+     *
+     * @param dispatched lowest ceiling of the last round handed to any writer,
+     *                   so an idle writer can still let the journal be trimmed
+     * @param committed  called after this writer's safe sequence advanced
+     */
+    void start(int delayMs, LongSupplier dispatched, Runnable committed) {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "vonixcore-Consumer-" + (index + 1));
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> flush(dispatched, committed), delayMs, delayMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the writer thread and write what is left from the calling thread.
+     */
+    void stop() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        // Bail out if the database is gone; the caller collects the rest
+        while (!inbox.isEmpty() || !isEmpty()) {
+            if (!writeNext()) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Consumer thread: queue a round of entries for this writer.
+     */
+    void submit(List<QueueEntry> entries, long[] ceiling) {
+        inbox.add(new Chunk(entries, ceiling));
+        inboxSize.incrementAndGet();
+    }
+
+    int getBacklog() {
+        return inboxSize.get();
+    }
+
+    private void flush(LongSupplier dispatched, Runnable committed) {
+        // Read before looking at the inbox: everything up to it was submitted already
+        long idleCeiling = dispatched.getAsLong();
+        long before = safeSequence;
+        while (!inbox.isEmpty() || !isEmpty()) {
+            if (!writeNext()) {
+                return;
+            }
+        }
+        if (idleCeiling > safeSequence) {
+            safeSequence = idleCeiling;
+        }
+        if (safeSequence > before) {
+            committed.run();
+        }
+    }
+
+    /**
+     * Take chunks up to a batch and write them.
+     *
+     * @return false if the write failed
+     */
+    private boolean writeNext() {
+        int batchSize = DatabaseConfig.CONFIG.consumerBatchSize.get();
+        Chunk chunk;
+        while (size() < batchSize && (chunk = inbox.poll()) != null) {
+            inboxSize.decrementAndGet();
+            accept(chunk.entries(), chunk.ceiling());
+        }
+        try {
+            int processed = VonixCore.getInstance().getDatabase().write(conn -> {
+                conn.setAutoCommit(false);
+                return write(conn);
+            });
+            if (processed > 0) {
+                VonixCore.LOGGER.debug("[vonixcore] Writer {} processed {} queue entries", index + 1, processed);
+            }
+            return true;
+        } catch (SQLException e) {
+            VonixCore.LOGGER.error("[vonixcore] Database error in writer {}: {}", index + 1, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * One round of entries from the Consumer thread and the ceiling that came with it.
+     */
+    record Chunk(List<QueueEntry> entries, long[] ceiling) {
+    }
+}
@@ -0,0 +1,196 @@
+package network.vonix.vonixcore.database;
+
+import network.vonix.vonixcore.VonixCore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves made while a remote database is unreachable, kept in a local SQLite
+ * file until they can be written. Entries are replayed oldest first. One
+ * that the database rejects is logged and dropped so it can't hold up the
+ * rest; a lost connection stops the replay with the entry still in place.
+ *
+ * An entry is removed only after it has been committed remotely, so a crash
+ * in between writes it twice. The saves kept here are upserts and deletes,
+ * for which that is harmless.
+ *
+ * Appends are stored by a thread of their own, in the order they were made,
+ * so a caller on the server thread never waits for the disk. The count
+ * includes appends still on their way to the file. The monitor guards the
+ * count; the local connection's monitor guards the file. Only one thread
+ * replays at a time.
+ */
+final class OutageJournal {
+
+    private static final int REPLAY_BATCH = 100;
+
+    private final Connection local;
+    private final ExecutorService appender = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "VonixCore-DB-Journal");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long size;
+
+    private OutageJournal(Connection local) {
+        this.local = local;
+    }
+
+    static OutageJournal open(Path file) throws SQLException {
+        Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file);
+        OutageJournal journal = new OutageJournal(conn);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA journal_mode = WAL");
+            // Survives a server crash; only checkpoints wait for the disk
+            stmt.execute("PRAGMA synchronous = NORMAL");
+            stmt.execute("CREATE TABLE IF NOT EXISTS journal ("
+                    + "seq INTEGER PRIMARY KEY AUTOINCREMENT, "
+                    + "data BLOB NOT NULL)");
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM journal")) {
+                journal.size = rs.next() ? rs.getLong(1) : 0;
+            }
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        return journal;
+    }
+
+    synchronized void append(JournaledWrite write) throws SQLException {
+        byte[] data;
+        try {
+            data = write.toBytes();
+        } catch (IOException e) {
+            throw new SQLException("Can't encode journal entry", e);
+        }
+        try {
+            appender.execute(() -> store(data));
+        } catch (RejectedExecutionException e) {
+            throw new SQLException("Outage journal is closed", e);
+        }
+        size++;
+    }
+
+    private void store(byte[] data) {
+        try {
+            synchronized (local) {
+                try (PreparedStatement ps = local.prepareStatement("INSERT INTO journal (data) VALUES (?)")) {
+                    ps.setBytes(1, data);
+                    ps.executeUpdate();
+                }
+            }
+        } catch (SQLException e) {
+            VonixCore.LOGGER.error("[VonixCore] Lost a save on its way into the outage journal: {}", e.getMessage());
+            synchronized (this) {
+                size--;
+            }
+        }
+    }
+
+    synchronized long size() {
+        return size;
+    }
+
+    synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Write every entry to the database, oldest first.
+     *
+     * @return entries written
+     * @throws SQLException if the connection failed; the remaining entries stay
+     */
+    int replay(Connection target) throws SQLException {
+        int written = 0;
+        while (true) {
+            List<Entry> batch = next();
+            if (batch.isEmpty()) {
+                return written;
+            }
+            for (Entry entry : batch) {
+                try {
+                    JournaledWrite.fromBytes(entry.data()).run(target);
+                    written++;
+                } catch (IOException e) {
+                    VonixCore.LOGGER.error("[VonixCore] Dropping unreadable outage journal entry {}: {}",
+                            entry.seq(), e.getMessage());
+                } catch (SQLException e) {
+                    if (CircuitBreaker.isConnectionFailure(e) || !target.isValid(2)) {
+                        throw e;
+                    }
+                    VonixCore.LOGGER.error("[VonixCore] Dropping outage journal entry {} the database rejected: {}",
+                            entry.seq(), e.getMessage());
+                }
+                remove(entry.seq());
+            }
+        }
+    }
+
+    private List<Entry> next() throws SQLException {
+        List<Entry> batch = new ArrayList<>();
+        synchronized (local) {
+            try (Statement stmt = local.createStatement();
+                    ResultSet rs = stmt.executeQuery(
+                            "SELECT seq, data FROM journal ORDER BY seq LIMIT " + REPLAY_BATCH)) {
+                while (rs.next()) {
+                    batch.add(new Entry(rs.getLong(1), rs.getBytes(2)));
+                }
+            }
+        }
+        return batch;
+    }
+
+    private void remove(long seq) throws SQLException {
+        int removed;
+        synchronized (local) {
+            try (PreparedStatement ps = local.prepareStatement("DELETE FROM journal WHERE seq = ?")) {
+                ps.setLong(1, seq);
+                removed = ps.executeUpdate();
+            }
+        }
+        synchronized (this) {
+            size -= removed;
+        }
+    }
+
+    /**
+     * Store the appends still queued and close the file.
+     */
+    void close() {
+        appender.shutdown();
+        try {
+            appender.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (local) {
+            try {
+                if (isEmpty()) {
+                    try (Statement stmt = local.createStatement()) {
+                        stmt.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+                    }
+                }
+                local.close();
+            } catch (SQLException e) {
+                VonixCore.LOGGER.warn("[VonixCore] Failed to close outage journal: {}", e.getMessage());
+            }
+        }
+    }
+
+    private record Entry(long seq, byte[] data) {
+    }
+}
@@ -4,7 +4,6 @@ import dev.architectury.event.EventResult;
 import dev.architectury.event.events.common.ChatEvent;
 import dev.architectury.event.events.common.CommandRegistrationEvent;
 import dev.architectury.event.events.common.EntityEvent;
-import dev.architectury.event.events.common.LifecycleEvent;
 import dev.architectury.event.events.common.PlayerEvent;
 import net.minecraft.network.chat.Component;
 import net.minecraft.server.level.ServerPlayer;
@@ -20,8 +19,6 @@ import network.vonix.vonixcore.platform.Platform;
 import network.vonix.vonixcore.teleport.TeleportManager;
 import network.vonix.vonixcore.auth.integrations.RankSyncHandler;
 
-import java.sql.Connection;
-
 /**
  * Event handler for essentials features: commands, permissions, chat
  * formatting.
@@ -52,20 +49,6 @@ public class EssentialsEventHandler {
             VonixCore.LOGGER.info("[VonixCore] Essentials commands registered");
         });
 
-        // Initialize permission system on server start
-        LifecycleEvent.SERVER_STARTING.register(server -> {
-            if (!EssentialsConfig.CONFIG.enabled.get()) {
-                return;
-            }
-
-            try (Connection conn = VonixCore.getInstance().getDatabase().getConnection()) {
-                PermissionManager.getInstance().initialize(conn);
-                VonixCore.LOGGER.info("[VonixCore] Permission system initialized");
-            } catch (Exception e) {
-                VonixCore.LOGGER.error("[VonixCore] Failed to initialize permission system", e);
-            }
-        });
-
         // Chat Formatting
         // On Fabric AND NeoForge: Handled by mixin (ServerGamePacketListenerMixin) to prevent
         // duplicates. The mixin handles both Discord sending AND chat formatting.
@@ -83,8 +66,8 @@ public class EssentialsEventHandler {
                 // Track for /seen command
                 UtilityCommands.onPlayerJoin(serverPlayer.getUUID());
 
-                // Pre-load permission data
-                PermissionManager.getInstance().getUser(serverPlayer.getUUID());
+                // Pre-load permission data off the server thread
+                PermissionManager.getInstance().preloadUser(serverPlayer.getUUID());
 
                 // Auto-sync donation rank from website (works without login)
                 RankSyncHandler.syncOnJoin(serverPlayer.getUUID());
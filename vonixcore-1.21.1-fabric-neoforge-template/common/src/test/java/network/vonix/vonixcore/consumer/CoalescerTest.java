@@ -0,0 +1,183 @@
+package network.vonix.vonixcore.consumer;
+
+import network.vonix.vonixcore.consumer.Consumer.BlockLogEntry;
+import network.vonix.vonixcore.consumer.Consumer.QueueEntry;
+import network.vonix.vonixcore.database.TestSchema;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lever spam written once as it happened and once through the coalescer.
+ * Rolling back either must leave the world in the same state.
+ */
+class CoalescerTest {
+
+    private static final long WINDOW_MILLIS = 1000;
+    private static final String OFF = "minecraft:lever[powered=false]";
+    private static final String ON = "minecraft:lever[powered=true]";
+
+    // Levers, by x
+    private static final int STEVE_ODD = 0;
+    private static final int ALEX_EVEN = 1;
+    private static final int SHARED = 2;
+    private static final int STEVE_PAUSED = 3;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void rollbackOfCoalescedLeverSpamMatchesTheRawTrace() throws SQLException {
+        List<Toggle> trace = leverSpam();
+        Map<Integer, String> initial = new HashMap<>();
+        Map<Integer, String> world = new HashMap<>();
+        List<BlockLogEntry> raw = new ArrayList<>();
+        for (Toggle toggle : trace) {
+            initial.putIfAbsent(toggle.x, OFF);
+            raw.add(toggle.apply(world));
+        }
+
+        world.clear();
+        List<BlockLogEntry> coalesced = new ArrayList<>();
+        Coalescer coalescer = new Coalescer(WINDOW_MILLIS, Integer.MAX_VALUE, entry -> {
+        });
+        for (Toggle toggle : trace) {
+            coalescer.add(toggle.apply(world));
+        }
+        coalescer.drain(true, Integer.MAX_VALUE, coalesced::add);
+        assertTrue(coalescer.isEmpty());
+
+        try (Connection rawDb = database("raw.db", raw); Connection coalescedDb = database("coalesced.db", coalesced)) {
+            assertEquals(raw.size(), count(rawDb));
+            assertEquals(coalescer.getRowsOut(), count(coalescedDb));
+            double reduction = 1 - (double) coalescer.getRowsOut() / coalescer.getEntriesIn();
+            System.out.printf("Lever spam: %d changes written as %d rows (%.1f%% fewer)%n",
+                    coalescer.getEntriesIn(), coalescer.getRowsOut(), 100 * reduction);
+            assertTrue(reduction > 0.75, "only " + reduction + " of the rows were saved");
+
+            // Everything, including the lever both players spammed
+            assertEquals(initial, rollBack(rawDb, world, null));
+            assertEquals(initial, rollBack(coalescedDb, world, null));
+
+            // One player's levers, left as the raw rows would leave them
+            for (String user : List.of("Steve", "Alex")) {
+                Map<Integer, String> expected = rollBack(rawDb, world, user);
+                Map<Integer, String> actual = rollBack(coalescedDb, world, user);
+                for (int x : List.of(STEVE_ODD, ALEX_EVEN, STEVE_PAUSED)) {
+                    assertEquals(expected.get(x), actual.get(x), user + ", lever " + x);
+                }
+            }
+        }
+    }
+
+    @Test
+    void toggleBackAndForthWithinTheWindowWritesNothing() {
+        List<BlockLogEntry> out = new ArrayList<>();
+        Coalescer coalescer = new Coalescer(WINDOW_MILLIS, Integer.MAX_VALUE, entry -> {
+        });
+        Map<Integer, String> world = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            coalescer.add(new Toggle(i * 50L, "Steve", STEVE_ODD).apply(world));
+        }
+        coalescer.drain(true, Integer.MAX_VALUE, out::add);
+
+        assertEquals(List.of(), out);
+        assertEquals(10, coalescer.getEntriesIn());
+        assertEquals(0, coalescer.getRowsOut());
+    }
+
+    /**
+     * A player's clicks on a lever, every 50 ms, possibly interleaved with
+     * another player's and spanning several windows.
+     */
+    private static List<Toggle> leverSpam() {
+        List<Toggle> trace = new ArrayList<>();
+        for (int i = 0; i < 41; i++) {
+            trace.add(new Toggle(i * 50L, "Steve", STEVE_ODD));
+        }
+        for (int i = 0; i < 40; i++) {
+            trace.add(new Toggle(i * 50L + 10, "Alex", ALEX_EVEN));
+        }
+        for (int i = 0; i < 11; i++) {
+            // Fighting over it inside one window, so neither player's own clicks cancel out
+            trace.add(new Toggle(i * 50L + 20, i % 2 == 0 ? "Steve" : "Alex", SHARED));
+        }
+        for (int i = 0; i < 9; i++) {
+            // A pause longer than the window after the fifth click
+            trace.add(new Toggle(i * 50L + 30 + (i >= 5 ? 3000 : 0), "Steve", STEVE_PAUSED));
+        }
+        trace.sort(Comparator.comparingLong(Toggle::time));
+        return trace;
+    }
+
+    private Connection database(String name, List<BlockLogEntry> rows) throws SQLException {
+        Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dir.resolve(name));
+        TestSchema.createTables(conn);
+        conn.setAutoCommit(false);
+        ShardWriter writer = new ShardWriter(0, new long[ShardWriter.LANES], new Dictionary(), false, null, null,
+                entry -> {
+                });
+        writer.accept(new ArrayList<QueueEntry>(rows), new long[ShardWriter.LANES]);
+        writer.write(conn);
+        return conn;
+    }
+
+    /**
+     * Set each logged block back to its old state, newest row first, as
+     * RollbackParams.blockQuery orders them.
+     *
+     * @param user only this player's rows, or null for everyone's
+     */
+    private static Map<Integer, String> rollBack(Connection conn, Map<Integer, String> world, String user)
+            throws SQLException {
+        Map<Integer, String> result = new HashMap<>(world);
+        String sql = "SELECT b.x, d.name FROM vp_block b LEFT JOIN vp_blockdata d ON d.id = b.old_data"
+                + " JOIN vp_user u ON u.id = b.\"user\" WHERE ? IS NULL OR u.username = ?"
+                + " ORDER BY b.time DESC, b.id DESC";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, user);
+            stmt.setString(2, user);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    result.put(rs.getInt(1), rs.getString(2));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static int count(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM vp_block");
+                ResultSet rs = stmt.executeQuery()) {
+            return rs.getInt(1);
+        }
+    }
+
+    private record Toggle(long time, String user, int x) {
+        /**
+         * Flip the lever in the world and return the entry that logs it.
+         */
+        BlockLogEntry apply(Map<Integer, String> world) {
+            String old = world.getOrDefault(x, OFF);
+            String flipped = old.equals(OFF) ? ON : OFF;
+            world.put(x, flipped);
+            return new BlockLogEntry(time, user, "uuid-" + user.toLowerCase(), "minecraft:overworld", x, 64, 0,
+                    "minecraft:lever", "minecraft:lever", old, "minecraft:lever", flipped,
+                    BlockLogEntry.ACTION_PLACE);
+        }
+    }
+}
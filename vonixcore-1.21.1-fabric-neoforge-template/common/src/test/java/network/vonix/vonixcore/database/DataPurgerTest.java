@@ -0,0 +1,188 @@
+package network.vonix.vonixcore.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Purging 5M expired rows from a SQLite file while another thread keeps
+ * writing, the way the Consumer does.
+ */
+@Tag("slow")
+class DataPurgerTest {
+
+    private static final int EXPIRED = 5_000_000;
+    private static final int FRESH = 50_000;
+    private static final long NOW = System.currentTimeMillis();
+    private static final long CUTOFF = NOW - TimeUnit.DAYS.toMillis(30);
+    // Longest a single statement may keep other writers waiting. A chunk
+    // takes around 100 ms here; the whole purge as one statement over a minute.
+    private static final long MAX_HOLD_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    @TempDir
+    Path dir;
+
+    private TimedDatabase database;
+
+    @BeforeEach
+    void seed() throws SQLException {
+        String url = "jdbc:sqlite:" + dir.resolve("test.db");
+        try (Connection conn = open(url)) {
+            // As Database.createSqliteFile sets up a new file
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
+                stmt.execute("PRAGMA journal_mode = WAL");
+            }
+            TestSchema.createTables(conn);
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                // Expired rows first, so ids grow with time as they do in game
+                stmt.execute(rows(EXPIRED, CUTOFF - TimeUnit.DAYS.toMillis(60)));
+                stmt.execute(rows(FRESH, NOW - 1000L * FRESH));
+            }
+            conn.commit();
+        }
+        database = new TimedDatabase(url);
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        database.closeWriter();
+    }
+
+    @Test
+    void expiredRowsGoInShortStatementsWhileWritesContinue() throws Exception {
+        AtomicBoolean purging = new AtomicBoolean(true);
+        long[] slowestInsert = new long[1];
+        int[] inserts = new int[1];
+        Thread consumer = new Thread(() -> {
+            try {
+                while (purging.get()) {
+                    long start = System.nanoTime();
+                    database.write(conn -> {
+                        try (Statement stmt = conn.createStatement()) {
+                            return stmt.executeUpdate("INSERT INTO vp_chat (time, \"user\", message)"
+                                    + " VALUES (" + System.currentTimeMillis() + ", 1, 'hello')");
+                        }
+                    });
+                    slowestInsert[0] = Math.max(slowestInsert[0], System.nanoTime() - start);
+                    inserts[0]++;
+                    Thread.sleep(1);
+                }
+            } catch (SQLException | InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }, "consumer");
+        consumer.start();
+
+        DataPurger purger = new DataPurger();
+        long started = System.nanoTime();
+        long deleted;
+        try {
+            deleted = purger.purgeTable(database, "vp_block", CUTOFF, 1);
+        } finally {
+            purging.set(false);
+            consumer.join();
+        }
+        System.out.printf("Purged %d rows in %d ms, longest statement %d ms, slowest concurrent insert %d ms"
+                + " (%d inserts)%n", deleted, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started),
+                TimeUnit.NANOSECONDS.toMillis(database.longestWrite),
+                TimeUnit.NANOSECONDS.toMillis(slowestInsert[0]), inserts[0]);
+
+        assertEquals(EXPIRED, deleted);
+        assertEquals(FRESH, query("SELECT COUNT(*) FROM vp_block"));
+        assertEquals(0, query("SELECT COUNT(*) FROM vp_block WHERE time < " + CUTOFF));
+        assertEquals(inserts[0], query("SELECT COUNT(*) FROM vp_chat"));
+        assertTrue(database.longestWrite < MAX_HOLD_NANOS,
+                "a purge statement held the writer for " + database.longestWrite + "ns");
+        assertTrue(slowestInsert[0] < MAX_HOLD_NANOS * 2,
+                "an insert waited " + slowestInsert[0] + "ns behind the purge");
+
+        // The file was created with incremental auto_vacuum, so the freed pages go back
+        long pages = query("PRAGMA page_count");
+        assertTrue(query("PRAGMA freelist_count") > pages / 2);
+        purger.vacuum(database);
+        assertEquals(0, query("PRAGMA freelist_count"));
+        assertTrue(query("PRAGMA page_count") < pages / 2);
+    }
+
+    /**
+     * Block changes one second apart starting at the given time.
+     */
+    private static String rows(int count, long from) {
+        return """
+                INSERT INTO vp_block (time, "user", world, x, y, z, type, old_type, new_type, action)
+                WITH RECURSIVE n(i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < %d)
+                SELECT %d + i * 1000, 1, 1, i %% 1000, 64, i / 1000, 1, 1, 2, 1 FROM n
+                """.formatted(count, from);
+    }
+
+    /**
+     * A connection set up as Database.configureSqlite does it.
+     */
+    private static Connection open(String url) throws SQLException {
+        Properties pragmas = new Properties();
+        pragmas.setProperty("synchronous", "NORMAL");
+        pragmas.setProperty("cache_size", "10000");
+        pragmas.setProperty("temp_store", "MEMORY");
+        return DriverManager.getConnection(url, pragmas);
+    }
+
+    private long query(String sql) throws SQLException {
+        return database.write(conn -> {
+            try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+                return rs.getLong(1);
+            }
+        });
+    }
+
+    /**
+     * One SQLite file with a single writing connection, like
+     * {@link SqliteWriter}, that times how long each write holds it.
+     */
+    private static final class TimedDatabase extends Database {
+        private final String url;
+        private final Connection writer;
+        volatile long longestWrite;
+
+        TimedDatabase(String url) throws SQLException {
+            super(null);
+            this.url = url;
+            this.writer = open(url);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return open(url);
+        }
+
+        @Override
+        public synchronized <T> T write(SqlFunction<T> work) throws SQLException {
+            long start = System.nanoTime();
+            try {
+                return work.apply(writer);
+            } finally {
+                longestWrite = Math.max(longestWrite, System.nanoTime() - start);
+            }
+        }
+
+        void closeWriter() throws SQLException {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package network.vonix.vonixcore.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutageJournalTest {
+
+    private static final String UPSERT = "INSERT INTO balances (uuid, balance) VALUES (?, ?) "
+            + "ON CONFLICT (uuid) DO UPDATE SET balance = excluded.balance";
+
+    @TempDir
+    Path dir;
+
+    private Connection target;
+
+    @BeforeEach
+    void openTarget() throws SQLException {
+        target = DriverManager.getConnection("jdbc:sqlite:" + dir.resolve("target.db"));
+        try (Statement stmt = target.createStatement()) {
+            stmt.execute("CREATE TABLE balances (uuid TEXT PRIMARY KEY, balance DOUBLE)");
+        }
+    }
+
+    @AfterEach
+    void closeTarget() throws SQLException {
+        target.close();
+    }
+
+    @Test
+    void entriesSurviveARestartAndReplayInOrder() throws SQLException {
+        OutageJournal journal = OutageJournal.open(journalFile());
+        journal.append(new JournaledWrite().add(UPSERT, "a", 1.0));
+        journal.append(new JournaledWrite().add(UPSERT, "b", 2.0));
+        // Later saves of the same row win
+        journal.append(new JournaledWrite().add(UPSERT, "a", 3.0));
+        assertEquals(3, journal.size());
+        journal.close();
+
+        OutageJournal reopened = OutageJournal.open(journalFile());
+        assertEquals(3, reopened.size());
+        assertEquals(3, reopened.replay(target));
+        assertTrue(reopened.isEmpty());
+        reopened.close();
+
+        assertEquals(List.of("a=3.0", "b=2.0"), balances());
+        OutageJournal again = OutageJournal.open(journalFile());
+        assertTrue(again.isEmpty());
+        again.close();
+    }
+
+    @Test
+    void rejectedEntryIsDroppedAndTheRestWritten() throws SQLException {
+        OutageJournal journal = OutageJournal.open(journalFile());
+        journal.append(new JournaledWrite().add("INSERT INTO missing (x) VALUES (?)", 1));
+        journal.append(new JournaledWrite().add(UPSERT, "a", 1.0));
+        journal.close();
+
+        OutageJournal reopened = OutageJournal.open(journalFile());
+        assertEquals(1, reopened.replay(target));
+        assertTrue(reopened.isEmpty());
+        reopened.close();
+        assertEquals(List.of("a=1.0"), balances());
+    }
+
+    @Test
+    void unreadableEntryIsDroppedAndTheRestWritten() throws SQLException {
+        OutageJournal journal = OutageJournal.open(journalFile());
+        journal.append(new JournaledWrite().add(UPSERT, "a", 1.0));
+        journal.close();
+        // An entry cut short, then a good one after it
+        try (Connection local = DriverManager.getConnection("jdbc:sqlite:" + journalFile())) {
+            try (PreparedStatement ps = local.prepareStatement("INSERT INTO journal (data) VALUES (?)")) {
+                ps.setBytes(1, new byte[] { 0, 0, 0, 1, 0 });
+                ps.executeUpdate();
+            }
+            try (Statement stmt = local.createStatement()) {
+                stmt.execute("INSERT INTO journal (data) SELECT data FROM journal WHERE seq = 1");
+            }
+        }
+
+        OutageJournal reopened = OutageJournal.open(journalFile());
+        assertEquals(3, reopened.size());
+        assertEquals(2, reopened.replay(target));
+        assertTrue(reopened.isEmpty());
+        reopened.close();
+        assertEquals(List.of("a=1.0"), balances());
+    }
+
+    @Test
+    void appendsQueuedAtCloseAreStored() throws SQLException {
+        OutageJournal journal = OutageJournal.open(journalFile());
+        for (int i = 0; i < 200; i++) {
+            journal.append(new JournaledWrite().add(UPSERT, "p" + i, (double) i));
+        }
+        journal.close();
+
+        OutageJournal reopened = OutageJournal.open(journalFile());
+        assertEquals(200, reopened.size());
+        assertEquals(200, reopened.replay(target));
+        reopened.close();
+        assertEquals(200, balances().size());
+    }
+
+    private Path journalFile() {
+        return dir.resolve("outage-journal.db");
+    }
+
+    private List<String> balances() throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Statement stmt = target.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT uuid, balance FROM balances ORDER BY uuid")) {
+            while (rs.next()) {
+                rows.add(rs.getString(1) + "=" + rs.getDouble(2));
+            }
+        }
+        return rows;
+    }
+}
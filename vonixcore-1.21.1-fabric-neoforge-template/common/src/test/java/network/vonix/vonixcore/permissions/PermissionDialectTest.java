@@ -0,0 +1,230 @@
+package network.vonix.vonixcore.permissions;
+
+import network.vonix.vonixcore.database.JournaledWrite;
+import network.vonix.vonixcore.database.SqlDialect;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The permission tables created, written and read back in each dialect:
+ * SQLite itself, MySQL and PostgreSQL as H2 in their compatibility modes.
+ * Every statement sent counts as a round trip, a batch as one.
+ */
+class PermissionDialectTest {
+
+    private static final UUID STEVE = UUID.fromString("8667ba71-b85a-4004-af54-457a9734eed7");
+
+    @TempDir
+    Path dir;
+
+    private final AtomicInteger roundTrips = new AtomicInteger();
+
+    @ParameterizedTest
+    @EnumSource(SqlDialect.class)
+    void groupsRoundTrip(SqlDialect dialect) throws SQLException {
+        try (Connection conn = open(dialect)) {
+            PermissionManager manager = new PermissionManager();
+            manager.createTables(conn, dialect);
+            // Run again at every startup
+            manager.createTables(conn, dialect);
+
+            PermissionGroup group = new PermissionGroup("builder");
+            group.setDisplayName("§aBuilder");
+            group.setPrefix("§a[B] ");
+            group.setWeight(10);
+            group.setParent("default");
+            for (int i = 0; i < 50; i++) {
+                group.setPermission("vonixcore.build." + i, i % 3 != 0);
+            }
+            assertEquals(3, write(conn, PermissionManager.groupWrite(dialect, group)),
+                    "group row, permissions batch, delete of the rest");
+
+            group.setPrefix("");
+            group.setWeight(20);
+            group.setPermission("vonixcore.build.0", true);
+            for (int i = 40; i < 50; i++) {
+                group.unsetPermission("vonixcore.build." + i);
+            }
+            assertEquals(3, write(conn, PermissionManager.groupWrite(dialect, group)));
+
+            PermissionManager reloaded = new PermissionManager();
+            reloaded.loadGroups(conn);
+            PermissionGroup loaded = reloaded.getGroup("builder");
+            assertEquals("§aBuilder", loaded.getDisplayName());
+            assertEquals("", loaded.getPrefix());
+            assertEquals(20, loaded.getWeight());
+            assertEquals("default", loaded.getParent());
+            assertEquals(group.getPermissions(), loaded.getPermissions());
+            assertEquals(1, count(conn, "vc_groups"));
+            assertEquals(40, count(conn, "vc_group_permissions"));
+            assertNotNull(first(conn, "SELECT created_at FROM vc_groups"));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(SqlDialect.class)
+    void usersRoundTrip(SqlDialect dialect) throws SQLException {
+        try (Connection conn = open(dialect)) {
+            PermissionManager manager = new PermissionManager();
+            manager.createTables(conn, dialect);
+
+            PermissionUser user = new PermissionUser(STEVE);
+            user.setUsername("Steve");
+            user.setPrimaryGroup("builder");
+            user.setSuffix(" ✓");
+            user.setPermission("vonixcore.home.multiple", true);
+            user.setPermission("vonixcore.fly", false);
+            assertEquals(3, write(conn, PermissionManager.userWrite(dialect, user)));
+
+            user.unsetPermission("vonixcore.fly");
+            user.setPermission("vonixcore.god", true);
+            assertEquals(3, write(conn, PermissionManager.userWrite(dialect, user)));
+
+            PermissionUser loaded = manager.readUser(conn, STEVE);
+            assertEquals("Steve", loaded.getUsername());
+            assertEquals("builder", loaded.getPrimaryGroup());
+            assertEquals("", loaded.getPrefix());
+            assertEquals(" ✓", loaded.getSuffix());
+            assertEquals(Map.of("vonixcore.home.multiple", true, "vonixcore.god", true), loaded.getPermissions());
+            assertEquals(1, count(conn, "vc_user_permissions"));
+            assertNotNull(first(conn, "SELECT updated_at FROM vc_user_permissions"));
+        }
+    }
+
+    /**
+     * Rows written without the defaulted columns, as an older build or a
+     * hand edit would.
+     */
+    @ParameterizedTest
+    @EnumSource(SqlDialect.class)
+    void columnDefaults(SqlDialect dialect) throws SQLException {
+        try (Connection conn = open(dialect)) {
+            PermissionManager manager = new PermissionManager();
+            manager.createTables(conn, dialect);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("INSERT INTO vc_user_permissions (uuid, username)"
+                        + " VALUES ('" + STEVE + "', 'Steve')");
+                stmt.executeUpdate("INSERT INTO vc_user_perms (uuid, permission)"
+                        + " VALUES ('" + STEVE + "', 'vonixcore.tpa')");
+                stmt.executeUpdate("INSERT INTO vc_user_groups (uuid, group_name)"
+                        + " VALUES ('" + STEVE + "', 'builder')");
+                stmt.executeUpdate("INSERT INTO vc_groups (name) VALUES ('default')");
+                stmt.executeUpdate("INSERT INTO vc_group_permissions (group_name, permission)"
+                        + " VALUES ('default', 'vonixcore.spawn')");
+            }
+
+            PermissionUser user = manager.readUser(conn, STEVE);
+            assertEquals("default", user.getPrimaryGroup());
+            assertEquals(Map.of("vonixcore.tpa", true), user.getPermissions());
+            // Without an expiry
+            assertEquals(Set.of("builder"), user.getGroups());
+            manager.loadGroups(conn);
+            PermissionGroup group = manager.getGroup("default");
+            assertEquals(0, group.getWeight());
+            assertEquals(Map.of("vonixcore.spawn", true), group.getPermissions());
+            assertNotNull(first(conn, "SELECT created_at FROM vc_groups"));
+            assertNotNull(first(conn, "SELECT updated_at FROM vc_user_permissions"));
+        }
+    }
+
+    /**
+     * @return round trips the write took
+     */
+    private int write(Connection conn, JournaledWrite write) throws SQLException {
+        int before = roundTrips.get();
+        write.run(conn);
+        int taken = roundTrips.get() - before;
+        assertTrue(taken > 0);
+        return taken;
+    }
+
+    private static int count(Connection conn, String table) throws SQLException {
+        return ((Number) first(conn, "SELECT COUNT(*) FROM " + table)).intValue();
+    }
+
+    private static Object first(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getObject(1) : null;
+        }
+    }
+
+    /**
+     * A connection to the dialect's database that counts the statements sent
+     * through it. VALUE is a keyword only in H2.
+     */
+    private Connection open(SqlDialect dialect) throws SQLException {
+        Connection conn = switch (dialect) {
+            case MYSQL -> DriverManager.getConnection(
+                    "jdbc:h2:mem:mysql;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE");
+            case POSTGRESQL -> DriverManager.getConnection(
+                    "jdbc:h2:mem:postgresql;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE");
+            default -> DriverManager.getConnection("jdbc:sqlite:" + dir.resolve("permissions.db"));
+        };
+        return (Connection) Proxy.newProxyInstance(PermissionDialectTest.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("prepareStatement")) {
+                        args[0] = forH2(dialect, (String) args[0]);
+                    }
+                    Object result = invoke(conn, method, args);
+                    if (result instanceof Statement stmt) {
+                        return counting(dialect, stmt, method.getReturnType());
+                    }
+                    return result;
+                });
+    }
+
+    private Statement counting(SqlDialect dialect, Statement stmt, Class<?> type) {
+        return (Statement) Proxy.newProxyInstance(PermissionDialectTest.class.getClassLoader(),
+                new Class<?>[] { type }, (proxy, method, args) -> {
+                    if (method.getName().startsWith("execute")) {
+                        roundTrips.incrementAndGet();
+                        if (args != null && args.length > 0 && args[0] instanceof String sql) {
+                            args[0] = forH2(dialect, sql);
+                        }
+                    }
+                    return invoke(stmt, method, args);
+                });
+    }
+
+    /**
+     * H2 reads PostgreSQL's identity column only before PRIMARY KEY and has
+     * no ON CONFLICT; its MERGE ... KEY does what the dialect's upsert does
+     * when every column is given.
+     */
+    private static String forH2(SqlDialect dialect, String sql) {
+        if (dialect != SqlDialect.POSTGRESQL) {
+            return sql;
+        }
+        return sql.replace("PRIMARY KEY GENERATED ALWAYS AS IDENTITY", "GENERATED ALWAYS AS IDENTITY PRIMARY KEY")
+                .replaceAll("^INSERT INTO (\\w+) \\(([^)]*)\\) VALUES \\(([^)]*)\\)"
+                        + " ON CONFLICT \\(([^)]*)\\) DO UPDATE SET .*$", "MERGE INTO $1 ($2) KEY ($4) VALUES ($3)");
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}